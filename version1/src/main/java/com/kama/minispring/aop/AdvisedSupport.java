@@ -1,7 +1,13 @@
 package com.kama.minispring.aop;
 
+import com.kama.minispring.aop.adapter.AdvisorAdapterRegistry;
+import com.kama.minispring.aop.adapter.DefaultAdvisorAdapterRegistry;
+
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * AOP配置管理类
@@ -21,8 +27,17 @@ public class AdvisedSupport {
     // 方法拦截器列表
     private final List<MethodInterceptor> methodInterceptors = new ArrayList<>();
     
+    // 通知器列表(按切点匹配的方法才应用)
+    private final List<Advisor> advisors = new ArrayList<>();
+    
     // 方法匹配器(检查目标方法是否符合通知条件)
     private MethodMatcher methodMatcher;
+    
+    // 通知适配器注册表
+    private final AdvisorAdapterRegistry advisorAdapterRegistry = new DefaultAdvisorAdapterRegistry();
+    
+    // 每个方法的拦截器链缓存
+    private final Map<Method, List<MethodInterceptor>> methodCache = new ConcurrentHashMap<>();
 
     public boolean isProxyTargetClass() {
         return proxyTargetClass;
@@ -46,6 +61,46 @@ public class AdvisedSupport {
 
     public void addMethodInterceptor(MethodInterceptor methodInterceptor) {
         this.methodInterceptors.add(methodInterceptor);
+        this.methodCache.clear();
+    }
+
+    public List<Advisor> getAdvisors() {
+        return advisors;
+    }
+
+    public void addAdvisor(Advisor advisor) {
+        this.advisors.add(advisor);
+        this.methodCache.clear();
+    }
+
+    /**
+     * 获取应用于指定方法的拦截器链
+     * 直接添加的拦截器作用于所有方法，通知器只在切点匹配时加入，结果按方法缓存
+     *
+     * @param method 被调用的方法
+     * @param targetClass 目标类
+     * @return 拦截器链
+     */
+    public List<MethodInterceptor> getInterceptors(Method method, Class<?> targetClass) {
+        if (this.advisors.isEmpty()) {
+            return this.methodInterceptors;
+        }
+        List<MethodInterceptor> cached = this.methodCache.get(method);
+        if (cached == null) {
+            cached = new ArrayList<>(this.methodInterceptors);
+            for (Advisor advisor : this.advisors) {
+                if (advisor instanceof PointcutAdvisor) {
+                    Pointcut pointcut = ((PointcutAdvisor) advisor).getPointcut();
+                    if (!pointcut.getClassFilter().matches(targetClass)
+                            || !pointcut.getMethodMatcher().matches(method, targetClass)) {
+                        continue;
+                    }
+                }
+                cached.add(this.advisorAdapterRegistry.wrap(advisor.getAdvice()));
+            }
+            this.methodCache.put(method, cached);
+        }
+        return cached;
     }
 
     public MethodMatcher getMethodMatcher() {
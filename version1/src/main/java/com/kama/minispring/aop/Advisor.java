@@ -0,0 +1,18 @@
+package com.kama.minispring.aop;
+
+/**
+ * 通知器接口
+ * 持有一个通知，是自动代理时应用通知的基本单位
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public interface Advisor {
+
+    /**
+     * 获取通知
+     *
+     * @return 通知
+     */
+    Advice getAdvice();
+}
@@ -64,7 +64,11 @@ public class CglibAopProxy implements AopProxy {
             }
 
             // 创建拦截器链
-            List<com.kama.minispring.aop.MethodInterceptor> interceptors = advised.getMethodInterceptors();
+            List<com.kama.minispring.aop.MethodInterceptor> interceptors =
+                    advised.getInterceptors(method, target.getClass());
+            if (interceptors.isEmpty()) {
+                return methodProxy.invoke(target, args);
+            }
 
             // 创建方法调用
             CglibMethodInvocation invocation = new CglibMethodInvocation(target, method, args, methodProxy, interceptors);
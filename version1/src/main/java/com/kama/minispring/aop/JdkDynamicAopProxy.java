@@ -47,11 +47,14 @@ public class JdkDynamicAopProxy implements AopProxy, InvocationHandler {
         // 检查方法是否匹配切点表达式
         if (advised.getMethodMatcher() != null 
                 && !advised.getMethodMatcher().matches(method, target.getClass())) {
-            return method.invoke(target, args);
+            return ReflectiveMethodInvocation.invokeJoinpoint(target, method, args);
         }
 
         // 创建拦截器链
-        List<MethodInterceptor> interceptors = advised.getMethodInterceptors();
+        List<MethodInterceptor> interceptors = advised.getInterceptors(method, target.getClass());
+        if (interceptors.isEmpty()) {
+            return ReflectiveMethodInvocation.invokeJoinpoint(target, method, args);
+        }
 
         // 创建方法调用对象
         MethodInvocation invocation = new ReflectiveMethodInvocation(target, method, args, interceptors);
@@ -0,0 +1,18 @@
+package com.kama.minispring.aop;
+
+/**
+ * 由切点驱动的通知器
+ * 只有被切点匹配的类和方法才会应用其通知
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public interface PointcutAdvisor extends Advisor {
+
+    /**
+     * 获取切点
+     *
+     * @return 切点
+     */
+    Pointcut getPointcut();
+}
@@ -39,6 +39,16 @@ public class ProxyFactory {
         this.advised.addMethodInterceptor(interceptor);
     }
 
+    /**
+     * 添加通知器
+     * 通知只作用于切点匹配的方法
+     *
+     * @param advisor 通知器
+     */
+    public void addAdvisor(Advisor advisor) {
+        this.advised.addAdvisor(advisor);
+    }
+
     /**
      * 设置是否强制使用Cglib代理
      *
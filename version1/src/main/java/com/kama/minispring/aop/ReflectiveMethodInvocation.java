@@ -2,6 +2,7 @@ package com.kama.minispring.aop;
 
 import com.kama.minispring.aop.adapter.MethodBeforeAdviceInterceptor;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
 
@@ -54,7 +55,7 @@ public class ReflectiveMethodInvocation implements MethodInvocation {
     public Object proceed() throws Throwable {
         // 如果所有拦截器都已经调用完，则调用目标方法
         if (currentInterceptorIndex >= interceptors.size() - 1) {
-            return method.invoke(target, arguments);
+            return invokeJoinpoint(target, method, arguments);
         }
 
         // 获取下一个拦截器
@@ -75,4 +76,21 @@ public class ReflectiveMethodInvocation implements MethodInvocation {
             throw ex;
         }
     }
+
+    /**
+     * 反射调用目标方法, 抛出目标方法的原始异常而不是InvocationTargetException
+     *
+     * @param target 目标对象
+     * @param method 方法
+     * @param arguments 参数
+     * @return 方法返回值
+     * @throws Throwable 目标方法抛出的异常
+     */
+    public static Object invokeJoinpoint(Object target, Method method, Object[] arguments) throws Throwable {
+        try {
+            return method.invoke(target, arguments);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
 } 
\ No newline at end of file
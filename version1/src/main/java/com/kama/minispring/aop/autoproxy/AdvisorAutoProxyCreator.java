@@ -0,0 +1,182 @@
+package com.kama.minispring.aop.autoproxy;
+
+import com.kama.minispring.aop.Advice;
+import com.kama.minispring.aop.Advisor;
+import com.kama.minispring.aop.ClassFilter;
+import com.kama.minispring.aop.MethodMatcher;
+import com.kama.minispring.aop.Pointcut;
+import com.kama.minispring.aop.PointcutAdvisor;
+import com.kama.minispring.aop.ProxyFactory;
+import com.kama.minispring.beans.BeansException;
+import com.kama.minispring.beans.factory.BeanFactory;
+import com.kama.minispring.beans.factory.BeanFactoryAware;
+import com.kama.minispring.beans.factory.ListableBeanFactory;
+import com.kama.minispring.beans.factory.config.BeanPostProcessor;
+import com.kama.minispring.util.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于通知器的自动代理创建器
+ * 在bean初始化之后，为至少有一个方法被通知器切点匹配的bean创建代理
+ *
+ * <p>每个bean类只计算一次适用的通知器：先用ClassFilter快速排除，再检查是否存在匹配的方法。
+ * 结果（包括不需要代理的空结果）按类缓存，同一个类的所有bean复用同一份通知器数组，
+ * 因此启动开销与bean类数量×通知器数量成线性关系
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class AdvisorAutoProxyCreator implements BeanPostProcessor, BeanFactoryAware {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdvisorAutoProxyCreator.class);
+
+    private static final Advisor[] NO_ADVISORS = new Advisor[0];
+
+    private final List<Advisor> advisors = new ArrayList<>();
+
+    private final Map<Class<?>, Advisor[]> eligibleAdvisorsCache = new ConcurrentHashMap<>();
+
+    private BeanFactory beanFactory;
+
+    private volatile Advisor[] candidateAdvisors;
+
+    private boolean proxyTargetClass = false;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    /**
+     * 手动注册通知器，与容器中Advisor类型的bean一起参与匹配
+     *
+     * @param advisor 通知器
+     */
+    public synchronized void addAdvisor(Advisor advisor) {
+        Assert.notNull(advisor, "Advisor must not be null");
+        this.advisors.add(advisor);
+        this.candidateAdvisors = null;
+        this.eligibleAdvisorsCache.clear();
+    }
+
+    /**
+     * 设置是否强制使用Cglib代理
+     *
+     * @param proxyTargetClass 是否强制使用Cglib代理
+     */
+    public void setProxyTargetClass(boolean proxyTargetClass) {
+        this.proxyTargetClass = proxyTargetClass;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (bean == null || isInfrastructureClass(bean.getClass())) {
+            return bean;
+        }
+        Advisor[] eligible = getEligibleAdvisors(bean.getClass());
+        if (eligible.length == 0) {
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(this.proxyTargetClass);
+        for (Advisor advisor : eligible) {
+            proxyFactory.addAdvisor(advisor);
+        }
+        logger.debug("Creating auto proxy for bean '{}' with {} advisor(s)", beanName, eligible.length);
+        return proxyFactory.getProxy();
+    }
+
+    /**
+     * 获取适用于指定类的通知器，结果按类缓存
+     *
+     * @param beanClass bean类
+     * @return 适用的通知器，不需要代理时为空数组
+     */
+    protected Advisor[] getEligibleAdvisors(Class<?> beanClass) {
+        Advisor[] eligible = this.eligibleAdvisorsCache.get(beanClass);
+        if (eligible == null) {
+            eligible = findEligibleAdvisors(beanClass, getCandidateAdvisors());
+            this.eligibleAdvisorsCache.put(beanClass, eligible);
+        }
+        return eligible;
+    }
+
+    private Advisor[] findEligibleAdvisors(Class<?> beanClass, Advisor[] candidates) {
+        List<Advisor> eligible = null;
+        Method[] methods = null;
+        for (Advisor candidate : candidates) {
+            if (candidate instanceof PointcutAdvisor) {
+                Pointcut pointcut = ((PointcutAdvisor) candidate).getPointcut();
+                ClassFilter classFilter = pointcut.getClassFilter();
+                if (classFilter != null && !classFilter.matches(beanClass)) {
+                    continue;
+                }
+                if (methods == null) {
+                    methods = beanClass.getMethods();
+                }
+                if (!hasMatchingMethod(pointcut.getMethodMatcher(), methods, beanClass)) {
+                    continue;
+                }
+            }
+            if (eligible == null) {
+                eligible = new ArrayList<>();
+            }
+            eligible.add(candidate);
+        }
+        return eligible == null ? NO_ADVISORS : eligible.toArray(NO_ADVISORS);
+    }
+
+    private boolean hasMatchingMethod(MethodMatcher methodMatcher, Method[] methods, Class<?> beanClass) {
+        if (methodMatcher == null) {
+            return true;
+        }
+        for (Method method : methods) {
+            if (method.getDeclaringClass() == Object.class || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            if (methodMatcher.matches(method, beanClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取候选通知器：手动注册的通知器加上容器中所有Advisor类型的bean
+     */
+    private Advisor[] getCandidateAdvisors() {
+        Advisor[] candidates = this.candidateAdvisors;
+        if (candidates == null) {
+            synchronized (this) {
+                candidates = this.candidateAdvisors;
+                if (candidates == null) {
+                    List<Advisor> all = new ArrayList<>(this.advisors);
+                    if (this.beanFactory instanceof ListableBeanFactory) {
+                        all.addAll(((ListableBeanFactory) this.beanFactory).getBeansOfType(Advisor.class).values());
+                    }
+                    candidates = all.toArray(NO_ADVISORS);
+                    this.candidateAdvisors = candidates;
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * AOP基础设施类本身不被代理
+     */
+    protected boolean isInfrastructureClass(Class<?> beanClass) {
+        return Advisor.class.isAssignableFrom(beanClass)
+                || Advice.class.isAssignableFrom(beanClass)
+                || Pointcut.class.isAssignableFrom(beanClass)
+                || BeanPostProcessor.class.isAssignableFrom(beanClass);
+    }
+}
@@ -0,0 +1,47 @@
+package com.kama.minispring.aop.support;
+
+import com.kama.minispring.aop.Advice;
+import com.kama.minispring.aop.Pointcut;
+import com.kama.minispring.aop.PointcutAdvisor;
+import com.kama.minispring.util.Assert;
+
+/**
+ * 默认的切点通知器实现
+ * 组合一个切点和一个通知
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class DefaultPointcutAdvisor implements PointcutAdvisor {
+
+    private final Pointcut pointcut;
+    private final Advice advice;
+
+    /**
+     * 构造函数
+     *
+     * @param pointcut 切点
+     * @param advice 通知
+     */
+    public DefaultPointcutAdvisor(Pointcut pointcut, Advice advice) {
+        Assert.notNull(pointcut, "Pointcut must not be null");
+        Assert.notNull(advice, "Advice must not be null");
+        this.pointcut = pointcut;
+        this.advice = advice;
+    }
+
+    @Override
+    public Pointcut getPointcut() {
+        return this.pointcut;
+    }
+
+    @Override
+    public Advice getAdvice() {
+        return this.advice;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ": pointcut [" + this.pointcut + "]; advice [" + this.advice + "]";
+    }
+}
@@ -0,0 +1,59 @@
+package com.kama.minispring.aop.support;
+
+import java.lang.reflect.Method;
+
+/**
+ * 方法与目标类组合而成的缓存键
+ * 同一个接口方法在不同的实现类上可能有不同的注解配置，因此按(方法, 目标类)缓存解析结果
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public final class MethodClassKey {
+
+    private final Method method;
+    private final Class<?> targetClass;
+    private final int hash;
+
+    /**
+     * 构造函数
+     *
+     * @param method 方法
+     * @param targetClass 目标类，可以为null
+     */
+    public MethodClassKey(Method method, Class<?> targetClass) {
+        this.method = method;
+        this.targetClass = targetClass;
+        this.hash = method.hashCode() * 31 + (targetClass != null ? targetClass.hashCode() : 0);
+    }
+
+    public Method getMethod() {
+        return this.method;
+    }
+
+    public Class<?> getTargetClass() {
+        return this.targetClass;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof MethodClassKey)) {
+            return false;
+        }
+        MethodClassKey that = (MethodClassKey) other;
+        return this.method.equals(that.method) && this.targetClass == that.targetClass;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public String toString() {
+        return this.method + (this.targetClass != null ? " on " + this.targetClass.getName() : "");
+    }
+}
@@ -0,0 +1,67 @@
+package com.kama.minispring.cache;
+
+/**
+ * 缓存接口
+ * 定义缓存的基本操作，由CacheManager负责创建和管理
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public interface Cache {
+
+    /**
+     * 获取缓存名称
+     *
+     * @return 缓存名称
+     */
+    String getName();
+
+    /**
+     * 获取缓存值
+     *
+     * @param key 缓存键
+     * @return 缓存值的包装，未命中时返回null；缓存的值本身可以为null
+     */
+    ValueWrapper get(Object key);
+
+    /**
+     * 放入缓存值
+     *
+     * @param key 缓存键
+     * @param value 缓存值，可以为null
+     */
+    void put(Object key, Object value);
+
+    /**
+     * 移除缓存值
+     *
+     * @param key 缓存键
+     */
+    void evict(Object key);
+
+    /**
+     * 清空缓存
+     */
+    void clear();
+
+    /**
+     * 获取缓存的统计信息
+     *
+     * @return 统计信息快照
+     */
+    CacheStats getStats();
+
+    /**
+     * 缓存值的包装，用于区分未命中和缓存了null值
+     */
+    @FunctionalInterface
+    interface ValueWrapper {
+
+        /**
+         * 获取实际的缓存值
+         *
+         * @return 缓存值
+         */
+        Object get();
+    }
+}
@@ -0,0 +1,28 @@
+package com.kama.minispring.cache;
+
+import java.util.Collection;
+
+/**
+ * 缓存管理器SPI
+ * 负责按名称提供Cache实例，可以接入进程内缓存或外部缓存实现
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public interface CacheManager {
+
+    /**
+     * 根据名称获取缓存
+     *
+     * @param name 缓存名称
+     * @return 缓存实例，如果不存在且不能创建则返回null
+     */
+    Cache getCache(String name);
+
+    /**
+     * 获取所有已知的缓存名称
+     *
+     * @return 缓存名称集合
+     */
+    Collection<String> getCacheNames();
+}
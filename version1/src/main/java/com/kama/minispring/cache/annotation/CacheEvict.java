@@ -0,0 +1,31 @@
+package com.kama.minispring.cache.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 移除缓存的注解
+ * 默认在方法成功返回后按参数生成的键移除缓存
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CacheEvict {
+
+    /**
+     * 缓存名称
+     */
+    String[] value();
+
+    /**
+     * 是否清空缓存中的所有条目
+     */
+    boolean allEntries() default false;
+
+    /**
+     * 是否在方法执行之前移除，为true时即使方法抛出异常也会移除
+     */
+    boolean beforeInvocation() default false;
+}
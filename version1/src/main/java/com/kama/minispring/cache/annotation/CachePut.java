@@ -0,0 +1,21 @@
+package com.kama.minispring.cache.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 更新缓存的注解
+ * 方法总是会被执行，执行结果按参数生成的键写入缓存
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CachePut {
+
+    /**
+     * 缓存名称
+     */
+    String[] value();
+}
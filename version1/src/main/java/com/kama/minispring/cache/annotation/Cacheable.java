@@ -0,0 +1,21 @@
+package com.kama.minispring.cache.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 缓存方法结果的注解
+ * 调用前先按参数生成的键查找缓存，命中时直接返回缓存值，否则执行方法并缓存结果
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Cacheable {
+
+    /**
+     * 缓存名称，按顺序查找，结果写入全部缓存
+     */
+    String[] value();
+}
@@ -0,0 +1,191 @@
+package com.kama.minispring.cache.interceptor;
+
+import com.kama.minispring.aop.MethodInterceptor;
+import com.kama.minispring.aop.MethodInvocation;
+import com.kama.minispring.aop.support.MethodClassKey;
+import com.kama.minispring.cache.Cache;
+import com.kama.minispring.cache.CacheManager;
+import com.kama.minispring.cache.annotation.CacheEvict;
+import com.kama.minispring.cache.annotation.CachePut;
+import com.kama.minispring.cache.annotation.Cacheable;
+import com.kama.minispring.util.Assert;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 声明式缓存拦截器
+ * 处理@Cacheable、@CachePut和@CacheEvict注解，通过ProxyFactory.addAdvice织入
+ * 每个(方法, 目标类)的注解和对应的Cache实例只解析一次并缓存
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class CacheInterceptor implements MethodInterceptor {
+
+    private static final CacheOperations NO_OPERATIONS = new CacheOperations(null, null, null, false, false);
+
+    private final CacheManager cacheManager;
+
+    private final Map<MethodClassKey, CacheOperations> operationCache = new ConcurrentHashMap<>();
+
+    private KeyGenerator keyGenerator = new SimpleKeyGenerator();
+
+    /**
+     * 构造函数
+     *
+     * @param cacheManager 缓存管理器
+     */
+    public CacheInterceptor(CacheManager cacheManager) {
+        Assert.notNull(cacheManager, "CacheManager must not be null");
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * 设置缓存键生成器
+     *
+     * @param keyGenerator 缓存键生成器
+     */
+    public void setKeyGenerator(KeyGenerator keyGenerator) {
+        Assert.notNull(keyGenerator, "KeyGenerator must not be null");
+        this.keyGenerator = keyGenerator;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        Object target = invocation.getThis();
+        Class<?> targetClass = target != null ? target.getClass() : method.getDeclaringClass();
+
+        CacheOperations operations = getCacheOperations(method, targetClass);
+        if (operations == NO_OPERATIONS) {
+            return invocation.proceed();
+        }
+
+        Object key = keyGenerator.generate(target, method, invocation.getArguments());
+
+        if (operations.evictCaches != null && operations.beforeInvocation) {
+            performEvict(operations, key);
+        }
+
+        Object result;
+        if (operations.cacheableCaches != null) {
+            for (Cache cache : operations.cacheableCaches) {
+                Cache.ValueWrapper wrapper = cache.get(key);
+                if (wrapper != null) {
+                    return wrapper.get();
+                }
+            }
+            result = invocation.proceed();
+            for (Cache cache : operations.cacheableCaches) {
+                cache.put(key, result);
+            }
+        } else {
+            result = invocation.proceed();
+        }
+
+        if (operations.putCaches != null) {
+            for (Cache cache : operations.putCaches) {
+                cache.put(key, result);
+            }
+        }
+        if (operations.evictCaches != null && !operations.beforeInvocation) {
+            performEvict(operations, key);
+        }
+        return result;
+    }
+
+    private void performEvict(CacheOperations operations, Object key) {
+        for (Cache cache : operations.evictCaches) {
+            if (operations.allEntries) {
+                cache.clear();
+            } else {
+                cache.evict(key);
+            }
+        }
+    }
+
+    /**
+     * 获取方法上的缓存操作
+     */
+    protected CacheOperations getCacheOperations(Method method, Class<?> targetClass) {
+        MethodClassKey cacheKey = new MethodClassKey(method, targetClass);
+        CacheOperations operations = this.operationCache.get(cacheKey);
+        if (operations == null) {
+            operations = computeCacheOperations(method, targetClass);
+            this.operationCache.put(cacheKey, operations);
+        }
+        return operations;
+    }
+
+    private CacheOperations computeCacheOperations(Method method, Class<?> targetClass) {
+        Method specificMethod = method;
+        if (targetClass != null && targetClass != method.getDeclaringClass()) {
+            try {
+                specificMethod = targetClass.getMethod(method.getName(), method.getParameterTypes());
+            } catch (NoSuchMethodException ex) {
+                // 使用原始方法
+            }
+        }
+        Cacheable cacheable = findAnnotation(specificMethod, method, targetClass, Cacheable.class);
+        CachePut cachePut = findAnnotation(specificMethod, method, targetClass, CachePut.class);
+        CacheEvict cacheEvict = findAnnotation(specificMethod, method, targetClass, CacheEvict.class);
+        if (cacheable == null && cachePut == null && cacheEvict == null) {
+            return NO_OPERATIONS;
+        }
+        return new CacheOperations(
+                cacheable != null ? resolveCaches(cacheable.value(), method) : null,
+                cachePut != null ? resolveCaches(cachePut.value(), method) : null,
+                cacheEvict != null ? resolveCaches(cacheEvict.value(), method) : null,
+                cacheEvict != null && cacheEvict.allEntries(),
+                cacheEvict != null && cacheEvict.beforeInvocation());
+    }
+
+    private <A extends Annotation> A findAnnotation(Method specificMethod, Method method,
+            Class<?> targetClass, Class<A> annotationType) {
+        A annotation = specificMethod.getAnnotation(annotationType);
+        if (annotation == null && specificMethod != method) {
+            annotation = method.getAnnotation(annotationType);
+        }
+        if (annotation == null && targetClass != null) {
+            annotation = targetClass.getAnnotation(annotationType);
+        }
+        return annotation;
+    }
+
+    private Cache[] resolveCaches(String[] names, Method method) {
+        if (names.length == 0) {
+            throw new IllegalStateException("No cache names specified for cache operation on " + method);
+        }
+        Cache[] caches = new Cache[names.length];
+        for (int i = 0; i < names.length; i++) {
+            caches[i] = this.cacheManager.getCache(names[i]);
+            if (caches[i] == null) {
+                throw new IllegalStateException("Cannot find cache named '" + names[i] + "' for " + method);
+            }
+        }
+        return caches;
+    }
+
+    /**
+     * 单个方法上解析好的缓存操作
+     */
+    protected static final class CacheOperations {
+        final Cache[] cacheableCaches;
+        final Cache[] putCaches;
+        final Cache[] evictCaches;
+        final boolean allEntries;
+        final boolean beforeInvocation;
+
+        CacheOperations(Cache[] cacheableCaches, Cache[] putCaches, Cache[] evictCaches,
+                boolean allEntries, boolean beforeInvocation) {
+            this.cacheableCaches = cacheableCaches;
+            this.putCaches = putCaches;
+            this.evictCaches = evictCaches;
+            this.allEntries = allEntries;
+            this.beforeInvocation = beforeInvocation;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.kama.minispring.cache.interceptor;
+
+import java.lang.reflect.Method;
+
+/**
+ * 缓存键生成器
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@FunctionalInterface
+public interface KeyGenerator {
+
+    /**
+     * 生成缓存键
+     *
+     * @param target 目标对象
+     * @param method 被调用的方法
+     * @param params 方法参数
+     * @return 缓存键
+     */
+    Object generate(Object target, Method method, Object[] params);
+}
@@ -0,0 +1,39 @@
+package com.kama.minispring.cache.interceptor;
+
+import java.util.Arrays;
+
+/**
+ * 由多个参数组成的缓存键
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public final class SimpleKey {
+
+    /** 无参数方法使用的键 */
+    public static final SimpleKey EMPTY = new SimpleKey();
+
+    private final Object[] params;
+    private final int hashCode;
+
+    public SimpleKey(Object... params) {
+        this.params = params.clone();
+        this.hashCode = Arrays.deepHashCode(this.params);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other
+                || (other instanceof SimpleKey && Arrays.deepEquals(this.params, ((SimpleKey) other).params));
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "SimpleKey " + Arrays.deepToString(this.params);
+    }
+}
@@ -0,0 +1,37 @@
+package com.kama.minispring.cache.interceptor;
+
+import java.lang.reflect.Method;
+
+/**
+ * 默认的缓存键生成器
+ * 无参数时返回SimpleKey.EMPTY，单个非空且非数组的参数直接作为键（不产生额外对象），其余情况组合为SimpleKey
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class SimpleKeyGenerator implements KeyGenerator {
+
+    @Override
+    public Object generate(Object target, Method method, Object[] params) {
+        return generateKey(params);
+    }
+
+    /**
+     * 根据参数生成缓存键
+     *
+     * @param params 方法参数
+     * @return 缓存键
+     */
+    public static Object generateKey(Object[] params) {
+        if (params == null || params.length == 0) {
+            return SimpleKey.EMPTY;
+        }
+        if (params.length == 1) {
+            Object param = params[0];
+            if (param != null && !param.getClass().isArray()) {
+                return param;
+            }
+        }
+        return new SimpleKey(params);
+    }
+}
@@ -0,0 +1,109 @@
+package com.kama.minispring.cache.support;
+
+/**
+ * 基于Count-Min Sketch的访问频率估计器
+ * 每个long存放16个4位计数器，每个元素映射到4个计数器，取最小值作为频率估计
+ * 累计增加次数达到采样上限后所有计数器减半，使旧的热点随时间衰减
+ *
+ * <p>非线程安全，由所属的缓存分段在持有锁时访问
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    /** 计数器的最大值 */
+    static final int MAX_FREQUENCY = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * 构造函数
+     *
+     * @param expectedEntries 预期的条目数
+     */
+    FrequencySketch(int expectedEntries) {
+        int length = ceilingPowerOfTwo(Math.max(expectedEntries, 16));
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = 10 * length;
+    }
+
+    /**
+     * 估计元素的访问频率
+     *
+     * @param hashCode 元素的哈希值
+     * @return 0到15之间的频率估计
+     */
+    int frequency(int hashCode) {
+        int hash = spread(hashCode);
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < 4; i++) {
+            int shift = counterShift(hash, i);
+            int count = (int) ((table[indexOf(hash, i)] >>> shift) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * 增加元素的访问频率
+     *
+     * @param hashCode 元素的哈希值
+     */
+    void increment(int hashCode) {
+        int hash = spread(hashCode);
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int shift = counterShift(hash, i);
+            long mask = 0xfL << shift;
+            if ((table[index] & mask) != mask) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * 所有计数器减半
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int depth) {
+        long h = (hash + SEEDS[depth]) * SEEDS[depth];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    private static int counterShift(int hash, int depth) {
+        return (((hash >>> (depth << 3)) & 3) + (depth << 2)) << 2;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+
+    private static int ceilingPowerOfTwo(int x) {
+        int capped = Math.min(x, 1 << 30);
+        return 1 << -Integer.numberOfLeadingZeros(capped - 1);
+    }
+}
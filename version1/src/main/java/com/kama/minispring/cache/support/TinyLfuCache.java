@@ -0,0 +1,450 @@
+package com.kama.minispring.cache.support;
+
+import com.kama.minispring.cache.Cache;
+import com.kama.minispring.cache.CacheStats;
+import com.kama.minispring.util.Assert;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 基于W-TinyLFU策略的进程内缓存
+ *
+ * <p>每个分段由三部分组成：约占1%容量的LRU窗口区、主区的试用区(probation)和保护区(protected)。
+ * 新条目先进入窗口区，被挤出窗口区的候选条目与试用区中最久未访问的条目比较访问频率，
+ * 频率更高者留下，从而让一次性的扫描流量无法冲刷掉真正的热点数据。
+ * 试用区的条目被再次访问后晋升到保护区。
+ *
+ * <p>键按哈希分布到多个相互独立的分段，每个分段拥有自己的锁和频率估计器，不同分段间的读写互不阻塞。
+ * 过期的条目在读取时或写入时被惰性清理。
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class TinyLfuCache implements Cache {
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    /** 每个分段至少容纳的权重，避免容量过小时分段过多 */
+    private static final long MIN_SEGMENT_WEIGHT = 32;
+
+    private final String name;
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final Weigher weigher;
+    private final LongSupplier ticker;
+    private final long expireAfterWriteNanos;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * 使用默认配置创建缓存
+     *
+     * @param name 缓存名称
+     */
+    public TinyLfuCache(String name) {
+        this(name, TinyLfuCacheConfig.builder().build());
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param name 缓存名称
+     * @param config 缓存配置
+     */
+    public TinyLfuCache(String name, TinyLfuCacheConfig config) {
+        Assert.notNull(name, "Cache name must not be null");
+        Assert.notNull(config, "Cache config must not be null");
+        this.name = name;
+        this.weigher = config.getWeigher();
+        this.ticker = config.getTicker();
+        this.expireAfterWriteNanos = config.getExpireAfterWrite() != null
+                ? config.getExpireAfterWrite().toNanos() : 0L;
+
+        long maximum = config.getMaximumWeight();
+        int segmentCount = Integer.highestOneBit(Math.min(config.getConcurrencyLevel(), 1 << 16));
+        while (segmentCount > 1 && maximum / segmentCount < MIN_SEGMENT_WEIGHT) {
+            segmentCount >>>= 1;
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long segmentMaximum = maximum / segmentCount + (i < maximum % segmentCount ? 1 : 0);
+            this.segments[i] = new Segment(segmentMaximum);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Assert.notNull(key, "Cache key must not be null");
+        int hash = key.hashCode();
+        Node node = segmentFor(hash).get(key, hash, ticker.getAsLong());
+        if (node == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return node;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Assert.notNull(key, "Cache key must not be null");
+        int weight = weigher.weigh(key, value);
+        Assert.isTrue(weight >= 0, "Weight must not be negative");
+        int hash = key.hashCode();
+        int evicted = segmentFor(hash).put(key, hash, value, weight, ticker.getAsLong());
+        if (evicted > 0) {
+            evictionCount.add(evicted);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        Assert.notNull(key, "Cache key must not be null");
+        int hash = key.hashCode();
+        segmentFor(hash).remove(key);
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount.sum());
+    }
+
+    /**
+     * 获取当前的条目数
+     */
+    public long estimatedSize() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * 获取当前所有条目的权重之和
+     */
+    public long weightedSize() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.weightedSize();
+        }
+        return weight;
+    }
+
+    private Segment segmentFor(int hash) {
+        if (segments.length == 1) {
+            return segments[0];
+        }
+        int h = hash * 0x9E3779B9;
+        return segments[h >>> segmentShift];
+    }
+
+    private boolean isExpired(Node node, long now) {
+        return expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos;
+    }
+
+    /**
+     * 缓存分段，所有操作都在分段锁内完成
+     */
+    private final class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Object, Node> data = new HashMap<>();
+        private final FrequencySketch sketch;
+        private final long maximum;
+        private final long windowMaximum;
+        private final long protectedMaximum;
+        private final NodeDeque window = new NodeDeque();
+        private final NodeDeque probation = new NodeDeque();
+        private final NodeDeque protectedDeque = new NodeDeque();
+
+        Segment(long maximum) {
+            this.maximum = maximum;
+            this.windowMaximum = Math.max(1, maximum / 100);
+            this.protectedMaximum = (long) ((maximum - windowMaximum) * 0.8);
+            this.sketch = new FrequencySketch((int) Math.min(maximum, 1 << 20));
+        }
+
+        Node get(Object key, int hash, long now) {
+            lock.lock();
+            try {
+                sketch.increment(hash);
+                Node node = data.get(key);
+                if (node == null) {
+                    return null;
+                }
+                if (isExpired(node, now)) {
+                    removeNode(node);
+                    evictionCount.increment();
+                    return null;
+                }
+                onAccess(node);
+                return node;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int put(Object key, int hash, Object value, int weight, long now) {
+            lock.lock();
+            try {
+                Node node = data.get(key);
+                if (weight > maximum) {
+                    // 单个条目超过分段容量，不缓存
+                    if (node != null) {
+                        removeNode(node);
+                    }
+                    return 0;
+                }
+                if (node != null) {
+                    dequeOf(node).weight += weight - node.weight;
+                    node.value = value;
+                    node.weight = weight;
+                    node.writeTime = now;
+                    onAccess(node);
+                } else {
+                    node = new Node(key, value, weight, now);
+                    data.put(key, node);
+                    window.addLast(node);
+                    sketch.increment(hash);
+                }
+                return expireHeads(now) + evict();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(Object key) {
+            lock.lock();
+            try {
+                Node node = data.get(key);
+                if (node != null) {
+                    removeNode(node);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                data.clear();
+                window.clear();
+                probation.clear();
+                protectedDeque.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return data.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long weightedSize() {
+            lock.lock();
+            try {
+                return totalWeight();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private long totalWeight() {
+            return window.weight + probation.weight + protectedDeque.weight;
+        }
+
+        private void onAccess(Node node) {
+            switch (node.queue) {
+                case WINDOW:
+                    window.moveToLast(node);
+                    break;
+                case PROBATION:
+                    // 试用区条目再次被访问，晋升到保护区
+                    probation.remove(node);
+                    node.queue = PROTECTED;
+                    protectedDeque.addLast(node);
+                    while (protectedDeque.weight > protectedMaximum && protectedDeque.head != node) {
+                        Node demoted = protectedDeque.head;
+                        protectedDeque.remove(demoted);
+                        demoted.queue = PROBATION;
+                        probation.addLast(demoted);
+                    }
+                    break;
+                default:
+                    protectedDeque.moveToLast(node);
+                    break;
+            }
+        }
+
+        /**
+         * 清理各队列头部已过期的条目
+         */
+        private int expireHeads(long now) {
+            if (expireAfterWriteNanos <= 0) {
+                return 0;
+            }
+            return expireHead(window, now) + expireHead(probation, now) + expireHead(protectedDeque, now);
+        }
+
+        private int expireHead(NodeDeque deque, long now) {
+            int expired = 0;
+            while (deque.head != null && isExpired(deque.head, now)) {
+                removeNode(deque.head);
+                expired++;
+            }
+            return expired;
+        }
+
+        /**
+         * 执行W-TinyLFU淘汰
+         *
+         * @return 淘汰的条目数
+         */
+        private int evict() {
+            // 窗口区溢出的条目作为候选进入试用区尾部
+            while (window.weight > windowMaximum && window.head != null) {
+                Node candidate = window.head;
+                window.remove(candidate);
+                candidate.queue = PROBATION;
+                probation.addLast(candidate);
+            }
+
+            int evicted = 0;
+            while (totalWeight() > maximum) {
+                Node victim = probation.head;
+                Node candidate = probation.tail;
+                if (victim == null) {
+                    victim = protectedDeque.head != null ? protectedDeque.head : window.head;
+                    removeNode(victim);
+                } else if (victim == candidate) {
+                    removeNode(victim);
+                } else if (sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+                    removeNode(victim);
+                } else {
+                    removeNode(candidate);
+                }
+                evicted++;
+            }
+            return evicted;
+        }
+
+        private void removeNode(Node node) {
+            dequeOf(node).remove(node);
+            data.remove(node.key);
+        }
+
+        private NodeDeque dequeOf(Node node) {
+            switch (node.queue) {
+                case WINDOW:
+                    return window;
+                case PROBATION:
+                    return probation;
+                default:
+                    return protectedDeque;
+            }
+        }
+    }
+
+    /**
+     * 缓存条目，同时作为双向链表节点
+     */
+    private static final class Node implements ValueWrapper {
+        final Object key;
+        volatile Object value;
+        int weight;
+        long writeTime;
+        byte queue = WINDOW;
+        Node prev;
+        Node next;
+
+        Node(Object key, Object value, int weight, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+        }
+
+        @Override
+        public Object get() {
+            return value;
+        }
+    }
+
+    /**
+     * 按访问顺序排列的侵入式双向链表，头部为最久未访问的条目
+     */
+    private static final class NodeDeque {
+        Node head;
+        Node tail;
+        long weight;
+
+        void addLast(Node node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        void remove(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            weight -= node.weight;
+        }
+
+        void moveToLast(Node node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+            weight = 0;
+        }
+    }
+}
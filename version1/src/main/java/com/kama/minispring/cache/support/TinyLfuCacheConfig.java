@@ -0,0 +1,124 @@
+package com.kama.minispring.cache.support;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * TinyLfuCache的配置
+ * 通过Builder构建，可以按条目数或权重限制容量，并配置写入后过期时间和分段数
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class TinyLfuCacheConfig {
+
+    private final long maximumWeight;
+    private final Weigher weigher;
+    private final Duration expireAfterWrite;
+    private final int concurrencyLevel;
+    private final LongSupplier ticker;
+
+    private TinyLfuCacheConfig(Builder builder) {
+        this.maximumWeight = builder.maximumWeight;
+        this.weigher = builder.weigher;
+        this.expireAfterWrite = builder.expireAfterWrite;
+        this.concurrencyLevel = builder.concurrencyLevel;
+        this.ticker = builder.ticker;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public Weigher getWeigher() {
+        return weigher;
+    }
+
+    public Duration getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    public int getConcurrencyLevel() {
+        return concurrencyLevel;
+    }
+
+    public LongSupplier getTicker() {
+        return ticker;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private long maximumWeight = 10_000;
+        private Weigher weigher = Weigher.SINGLETON;
+        private Duration expireAfterWrite;
+        private int concurrencyLevel = Runtime.getRuntime().availableProcessors();
+        private LongSupplier ticker = System::nanoTime;
+
+        /**
+         * 按条目数限制容量
+         */
+        public Builder maximumSize(long maximumSize) {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("Maximum size must be greater than 0");
+            }
+            this.maximumWeight = maximumSize;
+            this.weigher = Weigher.SINGLETON;
+            return this;
+        }
+
+        /**
+         * 按权重限制容量
+         */
+        public Builder maximumWeight(long maximumWeight, Weigher weigher) {
+            if (maximumWeight <= 0) {
+                throw new IllegalArgumentException("Maximum weight must be greater than 0");
+            }
+            if (weigher == null) {
+                throw new IllegalArgumentException("Weigher must not be null");
+            }
+            this.maximumWeight = maximumWeight;
+            this.weigher = weigher;
+            return this;
+        }
+
+        /**
+         * 写入后经过指定时间过期
+         */
+        public Builder expireAfterWrite(Duration expireAfterWrite) {
+            if (expireAfterWrite == null || expireAfterWrite.isNegative() || expireAfterWrite.isZero()) {
+                throw new IllegalArgumentException("Expire duration must be positive");
+            }
+            this.expireAfterWrite = expireAfterWrite;
+            return this;
+        }
+
+        /**
+         * 期望的并发写线程数，决定分段锁的数量
+         */
+        public Builder concurrencyLevel(int concurrencyLevel) {
+            if (concurrencyLevel <= 0) {
+                throw new IllegalArgumentException("Concurrency level must be greater than 0");
+            }
+            this.concurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        /**
+         * 纳秒时钟，主要用于测试
+         */
+        public Builder ticker(LongSupplier ticker) {
+            if (ticker == null) {
+                throw new IllegalArgumentException("Ticker must not be null");
+            }
+            this.ticker = ticker;
+            return this;
+        }
+
+        public TinyLfuCacheConfig build() {
+            return new TinyLfuCacheConfig(this);
+        }
+    }
+}
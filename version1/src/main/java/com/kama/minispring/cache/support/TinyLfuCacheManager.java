@@ -0,0 +1,80 @@
+package com.kama.minispring.cache.support;
+
+import com.kama.minispring.cache.Cache;
+import com.kama.minispring.cache.CacheManager;
+import com.kama.minispring.util.Assert;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于TinyLfuCache的缓存管理器
+ * 首次访问某个名称时按该名称的配置（没有则使用默认配置）创建缓存
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class TinyLfuCacheManager implements CacheManager {
+
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+    private final Map<String, TinyLfuCacheConfig> cacheConfigs = new ConcurrentHashMap<>();
+
+    private TinyLfuCacheConfig defaultConfig = TinyLfuCacheConfig.builder().build();
+
+    private boolean dynamic = true;
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = this.caches.get(name);
+        if (cache == null && this.dynamic) {
+            cache = this.caches.computeIfAbsent(name, this::createCache);
+        }
+        return cache;
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(this.caches.keySet());
+    }
+
+    /**
+     * 设置默认的缓存配置
+     *
+     * @param defaultConfig 默认配置
+     */
+    public void setDefaultConfig(TinyLfuCacheConfig defaultConfig) {
+        Assert.notNull(defaultConfig, "Default config must not be null");
+        this.defaultConfig = defaultConfig;
+    }
+
+    /**
+     * 为指定名称的缓存设置配置，需在缓存创建之前调用
+     *
+     * @param name 缓存名称
+     * @param config 缓存配置
+     */
+    public void setCacheConfig(String name, TinyLfuCacheConfig config) {
+        Assert.hasText(name, "Cache name must not be empty");
+        Assert.notNull(config, "Cache config must not be null");
+        this.cacheConfigs.put(name, config);
+    }
+
+    /**
+     * 预先创建指定名称的缓存，并关闭按需创建
+     *
+     * @param cacheNames 缓存名称
+     */
+    public void setCacheNames(Collection<String> cacheNames) {
+        for (String name : cacheNames) {
+            this.caches.computeIfAbsent(name, this::createCache);
+        }
+        this.dynamic = false;
+    }
+
+    protected Cache createCache(String name) {
+        return new TinyLfuCache(name, this.cacheConfigs.getOrDefault(name, this.defaultConfig));
+    }
+}
@@ -0,0 +1,24 @@
+package com.kama.minispring.cache.support;
+
+/**
+ * 缓存条目权重计算器
+ * 用于按权重而非条目数限制缓存容量
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@FunctionalInterface
+public interface Weigher {
+
+    /** 每个条目权重均为1，即按条目数限制 */
+    Weigher SINGLETON = (key, value) -> 1;
+
+    /**
+     * 计算条目的权重
+     *
+     * @param key 缓存键
+     * @param value 缓存值
+     * @return 非负的权重
+     */
+    int weigh(Object key, Object value);
+}
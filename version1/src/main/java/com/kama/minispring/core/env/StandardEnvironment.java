@@ -1,16 +1,18 @@
 package com.kama.minispring.core.env;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 标准环境配置实现类
+ * 属性可在运行期通过setProperty修改, 读取方(如限流配置的热加载)可在其他线程并发读取
  * 
  * @author kama
  * @version 1.0.0
  */
 public class StandardEnvironment implements Environment {
     
-    private final Map<String, String> properties = new HashMap<>();
+    private final Map<String, String> properties = new ConcurrentHashMap<>();
     private final List<String> activeProfiles = new ArrayList<>();
     private final List<String> defaultProfiles = new ArrayList<>();
     
@@ -94,11 +96,16 @@ public class StandardEnvironment implements Environment {
      * 设置属性值
      *
      * @param key 属性键
-     * @param value 属性值
+     * @param value 属性值, 为null时移除该属性
      */
     public void setProperty(String key, String value) {
-        if (key != null) {
+        if (key == null) {
+            return;
+        }
+        if (value != null) {
             properties.put(key, value);
+        } else {
+            properties.remove(key);
         }
     }
 } 
\ No newline at end of file
@@ -86,15 +86,7 @@ public class ClassPathResource implements Resource {
     
     @Override
     public boolean exists() {
-        URL url = null;
-        if (this.clazz != null) {
-            url = this.clazz.getResource(this.path);
-        } else if (this.classLoader != null) {
-            url = this.classLoader.getResource(this.path);
-        } else {
-            url = ClassLoader.getSystemResource(this.path);
-        }
-        return url != null;
+        return resolveURL() != null;
     }
     
     @Override
@@ -119,15 +111,7 @@ public class ClassPathResource implements Resource {
     
     @Override
     public long lastModified() throws IOException {
-        URL url = null;
-        if (this.clazz != null) {
-            url = this.clazz.getResource(this.path);
-        } else if (this.classLoader != null) {
-            url = this.classLoader.getResource(this.path);
-        } else {
-            url = ClassLoader.getSystemResource(this.path);
-        }
-        
+        URL url = resolveURL();
         if (url == null) {
             throw new FileNotFoundException(getDescription() + " cannot be resolved in the file system for resolving its last-modified timestamp");
         }
@@ -140,6 +124,31 @@ public class ClassPathResource implements Resource {
         }
     }
     
+    /**
+     * 获取资源的URL
+     * 资源在文件系统中时为file协议, 在jar包中时为jar协议
+     *
+     * @return 资源的URL
+     * @throws FileNotFoundException 如果资源不存在
+     */
+    public URL getURL() throws FileNotFoundException {
+        URL url = resolveURL();
+        if (url == null) {
+            throw new FileNotFoundException(getDescription() + " cannot be resolved to URL because it does not exist");
+        }
+        return url;
+    }
+    
+    private URL resolveURL() {
+        if (this.clazz != null) {
+            return this.clazz.getResource(this.path);
+        } else if (this.classLoader != null) {
+            return this.classLoader.getResource(this.path);
+        } else {
+            return ClassLoader.getSystemResource(this.path);
+        }
+    }
+    
     /**
      * 获取资源路径
      *
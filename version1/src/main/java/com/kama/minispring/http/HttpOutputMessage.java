@@ -0,0 +1,36 @@
+package com.kama.minispring.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * HTTP输出消息
+ * 消息转换器通过它设置响应头并写出响应体, 与Servlet API解耦
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public interface HttpOutputMessage {
+
+    /**
+     * 设置Content-Type, 必须在第一次写出响应体之前调用
+     *
+     * @param contentType 内容类型
+     */
+    void setContentType(MediaType contentType);
+
+    /**
+     * 设置Content-Length, 必须在第一次写出响应体之前调用
+     *
+     * @param contentLength 响应体长度
+     */
+    void setContentLength(long contentLength);
+
+    /**
+     * 获取响应体输出流
+     *
+     * @return 输出流
+     * @throws IOException 获取失败
+     */
+    OutputStream getBody() throws IOException;
+}
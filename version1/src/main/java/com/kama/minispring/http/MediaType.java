@@ -0,0 +1,238 @@
+package com.kama.minispring.http;
+
+import com.kama.minispring.util.Assert;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 媒体类型
+ * 只保留内容协商需要的类型、子类型、字符集和质量因子, 其余参数在解析时忽略
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public final class MediaType {
+
+    private static final String WILDCARD = "*";
+
+    public static final MediaType ALL = new MediaType(WILDCARD, WILDCARD);
+
+    public static final MediaType APPLICATION_JSON = new MediaType("application", "json");
+
+    public static final MediaType APPLICATION_OCTET_STREAM = new MediaType("application", "octet-stream");
+
+    public static final MediaType TEXT_PLAIN = new MediaType("text", "plain");
+
+    public static final MediaType TEXT_HTML = new MediaType("text", "html");
+
+    private final String type;
+
+    private final String subtype;
+
+    private final Charset charset;
+
+    private final double quality;
+
+    private String text;
+
+    public MediaType(String type, String subtype) {
+        this(type, subtype, null, 1.0);
+    }
+
+    public MediaType(String type, String subtype, Charset charset) {
+        this(type, subtype, charset, 1.0);
+    }
+
+    private MediaType(String type, String subtype, Charset charset, double quality) {
+        Assert.hasText(type, "Type must not be empty");
+        Assert.hasText(subtype, "Subtype must not be empty");
+        this.type = type.toLowerCase(Locale.ROOT);
+        this.subtype = subtype.toLowerCase(Locale.ROOT);
+        this.charset = charset;
+        this.quality = quality;
+    }
+
+    /**
+     * 解析单个媒体类型, 例如"text/html; charset=UTF-8"
+     *
+     * @param value 媒体类型字符串
+     * @return 媒体类型
+     * @throws IllegalArgumentException 格式不合法
+     */
+    public static MediaType parseMediaType(String value) {
+        Assert.hasText(value, "Media type must not be empty");
+        String[] parts = value.split(";");
+        String full = parts[0].trim();
+        if (WILDCARD.equals(full)) {
+            full = "*/*";
+        }
+        int slash = full.indexOf('/');
+        if (slash <= 0 || slash == full.length() - 1) {
+            throw new IllegalArgumentException("Invalid media type [" + value + "]: does not contain '/'");
+        }
+        Charset charset = null;
+        double quality = 1.0;
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            int eq = parameter.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            String name = parameter.substring(0, eq).trim();
+            String paramValue = unquote(parameter.substring(eq + 1).trim());
+            try {
+                if (name.equalsIgnoreCase("charset")) {
+                    charset = Charset.forName(paramValue);
+                } else if (name.equalsIgnoreCase("q")) {
+                    quality = Double.parseDouble(paramValue);
+                    if (quality < 0.0 || quality > 1.0) {
+                        throw new IllegalArgumentException("Invalid quality value [" + paramValue + "]");
+                    }
+                }
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("Invalid media type [" + value + "]: " + ex.getMessage(), ex);
+            }
+        }
+        return new MediaType(full.substring(0, slash).trim(), full.substring(slash + 1).trim(), charset, quality);
+    }
+
+    /**
+     * 解析Accept头, 按质量因子和具体程度从高到低排序
+     *
+     * @param value Accept头, 为空时返回ALL
+     * @return 只读的媒体类型列表
+     */
+    public static List<MediaType> parseAcceptHeader(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return Collections.singletonList(ALL);
+        }
+        List<MediaType> mediaTypes = new ArrayList<>();
+        for (String token : value.split(",")) {
+            if (!token.trim().isEmpty()) {
+                MediaType mediaType = parseMediaType(token);
+                if (mediaType.quality > 0.0) {
+                    mediaTypes.add(mediaType);
+                }
+            }
+        }
+        // 稳定排序, 同优先级保持客户端给出的顺序
+        mediaTypes.sort((a, b) -> {
+            int byQuality = Double.compare(b.quality, a.quality);
+            return byQuality != 0 ? byQuality : Integer.compare(a.specificity(), b.specificity());
+        });
+        return Collections.unmodifiableList(mediaTypes);
+    }
+
+    private static String unquote(String value) {
+        return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")
+                ? value.substring(1, value.length() - 1) : value;
+    }
+
+    private int specificity() {
+        return isWildcardType() ? 2 : isWildcardSubtype() ? 1 : 0;
+    }
+
+    public String getType() {
+        return this.type;
+    }
+
+    public String getSubtype() {
+        return this.subtype;
+    }
+
+    public Charset getCharset() {
+        return this.charset;
+    }
+
+    public double getQualityValue() {
+        return this.quality;
+    }
+
+    public boolean isWildcardType() {
+        return WILDCARD.equals(this.type);
+    }
+
+    public boolean isWildcardSubtype() {
+        return WILDCARD.equals(this.subtype) || this.subtype.startsWith("*+");
+    }
+
+    /**
+     * 是否是不含通配符的具体类型
+     */
+    public boolean isConcrete() {
+        return !isWildcardType() && !isWildcardSubtype();
+    }
+
+    /**
+     * 判断当前类型是否包含给定类型, 例如text/*包含text/plain
+     */
+    public boolean includes(MediaType other) {
+        if (other == null) {
+            return false;
+        }
+        if (isWildcardType()) {
+            return true;
+        }
+        if (!this.type.equals(other.type)) {
+            return false;
+        }
+        if (this.subtype.equals(other.subtype) || WILDCARD.equals(this.subtype)) {
+            return true;
+        }
+        // application/*+json 包含 application/vnd.api+json
+        if (this.subtype.startsWith("*+")) {
+            return other.subtype.endsWith(this.subtype.substring(1));
+        }
+        return false;
+    }
+
+    /**
+     * 判断两个类型是否兼容, 即任意一方包含另一方
+     */
+    public boolean isCompatibleWith(MediaType other) {
+        return includes(other) || (other != null && other.includes(this));
+    }
+
+    /**
+     * 返回指定字符集的副本
+     */
+    public MediaType withCharset(Charset charset) {
+        return new MediaType(this.type, this.subtype, charset, this.quality);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof MediaType)) {
+            return false;
+        }
+        MediaType that = (MediaType) other;
+        return this.type.equals(that.type) && this.subtype.equals(that.subtype)
+                && (this.charset == null ? that.charset == null : this.charset.equals(that.charset));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = this.type.hashCode() * 31 + this.subtype.hashCode();
+        return this.charset != null ? result * 31 + this.charset.hashCode() : result;
+    }
+
+    /**
+     * 返回Content-Type头格式, 结果会被缓存
+     */
+    @Override
+    public String toString() {
+        String text = this.text;
+        if (text == null) {
+            text = this.type + "/" + this.subtype + (this.charset != null ? ";charset=" + this.charset.name() : "");
+            this.text = text;
+        }
+        return text;
+    }
+}
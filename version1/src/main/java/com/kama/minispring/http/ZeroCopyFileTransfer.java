@@ -0,0 +1,25 @@
+package com.kama.minispring.http;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 支持零拷贝发送文件的响应
+ * 由能直接访问底层SocketChannel的服务器实现, 文件内容通过FileChannel.transferTo从页缓存直接发送, 不经过堆内存。
+ * 调用前需要设置好状态码、响应头和与count一致的Content-Length
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public interface ZeroCopyFileTransfer {
+
+    /**
+     * 提交响应头并发送文件的一段内容
+     *
+     * @param file 文件路径
+     * @param position 起始位置
+     * @param count 发送的字节数
+     * @throws IOException 如果文件无法打开或连接已经关闭
+     */
+    void transferFile(Path file, long position, long count) throws IOException;
+}
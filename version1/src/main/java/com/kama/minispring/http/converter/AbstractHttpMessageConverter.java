@@ -0,0 +1,95 @@
+package com.kama.minispring.http.converter;
+
+import com.kama.minispring.http.HttpOutputMessage;
+import com.kama.minispring.http.MediaType;
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.util.BufferPool;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 消息转换器基类
+ * 负责媒体类型匹配和Content-Type设置, 子类通过PooledBodyOutputStream写出响应体
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public abstract class AbstractHttpMessageConverter<T> implements HttpMessageConverter<T> {
+
+    private final List<MediaType> supportedMediaTypes;
+
+    private BufferPool bufferPool = BufferPool.getSharedInstance();
+
+    protected AbstractHttpMessageConverter(MediaType... supportedMediaTypes) {
+        this.supportedMediaTypes = Collections.unmodifiableList(Arrays.asList(supportedMediaTypes));
+    }
+
+    /**
+     * 设置写出响应体使用的缓冲池, 默认使用共享缓冲池
+     */
+    public void setBufferPool(BufferPool bufferPool) {
+        Assert.notNull(bufferPool, "BufferPool must not be null");
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes() {
+        return this.supportedMediaTypes;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        if (!supports(clazz)) {
+            return false;
+        }
+        if (mediaType == null || mediaType.isWildcardType()) {
+            return true;
+        }
+        for (MediaType supported : this.supportedMediaTypes) {
+            if (supported.isCompatibleWith(mediaType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public final void write(T value, MediaType contentType, HttpOutputMessage outputMessage) throws IOException {
+        MediaType typeToUse = contentType;
+        Charset defaultCharset = getDefaultCharset();
+        if (typeToUse.getCharset() == null && defaultCharset != null) {
+            typeToUse = typeToUse.withCharset(defaultCharset);
+        }
+        outputMessage.setContentType(typeToUse);
+        try (PooledBodyOutputStream body = new PooledBodyOutputStream(outputMessage, this.bufferPool)) {
+            writeInternal(value, typeToUse, body);
+        }
+    }
+
+    /**
+     * 文本类型的默认字符集, Content-Type没有指定字符集时使用, 二进制类型返回null
+     */
+    protected Charset getDefaultCharset() {
+        return null;
+    }
+
+    /**
+     * 判断是否支持给定的返回值类型
+     */
+    protected abstract boolean supports(Class<?> clazz);
+
+    /**
+     * 写出响应体
+     *
+     * @param value 要写出的对象
+     * @param contentType 含字符集的内容类型
+     * @param body 响应体输出流, 由基类关闭
+     * @throws IOException 写出失败
+     */
+    protected abstract void writeInternal(T value, MediaType contentType, PooledBodyOutputStream body)
+            throws IOException;
+}
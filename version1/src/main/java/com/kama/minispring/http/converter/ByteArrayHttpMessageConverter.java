@@ -0,0 +1,29 @@
+package com.kama.minispring.http.converter;
+
+import com.kama.minispring.http.MediaType;
+
+import java.io.IOException;
+
+/**
+ * byte[]消息转换器
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class ByteArrayHttpMessageConverter extends AbstractHttpMessageConverter<byte[]> {
+
+    public ByteArrayHttpMessageConverter() {
+        super(MediaType.APPLICATION_OCTET_STREAM, MediaType.ALL);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == byte[].class;
+    }
+
+    @Override
+    protected void writeInternal(byte[] value, MediaType contentType, PooledBodyOutputStream body)
+            throws IOException {
+        body.write(value, 0, value.length);
+    }
+}
@@ -0,0 +1,43 @@
+package com.kama.minispring.http.converter;
+
+import com.kama.minispring.http.HttpOutputMessage;
+import com.kama.minispring.http.MediaType;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * HTTP消息转换器
+ * 把处理器返回值按指定的媒体类型写入响应体
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public interface HttpMessageConverter<T> {
+
+    /**
+     * 判断能否把给定类型的对象写成给定媒体类型
+     *
+     * @param clazz 返回值类型
+     * @param mediaType 目标媒体类型, 可以含通配符, 为null时表示不限
+     * @return 能否写出
+     */
+    boolean canWrite(Class<?> clazz, MediaType mediaType);
+
+    /**
+     * 获取支持的媒体类型, 第一个作为默认的Content-Type
+     *
+     * @return 媒体类型列表
+     */
+    List<MediaType> getSupportedMediaTypes();
+
+    /**
+     * 写出对象
+     *
+     * @param value 要写出的对象
+     * @param contentType 具体的内容类型, 不含通配符
+     * @param outputMessage 输出消息
+     * @throws IOException 写出失败
+     */
+    void write(T value, MediaType contentType, HttpOutputMessage outputMessage) throws IOException;
+}
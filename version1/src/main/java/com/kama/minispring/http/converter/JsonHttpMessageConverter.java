@@ -0,0 +1,280 @@
+package com.kama.minispring.http.converter;
+
+import com.kama.minispring.http.MediaType;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JSON消息转换器
+ * 不依赖第三方库, 边遍历对象边写出, 不构造完整的JSON字符串。
+ * 支持Map、Iterable、数组、Optional、枚举、record和带getter的JavaBean, 日期时间类型按toString输出;
+ * 每个类的属性访问方法只解析一次
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class JsonHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    private static final int MAX_DEPTH = 64;
+
+    /** 写出前在字符缓冲中累积的最大字符数 */
+    private static final int CHUNK_SIZE = 2048;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Map<Class<?>, JsonProperty[]> propertyCache = new ConcurrentHashMap<>();
+
+    public JsonHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+    }
+
+    @Override
+    protected Charset getDefaultCharset() {
+        return StandardCharsets.UTF_8;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return true;
+    }
+
+    @Override
+    protected void writeInternal(Object value, MediaType contentType, PooledBodyOutputStream body)
+            throws IOException {
+        JsonWriter writer = new JsonWriter(body, contentType.getCharset());
+        writeValue(writer, value, 0);
+        writer.flush();
+    }
+
+    private void writeValue(JsonWriter writer, Object value, int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("JSON nesting exceeds " + MAX_DEPTH + " levels, possibly a cyclic reference");
+        }
+        if (value == null) {
+            writer.raw("null");
+        } else if (value instanceof CharSequence || value instanceof Character) {
+            writer.string(value.toString());
+        } else if (value instanceof Boolean) {
+            writer.raw(value.toString());
+        } else if (value instanceof Number) {
+            writeNumber(writer, (Number) value);
+        } else if (value instanceof Enum) {
+            writer.string(((Enum<?>) value).name());
+        } else if (value instanceof Optional) {
+            writeValue(writer, ((Optional<?>) value).orElse(null), depth);
+        } else if (value instanceof Map) {
+            writer.raw('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    writer.raw(',');
+                }
+                first = false;
+                writer.string(String.valueOf(entry.getKey()));
+                writer.raw(':');
+                writeValue(writer, entry.getValue(), depth + 1);
+            }
+            writer.raw('}');
+        } else if (value instanceof Iterable) {
+            writer.raw('[');
+            boolean first = true;
+            for (Object element : (Iterable<?>) value) {
+                if (!first) {
+                    writer.raw(',');
+                }
+                first = false;
+                writeValue(writer, element, depth + 1);
+            }
+            writer.raw(']');
+        } else if (value.getClass().isArray()) {
+            writer.raw('[');
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                if (i > 0) {
+                    writer.raw(',');
+                }
+                writeValue(writer, Array.get(value, i), depth + 1);
+            }
+            writer.raw(']');
+        } else if (value instanceof Date || value instanceof TemporalAccessor) {
+            writer.string(value.toString());
+        } else {
+            writeBean(writer, value, depth);
+        }
+    }
+
+    private void writeNumber(JsonWriter writer, Number number) throws IOException {
+        if ((number instanceof Double && !Double.isFinite(number.doubleValue()))
+                || (number instanceof Float && !Float.isFinite(number.floatValue()))) {
+            writer.raw("null");
+        } else {
+            writer.raw(number.toString());
+        }
+    }
+
+    private void writeBean(JsonWriter writer, Object bean, int depth) throws IOException {
+        JsonProperty[] properties = this.propertyCache.computeIfAbsent(bean.getClass(),
+                JsonHttpMessageConverter::introspect);
+        writer.raw('{');
+        for (int i = 0; i < properties.length; i++) {
+            if (i > 0) {
+                writer.raw(',');
+            }
+            writer.string(properties[i].name);
+            writer.raw(':');
+            writeValue(writer, properties[i].read(bean), depth + 1);
+        }
+        writer.raw('}');
+    }
+
+    private static JsonProperty[] introspect(Class<?> clazz) {
+        List<JsonProperty> properties = new ArrayList<>();
+        if (clazz.isRecord()) {
+            for (RecordComponent component : clazz.getRecordComponents()) {
+                properties.add(new JsonProperty(component.getName(), component.getAccessor()));
+            }
+        } else {
+            for (Method method : clazz.getMethods()) {
+                if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0
+                        || method.getDeclaringClass() == Object.class || method.getReturnType() == void.class) {
+                    continue;
+                }
+                String name = method.getName();
+                String property = null;
+                if (name.startsWith("get") && name.length() > 3) {
+                    property = name.substring(3);
+                } else if (name.startsWith("is") && name.length() > 2
+                        && (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class)) {
+                    property = name.substring(2);
+                }
+                if (property != null) {
+                    properties.add(new JsonProperty(decapitalize(property), method));
+                }
+            }
+            properties.sort((a, b) -> a.name.compareTo(b.name));
+        }
+        return properties.toArray(new JsonProperty[0]);
+    }
+
+    private static String decapitalize(String name) {
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static final class JsonProperty {
+
+        private final String name;
+
+        private final Method accessor;
+
+        private JsonProperty(String name, Method accessor) {
+            this.name = name;
+            this.accessor = accessor;
+            try {
+                accessor.setAccessible(true);
+            } catch (RuntimeException ex) {
+                // 非导出包中的类型, 只能访问public方法
+            }
+        }
+
+        private Object read(Object bean) throws IOException {
+            try {
+                return this.accessor.invoke(bean);
+            } catch (IllegalAccessException | InvocationTargetException ex) {
+                throw new IOException("Could not read JSON property '" + this.name + "' of "
+                        + bean.getClass().getName(), ex instanceof InvocationTargetException ? ex.getCause() : ex);
+            }
+        }
+    }
+
+    /**
+     * 在字符缓冲中累积输出, 累积到一定长度后编码进响应缓冲
+     */
+    private static final class JsonWriter {
+
+        private final PooledBodyOutputStream body;
+
+        private final Charset charset;
+
+        private final StringBuilder chunk = new StringBuilder(CHUNK_SIZE + 64);
+
+        private JsonWriter(PooledBodyOutputStream body, Charset charset) {
+            this.body = body;
+            this.charset = charset;
+        }
+
+        private void raw(char c) throws IOException {
+            this.chunk.append(c);
+            flushIfFull();
+        }
+
+        private void raw(String text) throws IOException {
+            this.chunk.append(text);
+            flushIfFull();
+        }
+
+        private void string(String text) throws IOException {
+            StringBuilder chunk = this.chunk;
+            chunk.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '"':
+                        chunk.append("\\\"");
+                        break;
+                    case '\\':
+                        chunk.append("\\\\");
+                        break;
+                    case '\n':
+                        chunk.append("\\n");
+                        break;
+                    case '\r':
+                        chunk.append("\\r");
+                        break;
+                    case '\t':
+                        chunk.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                            chunk.append("\\u").append(HEX[c >> 12]).append(HEX[(c >> 8) & 0xF])
+                                    .append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+                        } else {
+                            chunk.append(c);
+                        }
+                }
+                if (chunk.length() >= CHUNK_SIZE && !Character.isHighSurrogate(c)) {
+                    flush();
+                }
+            }
+            chunk.append('"');
+            flushIfFull();
+        }
+
+        private void flushIfFull() throws IOException {
+            if (this.chunk.length() >= CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            this.body.writeChars(this.chunk, this.charset);
+            this.chunk.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.kama.minispring.http.converter;
+
+import com.kama.minispring.http.HttpOutputMessage;
+import com.kama.minispring.util.BufferPool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * 基于缓冲池的响应体输出流
+ * 写入先进入从池中借出的缓冲, 缓冲写满时才取得响应输出流并写出;
+ * 响应体在一个缓冲内写完时, 关闭时会先设置Content-Length再一次性写出。
+ * 字符直接编码进缓冲, 不产生中间的byte[]或String。关闭后缓冲归还到池中, 流不能再使用
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class PooledBodyOutputStream extends OutputStream {
+
+    private final HttpOutputMessage outputMessage;
+
+    private final BufferPool bufferPool;
+
+    private byte[] buffer;
+
+    private int count;
+
+    private OutputStream body;
+
+    private CharsetEncoder encoder;
+
+    private boolean closed;
+
+    public PooledBodyOutputStream(HttpOutputMessage outputMessage, BufferPool bufferPool) {
+        this.outputMessage = outputMessage;
+        this.bufferPool = bufferPool;
+        this.buffer = bufferPool.acquire();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (this.count == this.buffer.length) {
+            flushBuffer();
+        }
+        this.buffer[this.count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int off, int len) throws IOException {
+        ensureOpen();
+        if (len > this.buffer.length - this.count) {
+            flushBuffer();
+            if (len >= this.buffer.length) {
+                // 大块数据不经过缓冲直接写出
+                this.body.write(bytes, off, len);
+                return;
+            }
+        }
+        System.arraycopy(bytes, off, this.buffer, this.count, len);
+        this.count += len;
+    }
+
+    /**
+     * 按给定字符集把字符直接编码进缓冲
+     *
+     * @param chars 字符序列
+     * @param charset 字符集
+     * @throws IOException 写出失败
+     */
+    public void writeChars(CharSequence chars, Charset charset) throws IOException {
+        ensureOpen();
+        if (chars.length() == 0) {
+            return;
+        }
+        CharsetEncoder encoder = this.encoder;
+        if (encoder == null || !encoder.charset().equals(charset)) {
+            encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.encoder = encoder;
+        } else {
+            encoder.reset();
+        }
+        CharBuffer in = CharBuffer.wrap(chars);
+        ByteBuffer out = ByteBuffer.wrap(this.buffer, this.count, this.buffer.length - this.count);
+        while (true) {
+            CoderResult result = in.hasRemaining() ? encoder.encode(in, out, true) : CoderResult.UNDERFLOW;
+            if (result.isUnderflow()) {
+                result = encoder.flush(out);
+            }
+            this.count = out.position();
+            if (result.isUnderflow()) {
+                return;
+            }
+            // 缓冲已满, 写出后继续编码
+            flushBuffer();
+            out = ByteBuffer.wrap(this.buffer, 0, this.buffer.length);
+        }
+    }
+
+    /**
+     * 从输入流读取全部内容写出, 直接读进缓冲而不使用额外的中间数组
+     *
+     * @param in 输入流, 不负责关闭
+     * @return 写出的字节数
+     * @throws IOException 读写失败
+     */
+    public long transferFrom(InputStream in) throws IOException {
+        ensureOpen();
+        long total = 0;
+        while (true) {
+            if (this.count == this.buffer.length) {
+                flushBuffer();
+            }
+            int read = in.read(this.buffer, this.count, this.buffer.length - this.count);
+            if (read < 0) {
+                return total;
+            }
+            this.count += read;
+            total += read;
+        }
+    }
+
+    /**
+     * 是否已经开始向响应写出数据, 开始后不能再修改响应头
+     */
+    public boolean isCommitted() {
+        return this.body != null;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (this.body == null) {
+            this.body = this.outputMessage.getBody();
+        }
+        if (this.count > 0) {
+            this.body.write(this.buffer, 0, this.count);
+            this.count = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        flushBuffer();
+        this.body.flush();
+    }
+
+    /**
+     * 写出剩余数据并归还缓冲, 不关闭响应输出流
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            if (this.body == null) {
+                this.outputMessage.setContentLength(this.count);
+            }
+            flushBuffer();
+            this.body.flush();
+        } finally {
+            this.bufferPool.release(this.buffer);
+            this.buffer = null;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.kama.minispring.http.converter;
+
+import com.kama.minispring.core.io.Resource;
+import com.kama.minispring.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Resource和InputStream消息转换器
+ * 内容分块读进池化缓冲后写出, 大文件不会整体载入内存; InputStream在写完后关闭
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class ResourceHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    public ResourceHttpMessageConverter() {
+        super(MediaType.APPLICATION_OCTET_STREAM, MediaType.ALL);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Resource.class.isAssignableFrom(clazz) || InputStream.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected void writeInternal(Object value, MediaType contentType, PooledBodyOutputStream body)
+            throws IOException {
+        try (InputStream in = value instanceof Resource ? ((Resource) value).getInputStream() : (InputStream) value) {
+            body.transferFrom(in);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.kama.minispring.http.converter;
+
+import com.kama.minispring.http.MediaType;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 字符串消息转换器
+ * 支持任意CharSequence, 字符直接编码进缓冲, StringBuilder等不会先转成String
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class StringHttpMessageConverter extends AbstractHttpMessageConverter<CharSequence> {
+
+    private final Charset defaultCharset;
+
+    public StringHttpMessageConverter() {
+        this(StandardCharsets.UTF_8);
+    }
+
+    public StringHttpMessageConverter(Charset defaultCharset) {
+        super(MediaType.TEXT_PLAIN, MediaType.ALL);
+        this.defaultCharset = defaultCharset;
+    }
+
+    @Override
+    protected Charset getDefaultCharset() {
+        return this.defaultCharset;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return CharSequence.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected void writeInternal(CharSequence value, MediaType contentType, PooledBodyOutputStream body)
+            throws IOException {
+        body.writeChars(value, contentType.getCharset());
+    }
+}
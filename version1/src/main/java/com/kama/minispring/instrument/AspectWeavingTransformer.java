@@ -0,0 +1,339 @@
+package com.kama.minispring.instrument;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.TypePath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 切面织入转换器
+ * 在类加载时改写方法字节码: 原方法体重命名为私有方法, 原方法改为先检查WeavingRuntime中
+ * 是否存在匹配的通知, 没有通知时直接调用原方法体, 否则经由通知链调用
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class AspectWeavingTransformer implements ClassFileTransformer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AspectWeavingTransformer.class);
+
+    private static final String RUNTIME_INTERNAL_NAME = Type.getInternalName(WeavingRuntime.class);
+
+    private static final String IS_ADVISED_DESCRIPTOR = "(ILjava/lang/Class;)Z";
+
+    private static final String INVOKE_DESCRIPTOR = "(ILjava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;";
+
+    private final List<String> includePrefixes = new ArrayList<>();
+
+    /**
+     * 构造函数
+     *
+     * @param includePrefixes 需要织入的类名前缀, 如 com.example.service.
+     */
+    public AspectWeavingTransformer(Collection<String> includePrefixes) {
+        for (String prefix : includePrefixes) {
+            if (prefix != null && !prefix.trim().isEmpty()) {
+                this.includePrefixes.add(prefix.trim().replace('.', '/'));
+            }
+        }
+    }
+
+    /**
+     * 判断类是否在织入范围内
+     *
+     * @param internalName 类的内部名称, 如 com/example/Foo
+     * @return 是否织入
+     */
+    public boolean isIncluded(String internalName) {
+        if (internalName == null || internalName.startsWith(RUNTIME_INTERNAL_NAME)) {
+            return false;
+        }
+        for (String prefix : includePrefixes) {
+            if (internalName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                            ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+        // 重定义的类不能新增方法
+        if (classBeingRedefined != null || !isIncluded(className)) {
+            return null;
+        }
+        try {
+            return weave(classfileBuffer);
+        } catch (RuntimeException ex) {
+            logger.warn("Failed to weave class {}, loading it unchanged", className, ex);
+            return null;
+        }
+    }
+
+    /**
+     * 织入类字节码
+     *
+     * @param classfileBuffer 原始字节码
+     * @return 织入后的字节码, 无需织入时返回null
+     */
+    public byte[] weave(byte[] classfileBuffer) {
+        ClassReader reader = new ClassReader(classfileBuffer);
+        int access = reader.getAccess();
+        if ((access & (Opcodes.ACC_INTERFACE | Opcodes.ACC_ANNOTATION | Opcodes.ACC_MODULE)) != 0) {
+            return null;
+        }
+        // 只处理带有栈映射帧的类文件版本
+        if ((reader.readShort(6) & 0xFFFF) < Opcodes.V1_7) {
+            return null;
+        }
+        ClassWriter writer = new ClassWriter(reader, ClassWriter.COMPUTE_MAXS);
+        WeavingClassVisitor visitor = new WeavingClassVisitor(writer);
+        reader.accept(visitor, 0);
+        if (visitor.wovenCount == 0) {
+            return null;
+        }
+        logger.debug("Woven {} method(s) into {}", visitor.wovenCount, reader.getClassName());
+        return writer.toByteArray();
+    }
+
+    private static boolean isWeavable(int access, String name) {
+        if (name.startsWith("<") || name.endsWith(WeavingRuntime.WOVEN_METHOD_SUFFIX)) {
+            return false;
+        }
+        return (access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE
+                | Opcodes.ACC_BRIDGE | Opcodes.ACC_SYNTHETIC)) == 0;
+    }
+
+    /**
+     * 类级别的访问者, 为每个可织入方法生成包装方法
+     */
+    private static final class WeavingClassVisitor extends ClassVisitor {
+
+        private String owner;
+        private int wovenCount;
+
+        private WeavingClassVisitor(ClassVisitor classVisitor) {
+            super(Opcodes.ASM9, classVisitor);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature,
+                          String superName, String[] interfaces) {
+            this.owner = name;
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor,
+                                         String signature, String[] exceptions) {
+            if (!isWeavable(access, name)) {
+                return super.visitMethod(access, name, descriptor, signature, exceptions);
+            }
+            int id = WeavingRuntime.registerJoinPoint(owner.replace('/', '.'), name, descriptor);
+            wovenCount++;
+
+            // 原方法签名保留给包装方法, 注解也转移到包装方法上
+            int wrapperAccess = access & ~Opcodes.ACC_SYNCHRONIZED;
+            MethodVisitor wrapper = super.visitMethod(wrapperAccess, name, descriptor, signature, exceptions);
+            int bodyAccess = (access & ~(Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED | Opcodes.ACC_VARARGS))
+                    | Opcodes.ACC_PRIVATE | Opcodes.ACC_SYNTHETIC;
+            MethodVisitor body = super.visitMethod(bodyAccess, name + WeavingRuntime.WOVEN_METHOD_SUFFIX,
+                    descriptor, signature, exceptions);
+            return new BodyMethodVisitor(body, wrapper, owner, id, access, name, descriptor);
+        }
+    }
+
+    /**
+     * 原方法体的访问者, 方法结束时生成包装方法的代码
+     */
+    private static final class BodyMethodVisitor extends MethodVisitor {
+
+        private final MethodVisitor wrapper;
+        private final String owner;
+        private final int id;
+        private final boolean isStatic;
+        private final String name;
+        private final String descriptor;
+
+        private BodyMethodVisitor(MethodVisitor body, MethodVisitor wrapper, String owner, int id,
+                                  int access, String name, String descriptor) {
+            super(Opcodes.ASM9, body);
+            this.wrapper = wrapper;
+            this.owner = owner;
+            this.id = id;
+            this.isStatic = (access & Opcodes.ACC_STATIC) != 0;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+
+        @Override
+        public void visitParameter(String parameterName, int access) {
+            wrapper.visitParameter(parameterName, access);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String annotationDescriptor, boolean visible) {
+            return wrapper.visitAnnotation(annotationDescriptor, visible);
+        }
+
+        @Override
+        public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath,
+                                                     String annotationDescriptor, boolean visible) {
+            return wrapper.visitTypeAnnotation(typeRef, typePath, annotationDescriptor, visible);
+        }
+
+        @Override
+        public void visitAnnotableParameterCount(int parameterCount, boolean visible) {
+            wrapper.visitAnnotableParameterCount(parameterCount, visible);
+        }
+
+        @Override
+        public AnnotationVisitor visitParameterAnnotation(int parameter, String annotationDescriptor,
+                                                          boolean visible) {
+            return wrapper.visitParameterAnnotation(parameter, annotationDescriptor, visible);
+        }
+
+        @Override
+        public void visitAttribute(Attribute attribute) {
+            wrapper.visitAttribute(attribute);
+        }
+
+        @Override
+        public void visitEnd() {
+            super.visitEnd();
+            generateWrapper();
+        }
+
+        private void generateWrapper() {
+            Type[] argumentTypes = Type.getArgumentTypes(descriptor);
+            Type returnType = Type.getReturnType(descriptor);
+            MethodVisitor mv = wrapper;
+            mv.visitCode();
+
+            // if (WeavingRuntime.isAdvised(id, Owner.class))
+            Label direct = new Label();
+            pushInt(mv, id);
+            mv.visitLdcInsn(Type.getObjectType(owner));
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, RUNTIME_INTERNAL_NAME, "isAdvised", IS_ADVISED_DESCRIPTOR, false);
+            mv.visitJumpInsn(Opcodes.IFEQ, direct);
+
+            // return (R) WeavingRuntime.invoke(id, this, new Object[] {args});
+            pushInt(mv, id);
+            if (isStatic) {
+                mv.visitInsn(Opcodes.ACONST_NULL);
+            } else {
+                mv.visitVarInsn(Opcodes.ALOAD, 0);
+            }
+            pushInt(mv, argumentTypes.length);
+            mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+            int slot = isStatic ? 0 : 1;
+            for (int i = 0; i < argumentTypes.length; i++) {
+                mv.visitInsn(Opcodes.DUP);
+                pushInt(mv, i);
+                mv.visitVarInsn(argumentTypes[i].getOpcode(Opcodes.ILOAD), slot);
+                box(mv, argumentTypes[i]);
+                mv.visitInsn(Opcodes.AASTORE);
+                slot += argumentTypes[i].getSize();
+            }
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, RUNTIME_INTERNAL_NAME, "invoke", INVOKE_DESCRIPTOR, false);
+            unboxAndReturn(mv, returnType);
+
+            // 没有通知时直接调用原方法体
+            mv.visitLabel(direct);
+            mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+            slot = 0;
+            if (!isStatic) {
+                mv.visitVarInsn(Opcodes.ALOAD, 0);
+                slot = 1;
+            }
+            for (Type argumentType : argumentTypes) {
+                mv.visitVarInsn(argumentType.getOpcode(Opcodes.ILOAD), slot);
+                slot += argumentType.getSize();
+            }
+            mv.visitMethodInsn(isStatic ? Opcodes.INVOKESTATIC : Opcodes.INVOKESPECIAL, owner,
+                    name + WeavingRuntime.WOVEN_METHOD_SUFFIX, descriptor, false);
+            mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+
+        private static void pushInt(MethodVisitor mv, int value) {
+            if (value >= -1 && value <= 5) {
+                mv.visitInsn(Opcodes.ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                mv.visitIntInsn(Opcodes.BIPUSH, value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                mv.visitIntInsn(Opcodes.SIPUSH, value);
+            } else {
+                mv.visitLdcInsn(value);
+            }
+        }
+
+        private static void box(MethodVisitor mv, Type type) {
+            if (type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY) {
+                return;
+            }
+            Type boxed = boxedType(type);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, boxed.getInternalName(), "valueOf",
+                    Type.getMethodDescriptor(boxed, type), false);
+        }
+
+        private static void unboxAndReturn(MethodVisitor mv, Type returnType) {
+            switch (returnType.getSort()) {
+                case Type.VOID:
+                    mv.visitInsn(Opcodes.POP);
+                    mv.visitInsn(Opcodes.RETURN);
+                    return;
+                case Type.OBJECT:
+                case Type.ARRAY:
+                    mv.visitTypeInsn(Opcodes.CHECKCAST, returnType.getInternalName());
+                    mv.visitInsn(Opcodes.ARETURN);
+                    return;
+                default:
+                    Type boxed = boxedType(returnType);
+                    mv.visitTypeInsn(Opcodes.CHECKCAST, boxed.getInternalName());
+                    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, boxed.getInternalName(),
+                            returnType.getClassName() + "Value", Type.getMethodDescriptor(returnType), false);
+                    mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+            }
+        }
+
+        private static Type boxedType(Type type) {
+            switch (type.getSort()) {
+                case Type.BOOLEAN:
+                    return Type.getType(Boolean.class);
+                case Type.CHAR:
+                    return Type.getType(Character.class);
+                case Type.BYTE:
+                    return Type.getType(Byte.class);
+                case Type.SHORT:
+                    return Type.getType(Short.class);
+                case Type.INT:
+                    return Type.getType(Integer.class);
+                case Type.FLOAT:
+                    return Type.getType(Float.class);
+                case Type.LONG:
+                    return Type.getType(Long.class);
+                case Type.DOUBLE:
+                    return Type.getType(Double.class);
+                default:
+                    throw new IllegalArgumentException("Not a primitive type: " + type);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.kama.minispring.instrument;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.instrument.Instrumentation;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 加载时织入代理
+ * 通过 -javaagent:mini-spring.jar=com.example.service.,com.example.repo. 启用,
+ * 参数为逗号分隔的待织入类名前缀
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public final class WeavingAgent {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeavingAgent.class);
+
+    private static volatile Instrumentation instrumentation;
+
+    private WeavingAgent() {
+    }
+
+    /**
+     * JVM启动时加载代理
+     *
+     * @param agentArgs 代理参数
+     * @param inst 插桩接口
+     */
+    public static void premain(String agentArgs, Instrumentation inst) {
+        install(agentArgs, inst);
+    }
+
+    /**
+     * 运行时动态加载代理, 只对之后加载的类生效
+     *
+     * @param agentArgs 代理参数
+     * @param inst 插桩接口
+     */
+    public static void agentmain(String agentArgs, Instrumentation inst) {
+        install(agentArgs, inst);
+    }
+
+    /**
+     * 获取代理启动时传入的插桩接口
+     *
+     * @return 插桩接口, 代理未启用时为null
+     */
+    public static Instrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    private static void install(String agentArgs, Instrumentation inst) {
+        List<String> prefixes = parsePrefixes(agentArgs);
+        if (prefixes.isEmpty()) {
+            logger.warn("No include prefixes given to weaving agent, no classes will be woven");
+            return;
+        }
+        instrumentation = inst;
+        inst.addTransformer(new AspectWeavingTransformer(prefixes));
+        logger.info("Load-time weaving enabled for {}", prefixes);
+    }
+
+    static List<String> parsePrefixes(String agentArgs) {
+        if (agentArgs == null || agentArgs.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(agentArgs.trim().split("\\s*,\\s*"));
+    }
+}
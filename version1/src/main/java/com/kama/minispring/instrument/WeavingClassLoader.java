@@ -0,0 +1,66 @@
+package com.kama.minispring.instrument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+
+/**
+ * 织入类加载器
+ * 对织入范围内的类优先由自身加载并织入, 其余类委托给父加载器, 无需启用Java代理即可使用
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class WeavingClassLoader extends ClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final AspectWeavingTransformer transformer;
+
+    /**
+     * 构造函数
+     *
+     * @param parent 父类加载器
+     * @param includePrefixes 需要织入的类名前缀
+     */
+    public WeavingClassLoader(ClassLoader parent, Collection<String> includePrefixes) {
+        super(parent);
+        this.transformer = new AspectWeavingTransformer(includePrefixes);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!transformer.isIncluded(name.replace('.', '/'))) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> clazz = findLoadedClass(name);
+            if (clazz == null) {
+                clazz = findClass(name);
+            }
+            if (resolve) {
+                resolveClass(clazz);
+            }
+            return clazz;
+        }
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        String resourceName = name.replace('.', '/') + ".class";
+        byte[] original;
+        try (InputStream in = getParent().getResourceAsStream(resourceName)) {
+            if (in == null) {
+                throw new ClassNotFoundException(name);
+            }
+            original = in.readAllBytes();
+        } catch (IOException ex) {
+            throw new ClassNotFoundException(name, ex);
+        }
+        byte[] woven = transformer.transform(this, name.replace('.', '/'), null, null, original);
+        byte[] bytes = woven != null ? woven : original;
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,239 @@
+package com.kama.minispring.instrument;
+
+import com.kama.minispring.aop.Advisor;
+import com.kama.minispring.aop.MethodInterceptor;
+import com.kama.minispring.aop.Pointcut;
+import com.kama.minispring.aop.PointcutAdvisor;
+import com.kama.minispring.aop.adapter.AdvisorAdapterRegistry;
+import com.kama.minispring.aop.adapter.DefaultAdvisorAdapterRegistry;
+import com.kama.minispring.util.Assert;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 织入运行时
+ * 被织入的方法在运行时通过该类查询并执行匹配的通知链, 通知模型与代理方式共用Advisor/Pointcut
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public final class WeavingRuntime {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeavingRuntime.class);
+
+    /**
+     * 原方法体被重命名后追加的后缀
+     */
+    public static final String WOVEN_METHOD_SUFFIX = "$mini$woven";
+
+    private static final MethodInterceptor[] NO_INTERCEPTORS = new MethodInterceptor[0];
+
+    private static final List<Advisor> advisors = new CopyOnWriteArrayList<>();
+
+    private static final AdvisorAdapterRegistry advisorAdapterRegistry = new DefaultAdvisorAdapterRegistry();
+
+    private static final Object registryMonitor = new Object();
+
+    private static volatile JoinPoint[] joinPoints = new JoinPoint[64];
+
+    private static int joinPointCount = 0;
+
+    /**
+     * 通知器变化时递增, 各连接点据此判断是否需要重新匹配; 并发注册时每次变化都必须体现为新版本
+     */
+    private static final AtomicInteger advisorVersion = new AtomicInteger();
+
+    private WeavingRuntime() {
+    }
+
+    /**
+     * 注册通知器, 已织入的连接点会在下一次调用时重新匹配
+     *
+     * @param advisor 通知器
+     */
+    public static void addAdvisor(Advisor advisor) {
+        Assert.notNull(advisor, "Advisor must not be null");
+        advisors.add(advisor);
+        advisorVersion.incrementAndGet();
+    }
+
+    /**
+     * 移除所有通知器
+     */
+    public static void clearAdvisors() {
+        advisors.clear();
+        advisorVersion.incrementAndGet();
+    }
+
+    /**
+     * 获取已注册的通知器
+     *
+     * @return 通知器列表
+     */
+    public static List<Advisor> getAdvisors() {
+        return new ArrayList<>(advisors);
+    }
+
+    /**
+     * 注册连接点, 由织入器在类加载时调用
+     *
+     * @param className 类名
+     * @param methodName 方法名
+     * @param descriptor 方法描述符
+     * @return 连接点编号
+     */
+    public static int registerJoinPoint(String className, String methodName, String descriptor) {
+        synchronized (registryMonitor) {
+            int id = joinPointCount++;
+            JoinPoint[] current = joinPoints;
+            if (id >= current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[id] = new JoinPoint(className, methodName, descriptor);
+            joinPoints = current;
+            return id;
+        }
+    }
+
+    /**
+     * 获取已注册的连接点数量
+     *
+     * @return 连接点数量
+     */
+    public static int getJoinPointCount() {
+        synchronized (registryMonitor) {
+            return joinPointCount;
+        }
+    }
+
+    /**
+     * 判断连接点当前是否存在匹配的通知, 被织入的方法在每次调用时首先执行该检查
+     *
+     * @param id 连接点编号
+     * @param owner 声明方法的类
+     * @return 是否需要执行通知链
+     */
+    public static boolean isAdvised(int id, Class<?> owner) {
+        JoinPoint joinPoint = joinPoints[id];
+        if (joinPoint.resolvedVersion != advisorVersion.get()) {
+            joinPoint.resolve(owner);
+        }
+        return joinPoint.interceptors.length > 0;
+    }
+
+    /**
+     * 执行连接点的通知链, 链尾调用被重命名的原方法
+     *
+     * @param id 连接点编号
+     * @param target 目标对象, 静态方法为null
+     * @param args 参数
+     * @return 方法返回值
+     * @throws Throwable 原方法或通知抛出的异常
+     */
+    public static Object invoke(int id, Object target, Object[] args) throws Throwable {
+        JoinPoint joinPoint = joinPoints[id];
+        MethodInterceptor[] interceptors = joinPoint.interceptors;
+        if (interceptors.length == 0) {
+            return joinPoint.invoker.invokeExact(target, args);
+        }
+        return new WovenMethodInvocation(target, joinPoint.method, args,
+                joinPoint.invoker, Arrays.asList(interceptors)).proceed();
+    }
+
+    static MethodInterceptor[] getInterceptors(Method method, Class<?> targetClass) {
+        List<MethodInterceptor> result = null;
+        for (Advisor advisor : advisors) {
+            if (advisor instanceof PointcutAdvisor) {
+                Pointcut pointcut = ((PointcutAdvisor) advisor).getPointcut();
+                if (!pointcut.getClassFilter().matches(targetClass)
+                        || !pointcut.getMethodMatcher().matches(method, targetClass)) {
+                    continue;
+                }
+            }
+            if (result == null) {
+                result = new ArrayList<>();
+            }
+            result.add(advisorAdapterRegistry.wrap(advisor.getAdvice()));
+        }
+        return result != null ? result.toArray(NO_INTERCEPTORS) : NO_INTERCEPTORS;
+    }
+
+    /**
+     * 连接点, 记录织入的方法及其解析后的通知链
+     */
+    private static final class JoinPoint {
+
+        private final String className;
+        private final String methodName;
+        private final String descriptor;
+
+        private volatile int resolvedVersion = -1;
+        private volatile MethodInterceptor[] interceptors = NO_INTERCEPTORS;
+        private Method method;
+        private MethodHandle invoker;
+
+        private JoinPoint(String className, String methodName, String descriptor) {
+            this.className = className;
+            this.methodName = methodName;
+            this.descriptor = descriptor;
+        }
+
+        private synchronized void resolve(Class<?> owner) {
+            int version = advisorVersion.get();
+            if (this.resolvedVersion == version) {
+                return;
+            }
+            if (this.method == null) {
+                this.method = findMethod(owner);
+                this.invoker = createInvoker(owner, this.method);
+            }
+            MethodInterceptor[] resolved = getInterceptors(this.method, owner);
+            if (logger.isDebugEnabled() && resolved.length > 0) {
+                logger.debug("Resolved {} interceptor(s) for woven method {}.{}",
+                        resolved.length, className, methodName);
+            }
+            this.interceptors = resolved;
+            this.resolvedVersion = version;
+        }
+
+        private Method findMethod(Class<?> owner) {
+            for (Method candidate : owner.getDeclaredMethods()) {
+                if (candidate.getName().equals(methodName)
+                        && Type.getMethodDescriptor(candidate).equals(descriptor)) {
+                    return candidate;
+                }
+            }
+            throw new IllegalStateException("Woven method " + className + "." + methodName + descriptor + " not found");
+        }
+
+        private MethodHandle createInvoker(Class<?> owner, Method method) {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+                MethodType type = MethodType.methodType(method.getReturnType(), method.getParameterTypes());
+                String wovenName = methodName + WOVEN_METHOD_SUFFIX;
+                MethodHandle handle;
+                if (Modifier.isStatic(method.getModifiers())) {
+                    handle = MethodHandles.dropArguments(lookup.findStatic(owner, wovenName, type), 0, Object.class);
+                } else {
+                    handle = lookup.findVirtual(owner, wovenName, type);
+                }
+                return handle.asSpreader(Object[].class, method.getParameterCount())
+                        .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalStateException("Cannot access woven method " + className + "." + methodName, ex);
+            }
+        }
+    }
+}
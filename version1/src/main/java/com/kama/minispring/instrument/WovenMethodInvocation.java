@@ -0,0 +1,62 @@
+package com.kama.minispring.instrument;
+
+import com.kama.minispring.aop.MethodInterceptor;
+import com.kama.minispring.aop.ReflectiveMethodInvocation;
+import com.kama.minispring.aop.adapter.MethodBeforeAdviceInterceptor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * 织入方法调用实现
+ * 拦截器链执行完毕后通过MethodHandle调用被重命名的原方法
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class WovenMethodInvocation extends ReflectiveMethodInvocation {
+
+    private final MethodHandle invoker;
+    private int currentInterceptorIndex = -1;
+
+    /**
+     * 构造函数
+     *
+     * @param target 目标对象
+     * @param method 方法
+     * @param args 参数
+     * @param invoker 原方法调用句柄, 类型为(Object, Object[])Object
+     * @param interceptors 拦截器列表
+     */
+    WovenMethodInvocation(Object target, Method method, Object[] args,
+            MethodHandle invoker, List<MethodInterceptor> interceptors) {
+        super(target, method, args, interceptors);
+        this.invoker = invoker;
+    }
+
+    @Override
+    public Object proceed() throws Throwable {
+        if (currentInterceptorIndex >= interceptors.size() - 1) {
+            return invoker.invokeExact(getThis(), getArguments());
+        }
+
+        // 获取下一个拦截器
+        MethodInterceptor interceptor = interceptors.get(++currentInterceptorIndex);
+
+        try {
+            // 调用拦截器
+            return interceptor.invoke(this);
+        } catch (Throwable ex) {
+            // 如果发生异常，确保所有前置通知都已执行
+            if (interceptor instanceof MethodBeforeAdviceInterceptor) {
+                currentInterceptorIndex++;
+                if (currentInterceptorIndex < interceptors.size()
+                        && interceptors.get(currentInterceptorIndex) instanceof MethodBeforeAdviceInterceptor) {
+                    return proceed();
+                }
+            }
+            throw ex;
+        }
+    }
+}
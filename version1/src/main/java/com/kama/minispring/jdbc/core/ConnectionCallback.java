@@ -0,0 +1,24 @@
+package com.kama.minispring.jdbc.core;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 连接回调接口
+ * 在JdbcTemplate管理的连接上执行任意操作
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@FunctionalInterface
+public interface ConnectionCallback<T> {
+
+    /**
+     * 使用连接执行操作, 不需要关闭连接
+     *
+     * @param con 数据库连接
+     * @return 操作结果
+     * @throws SQLException 操作失败
+     */
+    T doInConnection(Connection con) throws SQLException;
+}
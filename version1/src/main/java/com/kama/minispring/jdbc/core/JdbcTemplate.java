@@ -0,0 +1,415 @@
+package com.kama.minispring.jdbc.core;
+
+import com.kama.minispring.jdbc.DataAccessException;
+import com.kama.minispring.jdbc.datasource.DataSourceUtils;
+import com.kama.minispring.jdbc.datasource.PreparedStatementCache;
+import com.kama.minispring.tx.DataSourceTransactionManager.ConnectionHolder;
+import com.kama.minispring.util.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * JDBC模板类
+ * 简化JDBC操作, 自动使用当前事务绑定的连接, 并将SQLException转换为DataAccessException
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class JdbcTemplate {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcTemplate.class);
+
+    /**
+     * 默认批次大小
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final DataSource dataSource;
+
+    private int fetchSize = -1;
+
+    private int maxRows = -1;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    public JdbcTemplate(DataSource dataSource) {
+        Assert.notNull(dataSource, "DataSource must not be null");
+        this.dataSource = dataSource;
+    }
+
+    public DataSource getDataSource() {
+        return this.dataSource;
+    }
+
+    /**
+     * 设置查询的fetch size, 为-1时使用驱动默认值
+     * 流式查询大结果集时应设置为合适的值, 避免驱动一次性加载全部数据
+     *
+     * @param fetchSize fetch size
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getFetchSize() {
+        return this.fetchSize;
+    }
+
+    /**
+     * 设置查询返回的最大行数, 为-1时不限制
+     *
+     * @param maxRows 最大行数
+     */
+    public void setMaxRows(int maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    public int getMaxRows() {
+        return this.maxRows;
+    }
+
+    /**
+     * 设置batchUpdate(String, List)使用的批次大小
+     *
+     * @param batchSize 批次大小
+     */
+    public void setBatchSize(int batchSize) {
+        Assert.isTrue(batchSize > 0, "Batch size must be greater than 0");
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /**
+     * 在连接上执行回调, 连接的获取和释放由模板负责
+     *
+     * @param action 连接回调
+     * @return 回调结果
+     */
+    public <T> T execute(ConnectionCallback<T> action) {
+        Assert.notNull(action, "Callback object must not be null");
+        Connection con = null;
+        try {
+            con = DataSourceUtils.getConnection(this.dataSource);
+            return action.doInConnection(con);
+        } catch (SQLException ex) {
+            throw new DataAccessException("JDBC operation failed", ex);
+        } finally {
+            DataSourceUtils.releaseConnection(con, this.dataSource);
+        }
+    }
+
+    /**
+     * 查询并将每一行映射为对象
+     *
+     * @param sql SQL语句
+     * @param rowMapper 行映射器
+     * @param args 参数
+     * @return 结果列表
+     */
+    public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+        Assert.notNull(rowMapper, "RowMapper must not be null");
+        return execute(con -> {
+            PreparedStatement ps = prepareStatement(con, sql);
+            try {
+                applyStatementSettings(ps);
+                setArguments(ps, args);
+                try (ResultSet rs = ps.executeQuery()) {
+                    List<T> results = new ArrayList<>();
+                    int rowNum = 0;
+                    while (rs.next()) {
+                        results.add(rowMapper.mapRow(rs, rowNum++));
+                    }
+                    return results;
+                }
+            } catch (SQLException ex) {
+                throw translate("query", sql, ex);
+            } finally {
+                closeStatement(ps);
+            }
+        });
+    }
+
+    /**
+     * 查询单个对象, 结果不是恰好一行时抛出异常
+     *
+     * @param sql SQL语句
+     * @param rowMapper 行映射器
+     * @param args 参数
+     * @return 映射结果
+     */
+    public <T> T queryForObject(String sql, RowMapper<T> rowMapper, Object... args) {
+        List<T> results = query(sql, rowMapper, args);
+        if (results.size() != 1) {
+            throw new DataAccessException("Incorrect result size: expected 1, actual " + results.size()
+                    + "; SQL [" + sql + "]");
+        }
+        return results.get(0);
+    }
+
+    /**
+     * 流式查询, 逐行读取并映射结果集
+     * 返回的Stream持有连接和结果集, 必须在使用后关闭, 推荐使用try-with-resources
+     *
+     * @param sql SQL语句
+     * @param rowMapper 行映射器
+     * @param args 参数
+     * @return 结果流
+     */
+    public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, Object... args) {
+        Assert.notNull(rowMapper, "RowMapper must not be null");
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = DataSourceUtils.getConnection(this.dataSource);
+            ps = prepareStatement(con, sql);
+            applyStatementSettings(ps);
+            setArguments(ps, args);
+            rs = ps.executeQuery();
+        } catch (SQLException | RuntimeException ex) {
+            closeResultSet(rs);
+            closeStatement(ps);
+            DataSourceUtils.releaseConnection(con, this.dataSource);
+            if (ex instanceof RuntimeException) {
+                throw (RuntimeException) ex;
+            }
+            throw translate("streaming query", sql, (SQLException) ex);
+        }
+        Connection connection = con;
+        PreparedStatement statement = ps;
+        ResultSet resultSet = rs;
+        // 流可能在其他线程中关闭, 提前取得事务连接的持有者
+        ConnectionHolder holder = DataSourceUtils.getConnectionHolder(this.dataSource);
+        ConnectionHolder transactionalHolder = holder != null && holder.getConnection() == con ? holder : null;
+        PreparedStatementCache statementCache = transactionalHolder != null
+                ? transactionalHolder.getStatementCache() : null;
+        return StreamSupport.stream(new ResultSetSpliterator<>(resultSet, rowMapper, sql), false)
+                .onClose(() -> {
+                    closeResultSet(resultSet);
+                    closeStatement(statement, statementCache);
+                    if (transactionalHolder != null) {
+                        transactionalHolder.released();
+                    } else {
+                        DataSourceUtils.releaseConnection(connection, this.dataSource);
+                    }
+                });
+    }
+
+    /**
+     * 执行更新语句
+     *
+     * @param sql SQL语句
+     * @param args 参数
+     * @return 受影响的行数
+     */
+    public int update(String sql, Object... args) {
+        return execute(con -> {
+            PreparedStatement ps = prepareStatement(con, sql);
+            try {
+                DataSourceUtils.applyTransactionTimeout(ps, this.dataSource);
+                setArguments(ps, args);
+                return ps.executeUpdate();
+            } catch (SQLException ex) {
+                throw translate("update", sql, ex);
+            } finally {
+                closeStatement(ps);
+            }
+        });
+    }
+
+    /**
+     * 批量执行更新语句, 按模板的批次大小分批提交
+     *
+     * @param sql SQL语句
+     * @param batchArgs 每条语句的参数
+     * @return 每条语句受影响的行数
+     */
+    public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+        int[][] batches = batchUpdate(sql, batchArgs, this.batchSize, JdbcTemplate::setArguments);
+        int[] result = new int[batchArgs.size()];
+        int index = 0;
+        for (int[] batch : batches) {
+            System.arraycopy(batch, 0, result, index, batch.length);
+            index += batch.length;
+        }
+        return result;
+    }
+
+    /**
+     * 批量执行更新语句, 每累积batchSize条执行一次executeBatch
+     *
+     * @param sql SQL语句
+     * @param batchArgs 参数对象集合
+     * @param batchSize 批次大小
+     * @param pss 参数设置器
+     * @return 每个批次中各语句受影响的行数
+     */
+    public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                   ParameterizedPreparedStatementSetter<T> pss) {
+        Assert.notNull(batchArgs, "Batch arguments must not be null");
+        Assert.isTrue(batchSize > 0, "Batch size must be greater than 0");
+        if (batchArgs.isEmpty()) {
+            return new int[0][];
+        }
+        return execute(con -> {
+            PreparedStatement ps = prepareStatement(con, sql);
+            try {
+                DataSourceUtils.applyTransactionTimeout(ps, this.dataSource);
+                List<int[]> results = new ArrayList<>((batchArgs.size() + batchSize - 1) / batchSize);
+                int pending = 0;
+                for (T argument : batchArgs) {
+                    pss.setValues(ps, argument);
+                    ps.addBatch();
+                    if (++pending == batchSize) {
+                        results.add(ps.executeBatch());
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    results.add(ps.executeBatch());
+                }
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Executed {} batch(es) for SQL [{}]", results.size(), sql);
+                }
+                return results.toArray(new int[0][]);
+            } catch (SQLException ex) {
+                throw translate("batch update", sql, ex);
+            } finally {
+                closeStatement(ps);
+            }
+        });
+    }
+
+    /**
+     * 创建预编译语句, 事务连接启用了语句缓存时从缓存获取
+     *
+     * @param con 数据库连接
+     * @param sql SQL语句
+     * @return 预编译语句
+     * @throws SQLException 创建失败
+     */
+    protected PreparedStatement prepareStatement(Connection con, String sql) throws SQLException {
+        PreparedStatementCache cache = getStatementCache(con);
+        return cache != null ? cache.prepare(sql) : con.prepareStatement(sql);
+    }
+
+    /**
+     * 释放预编译语句, 与prepareStatement对应; 缓存的语句归还缓存而不关闭
+     *
+     * @param ps 预编译语句
+     */
+    protected void closeStatement(PreparedStatement ps) {
+        if (ps == null) {
+            return;
+        }
+        ConnectionHolder holder = DataSourceUtils.getConnectionHolder(this.dataSource);
+        closeStatement(ps, holder != null ? holder.getStatementCache() : null);
+    }
+
+    /**
+     * 释放预编译语句到指定的缓存, 流式查询可能在其他线程中关闭, 需使用创建流时的缓存
+     */
+    private static void closeStatement(PreparedStatement ps, PreparedStatementCache cache) {
+        if (cache != null && cache.release(ps)) {
+            return;
+        }
+        try {
+            ps.close();
+        } catch (SQLException ex) {
+            logger.debug("Could not close JDBC Statement", ex);
+        }
+    }
+
+    /**
+     * 应用查询设置, 存在事务超时时按剩余时间设置查询超时
+     *
+     * @param ps 预编译语句
+     * @throws SQLException 设置失败
+     */
+    protected void applyStatementSettings(PreparedStatement ps) throws SQLException {
+        if (this.fetchSize != -1) {
+            ps.setFetchSize(this.fetchSize);
+        }
+        if (this.maxRows != -1) {
+            ps.setMaxRows(this.maxRows);
+        }
+        DataSourceUtils.applyTransactionTimeout(ps, this.dataSource);
+    }
+
+    private PreparedStatementCache getStatementCache(Connection con) {
+        ConnectionHolder holder = DataSourceUtils.getConnectionHolder(this.dataSource);
+        return holder != null && holder.getConnection() == con ? holder.getStatementCache() : null;
+    }
+
+    private static void setArguments(PreparedStatement ps, Object[] args) throws SQLException {
+        if (args == null) {
+            return;
+        }
+        for (int i = 0; i < args.length; i++) {
+            ps.setObject(i + 1, args[i]);
+        }
+    }
+
+    private static void closeResultSet(ResultSet rs) {
+        if (rs == null) {
+            return;
+        }
+        try {
+            rs.close();
+        } catch (SQLException ex) {
+            logger.debug("Could not close JDBC ResultSet", ex);
+        }
+    }
+
+    private static DataAccessException translate(String task, String sql, SQLException ex) {
+        return new DataAccessException("Failed to execute " + task + "; SQL [" + sql + "]; " + ex.getMessage(), ex);
+    }
+
+    /**
+     * 结果集分割器, 每次推进读取一行
+     */
+    private static final class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+        private final ResultSet rs;
+        private final RowMapper<T> rowMapper;
+        private final String sql;
+        private int rowNum;
+
+        private ResultSetSpliterator(ResultSet rs, RowMapper<T> rowMapper, String sql) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.rs = rs;
+            this.rowMapper = rowMapper;
+            this.sql = sql;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            try {
+                if (!rs.next()) {
+                    return false;
+                }
+                action.accept(rowMapper.mapRow(rs, rowNum++));
+                return true;
+            } catch (SQLException ex) {
+                throw translate("streaming query", sql, ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.kama.minispring.jdbc.core;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * 批量操作的参数设置器
+ * 为批次中的每个参数对象设置PreparedStatement的参数
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@FunctionalInterface
+public interface ParameterizedPreparedStatementSetter<T> {
+
+    /**
+     * 设置参数
+     *
+     * @param ps 预编译语句
+     * @param argument 当前参数对象
+     * @throws SQLException 设置参数失败
+     */
+    void setValues(PreparedStatement ps, T argument) throws SQLException;
+}
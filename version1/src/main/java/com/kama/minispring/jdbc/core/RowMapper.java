@@ -0,0 +1,25 @@
+package com.kama.minispring.jdbc.core;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 行映射器接口
+ * 将结果集的当前行映射为对象
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * 映射当前行
+     *
+     * @param rs 结果集, 已定位到当前行
+     * @param rowNum 行号, 从0开始
+     * @return 映射结果
+     * @throws SQLException 读取结果集失败
+     */
+    T mapRow(ResultSet rs, int rowNum) throws SQLException;
+}
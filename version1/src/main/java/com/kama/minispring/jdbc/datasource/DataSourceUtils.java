@@ -0,0 +1,107 @@
+package com.kama.minispring.jdbc.datasource;
+
+import com.kama.minispring.tx.DataSourceTransactionManager.ConnectionHolder;
+import com.kama.minispring.tx.IllegalTransactionStateException;
+import com.kama.minispring.tx.TransactionTimedOutException;
+import com.kama.minispring.tx.TransactionSynchronizationManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 数据源工具类
+ * 优先返回当前事务绑定的连接, 没有事务时从数据源获取新连接
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public abstract class DataSourceUtils {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceUtils.class);
+
+    /**
+     * 获取连接, 存在事务时返回事务绑定的连接
+     * 事务连接在releaseConnection之前由当前线程独占, 其他共享该事务的线程会等待
+     *
+     * @param dataSource 数据源
+     * @return 数据库连接
+     * @throws SQLException 获取连接失败
+     * @throws IllegalTransactionStateException 绑定的事务已经结束
+     */
+    public static Connection getConnection(DataSource dataSource) throws SQLException {
+        ConnectionHolder holder = getConnectionHolder(dataSource);
+        if (holder != null) {
+            if (!holder.isTransactionActive()) {
+                throw new IllegalTransactionStateException(
+                        "Transaction bound to this thread has already completed, its connection may not be used");
+            }
+            holder.requested();
+            return holder.getConnection();
+        }
+        return dataSource.getConnection();
+    }
+
+    /**
+     * 获取当前线程为数据源绑定的连接持有者
+     *
+     * @param dataSource 数据源
+     * @return 连接持有者, 不存在时为null
+     */
+    public static ConnectionHolder getConnectionHolder(DataSource dataSource) {
+        Object resource = TransactionSynchronizationManager.getResource(dataSource);
+        return resource instanceof ConnectionHolder ? (ConnectionHolder) resource : null;
+    }
+
+    /**
+     * 判断连接是否为当前事务绑定的连接
+     *
+     * @param con 数据库连接
+     * @param dataSource 数据源
+     * @return 是否为事务连接
+     */
+    public static boolean isConnectionTransactional(Connection con, DataSource dataSource) {
+        ConnectionHolder holder = getConnectionHolder(dataSource);
+        return holder != null && holder.getConnection() == con;
+    }
+
+    /**
+     * 按当前事务的剩余时间设置语句的查询超时, 事务没有设置超时时不做处理
+     *
+     * @param stmt 语句
+     * @param dataSource 数据源
+     * @throws SQLException 设置失败
+     * @throws TransactionTimedOutException 事务已经超时
+     */
+    public static void applyTransactionTimeout(Statement stmt, DataSource dataSource) throws SQLException {
+        ConnectionHolder holder = getConnectionHolder(dataSource);
+        if (holder != null && holder.hasTimeout()) {
+            stmt.setQueryTimeout(holder.getTimeToLiveInSeconds());
+        }
+    }
+
+    /**
+     * 释放连接, 事务绑定的连接由事务管理器负责关闭
+     *
+     * @param con 数据库连接
+     * @param dataSource 数据源
+     */
+    public static void releaseConnection(Connection con, DataSource dataSource) {
+        if (con == null) {
+            return;
+        }
+        ConnectionHolder holder = getConnectionHolder(dataSource);
+        if (holder != null && holder.getConnection() == con) {
+            holder.released();
+            return;
+        }
+        try {
+            con.close();
+        } catch (SQLException ex) {
+            logger.debug("Could not close JDBC Connection", ex);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.kama.minispring.jdbc.datasource;
+
+import com.kama.minispring.cache.CacheStats;
+import com.kama.minispring.util.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 预编译语句缓存
+ * 按SQL缓存单个连接上的PreparedStatement, 按LRU淘汰并关闭最久未使用的语句;
+ * 与连接一样只允许单线程使用, 连接释放前必须调用close()
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class PreparedStatementCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PreparedStatementCache.class);
+
+    private final Connection connection;
+
+    private final int maxSize;
+
+    private final Counters counters;
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final Map<PreparedStatement, Entry> checkedOut = new IdentityHashMap<>();
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    private boolean closed;
+
+    /**
+     * 构造函数
+     *
+     * @param connection 数据库连接
+     * @param maxSize 最多缓存的语句数
+     * @param counters 多个连接共享的统计计数器, 可为null
+     */
+    public PreparedStatementCache(Connection connection, int maxSize, Counters counters) {
+        Assert.notNull(connection, "Connection must not be null");
+        Assert.isTrue(maxSize > 0, "Statement cache size must be greater than 0");
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.counters = counters;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * 获取预编译语句, 命中时复用缓存的语句
+     * 同一SQL的缓存语句正在使用时(如未关闭的流式查询), 返回一个不缓存的新语句
+     *
+     * @param sql SQL语句
+     * @return 预编译语句, 使用完毕后必须调用release
+     * @throws SQLException 创建语句失败
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        if (closed) {
+            throw new IllegalStateException("PreparedStatementCache already closed");
+        }
+        Entry entry = entries.get(sql);
+        if (entry != null && !entry.inUse) {
+            recordHit();
+            entry.inUse = true;
+            checkedOut.put(entry.statement, entry);
+            return entry.statement;
+        }
+        recordMiss();
+        PreparedStatement statement = connection.prepareStatement(sql);
+        if (entry != null) {
+            return statement;
+        }
+        entry = new Entry(statement);
+        entry.inUse = true;
+        entries.put(sql, entry);
+        checkedOut.put(statement, entry);
+        evictIfNecessary();
+        return statement;
+    }
+
+    /**
+     * 归还语句
+     *
+     * @param statement 通过prepare获取的语句
+     * @return 语句是否由缓存管理; 为false时调用方需自行关闭
+     */
+    public boolean release(PreparedStatement statement) {
+        Entry entry = checkedOut.remove(statement);
+        if (entry == null) {
+            return false;
+        }
+        entry.inUse = false;
+        if (entry.evicted || closed) {
+            closeQuietly(statement);
+            return true;
+        }
+        try {
+            statement.clearParameters();
+            statement.clearBatch();
+            // 事务超时设置的查询超时不能带到之后的使用中
+            statement.setQueryTimeout(0);
+        } catch (SQLException ex) {
+            // 语句已不可用, 从缓存中移除
+            entries.values().remove(entry);
+            closeQuietly(statement);
+        }
+        return true;
+    }
+
+    private void evictIfNecessary() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            evictionCount++;
+            if (counters != null) {
+                counters.evictions.increment();
+            }
+            if (eldest.inUse) {
+                eldest.evicted = true;
+            } else {
+                closeQuietly(eldest.statement);
+            }
+        }
+    }
+
+    /**
+     * 关闭所有缓存的语句, 在连接关闭或归还连接池之前调用
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        List<Entry> remaining = new ArrayList<>(entries.values());
+        entries.clear();
+        for (Entry entry : remaining) {
+            if (!entry.inUse) {
+                closeQuietly(entry.statement);
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 获取当前连接上的缓存统计
+     *
+     * @return 统计快照
+     */
+    public CacheStats getStats() {
+        return new CacheStats(hitCount, missCount, evictionCount);
+    }
+
+    private void recordHit() {
+        hitCount++;
+        if (counters != null) {
+            counters.hits.increment();
+        }
+    }
+
+    private void recordMiss() {
+        missCount++;
+        if (counters != null) {
+            counters.misses.increment();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ex) {
+            logger.debug("Could not close cached JDBC Statement", ex);
+        }
+    }
+
+    /**
+     * 缓存条目
+     */
+    private static final class Entry {
+
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean evicted;
+
+        private Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    /**
+     * 多个连接共享的统计计数器
+     */
+    public static final class Counters {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        /**
+         * 获取累计统计
+         *
+         * @return 统计快照
+         */
+        public CacheStats snapshot() {
+            return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.kama.minispring.jdbc.datasource;
+
+import com.kama.minispring.tx.TransactionSynchronizationManager;
+import com.kama.minispring.util.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * 读写分离路由数据源
+ * 当前事务为只读时轮询选择健康的从库, 否则使用主库; 从库获取连接失败后在恢复间隔内被标记为不可用,
+ * 所有从库不可用时回退到主库
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class ReadWriteRoutingDataSource implements DataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private static final int CONNECTION_VALID_TIMEOUT_SECONDS = 1;
+
+    private final DataSource primary;
+
+    private final Replica[] replicas;
+
+    private final AtomicInteger position = new AtomicInteger();
+
+    private long recoveryIntervalMillis = Duration.ofSeconds(30).toMillis();
+
+    private boolean fallbackToPrimary = true;
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    /**
+     * 构造函数
+     *
+     * @param primary 主库数据源
+     * @param replicas 从库数据源列表
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+        Assert.notNull(primary, "Primary DataSource must not be null");
+        Assert.notNull(replicas, "Replica DataSources must not be null");
+        this.primary = primary;
+        this.replicas = new Replica[replicas.size()];
+        for (int i = 0; i < this.replicas.length; i++) {
+            Assert.notNull(replicas.get(i), "Replica DataSource must not be null");
+            this.replicas[i] = new Replica(replicas.get(i));
+        }
+    }
+
+    /**
+     * 设置从库被标记为不可用后的恢复间隔
+     *
+     * @param recoveryInterval 恢复间隔
+     */
+    public void setRecoveryInterval(Duration recoveryInterval) {
+        Assert.notNull(recoveryInterval, "Recovery interval must not be null");
+        this.recoveryIntervalMillis = recoveryInterval.toMillis();
+    }
+
+    /**
+     * 设置所有从库不可用时是否回退到主库, 默认为true
+     *
+     * @param fallbackToPrimary 是否回退
+     */
+    public void setFallbackToPrimary(boolean fallbackToPrimary) {
+        this.fallbackToPrimary = fallbackToPrimary;
+    }
+
+    /**
+     * 替换判断故障副本何时恢复所用的毫秒时钟
+     */
+    void setClock(LongSupplier clock) {
+        Assert.notNull(clock, "Clock must not be null");
+        this.clock = clock;
+    }
+
+    public DataSource getPrimary() {
+        return this.primary;
+    }
+
+    public int getReplicaCount() {
+        return this.replicas.length;
+    }
+
+    /**
+     * 判断从库当前是否可用
+     *
+     * @param index 从库下标
+     * @return 是否可用
+     */
+    public boolean isReplicaAvailable(int index) {
+        return replicas[index].isAvailable(clock.getAsLong());
+    }
+
+    /**
+     * 将从库标记为不可用, 直到恢复间隔结束
+     *
+     * @param index 从库下标
+     */
+    public void markReplicaDown(int index) {
+        replicas[index].downUntil = clock.getAsLong() + recoveryIntervalMillis;
+    }
+
+    /**
+     * 将从库标记为可用
+     *
+     * @param index 从库下标
+     */
+    public void markReplicaUp(int index) {
+        replicas[index].downUntil = 0L;
+    }
+
+    /**
+     * 检查被标记为不可用的从库, 连接有效时提前恢复, 可由定时任务调用
+     */
+    public void probeReplicas() {
+        for (int i = 0; i < replicas.length; i++) {
+            Replica replica = replicas[i];
+            if (replica.downUntil == 0L) {
+                continue;
+            }
+            try (Connection con = replica.dataSource.getConnection()) {
+                if (con.isValid(CONNECTION_VALID_TIMEOUT_SECONDS)) {
+                    markReplicaUp(i);
+                    logger.info("Replica {} is healthy again", i);
+                }
+            } catch (SQLException ex) {
+                markReplicaDown(i);
+            }
+        }
+    }
+
+    /**
+     * 判断当前是否应路由到从库, 默认依据当前事务的只读标记
+     *
+     * @return 是否使用从库
+     */
+    protected boolean isReadOnlyRoute() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null, false);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(username, password, true);
+    }
+
+    private Connection getConnection(String username, String password, boolean withCredentials)
+            throws SQLException {
+        if (replicas.length == 0 || !isReadOnlyRoute()) {
+            return open(primary, username, password, withCredentials);
+        }
+        long now = clock.getAsLong();
+        int start = position.getAndIncrement() & Integer.MAX_VALUE;
+        SQLException lastFailure = null;
+        for (int i = 0; i < replicas.length; i++) {
+            int index = (start + i) % replicas.length;
+            Replica replica = replicas[index];
+            if (!replica.isAvailable(now)) {
+                continue;
+            }
+            try {
+                return open(replica.dataSource, username, password, withCredentials);
+            } catch (SQLException ex) {
+                replica.downUntil = now + recoveryIntervalMillis;
+                lastFailure = ex;
+                logger.warn("Replica {} failed to provide a connection, marking it down for {} ms",
+                        index, recoveryIntervalMillis, ex);
+            }
+        }
+        if (!fallbackToPrimary) {
+            throw new SQLException("No healthy replica available for read-only transaction", lastFailure);
+        }
+        logger.debug("No healthy replica available, falling back to primary");
+        return open(primary, username, password, withCredentials);
+    }
+
+    private static Connection open(DataSource dataSource, String username, String password,
+                                   boolean withCredentials) throws SQLException {
+        return withCredentials ? dataSource.getConnection(username, password) : dataSource.getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    /**
+     * 从库及其健康状态
+     */
+    private static final class Replica {
+
+        private final DataSource dataSource;
+
+        /**
+         * 不可用状态的截止时间, 0表示可用
+         */
+        private volatile long downUntil;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        private boolean isAvailable(long now) {
+            long until = downUntil;
+            return until == 0L || now >= until;
+        }
+    }
+}
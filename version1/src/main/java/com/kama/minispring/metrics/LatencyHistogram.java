@@ -0,0 +1,184 @@
+package com.kama.minispring.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁延迟直方图
+ * 按对数-线性分桶记录纳秒值(相对误差约12.5%)，记录操作分散到多个条带以减少多线程竞争
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public final class LatencyHistogram {
+
+    /**
+     * 每个2的幂区间内的子桶位数
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * 桶数量, 覆盖0到Long.MAX_VALUE
+     */
+    static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private static final int SUM_INDEX = BUCKET_COUNT;
+
+    private static final int MAX_INDEX = BUCKET_COUNT + 1;
+
+    private static final int MAX_STRIPES = 16;
+
+    private final AtomicLongArray[] stripes;
+
+    private final int stripeMask;
+
+    public LatencyHistogram() {
+        int stripeCount = Integer.highestOneBit(Math.min(MAX_STRIPES,
+                Math.max(1, Runtime.getRuntime().availableProcessors())) * 2 - 1);
+        this.stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new AtomicLongArray(BUCKET_COUNT + 2);
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * 记录一个值
+     *
+     * @param nanos 纳秒值, 负数按0记录
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        int hash = System.identityHashCode(Thread.currentThread());
+        AtomicLongArray stripe = stripes[(hash ^ (hash >>> 16)) & stripeMask];
+        stripe.incrementAndGet(bucketIndex(value));
+        stripe.addAndGet(SUM_INDEX, value);
+        long max;
+        while (value > (max = stripe.get(MAX_INDEX))) {
+            if (stripe.compareAndSet(MAX_INDEX, max, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 合并所有条带, 生成统计快照
+     *
+     * @return 快照
+     */
+    public Snapshot snapshot() {
+        long[] buckets = new long[BUCKET_COUNT];
+        long sum = 0;
+        long max = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets[i] += stripe.get(i);
+            }
+            sum += stripe.get(SUM_INDEX);
+            max = Math.max(max, stripe.get(MAX_INDEX));
+        }
+        return new Snapshot(buckets, sum, max);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * 桶内的最大值
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long base = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+        long upper = base + (1L << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+
+    /**
+     * 直方图快照
+     */
+    public static final class Snapshot {
+
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] buckets, long sum, long max) {
+            this.buckets = buckets;
+            long total = 0;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+            this.count = total;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0.0 : (double) sum / count;
+        }
+
+        /**
+         * 获取分位数的近似值
+         *
+         * @param quantile 分位数, 取值[0, 1]
+         * @return 所在桶的上界, 不超过记录到的最大值
+         */
+        public long getPercentile(double quantile) {
+            if (count == 0) {
+                return 0L;
+            }
+            long rank = (long) Math.ceil(Math.min(1.0, Math.max(0.0, quantile)) * count);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= Math.max(1L, rank)) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * 获取不大于给定值的记录数, 用于导出累积分布
+         * 给定值落在桶内部时整个桶都会被计入
+         *
+         * @param value 上界
+         * @return 记录数
+         */
+        public long getCountAtOrBelow(long value) {
+            if (value < 0) {
+                return 0L;
+            }
+            int last = bucketIndex(value);
+            long total = 0;
+            for (int i = 0; i <= last; i++) {
+                total += buckets[i];
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.kama.minispring.scheduling;
+
+/**
+ * 任务装饰器
+ * 在任务提交到执行器之前对其进行包装，用于把调用线程的上下文（如日志MDC、类加载器）传递到执行线程
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@FunctionalInterface
+public interface TaskDecorator {
+
+    /**
+     * 装饰给定的任务
+     * 该方法在调用线程中执行，返回的Runnable在执行线程中运行
+     *
+     * @param runnable 原始任务
+     * @return 装饰后的任务
+     */
+    Runnable decorate(Runnable runnable);
+}
@@ -0,0 +1,25 @@
+package com.kama.minispring.scheduling.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 异步执行注解
+ * 标注在方法或类上，被标注的方法将通过AsyncExecutionInterceptor提交到执行器中异步执行
+ * 方法的返回类型只能是void、Future或CompletableFuture
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Async {
+
+    /**
+     * 执行器限定名
+     * 为空时使用拦截器的默认执行器，否则按名称查找已注册的执行器或同名的Bean
+     *
+     * @return 执行器限定名
+     */
+    String value() default "";
+}
@@ -0,0 +1,223 @@
+package com.kama.minispring.scheduling.annotation;
+
+import com.kama.minispring.aop.MethodInterceptor;
+import com.kama.minispring.aop.MethodInvocation;
+import com.kama.minispring.aop.support.MethodClassKey;
+import com.kama.minispring.beans.BeansException;
+import com.kama.minispring.beans.factory.BeanFactory;
+import com.kama.minispring.beans.factory.BeanFactoryAware;
+import com.kama.minispring.scheduling.TaskDecorator;
+import com.kama.minispring.scheduling.concurrent.VirtualThreadTaskExecutor;
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * 异步执行拦截器
+ * 将标注了@Async的方法调用提交到执行器中执行，通过ProxyFactory.addAdvice织入
+ * 每个(方法, 目标类)对应的执行器只解析一次并缓存，未标注@Async的方法直接调用
+ *
+ * <p>异步任务不会继承调用线程的事务资源，执行线程中始终以非事务方式开始；
+ * 其他需要传递的上下文可以通过TaskDecorator实现, 需要加入调用方事务时可以使用TransactionContextTaskDecorator
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class AsyncExecutionInterceptor implements MethodInterceptor, BeanFactoryAware {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncExecutionInterceptor.class);
+
+    /** 标记方法不需要异步执行 */
+    private static final Executor NOT_ASYNC = task -> {
+        throw new IllegalStateException("Not an async method");
+    };
+
+    private final Executor defaultExecutor;
+
+    private final Map<String, Executor> executors = new ConcurrentHashMap<>();
+
+    private final Map<MethodClassKey, Executor> executorCache = new ConcurrentHashMap<>();
+
+    private TaskDecorator taskDecorator;
+
+    private BeanFactory beanFactory;
+
+    /**
+     * 使用基于虚拟线程的默认执行器
+     */
+    public AsyncExecutionInterceptor() {
+        this(new VirtualThreadTaskExecutor());
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param defaultExecutor 默认执行器
+     */
+    public AsyncExecutionInterceptor(Executor defaultExecutor) {
+        Assert.notNull(defaultExecutor, "Default executor must not be null");
+        this.defaultExecutor = defaultExecutor;
+    }
+
+    /**
+     * 注册一个具名执行器，供@Async("name")引用
+     *
+     * @param name 执行器名称
+     * @param executor 执行器
+     */
+    public void registerExecutor(String name, Executor executor) {
+        Assert.hasText(name, "Executor name must not be empty");
+        Assert.notNull(executor, "Executor must not be null");
+        this.executors.put(name, executor);
+        this.executorCache.clear();
+    }
+
+    /**
+     * 设置任务装饰器，用于向执行线程传递调用线程的上下文
+     *
+     * @param taskDecorator 任务装饰器
+     */
+    public void setTaskDecorator(TaskDecorator taskDecorator) {
+        this.taskDecorator = taskDecorator;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        Object target = invocation.getThis();
+        Class<?> targetClass = target != null ? target.getClass() : method.getDeclaringClass();
+
+        Executor executor = determineExecutor(method, targetClass);
+        if (executor == NOT_ASYNC) {
+            return invocation.proceed();
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                Object result = invocation.proceed();
+                if (result instanceof Future) {
+                    result = ((Future<?>) result).get();
+                }
+                future.complete(result);
+            } catch (Throwable ex) {
+                future.completeExceptionally(unwrap(ex));
+            }
+        };
+        if (this.taskDecorator != null) {
+            task = this.taskDecorator.decorate(task);
+        }
+        executor.execute(task);
+
+        if (method.getReturnType() == void.class) {
+            future.whenComplete((result, ex) -> {
+                if (ex != null) {
+                    logger.error("Unexpected exception occurred invoking async method: {}", method, ex);
+                }
+            });
+            return null;
+        }
+        return future;
+    }
+
+    /**
+     * 确定方法使用的执行器
+     *
+     * @param method 被调用的方法
+     * @param targetClass 目标类
+     * @return 执行器，方法不需要异步执行时返回NOT_ASYNC
+     */
+    protected Executor determineExecutor(Method method, Class<?> targetClass) {
+        MethodClassKey cacheKey = new MethodClassKey(method, targetClass);
+        Executor executor = this.executorCache.get(cacheKey);
+        if (executor == null) {
+            executor = resolveExecutor(method, targetClass);
+            this.executorCache.put(cacheKey, executor);
+        }
+        return executor;
+    }
+
+    private Executor resolveExecutor(Method method, Class<?> targetClass) {
+        Async async = findAsyncAnnotation(method, targetClass);
+        if (async == null) {
+            return NOT_ASYNC;
+        }
+        if (!isSupportedReturnType(method.getReturnType())) {
+            throw new IllegalStateException(
+                    "@Async method must return void, Future, CompletionStage or CompletableFuture: " + method);
+        }
+        String qualifier = async.value();
+        if (!StringUtils.hasText(qualifier)) {
+            return this.defaultExecutor;
+        }
+        Executor executor = this.executors.get(qualifier);
+        if (executor == null && this.beanFactory != null) {
+            try {
+                executor = this.beanFactory.getBean(qualifier, Executor.class);
+            } catch (BeansException ex) {
+                logger.debug("No executor bean named '{}'", qualifier, ex);
+            }
+        }
+        if (executor == null) {
+            throw new IllegalStateException("No executor named '" + qualifier + "' found for async method: " + method);
+        }
+        return executor;
+    }
+
+    /**
+     * 返回值只能是void或调用方能据以等待结果的类型; 声明为Object等更宽泛的类型时,
+     * 调用方会意外拿到CompletableFuture而不是方法的结果
+     */
+    private static boolean isSupportedReturnType(Class<?> returnType) {
+        return returnType == void.class || returnType == Future.class || returnType == CompletionStage.class
+                || returnType == CompletableFuture.class;
+    }
+
+    /**
+     * 查找@Async注解，优先级：目标类上的方法 > 声明方法 > 目标类 > 声明类
+     */
+    private Async findAsyncAnnotation(Method method, Class<?> targetClass) {
+        Method specificMethod = method;
+        if (targetClass != null && targetClass != method.getDeclaringClass()) {
+            try {
+                specificMethod = targetClass.getMethod(method.getName(), method.getParameterTypes());
+            } catch (NoSuchMethodException ex) {
+                // 使用原始方法
+            }
+        }
+        Async async = specificMethod.getAnnotation(Async.class);
+        if (async == null && specificMethod != method) {
+            async = method.getAnnotation(Async.class);
+        }
+        if (async == null && targetClass != null) {
+            async = targetClass.getAnnotation(Async.class);
+        }
+        if (async == null) {
+            async = method.getDeclaringClass().getAnnotation(Async.class);
+        }
+        return async;
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        if ((ex instanceof InvocationTargetException || ex instanceof ExecutionException) && ex.getCause() != null) {
+            return ex.getCause();
+        }
+        return ex;
+    }
+}
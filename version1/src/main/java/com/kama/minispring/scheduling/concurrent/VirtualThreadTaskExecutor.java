@@ -0,0 +1,134 @@
+package com.kama.minispring.scheduling.concurrent;
+
+import com.kama.minispring.util.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 每个任务一个线程的执行器
+ * 运行在支持虚拟线程的JDK(21+)上时为每个任务创建一个虚拟线程，否则退化为守护平台线程
+ * 可以通过concurrencyLimit限制同时执行的任务数，超出限制时提交方会阻塞等待
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class VirtualThreadTaskExecutor implements Executor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadTaskExecutor.class);
+
+    /** 不限制并发数 */
+    public static final int UNBOUNDED_CONCURRENCY = -1;
+
+    /** Thread.ofVirtual()，JDK不支持虚拟线程时为null */
+    private static final Method VIRTUAL_BUILDER_FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException ex) {
+            // JDK 21之前没有虚拟线程
+        }
+        VIRTUAL_BUILDER_FACTORY = ofVirtual;
+    }
+
+    private final String threadNamePrefix;
+    private final ThreadFactory threadFactory;
+    private final boolean virtual;
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private volatile Semaphore concurrencyPermits;
+    private int concurrencyLimit = UNBOUNDED_CONCURRENCY;
+
+    public VirtualThreadTaskExecutor() {
+        this("async-");
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param threadNamePrefix 线程名前缀
+     */
+    public VirtualThreadTaskExecutor(String threadNamePrefix) {
+        Assert.notNull(threadNamePrefix, "Thread name prefix must not be null");
+        this.threadNamePrefix = threadNamePrefix;
+        ThreadFactory virtualFactory = createVirtualThreadFactory(threadNamePrefix);
+        this.virtual = virtualFactory != null;
+        this.threadFactory = virtual ? virtualFactory : this::newPlatformThread;
+    }
+
+    /**
+     * 设置最大并发数
+     *
+     * @param concurrencyLimit 最大并发数，小于等于0表示不限制
+     */
+    public void setConcurrencyLimit(int concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit > 0 ? concurrencyLimit : UNBOUNDED_CONCURRENCY;
+        this.concurrencyPermits = concurrencyLimit > 0 ? new Semaphore(concurrencyLimit) : null;
+    }
+
+    public int getConcurrencyLimit() {
+        return this.concurrencyLimit;
+    }
+
+    /**
+     * 是否使用虚拟线程执行任务
+     */
+    public boolean isVirtual() {
+        return this.virtual;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Assert.notNull(task, "Runnable must not be null");
+        Semaphore permits = this.concurrencyPermits;
+        if (permits == null) {
+            threadFactory.newThread(task).start();
+            return;
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for concurrency permit", ex);
+        }
+        try {
+            threadFactory.newThread(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            }).start();
+        } catch (RuntimeException | Error ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    private Thread newPlatformThread(Runnable task) {
+        Thread thread = new Thread(task, threadNamePrefix + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static ThreadFactory createVirtualThreadFactory(String prefix) {
+        if (VIRTUAL_BUILDER_FACTORY == null) {
+            return null;
+        }
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = VIRTUAL_BUILDER_FACTORY.invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException ex) {
+            logger.warn("Could not create virtual thread factory, falling back to platform threads", ex);
+            return null;
+        }
+    }
+}
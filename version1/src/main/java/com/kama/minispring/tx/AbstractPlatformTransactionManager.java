@@ -9,6 +9,21 @@ package com.kama.minispring.tx;
  */
 public abstract class AbstractPlatformTransactionManager implements PlatformTransactionManager {
     
+    private TransactionMetrics transactionMetrics;
+    
+    /**
+     * 设置事务指标, 为null时关闭指标记录
+     *
+     * @param transactionMetrics 事务指标
+     */
+    public void setTransactionMetrics(TransactionMetrics transactionMetrics) {
+        this.transactionMetrics = transactionMetrics;
+    }
+    
+    public TransactionMetrics getTransactionMetrics() {
+        return this.transactionMetrics;
+    }
+    
     @Override
     public TransactionStatus getTransaction(TransactionDefinition definition) throws TransactionException {
         Object transaction = doGetTransaction();
@@ -28,6 +43,7 @@ public abstract class AbstractPlatformTransactionManager implements PlatformTran
             TransactionSynchronizationManager.triggerBeforeBegin();
             doBegin(transaction, definition);
             prepareSynchronization(status, definition);
+            recordBegin(status, definition);
             return status;
         } else if (definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_SUPPORTS ||
                 definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_NOT_SUPPORTED ||
@@ -49,21 +65,24 @@ public abstract class AbstractPlatformTransactionManager implements PlatformTran
         }
         
         if (definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_NOT_SUPPORTED) {
-            Object suspendedResources = suspend(transaction);
+            Object suspendedResources = doSuspend(transaction);
             return newTransactionStatus(definition, null, false, false, false, suspendedResources);
         }
         
         if (definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW) {
-            Object suspendedResources = suspend(transaction);
+            Object suspendedResources = doSuspend(transaction);
             DefaultTransactionStatus status = newTransactionStatus(definition, transaction, true, true, false, suspendedResources);
             doBegin(transaction, definition);
             prepareSynchronization(status, definition);
+            recordBegin(status, definition);
             return status;
         }
         
         if (definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_NESTED) {
             DefaultTransactionStatus status = newTransactionStatus(definition, transaction, false, false, true, null);
             doBegin(transaction, definition);
+            // 嵌套事务回滚时只回到保存点, 不影响外部事务已做的修改
+            status.setSavepoint(createSavepoint(transaction));
             prepareSynchronization(status, definition);
             return status;
         }
@@ -72,6 +91,20 @@ public abstract class AbstractPlatformTransactionManager implements PlatformTran
         return newTransactionStatus(definition, transaction, false, false, false, null);
     }
     
+    private Object doSuspend(Object transaction) {
+        Object suspendedResources = suspend(transaction);
+        if (this.transactionMetrics != null) {
+            this.transactionMetrics.transactionSuspended();
+        }
+        return suspendedResources;
+    }
+    
+    private void recordBegin(DefaultTransactionStatus status, TransactionDefinition definition) {
+        if (this.transactionMetrics != null) {
+            this.transactionMetrics.transactionBegun(status, definition);
+        }
+    }
+    
     /**
      * 判断当前是否存在事务
      */
@@ -100,26 +133,41 @@ public abstract class AbstractPlatformTransactionManager implements PlatformTran
             throw new IllegalTransactionStateException("事务已经完成，不能重复提交");
         }
         
+        int completionStatus = TransactionSynchronization.STATUS_COMMITTED;
         try {
             // 触发事务提交前的同步回调
             TransactionSynchronizationManager.triggerBeforeCommit();
             
             // 如果事务被标记为回滚，则执行回滚
             if (defStatus.isRollbackOnly()) {
+                completionStatus = TransactionSynchronization.STATUS_ROLLED_BACK;
                 processRollback(defStatus);
                 return;
             }
             
-            // 如果是新事务，则执行提交
-            if (defStatus.isNewTransaction()) {
+            // 参与其中的内部事务已标记回滚, 外部事务不能再提交
+            if (defStatus.isNewTransaction() && isGlobalRollbackOnly(defStatus)) {
+                completionStatus = TransactionSynchronization.STATUS_ROLLED_BACK;
+                processRollback(defStatus);
+                throw new UnexpectedRollbackException(
+                        "Transaction rolled back because it has been marked as rollback-only");
+            }
+            
+            if (defStatus.hasSavepoint()) {
+                releaseSavepoint(defStatus.getTransaction(), defStatus.getSavepoint());
+            } else if (defStatus.isNewTransaction()) {
+                // 如果是新事务，则执行提交
                 doCommit(defStatus);
+                if (this.transactionMetrics != null) {
+                    this.transactionMetrics.transactionCommitted(defStatus);
+                }
             }
             
             // 触发事务提交后的同步回调
             TransactionSynchronizationManager.triggerAfterCommit();
         } finally {
             // 触发事务完成后的同步回调
-            TransactionSynchronizationManager.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            TransactionSynchronizationManager.triggerAfterCompletion(completionStatus);
             cleanupAfterCompletion(defStatus);
         }
     }
@@ -135,7 +183,7 @@ public abstract class AbstractPlatformTransactionManager implements PlatformTran
         try {
             // 触发事务回滚前的同步回调
             TransactionSynchronizationManager.triggerBeforeRollback();
-            doRollback(defStatus);
+            rollbackOrMarkRollbackOnly(defStatus);
             // 触发事务回滚后的同步回调
             TransactionSynchronizationManager.triggerAfterRollback();
             // 触发事务完成后的同步回调
@@ -149,7 +197,7 @@ public abstract class AbstractPlatformTransactionManager implements PlatformTran
             TransactionDefinition definition, Object transaction, boolean newSynchronization,
             boolean newTransaction, boolean debug, Object suspendedResources) {
         return new DefaultTransactionStatus(
-                transaction, newTransaction, newSynchronization);
+                transaction, newTransaction, newSynchronization, suspendedResources);
     }
     
     private void prepareSynchronization(DefaultTransactionStatus status, TransactionDefinition definition) {
@@ -160,17 +208,109 @@ public abstract class AbstractPlatformTransactionManager implements PlatformTran
     
     private void processRollback(DefaultTransactionStatus status) {
         try {
-            doRollback(status);
+            rollbackOrMarkRollbackOnly(status);
         } finally {
             cleanupAfterCompletion(status);
         }
     }
     
+    /**
+     * 只有事务的发起者才能物理回滚; 嵌套事务回到保存点, 参与外部事务时只标记回滚,
+     * 由外部事务提交时回滚, 没有实际事务时无需处理
+     */
+    private void rollbackOrMarkRollbackOnly(DefaultTransactionStatus status) {
+        if (status.hasSavepoint()) {
+            rollbackToSavepoint(status.getTransaction(), status.getSavepoint());
+        } else if (status.isNewTransaction()) {
+            doRollback(status);
+            if (this.transactionMetrics != null) {
+                this.transactionMetrics.transactionRolledBack(status);
+            }
+        } else if (status.hasTransaction()) {
+            doSetRollbackOnly(status);
+        }
+    }
+    
     private void cleanupAfterCompletion(DefaultTransactionStatus status) {
+        if (status.isCompleted()) {
+            return;
+        }
         status.setCompleted();
+        if (status.isNewTransaction()) {
+            doCleanupAfterCompletion(status.getTransaction());
+        }
         if (status.isNewSynchronization()) {
             TransactionSynchronizationManager.clear();
         }
+        if (this.transactionMetrics != null) {
+            this.transactionMetrics.transactionCompleted(status);
+        }
+        // 恢复被挂起的外部事务
+        if (status.getSuspendedResources() != null) {
+            resume(status.getTransaction(), status.getSuspendedResources());
+            if (this.transactionMetrics != null) {
+                this.transactionMetrics.transactionResumed();
+            }
+        }
+    }
+    
+    /**
+     * 清理事务完成后的资源, 只对新事务调用
+     *
+     * @param transaction 事务对象
+     */
+    protected void doCleanupAfterCompletion(Object transaction) {
+        // 由子类实现
+    }
+    
+    /**
+     * 在参与的外部事务上创建保存点, 供嵌套事务使用
+     *
+     * @param transaction 事务对象
+     * @return 保存点, 不支持保存点时为null, 此时嵌套事务与外部事务一同提交或回滚
+     */
+    protected Object createSavepoint(Object transaction) throws TransactionException {
+        return null;
+    }
+    
+    /**
+     * 回滚到保存点
+     *
+     * @param transaction 事务对象
+     * @param savepoint 保存点
+     */
+    protected void rollbackToSavepoint(Object transaction, Object savepoint) throws TransactionException {
+        // 由子类实现
+    }
+    
+    /**
+     * 释放保存点
+     *
+     * @param transaction 事务对象
+     * @param savepoint 保存点
+     */
+    protected void releaseSavepoint(Object transaction, Object savepoint) throws TransactionException {
+        // 由子类实现
+    }
+    
+    /**
+     * 将参与的外部事务标记为只回滚
+     *
+     * @param status 参与外部事务的事务状态
+     */
+    protected void doSetRollbackOnly(DefaultTransactionStatus status) throws TransactionException {
+        throw new IllegalTransactionStateException(
+                "Participating in existing transactions is not supported - cannot mark it rollback-only");
+    }
+    
+    /**
+     * 事务是否已被参与其中的内部事务标记为只回滚
+     *
+     * @param status 事务状态
+     * @return 已标记时返回true
+     */
+    protected boolean isGlobalRollbackOnly(DefaultTransactionStatus status) {
+        return false;
     }
     
     /**
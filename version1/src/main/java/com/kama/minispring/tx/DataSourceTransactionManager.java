@@ -1,11 +1,24 @@
 package com.kama.minispring.tx;
 
+import com.kama.minispring.cache.CacheStats;
+import com.kama.minispring.jdbc.datasource.PreparedStatementCache;
+import com.kama.minispring.util.Assert;
+
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 基于JDBC的事务管理器实现类
+ * 启用语句缓存时, 缓存跟随连接而不是事务: 事务结束后缓存按连接保留, 连接池再次借出同一个连接时直接复用;
+ * 连接被物理关闭、被连接池淘汰或保留的连接数超过上限时才关闭其中的语句
  *
  * @author kama
  * @version 1.0.0
@@ -14,6 +27,21 @@ public class DataSourceTransactionManager extends AbstractPlatformTransactionMan
     
     private DataSource dataSource;
     
+    /** 默认最多保留语句缓存的连接数 */
+    public static final int DEFAULT_MAX_CACHED_CONNECTIONS = 64;
+    
+    private int statementCacheSize = 0;
+    
+    private int maxCachedConnections = DEFAULT_MAX_CACHED_CONNECTIONS;
+    
+    /**
+     * 当前没有事务使用的连接上保留的语句缓存, 按最近使用排序, 访问时同步
+     */
+    private final LinkedHashMap<Connection, PreparedStatementCache> idleStatementCaches =
+            new LinkedHashMap<>(16, 0.75f, true);
+    
+    private final PreparedStatementCache.Counters statementCacheCounters = new PreparedStatementCache.Counters();
+    
     public DataSourceTransactionManager(DataSource dataSource) {
         this.dataSource = dataSource;
     }
@@ -26,6 +54,80 @@ public class DataSourceTransactionManager extends AbstractPlatformTransactionMan
         this.dataSource = dataSource;
     }
     
+    /**
+     * 设置每个连接上缓存的预编译语句数量, 为0时不缓存
+     *
+     * @param statementCacheSize 缓存大小
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+    
+    public int getStatementCacheSize() {
+        return this.statementCacheSize;
+    }
+    
+    /**
+     * 设置最多保留语句缓存的连接数, 通常与连接池的最大连接数一致
+     *
+     * @param maxCachedConnections 连接数
+     */
+    public void setMaxCachedConnections(int maxCachedConnections) {
+        Assert.isTrue(maxCachedConnections > 0, "maxCachedConnections must be greater than 0");
+        this.maxCachedConnections = maxCachedConnections;
+    }
+    
+    public int getMaxCachedConnections() {
+        return this.maxCachedConnections;
+    }
+    
+    /**
+     * 获取当前保留了语句缓存的空闲连接数
+     */
+    public int getCachedConnectionCount() {
+        synchronized (this.idleStatementCaches) {
+            return this.idleStatementCaches.size();
+        }
+    }
+    
+    /**
+     * 关闭连接上保留的语句缓存, 供连接池在淘汰连接时调用
+     *
+     * @param connection 被淘汰的连接
+     */
+    public void evictStatementCache(Connection connection) {
+        PreparedStatementCache cache;
+        synchronized (this.idleStatementCaches) {
+            cache = this.idleStatementCaches.remove(connection);
+        }
+        if (cache != null) {
+            cache.close();
+        }
+    }
+    
+    /**
+     * 关闭所有空闲连接上保留的语句缓存
+     */
+    public void clearStatementCaches() {
+        List<PreparedStatementCache> caches;
+        synchronized (this.idleStatementCaches) {
+            caches = new ArrayList<>(this.idleStatementCaches.values());
+            this.idleStatementCaches.clear();
+        }
+        for (PreparedStatementCache cache : caches) {
+            cache.close();
+        }
+    }
+    
+    /**
+     * 获取所有连接上预编译语句缓存的累计统计
+     *
+     * @return 统计快照
+     */
+    public CacheStats getStatementCacheStats() {
+        return this.statementCacheCounters.snapshot();
+    }
+    
     @Override
     protected Object doGetTransaction() {
         DataSourceTransactionObject txObject = new DataSourceTransactionObject();
@@ -37,11 +139,23 @@ public class DataSourceTransactionManager extends AbstractPlatformTransactionMan
     @Override
     protected void doBegin(Object transaction, TransactionDefinition definition) throws TransactionException {
         DataSourceTransactionObject txObject = (DataSourceTransactionObject) transaction;
+        boolean previousReadOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        Connection newCon = null;
         
         try {
             if (!txObject.hasConnectionHolder()) {
-                Connection newCon = this.dataSource.getConnection();
+                // 先绑定只读标记, 路由数据源据此决定从主库还是从库获取连接;
+                // 嵌套事务沿用外部事务的连接, 不改变外部事务的标记
+                TransactionSynchronizationManager.setCurrentTransactionReadOnly(definition.isReadOnly());
+                newCon = this.dataSource.getConnection();
                 ConnectionHolder conHolder = new ConnectionHolder(newCon);
+                // 超时从物理事务开始计算, 嵌套事务沿用外部事务的截止时间
+                if (definition.getTimeout() != TransactionDefinition.TIMEOUT_DEFAULT) {
+                    conHolder.setTimeoutInSeconds(definition.getTimeout());
+                }
+                if (this.statementCacheSize > 0) {
+                    conHolder.setStatementCache(obtainStatementCache(newCon));
+                }
                 txObject.setConnectionHolder(conHolder, true);
             }
             
@@ -62,31 +176,166 @@ public class DataSourceTransactionManager extends AbstractPlatformTransactionMan
             
             // 绑定到当前线程
             TransactionSynchronizationManager.bindResource(this.dataSource, conHolder);
-        } catch (SQLException ex) {
+        } catch (SQLException | RuntimeException ex) {
+            // 开启失败时恢复只读标记, 否则之后的非事务调用会被路由到从库
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(previousReadOnly);
+            if (newCon != null) {
+                txObject.getConnectionHolder().closeStatementCache();
+                txObject.setConnectionHolder(null, false);
+                closeConnectionAfterFailedBegin(newCon, ex);
+            }
+            if (ex instanceof RuntimeException) {
+                throw (RuntimeException) ex;
+            }
             throw new TransactionException("Could not open JDBC Connection for transaction", ex);
         }
     }
     
+    /**
+     * 取出连接上保留的语句缓存, 没有或连接已关闭时新建
+     */
+    private PreparedStatementCache obtainStatementCache(Connection con) throws SQLException {
+        PreparedStatementCache cache;
+        synchronized (this.idleStatementCaches) {
+            cache = this.idleStatementCaches.remove(con);
+        }
+        if (cache != null) {
+            if (!con.isClosed()) {
+                return cache;
+            }
+            cache.close();
+        }
+        return new PreparedStatementCache(con, this.statementCacheSize, this.statementCacheCounters);
+    }
+    
+    /**
+     * 在连接归还之前保留其语句缓存, 使下一个借到该连接的事务可以复用
+     */
+    private void retainStatementCache(Connection con, PreparedStatementCache cache) {
+        List<PreparedStatementCache> evicted = new ArrayList<>(1);
+        synchronized (this.idleStatementCaches) {
+            PreparedStatementCache previous = this.idleStatementCaches.put(con, cache);
+            if (previous != null && previous != cache) {
+                evicted.add(previous);
+            }
+            Iterator<Map.Entry<Connection, PreparedStatementCache>> it =
+                    this.idleStatementCaches.entrySet().iterator();
+            while (this.idleStatementCaches.size() > this.maxCachedConnections && it.hasNext()) {
+                evicted.add(it.next().getValue());
+                it.remove();
+            }
+        }
+        for (PreparedStatementCache evictedCache : evicted) {
+            evictedCache.close();
+        }
+    }
+    
+    /**
+     * 连接归还后已被物理关闭时(未使用连接池, 或连接池每次借出新的代理), 缓存的语句随之失效
+     */
+    private void discardStatementCacheIfClosed(Connection con, PreparedStatementCache cache) {
+        boolean closed;
+        try {
+            closed = con.isClosed();
+        } catch (SQLException ex) {
+            closed = true;
+        }
+        if (closed) {
+            boolean removed;
+            synchronized (this.idleStatementCaches) {
+                removed = this.idleStatementCaches.remove(con, cache);
+            }
+            if (removed) {
+                cache.close();
+            }
+        }
+    }
+    
+    private static void closeConnectionAfterFailedBegin(Connection con, Exception cause) {
+        try {
+            con.close();
+        } catch (SQLException closeEx) {
+            cause.addSuppressed(closeEx);
+        }
+    }
+    
     @Override
     protected void doCommit(DefaultTransactionStatus status) throws TransactionException {
         DataSourceTransactionObject txObject = (DataSourceTransactionObject) status.getTransaction();
-        Connection con = txObject.getConnectionHolder().getConnection();
+        ConnectionHolder conHolder = txObject.getConnectionHolder();
+        // 等待其他线程上正在使用该连接的操作结束
+        conHolder.requested();
         try {
-            con.commit();
-            con.setAutoCommit(true);
+            conHolder.getConnection().commit();
         } catch (SQLException ex) {
             throw new TransactionException("Could not commit JDBC transaction", ex);
+        } finally {
+            conHolder.released();
         }
     }
     
     @Override
     protected void doRollback(DefaultTransactionStatus status) {
         DataSourceTransactionObject txObject = (DataSourceTransactionObject) status.getTransaction();
-        Connection con = txObject.getConnectionHolder().getConnection();
+        ConnectionHolder conHolder = txObject.getConnectionHolder();
+        conHolder.requested();
         try {
-            con.rollback();
+            conHolder.getConnection().rollback();
         } catch (SQLException ex) {
             throw new TransactionException("Could not roll back JDBC transaction", ex);
+        } finally {
+            conHolder.released();
+        }
+    }
+    
+    @Override
+    protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+        DataSourceTransactionObject txObject = (DataSourceTransactionObject) status.getTransaction();
+        txObject.getConnectionHolder().setRollbackOnly();
+    }
+    
+    @Override
+    protected boolean isGlobalRollbackOnly(DefaultTransactionStatus status) {
+        DataSourceTransactionObject txObject = (DataSourceTransactionObject) status.getTransaction();
+        return txObject.getConnectionHolder().isRollbackOnly();
+    }
+    
+    @Override
+    protected Object createSavepoint(Object transaction) throws TransactionException {
+        ConnectionHolder conHolder = ((DataSourceTransactionObject) transaction).getConnectionHolder();
+        conHolder.requested();
+        try {
+            return conHolder.getConnection().setSavepoint();
+        } catch (SQLException ex) {
+            throw new TransactionException("Could not create JDBC savepoint", ex);
+        } finally {
+            conHolder.released();
+        }
+    }
+    
+    @Override
+    protected void rollbackToSavepoint(Object transaction, Object savepoint) throws TransactionException {
+        ConnectionHolder conHolder = ((DataSourceTransactionObject) transaction).getConnectionHolder();
+        conHolder.requested();
+        try {
+            conHolder.getConnection().rollback((Savepoint) savepoint);
+        } catch (SQLException ex) {
+            throw new TransactionException("Could not roll back to JDBC savepoint", ex);
+        } finally {
+            conHolder.released();
+        }
+    }
+    
+    @Override
+    protected void releaseSavepoint(Object transaction, Object savepoint) throws TransactionException {
+        ConnectionHolder conHolder = ((DataSourceTransactionObject) transaction).getConnectionHolder();
+        conHolder.requested();
+        try {
+            conHolder.getConnection().releaseSavepoint((Savepoint) savepoint);
+        } catch (SQLException ex) {
+            throw new TransactionException("Could not release JDBC savepoint", ex);
+        } finally {
+            conHolder.released();
         }
     }
     
@@ -100,19 +349,28 @@ public class DataSourceTransactionManager extends AbstractPlatformTransactionMan
     protected Object suspend(Object transaction) throws TransactionException {
         DataSourceTransactionObject txObject = (DataSourceTransactionObject) transaction;
         txObject.setConnectionHolder(null, false);
-        return TransactionSynchronizationManager.unbindResource(this.dataSource);
+        ConnectionHolder conHolder = (ConnectionHolder) TransactionSynchronizationManager.unbindResource(this.dataSource);
+        // 只读标记与连接一起挂起, 内部事务或非事务执行期间按各自的定义路由
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        return new SuspendedResourcesHolder(conHolder, readOnly);
     }
     
     @Override
     protected void resume(Object transaction, Object suspendedResources) throws TransactionException {
-        if (suspendedResources != null) {
-            TransactionSynchronizationManager.bindResource(this.dataSource, suspendedResources);
+        if (suspendedResources instanceof SuspendedResourcesHolder) {
+            SuspendedResourcesHolder holder = (SuspendedResourcesHolder) suspendedResources;
+            if (holder.connectionHolder != null) {
+                TransactionSynchronizationManager.bindResource(this.dataSource, holder.connectionHolder);
+            }
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(holder.readOnly);
         }
     }
     
     /**
      * 清理事务完成后的资源
      */
+    @Override
     protected void doCleanupAfterCompletion(Object transaction) {
         DataSourceTransactionObject txObject = (DataSourceTransactionObject) transaction;
         if (txObject.isNewConnectionHolder()) {
@@ -122,6 +380,10 @@ public class DataSourceTransactionManager extends AbstractPlatformTransactionMan
         // 恢复之前的隔离级别
         ConnectionHolder conHolder = txObject.getConnectionHolder();
         if (conHolder != null) {
+            if (txObject.isNewConnectionHolder()) {
+                // 之后传递到其他线程的旧上下文不能再使用该连接
+                conHolder.setTransactionActive(false);
+            }
             conHolder.restorePreviousIsolationLevel();
             try {
                 conHolder.getConnection().setAutoCommit(true);
@@ -130,15 +392,43 @@ public class DataSourceTransactionManager extends AbstractPlatformTransactionMan
             }
             
             if (txObject.isNewConnectionHolder()) {
+                Connection con = conHolder.getConnection();
+                PreparedStatementCache cache = conHolder.getStatementCache();
+                conHolder.setStatementCache(null);
+                // 归还连接之前保留语句缓存, 避免连接刚归还就被其他事务借出
+                if (cache != null) {
+                    retainStatementCache(con, cache);
+                }
                 try {
-                    conHolder.getConnection().close();
+                    con.close();
                 } catch (SQLException ex) {
+                    if (cache != null) {
+                        evictStatementCache(con);
+                    }
                     throw new TransactionException("Could not close JDBC Connection after transaction", ex);
                 }
+                if (cache != null) {
+                    discardStatementCacheIfClosed(con, cache);
+                }
             }
         }
     }
     
+    /**
+     * 挂起的外部事务: 连接持有者和只读标记
+     */
+    private static final class SuspendedResourcesHolder {
+        
+        private final ConnectionHolder connectionHolder;
+        
+        private final boolean readOnly;
+        
+        private SuspendedResourcesHolder(ConnectionHolder connectionHolder, boolean readOnly) {
+            this.connectionHolder = connectionHolder;
+            this.readOnly = readOnly;
+        }
+    }
+    
     /**
      * 事务对象，持有数据库连接
      */
@@ -166,20 +456,155 @@ public class DataSourceTransactionManager extends AbstractPlatformTransactionMan
     
     /**
      * 连接持有者，管理数据库连接
+     * 以数据源为键绑定到TransactionSynchronizationManager, 数据访问代码据此复用事务连接
+     * 事务上下文传递到其他线程后多个线程会共享同一个持有者, 通过requested/released串行化对连接的使用
      */
-    private static class ConnectionHolder {
+    public static class ConnectionHolder {
         private Connection connection;
-        private boolean transactionActive;
+        private volatile boolean transactionActive;
+        private Thread owner;
+        private int holdCount;
         private Integer previousIsolationLevel;
+        private PreparedStatementCache statementCache;
+        private volatile boolean rollbackOnly;
+        private volatile long deadlineMillis = NO_DEADLINE;
+        
+        private static final long NO_DEADLINE = Long.MAX_VALUE;
         
         public ConnectionHolder(Connection connection) {
             this.connection = connection;
         }
         
+        /**
+         * 设置事务超时时间, 从调用时开始计算截止时间
+         *
+         * @param seconds 超时时间（秒）
+         */
+        public void setTimeoutInSeconds(int seconds) {
+            setTimeoutInMillis(seconds * 1000L);
+        }
+        
+        /**
+         * 设置事务超时时间, 从调用时开始计算截止时间
+         *
+         * @param millis 超时时间（毫秒）
+         */
+        public void setTimeoutInMillis(long millis) {
+            this.deadlineMillis = System.currentTimeMillis() + millis;
+        }
+        
+        public boolean hasTimeout() {
+            return this.deadlineMillis != NO_DEADLINE;
+        }
+        
+        /**
+         * 获取距截止时间的剩余秒数, 不足一秒按一秒计算, 可直接用作语句的查询超时
+         *
+         * @return 剩余秒数
+         * @throws TransactionTimedOutException 已超过截止时间
+         */
+        public int getTimeToLiveInSeconds() {
+            long millis = getTimeToLiveInMillis();
+            return (int) Math.min(Integer.MAX_VALUE, (millis + 999) / 1000);
+        }
+        
+        /**
+         * 获取距截止时间的剩余毫秒数, 已超时时将事务标记为只回滚
+         *
+         * @return 剩余毫秒数
+         * @throws TransactionTimedOutException 已超过截止时间
+         */
+        public long getTimeToLiveInMillis() {
+            Assert.isTrue(hasTimeout(), "No timeout specified for this holder");
+            long timeToLive = this.deadlineMillis - System.currentTimeMillis();
+            if (timeToLive <= 0) {
+                setRollbackOnly();
+                throw new TransactionTimedOutException("Transaction timed out: deadline was "
+                        + new Date(this.deadlineMillis));
+            }
+            return timeToLive;
+        }
+        
+        /**
+         * 参与事务的内部事务回滚时标记, 事务的发起者提交时改为回滚
+         */
+        public void setRollbackOnly() {
+            this.rollbackOnly = true;
+        }
+        
+        public boolean isRollbackOnly() {
+            return this.rollbackOnly;
+        }
+        
+        /**
+         * 获取连接上的预编译语句缓存
+         *
+         * @return 语句缓存, 未启用时为null
+         */
+        public PreparedStatementCache getStatementCache() {
+            return this.statementCache;
+        }
+        
+        public void setStatementCache(PreparedStatementCache statementCache) {
+            this.statementCache = statementCache;
+        }
+        
+        /**
+         * 关闭语句缓存中的全部语句
+         */
+        public void closeStatementCache() {
+            if (this.statementCache != null) {
+                this.statementCache.close();
+                this.statementCache = null;
+            }
+        }
+        
         public Connection getConnection() {
             return this.connection;
         }
         
+        /**
+         * 声明当前线程开始使用连接, 其他线程正在使用时阻塞等待
+         * 同一线程可以重入, 每次调用都必须对应一次released
+         */
+        public synchronized void requested() {
+            Thread current = Thread.currentThread();
+            boolean interrupted = false;
+            while (this.owner != null && this.owner != current) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                current.interrupt();
+            }
+            this.owner = current;
+            this.holdCount++;
+        }
+        
+        /**
+         * 声明结束使用连接
+         * 允许在其他线程中调用, 例如在消费线程中关闭流式查询
+         */
+        public synchronized void released() {
+            if (this.holdCount == 0) {
+                throw new IllegalStateException("Connection was not requested");
+            }
+            if (--this.holdCount == 0) {
+                this.owner = null;
+                notifyAll();
+            }
+        }
+        
+        /**
+         * 判断是否有线程正在使用连接
+         */
+        public synchronized boolean isOpen() {
+            return this.holdCount > 0;
+        }
+        
         public boolean isTransactionActive() {
             return this.transactionActive;
         }
@@ -22,11 +22,25 @@ public class DefaultTransactionStatus implements TransactionStatus {
     
     private Object savepoint;
     
+    private final Object suspendedResources;
+    
+    private TransactionMetrics.NameCounts metricsCounts;
+    
+    private long metricsStartNanos;
+    
+    private TransactionWatchdog.ActiveTransaction watchdogEntry;
+    
     public DefaultTransactionStatus(
             Object transaction, boolean newTransaction, boolean newSynchronization) {
+        this(transaction, newTransaction, newSynchronization, null);
+    }
+    
+    public DefaultTransactionStatus(
+            Object transaction, boolean newTransaction, boolean newSynchronization, Object suspendedResources) {
         this.transaction = transaction;
         this.newTransaction = newTransaction;
         this.newSynchronization = newSynchronization;
+        this.suspendedResources = suspendedResources;
     }
     
     public Object getTransaction() {
@@ -91,4 +105,32 @@ public class DefaultTransactionStatus implements TransactionStatus {
     public boolean hasTransaction() {
         return this.transaction != null;
     }
+    
+    /**
+     * 获取开始本事务时挂起的外部事务资源
+     *
+     * @return 挂起的资源, 没有时为null
+     */
+    public Object getSuspendedResources() {
+        return this.suspendedResources;
+    }
+    
+    void setMetricsState(TransactionMetrics.NameCounts counts, long startNanos,
+            TransactionWatchdog.ActiveTransaction watchdogEntry) {
+        this.metricsCounts = counts;
+        this.metricsStartNanos = startNanos;
+        this.watchdogEntry = watchdogEntry;
+    }
+    
+    TransactionMetrics.NameCounts getMetricsCounts() {
+        return this.metricsCounts;
+    }
+    
+    long getMetricsStartNanos() {
+        return this.metricsStartNanos;
+    }
+    
+    TransactionWatchdog.ActiveTransaction getWatchdogEntry() {
+        return this.watchdogEntry;
+    }
 } 
\ No newline at end of file
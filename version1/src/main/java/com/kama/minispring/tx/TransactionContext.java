@@ -0,0 +1,307 @@
+package com.kama.minispring.tx;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * 事务上下文
+ * 保存单个线程的全部事务状态: 绑定资源、同步状态及同步回调, 由TransactionSynchronizationManager统一管理
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public final class TransactionContext {
+
+    private ResourceMap resources;
+
+    private boolean synchronizationActive;
+
+    private boolean actualTransactionActive;
+
+    private boolean currentTransactionReadOnly;
+
+    private List<TransactionSynchronization> synchronizations;
+
+    TransactionContext() {
+    }
+
+    Object getResource(Object key) {
+        return resources != null ? resources.get(key) : null;
+    }
+
+    boolean hasResource(Object key) {
+        return resources != null && resources.containsKey(key);
+    }
+
+    void bindResource(Object key, Object value) {
+        if (resources == null) {
+            resources = new ResourceMap();
+        }
+        resources.put(key, value);
+    }
+
+    Object unbindResource(Object key) {
+        if (resources == null) {
+            return null;
+        }
+        Object value = resources.remove(key);
+        if (resources.isEmpty()) {
+            resources = null;
+        }
+        return value;
+    }
+
+    Map<Object, Object> getResources() {
+        return resources;
+    }
+
+    boolean isSynchronizationActive() {
+        return synchronizationActive;
+    }
+
+    void initSynchronization() {
+        this.synchronizationActive = true;
+        this.synchronizations = new ArrayList<>(4);
+    }
+
+    void clearSynchronization() {
+        this.synchronizationActive = false;
+        this.actualTransactionActive = false;
+        this.currentTransactionReadOnly = false;
+        this.synchronizations = null;
+    }
+
+    boolean isActualTransactionActive() {
+        return actualTransactionActive;
+    }
+
+    void setActualTransactionActive(boolean actualTransactionActive) {
+        this.actualTransactionActive = actualTransactionActive;
+    }
+
+    boolean isCurrentTransactionReadOnly() {
+        return currentTransactionReadOnly;
+    }
+
+    void setCurrentTransactionReadOnly(boolean currentTransactionReadOnly) {
+        this.currentTransactionReadOnly = currentTransactionReadOnly;
+    }
+
+    List<TransactionSynchronization> getSynchronizations() {
+        return synchronizations;
+    }
+
+    /**
+     * 判断上下文是否不再持有任何状态
+     *
+     * @return 是否为空
+     */
+    boolean isEmpty() {
+        return resources == null && !synchronizationActive && !actualTransactionActive
+                && !currentTransactionReadOnly;
+    }
+
+    /**
+     * 复制上下文, 资源和同步回调只做浅拷贝
+     *
+     * @return 独立的上下文副本
+     */
+    TransactionContext copy() {
+        TransactionContext copy = new TransactionContext();
+        if (resources != null) {
+            copy.resources = resources.copy();
+        }
+        copy.synchronizationActive = synchronizationActive;
+        copy.actualTransactionActive = actualTransactionActive;
+        copy.currentTransactionReadOnly = currentTransactionReadOnly;
+        if (synchronizations != null) {
+            copy.synchronizations = new ArrayList<>(synchronizations);
+        }
+        return copy;
+    }
+
+    /**
+     * 开放寻址的资源映射, 线性探测, 删除时回移后续元素
+     * 事务中绑定的资源通常只有一两个, 避免HashMap的节点分配
+     */
+    static final class ResourceMap extends AbstractMap<Object, Object> {
+
+        private static final int INITIAL_CAPACITY = 4;
+
+        /**
+         * 键值交替存放: table[2i]为键, table[2i+1]为值
+         */
+        private Object[] table = new Object[INITIAL_CAPACITY * 2];
+
+        private int size;
+
+        private int indexOf(Object key) {
+            int mask = (table.length >> 1) - 1;
+            int index = mix(key.hashCode()) & mask;
+            while (true) {
+                Object candidate = table[index << 1];
+                if (candidate == null) {
+                    return -1;
+                }
+                if (candidate == key || candidate.equals(key)) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (key == null || size == 0) {
+                return null;
+            }
+            int index = indexOf(key);
+            return index >= 0 ? table[(index << 1) + 1] : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key != null && size > 0 && indexOf(key) >= 0;
+        }
+
+        @Override
+        public Object put(Object key, Object value) {
+            if (key == null || value == null) {
+                throw new IllegalArgumentException("Resource key and value must not be null");
+            }
+            // 负载因子不超过0.5, 保证探测链较短
+            if ((size + 1) << 1 > table.length >> 1) {
+                resize(table.length << 1);
+            }
+            int mask = (table.length >> 1) - 1;
+            int index = mix(key.hashCode()) & mask;
+            while (true) {
+                Object candidate = table[index << 1];
+                if (candidate == null) {
+                    table[index << 1] = key;
+                    table[(index << 1) + 1] = value;
+                    size++;
+                    return null;
+                }
+                if (candidate == key || candidate.equals(key)) {
+                    Object old = table[(index << 1) + 1];
+                    table[(index << 1) + 1] = value;
+                    return old;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        @Override
+        public Object remove(Object key) {
+            if (key == null || size == 0) {
+                return null;
+            }
+            int index = indexOf(key);
+            if (index < 0) {
+                return null;
+            }
+            Object old = table[(index << 1) + 1];
+            deleteSlot(index);
+            size--;
+            return old;
+        }
+
+        private void deleteSlot(int index) {
+            int mask = (table.length >> 1) - 1;
+            int gap = index;
+            int next = (gap + 1) & mask;
+            while (table[next << 1] != null) {
+                int home = mix(table[next << 1].hashCode()) & mask;
+                // 后续元素的理想位置不在(gap, next]区间内时可回移填补空位
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    table[gap << 1] = table[next << 1];
+                    table[(gap << 1) + 1] = table[(next << 1) + 1];
+                    gap = next;
+                }
+                next = (next + 1) & mask;
+            }
+            table[gap << 1] = null;
+            table[(gap << 1) + 1] = null;
+        }
+
+        private void resize(int newLength) {
+            Object[] old = table;
+            table = new Object[newLength];
+            size = 0;
+            for (int i = 0; i < old.length; i += 2) {
+                if (old[i] != null) {
+                    put(old[i], old[i + 1]);
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(table, null);
+            size = 0;
+        }
+
+        ResourceMap copy() {
+            ResourceMap copy = new ResourceMap();
+            copy.table = table.clone();
+            copy.size = size;
+            return copy;
+        }
+
+        @Override
+        public Set<Entry<Object, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Object, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int next = advance(0);
+
+                        private int advance(int from) {
+                            while (from < table.length && table[from] == null) {
+                                from += 2;
+                            }
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < table.length;
+                        }
+
+                        @Override
+                        public Entry<Object, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<Object, Object> entry = new SimpleImmutableEntry<>(table[next], table[next + 1]);
+                            next = advance(next + 2);
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
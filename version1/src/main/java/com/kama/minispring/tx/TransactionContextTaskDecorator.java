@@ -0,0 +1,163 @@
+package com.kama.minispring.tx;
+
+import com.kama.minispring.scheduling.TaskDecorator;
+import com.kama.minispring.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * 事务上下文任务装饰器
+ * 把提交到执行器(包括虚拟线程执行器和CompletableFuture的异步方法)的任务放到事务上下文中运行, 支持两种方式:
+ * <ul>
+ * <li>加入调用方事务: 在提交时对调用线程的事务上下文做快照, 执行线程共享调用方绑定的连接。
+ * 共享连接上的操作通过ConnectionHolder串行执行, 调用方事务结束后任务再使用连接会抛出IllegalTransactionStateException,
+ * 因此调用方应在提交或回滚之前等待任务完成。任务中注册的事务同步回调不会被调用方事务触发</li>
+ * <li>新事务: 执行线程不继承调用方的任何事务状态, 任务在事务管理器开启的独立事务中运行,
+ * 正常结束时提交, 抛出异常时回滚</li>
+ * </ul>
+ * CompletableFuture自带的异步方法会在任务内部捕获异常并先于提交完成future,
+ * 需要根据任务结果回滚或在future完成前提交时应使用本类的supplyAsync/runAsync
+ * <pre>
+ * TransactionContextTaskDecorator decorator = new TransactionContextTaskDecorator();
+ * decorator.supplyAsync(() -&gt; jdbcTemplate.update(sql), executor).join();
+ * </pre>
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class TransactionContextTaskDecorator implements TaskDecorator {
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final TransactionDefinition transactionDefinition;
+
+    /**
+     * 创建加入调用方事务的装饰器
+     */
+    public TransactionContextTaskDecorator() {
+        this.transactionManager = null;
+        this.transactionDefinition = null;
+    }
+
+    /**
+     * 创建在独立事务中执行任务的装饰器
+     *
+     * @param transactionManager 事务管理器
+     * @param transactionDefinition 事务定义
+     */
+    public TransactionContextTaskDecorator(PlatformTransactionManager transactionManager,
+            TransactionDefinition transactionDefinition) {
+        Assert.notNull(transactionManager, "PlatformTransactionManager must not be null");
+        Assert.notNull(transactionDefinition, "TransactionDefinition must not be null");
+        this.transactionManager = transactionManager;
+        this.transactionDefinition = transactionDefinition;
+    }
+
+    /**
+     * 是否加入调用方的事务
+     */
+    public boolean isJoiningCallerTransaction() {
+        return this.transactionManager == null;
+    }
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        Assert.notNull(runnable, "Runnable must not be null");
+        if (this.transactionManager != null) {
+            return () -> runInNewTransaction(runnable);
+        }
+        TransactionContext snapshot = TransactionSynchronizationManager.snapshot();
+        if (snapshot != null) {
+            // 调用方的同步回调由调用方事务触发, 不在执行线程中重复触发
+            boolean actualTransactionActive = snapshot.isActualTransactionActive();
+            boolean readOnly = snapshot.isCurrentTransactionReadOnly();
+            snapshot.clearSynchronization();
+            snapshot.setActualTransactionActive(actualTransactionActive);
+            snapshot.setCurrentTransactionReadOnly(readOnly);
+        }
+        return () -> {
+            TransactionContext previous = TransactionSynchronizationManager.restore(snapshot);
+            try {
+                runnable.run();
+            } finally {
+                TransactionSynchronizationManager.restore(previous);
+            }
+        };
+    }
+
+    /**
+     * 包装执行器, 提交的每个任务都先经过本装饰器
+     *
+     * @param executor 目标执行器
+     * @return 包装后的执行器
+     */
+    public Executor decorate(Executor executor) {
+        Assert.notNull(executor, "Executor must not be null");
+        return task -> executor.execute(decorate(task));
+    }
+
+    /**
+     * 在执行器中以事务上下文执行有返回值的任务
+     * 返回的future在事务提交或回滚之后才完成, 任务抛出的异常会使新事务回滚
+     *
+     * @param supplier 任务
+     * @param executor 执行器
+     * @return 任务结果
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+        Assert.notNull(supplier, "Supplier must not be null");
+        Assert.notNull(executor, "Executor must not be null");
+        CompletableFuture<T> future = new CompletableFuture<>();
+        List<T> result = new ArrayList<>(1);
+        Runnable task = decorate(() -> result.add(supplier.get()));
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                    future.complete(result.get(0));
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * 在执行器中以事务上下文执行任务
+     *
+     * @param runnable 任务
+     * @param executor 执行器
+     * @return 任务完成的future
+     * @see #supplyAsync(Supplier, Executor)
+     */
+    public CompletableFuture<Void> runAsync(Runnable runnable, Executor executor) {
+        Assert.notNull(runnable, "Runnable must not be null");
+        return supplyAsync(() -> {
+            runnable.run();
+            return null;
+        }, executor);
+    }
+
+    private void runInNewTransaction(Runnable runnable) {
+        TransactionContext previous = TransactionSynchronizationManager.restore(null);
+        try {
+            TransactionStatus status = this.transactionManager.getTransaction(this.transactionDefinition);
+            try {
+                runnable.run();
+            } catch (RuntimeException | Error ex) {
+                this.transactionManager.rollback(status);
+                throw ex;
+            }
+            this.transactionManager.commit(status);
+        } finally {
+            TransactionSynchronizationManager.restore(previous);
+        }
+    }
+}
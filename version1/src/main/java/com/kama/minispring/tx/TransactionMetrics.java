@@ -0,0 +1,147 @@
+package com.kama.minispring.tx;
+
+import com.kama.minispring.metrics.LatencyHistogram;
+import com.kama.minispring.util.Assert;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 事务指标
+ * 记录新事务从开始到提交/回滚的延迟分布、按事务名称的计数以及挂起/恢复次数
+ * 通过AbstractPlatformTransactionManager.setTransactionMetrics启用, 未设置时不产生开销
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class TransactionMetrics {
+
+    private static final String UNNAMED = "<unnamed>";
+
+    private final LatencyHistogram commitLatency = new LatencyHistogram();
+
+    private final LatencyHistogram rollbackLatency = new LatencyHistogram();
+
+    private final Map<String, NameCounts> nameCounts = new ConcurrentHashMap<>();
+
+    private final LongAdder suspendCount = new LongAdder();
+
+    private final LongAdder resumeCount = new LongAdder();
+
+    private TransactionWatchdog watchdog;
+
+    private LongSupplier ticker = System::nanoTime;
+
+    /**
+     * 设置长事务检测器
+     *
+     * @param watchdog 检测器, 可为null
+     */
+    public void setWatchdog(TransactionWatchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    public TransactionWatchdog getWatchdog() {
+        return this.watchdog;
+    }
+
+    /**
+     * 替换计算事务耗时所用的纳秒时钟
+     */
+    void setTicker(LongSupplier ticker) {
+        Assert.notNull(ticker, "Ticker must not be null");
+        this.ticker = ticker;
+    }
+
+    void transactionBegun(DefaultTransactionStatus status, TransactionDefinition definition) {
+        String name = definition.getName() != null ? definition.getName() : UNNAMED;
+        NameCounts counts = nameCounts.computeIfAbsent(name, key -> new NameCounts());
+        counts.begun.increment();
+        status.setMetricsState(counts, ticker.getAsLong(),
+                watchdog != null ? watchdog.register(name) : null);
+    }
+
+    void transactionCommitted(DefaultTransactionStatus status) {
+        NameCounts counts = status.getMetricsCounts();
+        if (counts != null) {
+            commitLatency.record(ticker.getAsLong() - status.getMetricsStartNanos());
+            counts.committed.increment();
+        }
+    }
+
+    void transactionRolledBack(DefaultTransactionStatus status) {
+        NameCounts counts = status.getMetricsCounts();
+        if (counts != null) {
+            rollbackLatency.record(ticker.getAsLong() - status.getMetricsStartNanos());
+            counts.rolledBack.increment();
+        }
+    }
+
+    void transactionCompleted(DefaultTransactionStatus status) {
+        if (watchdog != null) {
+            watchdog.unregister(status.getWatchdogEntry());
+        }
+    }
+
+    void transactionSuspended() {
+        suspendCount.increment();
+    }
+
+    void transactionResumed() {
+        resumeCount.increment();
+    }
+
+    /**
+     * 获取开始到提交的延迟分布(纳秒)
+     */
+    public LatencyHistogram.Snapshot getCommitLatency() {
+        return commitLatency.snapshot();
+    }
+
+    /**
+     * 获取开始到回滚的延迟分布(纳秒)
+     */
+    public LatencyHistogram.Snapshot getRollbackLatency() {
+        return rollbackLatency.snapshot();
+    }
+
+    /**
+     * 获取按事务名称统计的计数, 未命名的事务归入"&lt;unnamed&gt;"
+     */
+    public Map<String, NameCounts> getNameCounts() {
+        return Collections.unmodifiableMap(nameCounts);
+    }
+
+    public long getSuspendCount() {
+        return suspendCount.sum();
+    }
+
+    public long getResumeCount() {
+        return resumeCount.sum();
+    }
+
+    /**
+     * 单个事务名称的计数
+     */
+    public static final class NameCounts {
+
+        private final LongAdder begun = new LongAdder();
+        private final LongAdder committed = new LongAdder();
+        private final LongAdder rolledBack = new LongAdder();
+
+        public long getBegunCount() {
+            return begun.sum();
+        }
+
+        public long getCommittedCount() {
+            return committed.sum();
+        }
+
+        public long getRolledBackCount() {
+            return rolledBack.sum();
+        }
+    }
+}
@@ -1,101 +1,180 @@
 package com.kama.minispring.tx;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 /**
  * 事务同步管理器
- * 用于管理事务的同步状态，基于ThreadLocal实现
+ * 用于管理事务的同步状态，每个线程的全部事务状态保存在单个TransactionContext中,
+ * 只有存在事务状态时才占用ThreadLocal, 并支持在线程间传递上下文
  *
  * @author kama
  * @version 1.0.0
  */
 public abstract class TransactionSynchronizationManager {
     
-    private static final ThreadLocal<Map<Object, Object>> resources = new ThreadLocal<>();
+    private static final ThreadLocal<TransactionContext> context = new ThreadLocal<>();
     
-    private static final ThreadLocal<Boolean> synchronizationActive = new ThreadLocal<>();
-    
-    private static final ThreadLocal<Boolean> actualTransactionActive = new ThreadLocal<>();
+    private static TransactionContext obtainContext() {
+        TransactionContext current = context.get();
+        if (current == null) {
+            current = new TransactionContext();
+            context.set(current);
+        }
+        return current;
+    }
     
-    private static final ThreadLocal<List<TransactionSynchronization>> synchronizations = new ThreadLocal<>();
+    private static void removeContextIfEmpty(TransactionContext current) {
+        if (current.isEmpty()) {
+            context.remove();
+        }
+    }
     
+    /**
+     * 获取当前线程绑定的资源, 返回只读视图
+     *
+     * @return 资源映射, 没有绑定资源时为空映射
+     */
     public static Map<Object, Object> getResources() {
-        Map<Object, Object> map = resources.get();
-        return map != null ? map : new HashMap<>();
+        TransactionContext current = context.get();
+        Map<Object, Object> map = current != null ? current.getResources() : null;
+        return map != null ? Collections.unmodifiableMap(map) : Collections.emptyMap();
     }
     
     public static boolean hasResource(Object key) {
-        Map<Object, Object> map = resources.get();
-        return map != null && map.containsKey(key);
+        TransactionContext current = context.get();
+        return current != null && current.hasResource(key);
     }
     
     public static Object getResource(Object key) {
-        Map<Object, Object> map = resources.get();
-        if (map == null) {
-            return null;
-        }
-        return map.get(key);
+        TransactionContext current = context.get();
+        return current != null ? current.getResource(key) : null;
     }
     
     public static void bindResource(Object key, Object value) {
-        Map<Object, Object> map = resources.get();
-        if (map == null) {
-            map = new HashMap<>();
-            resources.set(map);
-        }
-        map.put(key, value);
+        obtainContext().bindResource(key, value);
     }
     
     public static Object unbindResource(Object key) {
-        Map<Object, Object> map = resources.get();
-        if (map == null) {
+        TransactionContext current = context.get();
+        if (current == null) {
             return null;
         }
-        Object value = map.remove(key);
-        if (map.isEmpty()) {
-            resources.remove();
-        }
+        Object value = current.unbindResource(key);
+        removeContextIfEmpty(current);
         return value;
     }
     
     public static void initSynchronization() {
-        if (synchronizationActive.get() != null) {
+        TransactionContext current = obtainContext();
+        if (current.isSynchronizationActive()) {
             throw new IllegalStateException("事务同步已经初始化");
         }
-        synchronizationActive.set(true);
-        synchronizations.set(new ArrayList<>());
+        current.initSynchronization();
     }
     
     public static void clearSynchronization() {
-        synchronizationActive.remove();
-        actualTransactionActive.remove();
-        synchronizations.remove();
+        TransactionContext current = context.get();
+        if (current != null) {
+            current.clearSynchronization();
+            removeContextIfEmpty(current);
+        }
     }
     
     public static boolean isSynchronizationActive() {
-        return synchronizationActive.get() != null && synchronizationActive.get();
+        TransactionContext current = context.get();
+        return current != null && current.isSynchronizationActive();
     }
     
     public static void setActualTransactionActive(boolean active) {
-        actualTransactionActive.set(active);
+        if (active) {
+            obtainContext().setActualTransactionActive(true);
+        } else {
+            TransactionContext current = context.get();
+            if (current != null) {
+                current.setActualTransactionActive(false);
+                removeContextIfEmpty(current);
+            }
+        }
     }
     
     public static boolean isActualTransactionActive() {
-        return actualTransactionActive.get() != null && actualTransactionActive.get();
+        TransactionContext current = context.get();
+        return current != null && current.isActualTransactionActive();
+    }
+    
+    /**
+     * 设置当前事务是否只读, 在获取连接之前绑定, 供路由数据源选择目标库
+     *
+     * @param readOnly 是否只读
+     */
+    public static void setCurrentTransactionReadOnly(boolean readOnly) {
+        if (readOnly) {
+            obtainContext().setCurrentTransactionReadOnly(true);
+        } else {
+            TransactionContext current = context.get();
+            if (current != null) {
+                current.setCurrentTransactionReadOnly(false);
+                removeContextIfEmpty(current);
+            }
+        }
+    }
+    
+    public static boolean isCurrentTransactionReadOnly() {
+        TransactionContext current = context.get();
+        return current != null && current.isCurrentTransactionReadOnly();
     }
     
     public static void registerSynchronization(TransactionSynchronization synchronization) {
         if (!isSynchronizationActive()) {
             throw new IllegalStateException("事务同步未激活");
         }
-        synchronizations.get().add(synchronization);
+        context.get().getSynchronizations().add(synchronization);
     }
     
     public static List<TransactionSynchronization> getSynchronizations() {
-        return synchronizations.get();
+        TransactionContext current = context.get();
+        return current != null ? current.getSynchronizations() : null;
+    }
+    
+    /**
+     * 获取当前线程事务上下文的快照, 用于交给其他线程执行
+     * 快照与当前线程互不影响, 资源对象本身是共享的
+     *
+     * @return 上下文快照, 当前线程没有事务状态时为null
+     */
+    public static TransactionContext snapshot() {
+        TransactionContext current = context.get();
+        return current != null ? current.copy() : null;
+    }
+    
+    /**
+     * 将上下文安装到当前线程, 返回之前的上下文以便执行结束后恢复
+     * 同一个快照不能同时安装到多个线程, 每次移交都应重新调用snapshot()
+     * <pre>
+     * TransactionContext snapshot = TransactionSynchronizationManager.snapshot();
+     * executor.execute(() -&gt; {
+     *     TransactionContext previous = TransactionSynchronizationManager.restore(snapshot);
+     *     try {
+     *         ...
+     *     } finally {
+     *         TransactionSynchronizationManager.restore(previous);
+     *     }
+     * });
+     * </pre>
+     *
+     * @param snapshot 要安装的上下文, 为null时清除当前线程的事务状态
+     * @return 之前的上下文, 可能为null
+     */
+    public static TransactionContext restore(TransactionContext snapshot) {
+        TransactionContext previous = context.get();
+        if (snapshot == null || snapshot.isEmpty()) {
+            context.remove();
+        } else {
+            context.set(snapshot);
+        }
+        return previous;
     }
     
     public static void triggerBeforeBegin() {
@@ -111,7 +190,7 @@ public abstract class TransactionSynchronizationManager {
      * 触发事务提交前的同步回调
      */
     public static void triggerBeforeCommit() {
-        List<TransactionSynchronization> synchs = synchronizations.get();
+        List<TransactionSynchronization> synchs = getSynchronizations();
         if (synchs != null) {
             for (TransactionSynchronization synchronization : synchs) {
                 synchronization.beforeCommit();
@@ -123,7 +202,7 @@ public abstract class TransactionSynchronizationManager {
      * 触发事务提交后的同步回调
      */
     public static void triggerAfterCommit() {
-        List<TransactionSynchronization> synchs = synchronizations.get();
+        List<TransactionSynchronization> synchs = getSynchronizations();
         if (synchs != null) {
             for (TransactionSynchronization synchronization : synchs) {
                 synchronization.afterCommit();
@@ -135,7 +214,7 @@ public abstract class TransactionSynchronizationManager {
      * 触发事务回滚前的同步回调
      */
     public static void triggerBeforeRollback() {
-        List<TransactionSynchronization> synchs = synchronizations.get();
+        List<TransactionSynchronization> synchs = getSynchronizations();
         if (synchs != null) {
             for (TransactionSynchronization synchronization : synchs) {
                 synchronization.beforeRollback();
@@ -147,7 +226,7 @@ public abstract class TransactionSynchronizationManager {
      * 触发事务回滚后的同步回调
      */
     public static void triggerAfterRollback() {
-        List<TransactionSynchronization> synchs = synchronizations.get();
+        List<TransactionSynchronization> synchs = getSynchronizations();
         if (synchs != null) {
             for (TransactionSynchronization synchronization : synchs) {
                 synchronization.afterRollback();
@@ -159,7 +238,7 @@ public abstract class TransactionSynchronizationManager {
      * 触发事务完成后的同步回调
      */
     public static void triggerAfterCompletion(int status) {
-        List<TransactionSynchronization> synchs = synchronizations.get();
+        List<TransactionSynchronization> synchs = getSynchronizations();
         if (synchs != null) {
             for (TransactionSynchronization synchronization : synchs) {
                 synchronization.afterCompletion(status);
@@ -168,9 +247,6 @@ public abstract class TransactionSynchronizationManager {
     }
     
     public static void clear() {
-        synchronizationActive.remove();
-        actualTransactionActive.remove();
-        resources.remove();
-        synchronizations.remove();
+        context.remove();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.kama.minispring.tx;
+
+/**
+ * 事务超时异常
+ * 事务超过定义的超时时间后继续访问数据库时抛出, 事务随之被标记为只回滚
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class TransactionTimedOutException extends TransactionException {
+    
+    /**
+     * 使用指定的错误消息构造新的异常
+     *
+     * @param message 错误消息
+     */
+    public TransactionTimedOutException(String message) {
+        super(message);
+    }
+}
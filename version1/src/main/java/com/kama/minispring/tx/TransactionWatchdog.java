@@ -0,0 +1,198 @@
+package com.kama.minispring.tx;
+
+import com.kama.minispring.util.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 长事务检测器
+ * 记录进行中的事务及其开始时的调用栈，定期检查并报告超过阈值仍未结束的事务
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class TransactionWatchdog {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionWatchdog.class);
+
+    private final long thresholdNanos;
+
+    private final Set<ActiveTransaction> activeTransactions = ConcurrentHashMap.newKeySet();
+
+    private boolean captureStackTrace = true;
+
+    private LongSupplier ticker = System::nanoTime;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 构造函数
+     *
+     * @param threshold 事务持续时间阈值
+     */
+    public TransactionWatchdog(Duration threshold) {
+        Assert.notNull(threshold, "Threshold must not be null");
+        Assert.isTrue(!threshold.isNegative() && !threshold.isZero(), "Threshold must be positive");
+        this.thresholdNanos = threshold.toNanos();
+    }
+
+    /**
+     * 设置是否在事务开始时捕获调用栈, 默认为true
+     *
+     * @param captureStackTrace 是否捕获
+     */
+    public void setCaptureStackTrace(boolean captureStackTrace) {
+        this.captureStackTrace = captureStackTrace;
+    }
+
+    /**
+     * 替换判断事务是否超时所用的纳秒时钟
+     */
+    void setTicker(LongSupplier ticker) {
+        Assert.notNull(ticker, "Ticker must not be null");
+        this.ticker = ticker;
+    }
+
+    /**
+     * 登记开始的事务
+     *
+     * @param name 事务名称
+     * @return 事务记录, 事务结束时传给unregister
+     */
+    public ActiveTransaction register(String name) {
+        Thread thread = Thread.currentThread();
+        ActiveTransaction transaction = new ActiveTransaction(name, thread.getName(), ticker.getAsLong(),
+                captureStackTrace ? new Throwable("Transaction '" + name + "' began here") : null);
+        activeTransactions.add(transaction);
+        return transaction;
+    }
+
+    /**
+     * 注销结束的事务
+     *
+     * @param transaction 事务记录
+     */
+    public void unregister(ActiveTransaction transaction) {
+        if (transaction != null) {
+            activeTransactions.remove(transaction);
+        }
+    }
+
+    /**
+     * 获取进行中的事务数量
+     *
+     * @return 事务数量
+     */
+    public int getActiveCount() {
+        return activeTransactions.size();
+    }
+
+    /**
+     * 检查超时事务, 每个事务只报告一次日志
+     *
+     * @return 当前所有超过阈值的事务
+     */
+    public List<ActiveTransaction> check() {
+        long now = ticker.getAsLong();
+        List<ActiveTransaction> overdue = new ArrayList<>();
+        for (ActiveTransaction transaction : activeTransactions) {
+            long age = now - transaction.startNanos;
+            if (age < thresholdNanos) {
+                continue;
+            }
+            overdue.add(transaction);
+            if (!transaction.reported) {
+                transaction.reported = true;
+                logger.warn("Transaction '{}' on thread '{}' has been open for {} ms",
+                        transaction.name, transaction.threadName,
+                        TimeUnit.NANOSECONDS.toMillis(age), transaction.beginStackTrace);
+            }
+        }
+        return overdue;
+    }
+
+    /**
+     * 启动后台定期检查
+     *
+     * @param interval 检查间隔
+     */
+    public synchronized void start(Duration interval) {
+        Assert.notNull(interval, "Interval must not be null");
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tx-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(1L, interval.toMillis());
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                check();
+            } catch (RuntimeException ex) {
+                logger.error("Transaction watchdog check failed", ex);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止后台检查
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 进行中的事务
+     */
+    public static final class ActiveTransaction {
+
+        private final String name;
+        private final String threadName;
+        private final long startNanos;
+        private final Throwable beginStackTrace;
+        private volatile boolean reported;
+
+        private ActiveTransaction(String name, String threadName, long startNanos, Throwable beginStackTrace) {
+            this.name = name;
+            this.threadName = threadName;
+            this.startNanos = startNanos;
+            this.beginStackTrace = beginStackTrace;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        /**
+         * 获取事务开始时的调用栈
+         *
+         * @return 调用栈, 未开启捕获时为null
+         */
+        public Throwable getBeginStackTrace() {
+            return beginStackTrace;
+        }
+    }
+}
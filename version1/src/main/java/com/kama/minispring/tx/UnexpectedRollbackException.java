@@ -0,0 +1,20 @@
+package com.kama.minispring.tx;
+
+/**
+ * 意外回滚异常
+ * 提交事务时发现事务已被参与其中的内部事务标记为只回滚, 事务已回滚而不是提交
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class UnexpectedRollbackException extends TransactionException {
+    
+    /**
+     * 使用指定的错误消息构造新的异常
+     *
+     * @param message 错误消息
+     */
+    public UnexpectedRollbackException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,49 @@
+package com.kama.minispring.tx.annotation;
+
+import com.kama.minispring.tx.TransactionDefinition;
+
+import java.lang.annotation.*;
+
+/**
+ * 声明式事务注解
+ * 标注在类上时作为该类所有方法的默认事务属性，方法上的注解优先
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface Transactional {
+
+    /**
+     * 传播行为，取值见TransactionDefinition.PROPAGATION_*
+     */
+    int propagation() default TransactionDefinition.PROPAGATION_REQUIRED;
+
+    /**
+     * 隔离级别，取值见TransactionDefinition.ISOLATION_*
+     */
+    int isolation() default TransactionDefinition.ISOLATION_DEFAULT;
+
+    /**
+     * 超时时间（秒）
+     */
+    int timeout() default TransactionDefinition.TIMEOUT_DEFAULT;
+
+    /**
+     * 是否只读
+     */
+    boolean readOnly() default false;
+
+    /**
+     * 需要回滚的异常类型，默认只有RuntimeException和Error回滚
+     */
+    Class<? extends Throwable>[] rollbackFor() default {};
+
+    /**
+     * 不需要回滚的异常类型
+     */
+    Class<? extends Throwable>[] noRollbackFor() default {};
+}
@@ -0,0 +1,51 @@
+package com.kama.minispring.tx.interceptor;
+
+import com.kama.minispring.tx.DefaultTransactionDefinition;
+
+/**
+ * 基于回滚规则的事务属性
+ * 按继承层次距离最近的规则决定是否回滚，没有规则匹配时RuntimeException和Error回滚
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class RuleBasedTransactionAttribute extends DefaultTransactionDefinition implements TransactionAttribute {
+
+    private static final Class<?>[] NO_RULES = new Class<?>[0];
+
+    private Class<?>[] rollbackFor = NO_RULES;
+
+    private Class<?>[] noRollbackFor = NO_RULES;
+
+    public void setRollbackFor(Class<?>... rollbackFor) {
+        this.rollbackFor = rollbackFor != null ? rollbackFor : NO_RULES;
+    }
+
+    public void setNoRollbackFor(Class<?>... noRollbackFor) {
+        this.noRollbackFor = noRollbackFor != null ? noRollbackFor : NO_RULES;
+    }
+
+    @Override
+    public boolean rollbackOn(Throwable ex) {
+        int rollbackDepth = minDepth(rollbackFor, ex);
+        int noRollbackDepth = minDepth(noRollbackFor, ex);
+        if (rollbackDepth == Integer.MAX_VALUE && noRollbackDepth == Integer.MAX_VALUE) {
+            return ex instanceof RuntimeException || ex instanceof Error;
+        }
+        return rollbackDepth <= noRollbackDepth;
+    }
+
+    private static int minDepth(Class<?>[] rules, Throwable ex) {
+        int min = Integer.MAX_VALUE;
+        for (Class<?> rule : rules) {
+            int depth = 0;
+            for (Class<?> type = ex.getClass(); type != null; type = type.getSuperclass(), depth++) {
+                if (type == rule) {
+                    min = Math.min(min, depth);
+                    break;
+                }
+            }
+        }
+        return min;
+    }
+}
@@ -0,0 +1,21 @@
+package com.kama.minispring.tx.interceptor;
+
+import com.kama.minispring.tx.TransactionDefinition;
+
+/**
+ * 事务属性接口
+ * 在事务定义的基础上增加回滚规则
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public interface TransactionAttribute extends TransactionDefinition {
+
+    /**
+     * 判断给定异常是否需要回滚
+     *
+     * @param ex 方法抛出的异常
+     * @return 是否回滚
+     */
+    boolean rollbackOn(Throwable ex);
+}
@@ -0,0 +1,133 @@
+package com.kama.minispring.tx.interceptor;
+
+import com.kama.minispring.aop.MethodInterceptor;
+import com.kama.minispring.aop.MethodInvocation;
+import com.kama.minispring.aop.support.MethodClassKey;
+import com.kama.minispring.tx.PlatformTransactionManager;
+import com.kama.minispring.tx.TransactionStatus;
+import com.kama.minispring.tx.annotation.Transactional;
+import com.kama.minispring.util.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 声明式事务拦截器
+ * 处理@Transactional注解，通过ProxyFactory.addAdvice织入
+ * 每个(方法, 目标类)的事务属性只解析一次并缓存，方法上的注解优先于类上的注解
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class TransactionInterceptor implements MethodInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionInterceptor.class);
+
+    private static final TransactionAttribute NO_ATTRIBUTE = new RuleBasedTransactionAttribute();
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<MethodClassKey, TransactionAttribute> attributeCache = new ConcurrentHashMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param transactionManager 事务管理器
+     */
+    public TransactionInterceptor(PlatformTransactionManager transactionManager) {
+        Assert.notNull(transactionManager, "PlatformTransactionManager must not be null");
+        this.transactionManager = transactionManager;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        Object target = invocation.getThis();
+        Class<?> targetClass = target != null ? target.getClass() : method.getDeclaringClass();
+
+        TransactionAttribute attribute = getTransactionAttribute(method, targetClass);
+        if (attribute == null) {
+            return invocation.proceed();
+        }
+
+        TransactionStatus status = transactionManager.getTransaction(attribute);
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable ex) {
+            completeTransactionAfterThrowing(attribute, status, ex);
+            throw ex;
+        }
+        transactionManager.commit(status);
+        return result;
+    }
+
+    private void completeTransactionAfterThrowing(TransactionAttribute attribute, TransactionStatus status,
+            Throwable ex) {
+        if (attribute.rollbackOn(ex)) {
+            try {
+                transactionManager.rollback(status);
+            } catch (RuntimeException rollbackEx) {
+                logger.error("Application exception overridden by rollback exception", ex);
+                throw rollbackEx;
+            }
+        } else {
+            logger.debug("Committing transaction {} despite exception {}", attribute.getName(), ex.toString());
+            transactionManager.commit(status);
+        }
+    }
+
+    /**
+     * 获取方法的事务属性
+     *
+     * @param method 方法
+     * @param targetClass 目标类
+     * @return 事务属性，方法不需要事务时为null
+     */
+    public TransactionAttribute getTransactionAttribute(Method method, Class<?> targetClass) {
+        MethodClassKey cacheKey = new MethodClassKey(method, targetClass);
+        TransactionAttribute attribute = this.attributeCache.get(cacheKey);
+        if (attribute == null) {
+            attribute = computeTransactionAttribute(method, targetClass);
+            this.attributeCache.put(cacheKey, attribute != null ? attribute : NO_ATTRIBUTE);
+        }
+        return attribute != NO_ATTRIBUTE ? attribute : null;
+    }
+
+    private TransactionAttribute computeTransactionAttribute(Method method, Class<?> targetClass) {
+        Method specificMethod = method;
+        if (targetClass != null && targetClass != method.getDeclaringClass()) {
+            try {
+                specificMethod = targetClass.getMethod(method.getName(), method.getParameterTypes());
+            } catch (NoSuchMethodException ex) {
+                // 使用原始方法
+            }
+        }
+        Transactional transactional = specificMethod.getAnnotation(Transactional.class);
+        if (transactional == null && specificMethod != method) {
+            transactional = method.getAnnotation(Transactional.class);
+        }
+        if (transactional == null && targetClass != null) {
+            transactional = targetClass.getAnnotation(Transactional.class);
+        }
+        if (transactional == null) {
+            transactional = method.getDeclaringClass().getAnnotation(Transactional.class);
+        }
+        if (transactional == null) {
+            return null;
+        }
+        RuleBasedTransactionAttribute attribute = new RuleBasedTransactionAttribute();
+        attribute.setPropagationBehavior(transactional.propagation());
+        attribute.setIsolationLevel(transactional.isolation());
+        attribute.setTimeout(transactional.timeout());
+        attribute.setReadOnly(transactional.readOnly());
+        attribute.setRollbackFor(transactional.rollbackFor());
+        attribute.setNoRollbackFor(transactional.noRollbackFor());
+        attribute.setName((targetClass != null ? targetClass : method.getDeclaringClass()).getName()
+                + "." + method.getName());
+        return attribute;
+    }
+}
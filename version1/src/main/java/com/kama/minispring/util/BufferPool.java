@@ -0,0 +1,102 @@
+package com.kama.minispring.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 定长字节数组池
+ * 空闲缓冲保存在AtomicReferenceArray的槽位中, 借出和归还都只做CAS, 不加锁;
+ * 池空时临时分配新缓冲, 池满时归还的缓冲直接丢弃交给GC
+ * 借出的缓冲内容不会被清零, 使用方只能读取自己写入的部分
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class BufferPool {
+
+    /** 默认缓冲大小 */
+    public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    /** 默认最多缓存的空闲缓冲数 */
+    public static final int DEFAULT_MAX_POOLED = 256;
+
+    private static final BufferPool SHARED = new BufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED);
+
+    private final int bufferSize;
+
+    private final AtomicReferenceArray<byte[]> slots;
+
+    private final AtomicLong allocations = new AtomicLong();
+
+    /**
+     * 构造函数
+     *
+     * @param bufferSize 每个缓冲的大小
+     * @param maxPooled 最多缓存的空闲缓冲数
+     */
+    public BufferPool(int bufferSize, int maxPooled) {
+        Assert.isTrue(bufferSize > 0, "Buffer size must be positive");
+        Assert.isTrue(maxPooled > 0, "Max pooled buffers must be positive");
+        this.bufferSize = bufferSize;
+        this.slots = new AtomicReferenceArray<>(maxPooled);
+    }
+
+    /**
+     * 获取进程内共享的默认缓冲池
+     */
+    public static BufferPool getSharedInstance() {
+        return SHARED;
+    }
+
+    public int getBufferSize() {
+        return this.bufferSize;
+    }
+
+    /**
+     * 借出一个缓冲
+     *
+     * @return 长度为bufferSize的字节数组
+     */
+    public byte[] acquire() {
+        int length = this.slots.length();
+        int start = ThreadLocalRandom.current().nextInt(length);
+        for (int i = 0; i < length; i++) {
+            int index = start + i < length ? start + i : start + i - length;
+            if (this.slots.get(index) != null) {
+                byte[] buffer = this.slots.getAndSet(index, null);
+                if (buffer != null) {
+                    return buffer;
+                }
+            }
+        }
+        this.allocations.incrementAndGet();
+        return new byte[this.bufferSize];
+    }
+
+    /**
+     * 归还缓冲, 长度不符的数组会被忽略
+     *
+     * @param buffer 通过acquire借出的缓冲
+     */
+    public void release(byte[] buffer) {
+        if (buffer == null || buffer.length != this.bufferSize) {
+            return;
+        }
+        int length = this.slots.length();
+        int start = ThreadLocalRandom.current().nextInt(length);
+        for (int i = 0; i < length; i++) {
+            int index = start + i < length ? start + i : start + i - length;
+            if (this.slots.get(index) == null && this.slots.compareAndSet(index, null, buffer)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 获取池中没有空闲缓冲时新分配的次数
+     */
+    public long getAllocationCount() {
+        return this.allocations.get();
+    }
+}
@@ -0,0 +1,86 @@
+package com.kama.minispring.web.multipart;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已解析的多部分请求, 表单字段与原请求的参数(如查询字符串)合并
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class DefaultMultipartHttpServletRequest extends HttpServletRequestWrapper
+        implements MultipartHttpServletRequest {
+
+    private final Map<String, List<MultipartFile>> files;
+
+    private final Map<String, List<String>> multipartParameters;
+
+    private Map<String, String[]> parameters;
+
+    DefaultMultipartHttpServletRequest(HttpServletRequest request, Map<String, List<MultipartFile>> files,
+            Map<String, List<String>> multipartParameters) {
+        super(request);
+        this.files = Collections.unmodifiableMap(files);
+        this.multipartParameters = multipartParameters;
+    }
+
+    @Override
+    public MultipartFile getFile(String name) {
+        List<MultipartFile> list = this.files.get(name);
+        return list != null && !list.isEmpty() ? list.get(0) : null;
+    }
+
+    @Override
+    public List<MultipartFile> getFiles(String name) {
+        List<MultipartFile> list = this.files.get(name);
+        return list != null ? Collections.unmodifiableList(list) : Collections.emptyList();
+    }
+
+    @Override
+    public Map<String, List<MultipartFile>> getMultiFileMap() {
+        return this.files;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = getParameterMap().get(name);
+        return values != null && values.length > 0 ? values[0] : null;
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return getParameterMap().get(name);
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(getParameterMap().keySet());
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        if (this.parameters == null) {
+            Map<String, String[]> result = new LinkedHashMap<>(super.getParameterMap());
+            this.multipartParameters.forEach((name, values) -> {
+                String[] existing = result.get(name);
+                int offset = existing != null ? existing.length : 0;
+                String[] merged = new String[offset + values.size()];
+                if (existing != null) {
+                    System.arraycopy(existing, 0, merged, 0, offset);
+                }
+                for (int i = 0; i < values.size(); i++) {
+                    merged[offset + i] = values.get(i);
+                }
+                result.put(name, merged);
+            });
+            this.parameters = Collections.unmodifiableMap(result);
+        }
+        return this.parameters;
+    }
+}
@@ -0,0 +1,24 @@
+package com.kama.minispring.web.multipart;
+
+/**
+ * 上传大小超过限制时抛出, DispatcherServlet以413响应
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class MaxUploadSizeExceededException extends MultipartException {
+
+    private final long maxUploadSize;
+
+    public MaxUploadSizeExceededException(String message, long maxUploadSize) {
+        super(message + " (limit " + maxUploadSize + " bytes)");
+        this.maxUploadSize = maxUploadSize;
+    }
+
+    /**
+     * 获取超出的上限字节数
+     */
+    public long getMaxUploadSize() {
+        return this.maxUploadSize;
+    }
+}
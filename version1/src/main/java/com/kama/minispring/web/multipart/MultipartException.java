@@ -0,0 +1,19 @@
+package com.kama.minispring.web.multipart;
+
+/**
+ * 多部分请求解析异常
+ * 请求体格式错误或读取失败时抛出, DispatcherServlet以400响应
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class MultipartException extends RuntimeException {
+
+    public MultipartException(String message) {
+        super(message);
+    }
+
+    public MultipartException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,63 @@
+package com.kama.minispring.web.multipart;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * 多部分请求中上传的文件
+ * 内容保存在内存缓冲或临时文件中, 只在当前请求内有效, 请求结束后由MultipartResolver清理
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public interface MultipartFile {
+
+    /**
+     * 获取表单字段名
+     */
+    String getName();
+
+    /**
+     * 获取客户端提供的原始文件名, 可能为空字符串
+     */
+    String getOriginalFilename();
+
+    /**
+     * 获取客户端声明的内容类型, 未声明时为null
+     */
+    String getContentType();
+
+    /**
+     * 是否没有内容
+     */
+    boolean isEmpty();
+
+    /**
+     * 获取文件大小(字节)
+     */
+    long getSize();
+
+    /**
+     * 以字节数组返回全部内容, 大文件应使用getInputStream或transferTo
+     *
+     * @throws IOException 读取失败
+     */
+    byte[] getBytes() throws IOException;
+
+    /**
+     * 打开读取内容的输入流
+     *
+     * @throws IOException 读取失败
+     */
+    InputStream getInputStream() throws IOException;
+
+    /**
+     * 将内容保存到目标路径, 已存在的文件会被覆盖
+     * 落盘的内容直接移动临时文件, 不能移动时在通道间复制; 调用后不能再读取内容
+     *
+     * @param dest 目标路径
+     * @throws IOException 写入失败
+     */
+    void transferTo(Path dest) throws IOException;
+}
@@ -0,0 +1,36 @@
+package com.kama.minispring.web.multipart;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已解析的多部分请求
+ * 普通表单字段通过getParameter系列方法访问, 文件通过getFile系列方法访问
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public interface MultipartHttpServletRequest extends HttpServletRequest {
+
+    /**
+     * 获取指定字段的第一个文件
+     *
+     * @param name 字段名
+     * @return 文件, 不存在时为null
+     */
+    MultipartFile getFile(String name);
+
+    /**
+     * 获取指定字段的全部文件
+     *
+     * @param name 字段名
+     * @return 文件列表, 不存在时为空列表
+     */
+    List<MultipartFile> getFiles(String name);
+
+    /**
+     * 获取全部文件, 按字段名分组, 保持请求中的顺序
+     */
+    Map<String, List<MultipartFile>> getMultiFileMap();
+}
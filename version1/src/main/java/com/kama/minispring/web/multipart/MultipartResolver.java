@@ -0,0 +1,37 @@
+package com.kama.minispring.web.multipart;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 多部分请求解析器
+ * DispatcherServlet在查找处理器之前解析多部分请求, 在请求完成后调用cleanupMultipart释放资源
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public interface MultipartResolver {
+
+    /**
+     * 判断请求是否为多部分请求
+     *
+     * @param request 当前请求
+     * @return 是否需要解析
+     */
+    boolean isMultipart(HttpServletRequest request);
+
+    /**
+     * 解析多部分请求
+     *
+     * @param request 当前请求
+     * @return 包装后的请求
+     * @throws MultipartException 解析失败或超过大小限制
+     */
+    MultipartHttpServletRequest resolveMultipart(HttpServletRequest request) throws MultipartException;
+
+    /**
+     * 释放解析时占用的缓冲和临时文件
+     *
+     * @param request resolveMultipart返回的请求
+     */
+    void cleanupMultipart(MultipartHttpServletRequest request);
+}
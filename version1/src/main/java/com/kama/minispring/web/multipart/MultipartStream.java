@@ -0,0 +1,194 @@
+package com.kama.minispring.web.multipart;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 增量读取multipart/form-data请求体
+ * 只使用一个定长读缓冲: 用Horspool算法在缓冲中查找分隔符, 分隔符之前的数据直接交给接收方,
+ * 缓冲末尾只保留可能是分隔符前缀的字节, 因此任意大小的part都不会整体读入内存
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class MultipartStream {
+
+    /**
+     * part数据的接收方
+     */
+    interface Sink {
+
+        void write(byte[] source, int offset, int length) throws IOException;
+    }
+
+    private final InputStream input;
+
+    private final byte[] buffer;
+
+    /** CRLF--boundary */
+    private final byte[] delimiter;
+
+    /** Horspool坏字符跳转表 */
+    private final int[] skip = new int[256];
+
+    private int head;
+
+    private int tail;
+
+    private boolean eof;
+
+    /**
+     * 构造函数
+     *
+     * @param input 请求体
+     * @param boundary Content-Type中的boundary
+     * @param buffer 读缓冲, 长度至少为分隔符长度的两倍
+     */
+    MultipartStream(InputStream input, String boundary, byte[] buffer) {
+        byte[] boundaryBytes = boundary.getBytes(StandardCharsets.ISO_8859_1);
+        this.delimiter = new byte[boundaryBytes.length + 4];
+        this.delimiter[0] = '\r';
+        this.delimiter[1] = '\n';
+        this.delimiter[2] = '-';
+        this.delimiter[3] = '-';
+        System.arraycopy(boundaryBytes, 0, this.delimiter, 4, boundaryBytes.length);
+        if (buffer.length < this.delimiter.length * 2) {
+            throw new IllegalArgumentException("Buffer of " + buffer.length + " bytes is too small for boundary");
+        }
+        this.input = input;
+        this.buffer = buffer;
+        int length = this.delimiter.length;
+        Arrays.fill(this.skip, length);
+        for (int i = 0; i < length - 1; i++) {
+            this.skip[this.delimiter[i] & 0xff] = length - 1 - i;
+        }
+        // 第一个分隔符前没有CRLF, 在缓冲开头补上, 使所有分隔符的形式一致
+        this.buffer[0] = '\r';
+        this.buffer[1] = '\n';
+        this.tail = 2;
+    }
+
+    /**
+     * 跳过第一个分隔符之前的内容
+     *
+     * @return 之后是否还有part
+     */
+    boolean skipPreamble() throws IOException {
+        return readBodyData(null);
+    }
+
+    /**
+     * 读取part的头部, 头部必须能放进读缓冲
+     *
+     * @return 头部文本, 不含结尾的空行
+     */
+    String readHeaders() throws IOException {
+        while (true) {
+            if (this.tail - this.head >= 2 && this.buffer[this.head] == '\r' && this.buffer[this.head + 1] == '\n') {
+                this.head += 2;
+                return "";
+            }
+            for (int i = this.head; i + 3 < this.tail; i++) {
+                if (this.buffer[i] == '\r' && this.buffer[i + 1] == '\n'
+                        && this.buffer[i + 2] == '\r' && this.buffer[i + 3] == '\n') {
+                    String headers = new String(this.buffer, this.head, i - this.head, StandardCharsets.UTF_8);
+                    this.head = i + 4;
+                    return headers;
+                }
+            }
+            if (this.eof) {
+                throw new MultipartException("Stream ended unexpectedly inside part headers");
+            }
+            if (this.head == 0 && this.tail == this.buffer.length) {
+                throw new MultipartException("Part headers exceed " + this.buffer.length + " bytes");
+            }
+            fill();
+        }
+    }
+
+    /**
+     * 读取part的数据直到下一个分隔符, 并消费分隔符
+     *
+     * @param sink 接收方, 为null时丢弃数据
+     * @return 之后是否还有part, 遇到结束分隔符时返回false
+     */
+    boolean readBodyData(Sink sink) throws IOException {
+        int length = this.delimiter.length;
+        while (true) {
+            int index = indexOfDelimiter();
+            if (index >= 0) {
+                emit(sink, index - this.head);
+                this.head = index + length;
+                while (this.tail - this.head < 2 && !this.eof) {
+                    fill();
+                }
+                if (this.tail - this.head < 2) {
+                    throw new MultipartException("Stream ended unexpectedly after boundary");
+                }
+                byte first = this.buffer[this.head];
+                byte second = this.buffer[this.head + 1];
+                this.head += 2;
+                if (first == '-' && second == '-') {
+                    return false;
+                }
+                if (first == '\r' && second == '\n') {
+                    return true;
+                }
+                throw new MultipartException("Malformed multipart boundary");
+            }
+            // 末尾不足一个分隔符的字节可能是分隔符的开头, 留到下次查找
+            int safe = this.tail - this.head - (length - 1);
+            if (safe > 0) {
+                emit(sink, safe);
+            }
+            if (this.eof) {
+                throw new MultipartException("Stream ended unexpectedly before closing boundary");
+            }
+            fill();
+        }
+    }
+
+    private void emit(Sink sink, int count) throws IOException {
+        if (sink != null && count > 0) {
+            sink.write(this.buffer, this.head, count);
+        }
+        this.head += count;
+    }
+
+    private int indexOfDelimiter() {
+        byte[] pattern = this.delimiter;
+        int length = pattern.length;
+        int last = this.tail - length;
+        int i = this.head;
+        while (i <= last) {
+            int j = length - 1;
+            while (this.buffer[i + j] == pattern[j]) {
+                if (j == 0) {
+                    return i;
+                }
+                j--;
+            }
+            i += this.skip[this.buffer[i + length - 1] & 0xff];
+        }
+        return -1;
+    }
+
+    /**
+     * 把未消费的数据移到缓冲开头, 再读入一批数据
+     */
+    private void fill() throws IOException {
+        if (this.head > 0) {
+            System.arraycopy(this.buffer, this.head, this.buffer, 0, this.tail - this.head);
+            this.tail -= this.head;
+            this.head = 0;
+        }
+        int read = this.input.read(this.buffer, this.tail, this.buffer.length - this.tail);
+        if (read < 0) {
+            this.eof = true;
+        } else {
+            this.tail += read;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.kama.minispring.web.multipart;
+
+import com.kama.minispring.util.BufferPool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单个part的内容
+ * 不超过阈值时保存在从BufferPool借出的定长块中, 超过阈值后把已有的块一次聚集写入临时文件,
+ * 之后的数据直接经FileChannel写入文件, 内存占用与part大小无关
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class PartBuffer {
+
+    private final BufferPool bufferPool;
+
+    private final long fileSizeThreshold;
+
+    private final long maxSize;
+
+    private final Path tempDir;
+
+    private final List<byte[]> chunks = new ArrayList<>();
+
+    /** 最后一个块已使用的字节数 */
+    private int lastChunkUsed;
+
+    private long size;
+
+    private Path file;
+
+    private FileChannel channel;
+
+    /**
+     * 构造函数
+     *
+     * @param bufferPool 内存块所在的缓冲池
+     * @param fileSizeThreshold 超过该大小后写入临时文件
+     * @param maxSize 最大字节数, 小于0表示不限制
+     * @param tempDir 临时文件目录, 为null时使用系统临时目录
+     */
+    PartBuffer(BufferPool bufferPool, long fileSizeThreshold, long maxSize, Path tempDir) {
+        this.bufferPool = bufferPool;
+        this.fileSizeThreshold = fileSizeThreshold;
+        this.maxSize = maxSize;
+        this.tempDir = tempDir;
+    }
+
+    void write(byte[] source, int offset, int length) throws IOException {
+        if (length == 0) {
+            return;
+        }
+        if (this.maxSize >= 0 && this.size + length > this.maxSize) {
+            throw new MaxUploadSizeExceededException("Part exceeds maximum size", this.maxSize);
+        }
+        if (this.channel == null && this.size + length > this.fileSizeThreshold) {
+            spill();
+        }
+        if (this.channel != null) {
+            ByteBuffer buffer = ByteBuffer.wrap(source, offset, length);
+            while (buffer.hasRemaining()) {
+                this.channel.write(buffer);
+            }
+        } else {
+            copyToChunks(source, offset, length);
+        }
+        this.size += length;
+    }
+
+    private void copyToChunks(byte[] source, int offset, int length) {
+        int chunkSize = this.bufferPool.getBufferSize();
+        while (length > 0) {
+            if (this.chunks.isEmpty() || this.lastChunkUsed == chunkSize) {
+                this.chunks.add(this.bufferPool.acquire());
+                this.lastChunkUsed = 0;
+            }
+            int count = Math.min(length, chunkSize - this.lastChunkUsed);
+            System.arraycopy(source, offset, this.chunks.get(this.chunks.size() - 1), this.lastChunkUsed, count);
+            this.lastChunkUsed += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private void spill() throws IOException {
+        this.file = this.tempDir != null ? Files.createTempFile(this.tempDir, "upload_", ".tmp")
+                : Files.createTempFile("upload_", ".tmp");
+        this.channel = FileChannel.open(this.file, StandardOpenOption.WRITE);
+        writeChunks(this.channel);
+        releaseChunks();
+    }
+
+    private void writeChunks(FileChannel target) throws IOException {
+        ByteBuffer[] buffers = chunkBuffers();
+        long remaining = this.size;
+        while (remaining > 0) {
+            remaining -= target.write(buffers);
+        }
+    }
+
+    private ByteBuffer[] chunkBuffers() {
+        ByteBuffer[] buffers = new ByteBuffer[this.chunks.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            int length = i == buffers.length - 1 ? this.lastChunkUsed : this.chunks.get(i).length;
+            buffers[i] = ByteBuffer.wrap(this.chunks.get(i), 0, length);
+        }
+        return buffers;
+    }
+
+    /**
+     * 写入结束, 关闭临时文件的写通道
+     */
+    void finish() throws IOException {
+        if (this.channel != null) {
+            this.channel.close();
+            this.channel = null;
+        }
+    }
+
+    long getSize() {
+        return this.size;
+    }
+
+    boolean isInMemory() {
+        return this.file == null;
+    }
+
+    InputStream getInputStream() throws IOException {
+        if (this.file != null) {
+            return Files.newInputStream(this.file);
+        }
+        return new ChunkInputStream(this.chunks, this.lastChunkUsed);
+    }
+
+    byte[] toByteArray() throws IOException {
+        if (this.size > Integer.MAX_VALUE - 8) {
+            throw new IOException("Part of " + this.size + " bytes is too large for a byte array");
+        }
+        if (this.file != null) {
+            return Files.readAllBytes(this.file);
+        }
+        byte[] bytes = new byte[(int) this.size];
+        int position = 0;
+        for (ByteBuffer buffer : chunkBuffers()) {
+            int length = buffer.remaining();
+            buffer.get(bytes, position, length);
+            position += length;
+        }
+        return bytes;
+    }
+
+    String toString(Charset charset) throws IOException {
+        return new String(toByteArray(), charset);
+    }
+
+    /**
+     * 将内容保存到目标路径
+     * 临时文件优先直接移动; 跨文件系统等不能移动时用FileChannel.transferTo复制, 由内核完成数据搬运.
+     * 内存中的块通过一次聚集写写出
+     */
+    void transferTo(Path dest) throws IOException {
+        if (this.file != null) {
+            try {
+                Files.move(this.file, dest, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException moveEx) {
+                try (FileChannel in = FileChannel.open(this.file, StandardOpenOption.READ);
+                     FileChannel out = FileChannel.open(dest, StandardOpenOption.CREATE,
+                             StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    long position = 0;
+                    while (position < this.size) {
+                        position += in.transferTo(position, this.size - position, out);
+                    }
+                }
+                Files.deleteIfExists(this.file);
+            }
+            this.file = null;
+            return;
+        }
+        try (FileChannel out = FileChannel.open(dest, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeChunks(out);
+        }
+    }
+
+    /**
+     * 归还内存块并删除临时文件, 可重复调用
+     */
+    void release() {
+        releaseChunks();
+        try {
+            finish();
+        } catch (IOException ex) {
+            // 只剩删除文件要做, 关闭失败不影响
+        }
+        if (this.file != null) {
+            try {
+                Files.deleteIfExists(this.file);
+            } catch (IOException ex) {
+                this.file.toFile().deleteOnExit();
+            }
+            this.file = null;
+        }
+    }
+
+    private void releaseChunks() {
+        for (byte[] chunk : this.chunks) {
+            this.bufferPool.release(chunk);
+        }
+        this.chunks.clear();
+        this.lastChunkUsed = 0;
+    }
+
+    /**
+     * 顺序读取内存块的输入流
+     */
+    private static final class ChunkInputStream extends InputStream {
+
+        private final List<byte[]> chunks;
+
+        private final int lastChunkUsed;
+
+        private int chunkIndex;
+
+        private int position;
+
+        private ChunkInputStream(List<byte[]> chunks, int lastChunkUsed) {
+            this.chunks = chunks;
+            this.lastChunkUsed = lastChunkUsed;
+        }
+
+        private int limit() {
+            return this.chunkIndex == this.chunks.size() - 1
+                    ? this.lastChunkUsed : this.chunks.get(this.chunkIndex).length;
+        }
+
+        private boolean advance() {
+            while (this.chunkIndex < this.chunks.size() && this.position >= limit()) {
+                this.chunkIndex++;
+                this.position = 0;
+            }
+            return this.chunkIndex < this.chunks.size();
+        }
+
+        @Override
+        public int read() {
+            if (!advance()) {
+                return -1;
+            }
+            return this.chunks.get(this.chunkIndex)[this.position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!advance()) {
+                return -1;
+            }
+            int count = Math.min(length, limit() - this.position);
+            System.arraycopy(this.chunks.get(this.chunkIndex), this.position, target, offset, count);
+            this.position += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.kama.minispring.web.multipart;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * 由StreamingMultipartResolver创建的上传文件, 内容保存在PartBuffer中
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class StreamedMultipartFile implements MultipartFile {
+
+    private final String name;
+
+    private final String originalFilename;
+
+    private final String contentType;
+
+    private final PartBuffer content;
+
+    private final long size;
+
+    private volatile boolean transferred;
+
+    StreamedMultipartFile(String name, String originalFilename, String contentType, PartBuffer content) {
+        this.name = name;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+        this.content = content;
+        this.size = content.getSize();
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return this.originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return this.contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return this.size;
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        assertAvailable();
+        return this.content.toByteArray();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        assertAvailable();
+        return this.content.getInputStream();
+    }
+
+    @Override
+    public synchronized void transferTo(Path dest) throws IOException {
+        assertAvailable();
+        this.transferred = true;
+        this.content.transferTo(dest);
+    }
+
+    /**
+     * 内容是否仍在内存中
+     */
+    boolean isInMemory() {
+        return this.content.isInMemory();
+    }
+
+    void release() {
+        this.content.release();
+    }
+
+    private void assertAvailable() {
+        if (this.transferred) {
+            throw new IllegalStateException("File [" + this.originalFilename + "] has already been moved");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MultipartFile{name=" + this.name + ", filename=" + this.originalFilename + ", size=" + this.size + "}";
+    }
+}
@@ -0,0 +1,358 @@
+package com.kama.minispring.web.multipart;
+
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.util.BufferPool;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 流式解析multipart/form-data的解析器
+ * 请求体经一个池化的读缓冲增量解析: 小于fileSizeThreshold的part保存在池化的内存块中,
+ * 更大的part通过FileChannel写入临时文件, 因此内存占用与上传大小无关.
+ * 单个part超过maxFileSize或整个请求体超过maxRequestSize时抛出MaxUploadSizeExceededException,
+ * 读到超限的字节时立即停止, 不会先读完请求体
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class StreamingMultipartResolver implements MultipartResolver {
+
+    private static final String MULTIPART_PREFIX = "multipart/";
+
+    private long maxFileSize = 1024 * 1024;
+
+    private long maxRequestSize = 10 * 1024 * 1024;
+
+    private long fileSizeThreshold = 16 * 1024;
+
+    private int maxParts = 1000;
+
+    private Path tempDir;
+
+    private BufferPool bufferPool = BufferPool.getSharedInstance();
+
+    @Override
+    public boolean isMultipart(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && contentType.regionMatches(true, 0, MULTIPART_PREFIX, 0,
+                MULTIPART_PREFIX.length());
+    }
+
+    @Override
+    public MultipartHttpServletRequest resolveMultipart(HttpServletRequest request) throws MultipartException {
+        String boundary = extractBoundary(request.getContentType());
+        if (boundary == null) {
+            throw new MultipartException("Multipart request has no boundary");
+        }
+        long contentLength = request.getContentLengthLong();
+        if (this.maxRequestSize >= 0 && contentLength > this.maxRequestSize) {
+            throw new MaxUploadSizeExceededException("Request of " + contentLength + " bytes exceeds maximum size",
+                    this.maxRequestSize);
+        }
+        Charset charset = requestCharset(request);
+        Map<String, List<MultipartFile>> files = new LinkedHashMap<>();
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        byte[] buffer = this.bufferPool.acquire();
+        try {
+            InputStream input = request.getInputStream();
+            if (this.maxRequestSize >= 0) {
+                input = new LimitedInputStream(input, this.maxRequestSize);
+            }
+            MultipartStream stream = new MultipartStream(input, boundary, buffer);
+            boolean hasNext = stream.skipPreamble();
+            int parts = 0;
+            while (hasNext) {
+                if (++parts > this.maxParts) {
+                    throw new MultipartException("Multipart request exceeds " + this.maxParts + " parts");
+                }
+                PartHeaders headers = PartHeaders.parse(stream.readHeaders());
+                if (headers.name == null) {
+                    hasNext = stream.readBodyData(null);
+                    continue;
+                }
+                PartBuffer content = new PartBuffer(this.bufferPool, this.fileSizeThreshold, this.maxFileSize,
+                        this.tempDir);
+                try {
+                    hasNext = stream.readBodyData(content::write);
+                    content.finish();
+                } catch (IOException | RuntimeException ex) {
+                    content.release();
+                    throw ex;
+                }
+                if (headers.filename != null) {
+                    files.computeIfAbsent(headers.name, key -> new ArrayList<>()).add(
+                            new StreamedMultipartFile(headers.name, headers.filename, headers.contentType, content));
+                } else {
+                    try {
+                        parameters.computeIfAbsent(headers.name, key -> new ArrayList<>())
+                                .add(content.toString(headers.charset(charset)));
+                    } finally {
+                        content.release();
+                    }
+                }
+            }
+        } catch (MultipartException ex) {
+            releaseFiles(files);
+            throw ex;
+        } catch (IOException | RuntimeException ex) {
+            releaseFiles(files);
+            throw new MultipartException("Failed to parse multipart request", ex);
+        } finally {
+            this.bufferPool.release(buffer);
+        }
+        return new DefaultMultipartHttpServletRequest(request, files, parameters);
+    }
+
+    @Override
+    public void cleanupMultipart(MultipartHttpServletRequest request) {
+        releaseFiles(request.getMultiFileMap());
+    }
+
+    private static void releaseFiles(Map<String, List<MultipartFile>> files) {
+        for (List<MultipartFile> list : files.values()) {
+            for (MultipartFile file : list) {
+                if (file instanceof StreamedMultipartFile) {
+                    ((StreamedMultipartFile) file).release();
+                }
+            }
+        }
+    }
+
+    private static Charset requestCharset(HttpServletRequest request) {
+        String encoding = request.getCharacterEncoding();
+        if (encoding != null) {
+            try {
+                return Charset.forName(encoding);
+            } catch (IllegalArgumentException ex) {
+                // 无法识别的编码按UTF-8处理
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    static String extractBoundary(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String boundary = parameterValue(contentType, "boundary");
+        return boundary != null && !boundary.isEmpty() && boundary.length() <= 70 ? boundary : null;
+    }
+
+    /**
+     * 读取形如 type; key="value"; key2=value2 的头部中的参数, 引号内的分号不作为分隔符
+     */
+    static String parameterValue(String header, String name) {
+        int length = header.length();
+        int i = header.indexOf(';');
+        while (i >= 0 && i < length) {
+            i++;
+            while (i < length && header.charAt(i) == ' ') {
+                i++;
+            }
+            int eq = header.indexOf('=', i);
+            int semicolon = header.indexOf(';', i);
+            if (eq < 0 || (semicolon >= 0 && semicolon < eq)) {
+                i = semicolon;
+                continue;
+            }
+            String key = header.substring(i, eq).trim();
+            int valueStart = eq + 1;
+            String value;
+            if (valueStart < length && header.charAt(valueStart) == '"') {
+                StringBuilder builder = new StringBuilder();
+                int j = valueStart + 1;
+                while (j < length && header.charAt(j) != '"') {
+                    char c = header.charAt(j);
+                    if (c == '\\' && j + 1 < length) {
+                        c = header.charAt(++j);
+                    }
+                    builder.append(c);
+                    j++;
+                }
+                value = builder.toString();
+                i = header.indexOf(';', j);
+            } else {
+                int end = header.indexOf(';', valueStart);
+                value = header.substring(valueStart, end >= 0 ? end : length).trim();
+                i = end;
+            }
+            if (key.equalsIgnoreCase(name)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 设置单个part的最大字节数, 小于0表示不限制, 默认1MB
+     */
+    public void setMaxFileSize(long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+    }
+
+    /**
+     * 设置整个请求体的最大字节数, 小于0表示不限制, 默认10MB
+     */
+    public void setMaxRequestSize(long maxRequestSize) {
+        this.maxRequestSize = maxRequestSize;
+    }
+
+    /**
+     * 设置part保存在内存中的上限, 超过后写入临时文件, 默认16KB
+     */
+    public void setFileSizeThreshold(long fileSizeThreshold) {
+        Assert.isTrue(fileSizeThreshold >= 0, "File size threshold must not be negative");
+        this.fileSizeThreshold = fileSizeThreshold;
+    }
+
+    /**
+     * 设置一个请求最多包含的part数量, 默认1000
+     */
+    public void setMaxParts(int maxParts) {
+        Assert.isTrue(maxParts > 0, "Max parts must be positive");
+        this.maxParts = maxParts;
+    }
+
+    /**
+     * 设置临时文件目录, 默认使用系统临时目录
+     */
+    public void setTempDir(Path tempDir) {
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * 设置读缓冲和内存块所在的缓冲池, 缓冲不小于1KB
+     */
+    public void setBufferPool(BufferPool bufferPool) {
+        Assert.notNull(bufferPool, "BufferPool must not be null");
+        Assert.isTrue(bufferPool.getBufferSize() >= 1024, "Buffer size must be at least 1024 bytes");
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * part的头部信息
+     */
+    private static final class PartHeaders {
+
+        private String name;
+
+        private String filename;
+
+        private String contentType;
+
+        static PartHeaders parse(String text) {
+            PartHeaders headers = new PartHeaders();
+            for (String line : text.split("\r\n")) {
+                int colon = line.indexOf(':');
+                if (colon <= 0) {
+                    continue;
+                }
+                String headerName = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = line.substring(colon + 1).trim();
+                if ("content-disposition".equals(headerName)) {
+                    if (!value.regionMatches(true, 0, "form-data", 0, 9)) {
+                        continue;
+                    }
+                    headers.name = parameterValue(value, "name");
+                    String extended = parameterValue(value, "filename*");
+                    headers.filename = extended != null ? decodeExtended(extended)
+                            : parameterValue(value, "filename");
+                    if (headers.filename != null) {
+                        headers.filename = stripPath(headers.filename);
+                    }
+                } else if ("content-type".equals(headerName)) {
+                    headers.contentType = value;
+                }
+            }
+            return headers;
+        }
+
+        Charset charset(Charset defaultCharset) {
+            String charset = this.contentType != null ? parameterValue(this.contentType, "charset") : null;
+            if (charset != null) {
+                try {
+                    return Charset.forName(charset);
+                } catch (IllegalArgumentException ex) {
+                    // 使用请求的编码
+                }
+            }
+            return defaultCharset;
+        }
+
+        /**
+         * 解码RFC 5987形式的文件名, 如UTF-8''%E6%96%87.txt
+         */
+        private static String decodeExtended(String value) {
+            int quote = value.indexOf("''");
+            if (quote < 0) {
+                return value;
+            }
+            try {
+                Charset charset = Charset.forName(value.substring(0, quote));
+                return URLDecoder.decode(value.substring(quote + 2).replace("+", "%2B"), charset);
+            } catch (IllegalArgumentException ex) {
+                return value.substring(quote + 2);
+            }
+        }
+
+        /**
+         * 部分浏览器会发送客户端的完整路径, 只保留文件名
+         */
+        private static String stripPath(String filename) {
+            int separator = Math.max(filename.lastIndexOf('/'), filename.lastIndexOf('\\'));
+            return separator >= 0 ? filename.substring(separator + 1) : filename;
+        }
+    }
+
+    /**
+     * 读取超过上限时抛出MaxUploadSizeExceededException的输入流
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private final long limit;
+
+        private long count;
+
+        private LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int read) {
+            this.count += read;
+            if (this.count > this.limit) {
+                throw new MaxUploadSizeExceededException("Request exceeds maximum size", this.limit);
+            }
+        }
+    }
+}
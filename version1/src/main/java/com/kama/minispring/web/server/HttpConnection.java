@@ -0,0 +1,442 @@
+package com.kama.minispring.web.server;
+
+import com.kama.minispring.util.BufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个客户端连接
+ * 读取、解析和发送都在所属选择器线程上进行; 其他线程通过write和endExchange把数据和结束信号交给选择器线程。
+ * 同一时刻只处理一个请求, 处理期间到达的流水线请求留在读缓冲中, 响应发送完后按顺序继续处理
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class HttpConnection {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpConnection.class);
+
+    private static final byte[] CONTINUE_RESPONSE =
+            "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    /** 待发送字节超过该值时处理线程等待, 选择器线程上执行的处理器不等待 */
+    private static final long HIGH_WATER_MARK = 256 * 1024;
+
+    private final NioHttpServer server;
+
+    private final NioHttpServer.SelectorLoop loop;
+
+    private final SocketChannel channel;
+
+    private final ByteBuffer readBuffer;
+
+    private final HttpRequestParser parser;
+
+    private final Queue<Outbound> writeQueue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    private final ByteBuffer[] gather = new ByteBuffer[16];
+
+    private SelectionKey key;
+
+    private HttpExchange exchange;
+
+    private boolean exchangeEnded;
+
+    private boolean closeAfterWrite;
+
+    private boolean inputShutdown;
+
+    private boolean continueSent;
+
+    private volatile boolean closed;
+
+    private long lastActivity = System.currentTimeMillis();
+
+    HttpConnection(NioHttpServer server, NioHttpServer.SelectorLoop loop, SocketChannel channel) {
+        this.server = server;
+        this.loop = loop;
+        this.channel = channel;
+        this.readBuffer = ByteBuffer.allocate(server.getMaxHeaderSize() + 4096);
+        this.parser = new HttpRequestParser(server.getMaxHeaderSize(), server.getMaxRequestSize());
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    SocketChannel getChannel() {
+        return this.channel;
+    }
+
+    boolean isClosed() {
+        return this.closed;
+    }
+
+    boolean isAcceptingRequests() {
+        return this.server.isRunning() && !this.inputShutdown;
+    }
+
+    /**
+     * 空闲超过keepAliveTimeout且没有进行中的请求时返回true
+     */
+    boolean isIdleSince(long deadline) {
+        return this.exchange == null && this.writeQueue.isEmpty() && this.lastActivity < deadline;
+    }
+
+    // ---------------------------------------------------------------- 选择器线程
+
+    void onReadable() throws IOException {
+        int read = this.channel.read(this.readBuffer);
+        if (read < 0) {
+            this.inputShutdown = true;
+            if (this.exchange == null) {
+                close();
+            } else {
+                // 请求仍在处理, 响应发送后关闭; 异步请求通知监听器以便取消
+                this.closeAfterWrite = true;
+                this.key.interestOps(this.key.interestOps() & ~SelectionKey.OP_READ);
+                this.exchange.connectionClosed();
+            }
+            return;
+        }
+        this.lastActivity = System.currentTimeMillis();
+        processInput();
+    }
+
+    /**
+     * 没有进行中的请求时从读缓冲解析下一个请求
+     */
+    private void processInput() {
+        if (this.closed) {
+            return;
+        }
+        if (this.exchange != null) {
+            if (!this.readBuffer.hasRemaining()) {
+                // 读缓冲已满, 当前请求结束前不再读取
+                this.key.interestOps(this.key.interestOps() & ~SelectionKey.OP_READ);
+            }
+            return;
+        }
+        this.readBuffer.flip();
+        HttpRequestParser.ParsedRequest request;
+        try {
+            request = this.parser.parse(this.readBuffer);
+        } catch (HttpParseException ex) {
+            this.readBuffer.clear();
+            logger.debug("Rejecting request from {}: {}", remoteAddress(), ex.getMessage());
+            sendErrorAndClose(ex.getStatus(), ex.getMessage());
+            return;
+        } finally {
+            this.readBuffer.compact();
+        }
+        if (request == null) {
+            HttpRequestParser.ParsedRequest pending = this.parser.pending();
+            if (pending != null && pending.isExpectContinue() && !this.continueSent) {
+                this.continueSent = true;
+                write(ByteBuffer.wrap(CONTINUE_RESPONSE), null);
+            }
+            if (!this.inputShutdown) {
+                this.key.interestOps(this.key.interestOps() | SelectionKey.OP_READ);
+            } else {
+                close();
+            }
+            return;
+        }
+        this.continueSent = false;
+        this.exchangeEnded = false;
+        this.exchange = new HttpExchange(this.server, this, request);
+        this.server.dispatch(this.exchange);
+    }
+
+    private void sendErrorAndClose(int status, String message) {
+        byte[] body = (status + " " + HttpStatusReasons.getReason(status) + "\n").getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + status + " " + HttpStatusReasons.getReason(status) + "\r\n"
+                + "Content-Type: text/plain;charset=UTF-8\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+        this.closeAfterWrite = true;
+        this.exchangeEnded = true;
+        this.key.interestOps(this.key.interestOps() & ~SelectionKey.OP_READ);
+        enqueue(ByteBuffer.wrap(head.getBytes(StandardCharsets.ISO_8859_1)), null);
+        enqueue(ByteBuffer.wrap(body), null);
+        flushWrites();
+    }
+
+    void onWritable() {
+        flushWrites();
+    }
+
+    /**
+     * 尽可能多地发送队列中的数据, 发送不完时关注OP_WRITE
+     */
+    void flushWrites() {
+        if (this.closed) {
+            return;
+        }
+        try {
+            while (!this.writeQueue.isEmpty()) {
+                Outbound head = this.writeQueue.peek();
+                if (head.file != null) {
+                    if (!transferFileRegion(head)) {
+                        this.key.interestOps(this.key.interestOps() | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    continue;
+                }
+                int n = 0;
+                for (Outbound outbound : this.writeQueue) {
+                    if (outbound.file != null) {
+                        break;
+                    }
+                    this.gather[n++] = outbound.buffer;
+                    if (n == this.gather.length) {
+                        break;
+                    }
+                }
+                long written = this.channel.write(this.gather, 0, n);
+                Arrays.fill(this.gather, 0, n, null);
+                Outbound done;
+                while ((done = this.writeQueue.peek()) != null && done.file == null && !done.buffer.hasRemaining()) {
+                    this.writeQueue.poll();
+                    if (done.pooled != null) {
+                        this.server.getBufferPool().release(done.pooled);
+                    }
+                }
+                if (written > 0) {
+                    this.lastActivity = System.currentTimeMillis();
+                    if (this.pendingBytes.addAndGet(-written) < HIGH_WATER_MARK / 2) {
+                        synchronized (this) {
+                            notifyAll();
+                        }
+                    }
+                }
+                if (!this.writeQueue.isEmpty() && written == 0) {
+                    this.key.interestOps(this.key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            this.key.interestOps(this.key.interestOps() & ~SelectionKey.OP_WRITE);
+        } catch (IOException ex) {
+            logger.debug("Write to {} failed: {}", remoteAddress(), ex.getMessage());
+            close();
+            return;
+        }
+        if (this.exchangeEnded) {
+            onExchangeWritten();
+        }
+    }
+
+    /**
+     * 用transferTo发送文件区间, 数据由内核从页缓存直接写入套接字
+     *
+     * @return 区间已经发送完时返回true, 套接字缓冲已满时返回false
+     */
+    private boolean transferFileRegion(Outbound region) throws IOException {
+        while (region.position < region.end) {
+            long n = region.file.transferTo(region.position, region.end - region.position, this.channel);
+            if (n <= 0) {
+                if (region.position >= region.file.size()) {
+                    throw new IOException("File was truncated while being sent");
+                }
+                return false;
+            }
+            region.position += n;
+            this.lastActivity = System.currentTimeMillis();
+        }
+        this.writeQueue.poll();
+        closeQuietly(region);
+        return true;
+    }
+
+    private void onExchangeWritten() {
+        this.exchangeEnded = false;
+        this.exchange = null;
+        if (this.closeAfterWrite) {
+            close();
+            return;
+        }
+        this.lastActivity = System.currentTimeMillis();
+        // 继续处理已经缓冲的流水线请求
+        processInput();
+    }
+
+    /**
+     * 关闭连接并释放未发送的缓冲
+     */
+    void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        if (this.key != null) {
+            this.key.cancel();
+        }
+        try {
+            this.channel.close();
+        } catch (IOException ex) {
+            logger.debug("Error closing connection", ex);
+        }
+        releaseQueue();
+        synchronized (this) {
+            notifyAll();
+        }
+        this.loop.connectionClosed(this);
+        HttpExchange current = this.exchange;
+        if (current != null && !this.exchangeEnded) {
+            current.connectionClosed();
+        }
+    }
+
+    private void releaseQueue() {
+        Outbound outbound;
+        while ((outbound = this.writeQueue.poll()) != null) {
+            if (outbound.pooled != null) {
+                this.server.getBufferPool().release(outbound.pooled);
+            }
+            closeQuietly(outbound);
+        }
+    }
+
+    private static void closeQuietly(Outbound outbound) {
+        if (outbound.file != null) {
+            try {
+                outbound.file.close();
+            } catch (IOException ex) {
+                logger.debug("Error closing file channel", ex);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- 任意线程
+
+    /**
+     * 发送数据, 可以在任意线程调用
+     *
+     * @param buffer 要发送的数据
+     * @param pooled 数据所在的池化数组, 发送完后归还, 不是池化数组时为null
+     */
+    void write(ByteBuffer buffer, byte[] pooled) {
+        enqueue(buffer, pooled);
+        this.loop.execute(this::flushWrites);
+    }
+
+    /**
+     * 发送文件的一段内容, 可以在任意线程调用。文件通道在发送完或连接关闭后关闭
+     * 文件区间不占用堆内存, 不计入待发送字节
+     */
+    void writeFile(FileChannel file, long position, long count) {
+        enqueue(new Outbound(file, position, position + count));
+        this.loop.execute(this::flushWrites);
+    }
+
+    private void enqueue(ByteBuffer buffer, byte[] pooled) {
+        if (enqueue(new Outbound(buffer, pooled))) {
+            this.pendingBytes.addAndGet(buffer.remaining());
+        }
+    }
+
+    private boolean enqueue(Outbound outbound) {
+        if (this.closed) {
+            if (outbound.pooled != null) {
+                this.server.getBufferPool().release(outbound.pooled);
+            }
+            closeQuietly(outbound);
+            return false;
+        }
+        this.writeQueue.add(outbound);
+        if (this.closed) {
+            // 与close并发时由入队方释放
+            releaseQueue();
+        }
+        return true;
+    }
+
+    /**
+     * 处理线程在待发送数据过多时等待选择器线程发送, 避免大响应占满内存
+     */
+    void awaitWritable() throws IOException {
+        if (this.loop.inLoopThread() || this.pendingBytes.get() <= HIGH_WATER_MARK) {
+            return;
+        }
+        synchronized (this) {
+            while (!this.closed && this.pendingBytes.get() > HIGH_WATER_MARK) {
+                try {
+                    wait(1000);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the client to read the response", ex);
+                }
+            }
+        }
+        if (this.closed) {
+            throw new IOException("Connection closed by peer");
+        }
+    }
+
+    /**
+     * 当前请求的响应已经全部交给连接, 发送完后处理下一个请求或关闭连接
+     */
+    void endExchange(boolean keepAlive) {
+        this.loop.execute(() -> {
+            this.exchangeEnded = true;
+            this.closeAfterWrite |= !keepAlive;
+            flushWrites();
+        });
+    }
+
+    String remoteAddress() {
+        try {
+            return String.valueOf(this.channel.getRemoteAddress());
+        } catch (IOException ex) {
+            return "unknown";
+        }
+    }
+
+    BufferPool getBufferPool() {
+        return this.server.getBufferPool();
+    }
+
+    /**
+     * 待发送的数据: 内存缓冲或文件区间
+     */
+    private static final class Outbound {
+
+        private final ByteBuffer buffer;
+
+        private final byte[] pooled;
+
+        private final FileChannel file;
+
+        private long position;
+
+        private final long end;
+
+        private Outbound(ByteBuffer buffer, byte[] pooled) {
+            this.buffer = buffer;
+            this.pooled = pooled;
+            this.file = null;
+            this.end = 0;
+        }
+
+        private Outbound(FileChannel file, long position, long end) {
+            this.buffer = null;
+            this.pooled = null;
+            this.file = file;
+            this.position = position;
+            this.end = end;
+        }
+    }
+}
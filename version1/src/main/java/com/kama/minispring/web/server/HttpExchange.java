@@ -0,0 +1,118 @@
+package com.kama.minispring.web.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 一次请求/响应交换
+ * 在处理线程上调用Servlet; 同步处理在service返回后结束, 异步处理在AsyncContext.complete后结束,
+ * 结束时写出剩余响应并通知连接继续处理下一个请求
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class HttpExchange implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpExchange.class);
+
+    private final NioHttpServer server;
+
+    private final HttpConnection connection;
+
+    private final NioHttpServletRequest request;
+
+    private final NioHttpServletResponse response;
+
+    private boolean serviceReturned;
+
+    private boolean asyncCompleted;
+
+    private boolean completed;
+
+    HttpExchange(NioHttpServer server, HttpConnection connection, HttpRequestParser.ParsedRequest parsedRequest) {
+        this.server = server;
+        this.connection = connection;
+        this.response = new NioHttpServletResponse(connection, connection.getBufferPool(),
+                parsedRequest.getProtocol(), "HEAD".equals(parsedRequest.getMethod()), parsedRequest.isKeepAlive());
+        this.request = new NioHttpServletRequest(server, connection, this, parsedRequest, this.response);
+    }
+
+    @Override
+    public void run() {
+        try {
+            this.server.getServlet().service(this.request, this.response);
+        } catch (Throwable ex) {
+            if (ex instanceof IOException && this.connection.isClosed()) {
+                logger.debug("Client disconnected during {} {}", this.request.getMethod(), this.request.getRequestURI());
+            } else {
+                logger.error("Servlet threw exception for {} {}", this.request.getMethod(),
+                        this.request.getRequestURI(), ex);
+            }
+            if (!this.response.isCommitted()) {
+                this.response.reset();
+                this.response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+            NioAsyncContext asyncContext = this.request.getAsyncContextInternal();
+            if (asyncContext != null) {
+                asyncContext.complete();
+            }
+        } finally {
+            serviceReturned();
+        }
+    }
+
+    private void serviceReturned() {
+        NioAsyncContext asyncContext;
+        synchronized (this) {
+            this.serviceReturned = true;
+            asyncContext = this.request.getAsyncContextInternal();
+        }
+        if (asyncContext != null) {
+            asyncContext.scheduleTimeout();
+        }
+        tryComplete();
+    }
+
+    /**
+     * AsyncContext.complete后调用
+     */
+    void asyncComplete() {
+        synchronized (this) {
+            this.asyncCompleted = true;
+        }
+        tryComplete();
+    }
+
+    /**
+     * 客户端在处理期间关闭了连接, 通知异步监听器以便取消处理
+     */
+    void connectionClosed() {
+        NioAsyncContext asyncContext = this.request.getAsyncContextInternal();
+        if (asyncContext != null) {
+            asyncContext.fireError(new IOException("Connection closed by peer"));
+        }
+    }
+
+    private void tryComplete() {
+        synchronized (this) {
+            if (this.completed || !this.serviceReturned) {
+                return;
+            }
+            if (this.request.getAsyncContextInternal() != null && !this.asyncCompleted) {
+                return;
+            }
+            this.completed = true;
+        }
+        boolean keepAlive = false;
+        try {
+            this.response.finish();
+            keepAlive = this.response.isKeepAlive();
+        } catch (IOException ex) {
+            logger.debug("Could not finish response to {}: {}", this.connection.remoteAddress(), ex.getMessage());
+        }
+        this.connection.endExchange(keepAlive);
+    }
+}
@@ -0,0 +1,22 @@
+package com.kama.minispring.web.server;
+
+/**
+ * 请求解析异常
+ * 携带应返回给客户端的状态码, 连接在响应后关闭
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class HttpParseException extends Exception {
+
+    private final int status;
+
+    HttpParseException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    int getStatus() {
+        return this.status;
+    }
+}
@@ -0,0 +1,377 @@
+package com.kama.minispring.web.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * HTTP/1.1请求增量解析器
+ * 每个连接一个, 数据到达后反复调用parse, 请求完整时返回解析结果并只消费属于该请求的字节,
+ * 缓冲中剩余的字节属于后续的流水线请求。支持Content-Length和chunked两种请求体
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class HttpRequestParser {
+
+    private static final byte CR = '\r';
+
+    private static final byte LF = '\n';
+
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    /** 请求体缓冲的初始容量上限, 之后随数据到达扩容, 声明的长度不会导致一次性分配 */
+    private static final int MAX_INITIAL_BODY_CAPACITY = 8192;
+
+    private enum State { HEAD, BODY, CHUNK_SIZE, CHUNK_DATA, CHUNK_DATA_END, TRAILER }
+
+    private final int maxHeaderSize;
+
+    private final long maxBodySize;
+
+    private State state = State.HEAD;
+
+    /** 头部结束标记的扫描位置, 相对于缓冲的position */
+    private int scanOffset;
+
+    private ParsedRequest current;
+
+    private byte[] body;
+
+    private int bodyLength;
+
+    /** Content-Length声明的请求体长度 */
+    private long expectedLength;
+
+    private long chunkRemaining;
+
+    ParsedRequest pending() {
+        return this.current;
+    }
+
+    HttpRequestParser(int maxHeaderSize, long maxBodySize) {
+        this.maxHeaderSize = maxHeaderSize;
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * 从缓冲中解析一个请求
+     *
+     * @param buffer 读模式的缓冲
+     * @return 完整的请求, 数据不足时返回null
+     * @throws HttpParseException 请求不合法或超出限制
+     */
+    ParsedRequest parse(ByteBuffer buffer) throws HttpParseException {
+        while (true) {
+            switch (this.state) {
+                case HEAD:
+                    if (!parseHead(buffer)) {
+                        return null;
+                    }
+                    break;
+                case BODY:
+                    int available = (int) Math.min(buffer.remaining(), this.expectedLength - this.bodyLength);
+                    ensureBodyCapacity(this.bodyLength + available, this.expectedLength);
+                    copyBody(buffer, available);
+                    if (this.bodyLength < this.expectedLength) {
+                        return null;
+                    }
+                    return finish();
+                case CHUNK_SIZE:
+                    String sizeLine = readLine(buffer);
+                    if (sizeLine == null) {
+                        return null;
+                    }
+                    this.chunkRemaining = parseChunkSize(sizeLine);
+                    this.state = this.chunkRemaining == 0 ? State.TRAILER : State.CHUNK_DATA;
+                    // 先与剩余额度比较, 避免超大的块长度与已有长度相加后溢出
+                    if (this.chunkRemaining > this.maxBodySize - this.bodyLength) {
+                        throw new HttpParseException(413, "Request body exceeds " + this.maxBodySize + " bytes");
+                    }
+                    break;
+                case CHUNK_DATA:
+                    int n = (int) Math.min(buffer.remaining(), this.chunkRemaining);
+                    ensureBodyCapacity(this.bodyLength + n, this.maxBodySize);
+                    copyBody(buffer, n);
+                    this.chunkRemaining -= n;
+                    if (this.chunkRemaining > 0) {
+                        return null;
+                    }
+                    this.state = State.CHUNK_DATA_END;
+                    break;
+                case CHUNK_DATA_END:
+                    String end = readLine(buffer);
+                    if (end == null) {
+                        return null;
+                    }
+                    if (!end.isEmpty()) {
+                        throw new HttpParseException(400, "Invalid chunk terminator");
+                    }
+                    this.state = State.CHUNK_SIZE;
+                    break;
+                case TRAILER:
+                    String trailer = readLine(buffer);
+                    if (trailer == null) {
+                        return null;
+                    }
+                    if (trailer.isEmpty()) {
+                        return finish();
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown parser state " + this.state);
+            }
+        }
+    }
+
+    private boolean parseHead(ByteBuffer buffer) throws HttpParseException {
+        int start = buffer.position();
+        int limit = buffer.limit();
+        // 跳过请求之间多余的空行
+        while (this.scanOffset == 0 && start < limit && (buffer.get(start) == CR || buffer.get(start) == LF)) {
+            start++;
+            buffer.position(start);
+        }
+        int end = -1;
+        for (int i = start + Math.max(0, this.scanOffset - 3); i + 3 < limit; i++) {
+            if (buffer.get(i) == CR && buffer.get(i + 1) == LF && buffer.get(i + 2) == CR && buffer.get(i + 3) == LF) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) {
+            this.scanOffset = limit - start;
+            if (this.scanOffset > this.maxHeaderSize) {
+                throw new HttpParseException(431, "Request header fields too large");
+            }
+            return false;
+        }
+        if (end - start > this.maxHeaderSize) {
+            throw new HttpParseException(431, "Request header fields too large");
+        }
+        byte[] head = new byte[end - start];
+        buffer.get(head);
+        buffer.position(end + 4);
+        this.scanOffset = 0;
+        this.current = parseHeadLines(new String(head, StandardCharsets.ISO_8859_1));
+        this.bodyLength = 0;
+        String transferEncoding = this.current.getHeader("transfer-encoding");
+        List<String> contentLength = this.current.getHeaders().get("content-length");
+        if (transferEncoding != null) {
+            if (contentLength != null) {
+                throw new HttpParseException(400, "Both Transfer-Encoding and Content-Length present");
+            }
+            if (!transferEncoding.trim().equalsIgnoreCase("chunked")) {
+                throw new HttpParseException(501, "Unsupported Transfer-Encoding: " + transferEncoding);
+            }
+            this.body = new byte[256];
+            this.state = State.CHUNK_SIZE;
+        } else if (contentLength != null) {
+            long length = parseContentLength(contentLength);
+            if (length > this.maxBodySize) {
+                throw new HttpParseException(413, "Request body exceeds " + this.maxBodySize + " bytes");
+            }
+            this.expectedLength = length;
+            this.body = length == 0 ? EMPTY_BODY : new byte[(int) Math.min(length, MAX_INITIAL_BODY_CAPACITY)];
+            this.state = State.BODY;
+        } else {
+            this.expectedLength = 0;
+            this.body = EMPTY_BODY;
+            this.state = State.BODY;
+        }
+        return true;
+    }
+
+    /**
+     * 解析Content-Length, 重复出现或以逗号分隔的多个值会使请求体边界不明确, 按RFC 9112 6.3节拒绝
+     */
+    private static long parseContentLength(List<String> values) throws HttpParseException {
+        String value = values.get(0);
+        if (values.size() > 1 || value.indexOf(',') >= 0) {
+            throw new HttpParseException(400, "Multiple Content-Length values: " + values);
+        }
+        if (value.isEmpty()) {
+            throw new HttpParseException(400, "Invalid Content-Length: " + value);
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new HttpParseException(400, "Invalid Content-Length: " + value);
+            }
+        }
+        // 超过18位的长度必然超出请求体上限, 不必解析
+        return value.length() > 18 ? Long.MAX_VALUE : Long.parseLong(value);
+    }
+
+    private static ParsedRequest parseHeadLines(String head) throws HttpParseException {
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || requestLine[0].isEmpty() || requestLine[1].isEmpty()) {
+            throw new HttpParseException(400, "Malformed request line");
+        }
+        String version = requestLine[2];
+        if (!version.equals("HTTP/1.1") && !version.equals("HTTP/1.0")) {
+            throw new HttpParseException(505, "Unsupported HTTP version: " + version);
+        }
+        String target = requestLine[1];
+        if (target.startsWith("http://") || target.startsWith("https://")) {
+            int pathStart = target.indexOf('/', target.indexOf("//") + 2);
+            target = pathStart < 0 ? "/" : target.substring(pathStart);
+        }
+        if (!target.startsWith("/") && !target.equals("*")) {
+            throw new HttpParseException(400, "Invalid request target: " + target);
+        }
+        int query = target.indexOf('?');
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i];
+            int colon = line.indexOf(':');
+            if (colon <= 0 || line.charAt(0) == ' ' || line.charAt(0) == '\t') {
+                throw new HttpParseException(400, "Malformed header line");
+            }
+            String name = line.substring(0, colon).trim();
+            headers.computeIfAbsent(name, key -> new ArrayList<>(1)).add(line.substring(colon + 1).trim());
+        }
+        return new ParsedRequest(requestLine[0], query < 0 ? target : target.substring(0, query),
+                query < 0 ? null : target.substring(query + 1), version, headers);
+    }
+
+    private long parseChunkSize(String line) throws HttpParseException {
+        int semicolon = line.indexOf(';');
+        String hex = (semicolon >= 0 ? line.substring(0, semicolon) : line).trim();
+        try {
+            long size = Long.parseLong(hex, 16);
+            if (size < 0) {
+                throw new NumberFormatException(hex);
+            }
+            return size;
+        } catch (NumberFormatException ex) {
+            throw new HttpParseException(400, "Invalid chunk size: " + hex);
+        }
+    }
+
+    /**
+     * 读取一行(不含CRLF), 数据不足时返回null且不消费任何字节
+     */
+    private String readLine(ByteBuffer buffer) throws HttpParseException {
+        int start = buffer.position();
+        for (int i = start; i + 1 < buffer.limit(); i++) {
+            if (buffer.get(i) == CR && buffer.get(i + 1) == LF) {
+                byte[] line = new byte[i - start];
+                buffer.get(line);
+                buffer.position(i + 2);
+                return new String(line, StandardCharsets.ISO_8859_1);
+            }
+            if (i - start > this.maxHeaderSize) {
+                throw new HttpParseException(400, "Chunk line too long");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按已到达的数据扩容请求体缓冲, 容量翻倍增长但不超过maxCapacity
+     */
+    private void ensureBodyCapacity(long required, long maxCapacity) throws HttpParseException {
+        if (required > this.maxBodySize) {
+            throw new HttpParseException(413, "Request body exceeds " + this.maxBodySize + " bytes");
+        }
+        if (required > this.body.length) {
+            this.body = Arrays.copyOf(this.body, (int) Math.min(Math.max(required, this.body.length * 2L),
+                    maxCapacity));
+        }
+    }
+
+    private void copyBody(ByteBuffer buffer, int length) {
+        buffer.get(this.body, this.bodyLength, length);
+        this.bodyLength += length;
+    }
+
+    private ParsedRequest finish() {
+        ParsedRequest request = this.current;
+        request.body = this.bodyLength == this.body.length ? this.body : Arrays.copyOf(this.body, this.bodyLength);
+        this.current = null;
+        this.body = null;
+        this.bodyLength = 0;
+        this.state = State.HEAD;
+        return request;
+    }
+
+    /**
+     * 解析得到的请求
+     */
+    static final class ParsedRequest {
+
+        private final String method;
+
+        private final String path;
+
+        private final String queryString;
+
+        private final String protocol;
+
+        private final Map<String, List<String>> headers;
+
+        private byte[] body;
+
+        ParsedRequest(String method, String path, String queryString, String protocol,
+                Map<String, List<String>> headers) {
+            this.method = method;
+            this.path = path;
+            this.queryString = queryString;
+            this.protocol = protocol;
+            this.headers = headers;
+        }
+
+        String getMethod() {
+            return this.method;
+        }
+
+        String getPath() {
+            return this.path;
+        }
+
+        String getQueryString() {
+            return this.queryString;
+        }
+
+        String getProtocol() {
+            return this.protocol;
+        }
+
+        Map<String, List<String>> getHeaders() {
+            return this.headers;
+        }
+
+        String getHeader(String name) {
+            List<String> values = this.headers.get(name);
+            return values != null && !values.isEmpty() ? values.get(0) : null;
+        }
+
+        byte[] getBody() {
+            return this.body;
+        }
+
+        /**
+         * 客户端是否希望保持连接: HTTP/1.1默认保持, HTTP/1.0需要显式的keep-alive
+         */
+        boolean isKeepAlive() {
+            String connection = getHeader("connection");
+            String value = connection != null ? connection.toLowerCase(Locale.ROOT) : "";
+            if (this.protocol.equals("HTTP/1.1")) {
+                return !value.contains("close");
+            }
+            return value.contains("keep-alive");
+        }
+
+        boolean isExpectContinue() {
+            String expect = getHeader("expect");
+            return expect != null && expect.equalsIgnoreCase("100-continue");
+        }
+    }
+}
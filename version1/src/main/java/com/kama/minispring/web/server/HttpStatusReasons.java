@@ -0,0 +1,57 @@
+package com.kama.minispring.web.server;
+
+/**
+ * 常用HTTP状态码的原因短语
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class HttpStatusReasons {
+
+    private static final String[] REASONS = new String[600];
+
+    static {
+        REASONS[100] = "Continue";
+        REASONS[101] = "Switching Protocols";
+        REASONS[200] = "OK";
+        REASONS[201] = "Created";
+        REASONS[202] = "Accepted";
+        REASONS[204] = "No Content";
+        REASONS[206] = "Partial Content";
+        REASONS[301] = "Moved Permanently";
+        REASONS[302] = "Found";
+        REASONS[303] = "See Other";
+        REASONS[304] = "Not Modified";
+        REASONS[307] = "Temporary Redirect";
+        REASONS[308] = "Permanent Redirect";
+        REASONS[400] = "Bad Request";
+        REASONS[401] = "Unauthorized";
+        REASONS[403] = "Forbidden";
+        REASONS[404] = "Not Found";
+        REASONS[405] = "Method Not Allowed";
+        REASONS[406] = "Not Acceptable";
+        REASONS[408] = "Request Timeout";
+        REASONS[409] = "Conflict";
+        REASONS[411] = "Length Required";
+        REASONS[412] = "Precondition Failed";
+        REASONS[413] = "Payload Too Large";
+        REASONS[415] = "Unsupported Media Type";
+        REASONS[416] = "Range Not Satisfiable";
+        REASONS[429] = "Too Many Requests";
+        REASONS[431] = "Request Header Fields Too Large";
+        REASONS[500] = "Internal Server Error";
+        REASONS[501] = "Not Implemented";
+        REASONS[502] = "Bad Gateway";
+        REASONS[503] = "Service Unavailable";
+        REASONS[504] = "Gateway Timeout";
+        REASONS[505] = "HTTP Version Not Supported";
+    }
+
+    private HttpStatusReasons() {
+    }
+
+    static String getReason(int status) {
+        String reason = status >= 0 && status < REASONS.length ? REASONS[status] : null;
+        return reason != null ? reason : "Unknown";
+    }
+}
@@ -0,0 +1,191 @@
+package com.kama.minispring.web.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 内嵌服务器的AsyncContext
+ * 只支持complete方式结束, 不支持dispatch。超时由服务器的调度线程触发
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class NioAsyncContext implements AsyncContext {
+
+    private static final Logger logger = LoggerFactory.getLogger(NioAsyncContext.class);
+
+    private static final long DEFAULT_TIMEOUT = 30000;
+
+    private final NioHttpServer server;
+
+    private final HttpExchange exchange;
+
+    private final ServletRequest request;
+
+    private final ServletResponse response;
+
+    private final List<AsyncListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    private final AtomicBoolean errorFired = new AtomicBoolean();
+
+    private volatile long timeout = DEFAULT_TIMEOUT;
+
+    private volatile ScheduledFuture<?> timeoutFuture;
+
+    NioAsyncContext(NioHttpServer server, HttpExchange exchange, ServletRequest request, ServletResponse response) {
+        this.server = server;
+        this.exchange = exchange;
+        this.request = request;
+        this.response = response;
+    }
+
+    @Override
+    public ServletRequest getRequest() {
+        return this.request;
+    }
+
+    @Override
+    public ServletResponse getResponse() {
+        return this.response;
+    }
+
+    @Override
+    public boolean hasOriginalRequestAndResponse() {
+        return true;
+    }
+
+    @Override
+    public void dispatch() {
+        throw new UnsupportedOperationException("Async dispatch is not supported by the embedded server");
+    }
+
+    @Override
+    public void dispatch(String path) {
+        dispatch();
+    }
+
+    @Override
+    public void dispatch(ServletContext context, String path) {
+        dispatch();
+    }
+
+    @Override
+    public void complete() {
+        if (!this.completed.compareAndSet(false, true)) {
+            return;
+        }
+        ScheduledFuture<?> future = this.timeoutFuture;
+        if (future != null) {
+            future.cancel(false);
+        }
+        AsyncEvent event = new AsyncEvent(this, this.request, this.response);
+        for (AsyncListener listener : this.listeners) {
+            try {
+                listener.onComplete(event);
+            } catch (IOException | RuntimeException ex) {
+                logger.warn("AsyncListener.onComplete threw exception", ex);
+            }
+        }
+        this.exchange.asyncComplete();
+    }
+
+    boolean isCompleted() {
+        return this.completed.get();
+    }
+
+    /**
+     * service返回后开始计时, 与Servlet规范一致
+     */
+    void scheduleTimeout() {
+        if (this.timeout > 0 && !this.completed.get()) {
+            this.timeoutFuture = this.server.getScheduler().schedule(this::handleTimeout, this.timeout,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void handleTimeout() {
+        if (this.completed.get()) {
+            return;
+        }
+        AsyncEvent event = new AsyncEvent(this, this.request, this.response);
+        for (AsyncListener listener : this.listeners) {
+            try {
+                listener.onTimeout(event);
+            } catch (IOException | RuntimeException ex) {
+                logger.warn("AsyncListener.onTimeout threw exception", ex);
+            }
+        }
+        if (!this.completed.get()) {
+            // 监听器没有结束请求时按规范返回500
+            if (!this.response.isCommitted() && this.response instanceof HttpServletResponse) {
+                ((HttpServletResponse) this.response).setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+            complete();
+        }
+    }
+
+    void fireError(Throwable ex) {
+        if (this.completed.get() || !this.errorFired.compareAndSet(false, true)) {
+            return;
+        }
+        AsyncEvent event = new AsyncEvent(this, this.request, this.response, ex);
+        for (AsyncListener listener : this.listeners) {
+            try {
+                listener.onError(event);
+            } catch (IOException | RuntimeException listenerEx) {
+                logger.warn("AsyncListener.onError threw exception", listenerEx);
+            }
+        }
+    }
+
+    @Override
+    public void start(Runnable run) {
+        this.server.getExecutor().execute(run);
+    }
+
+    @Override
+    public void addListener(AsyncListener listener) {
+        this.listeners.add(listener);
+    }
+
+    @Override
+    public void addListener(AsyncListener listener, ServletRequest servletRequest, ServletResponse servletResponse) {
+        this.listeners.add(listener);
+    }
+
+    @Override
+    public <T extends AsyncListener> T createListener(Class<T> clazz) throws ServletException {
+        try {
+            return clazz.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException ex) {
+            throw new ServletException("Could not instantiate AsyncListener " + clazz.getName(), ex);
+        }
+    }
+
+    @Override
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public long getTimeout() {
+        return this.timeout;
+    }
+}
@@ -0,0 +1,438 @@
+package com.kama.minispring.web.server;
+
+import com.kama.minispring.scheduling.concurrent.VirtualThreadTaskExecutor;
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.util.BufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServlet;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 基于NIO的内嵌HTTP/1.1服务器
+ * 一个接收线程负责accept, 新连接轮流分配给若干选择器线程; 选择器线程负责读取、解析请求和发送响应。
+ * 支持keep-alive和流水线请求, 请求交给承载的Servlet(通常是DispatcherServlet)处理,
+ * 经由与Servlet容器相同的HandlerMapping/HandlerAdapter/ViewResolver调用链。
+ * 处理器可以直接在选择器线程上执行(适合不阻塞的处理器), 也可以每个请求一个虚拟线程执行
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class NioHttpServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(NioHttpServer.class);
+
+    /**
+     * 处理器的执行方式
+     */
+    public enum ExecutionMode {
+
+        /** 直接在选择器线程上执行, 处理器不能阻塞 */
+        SELECTOR,
+
+        /** 每个请求一个虚拟线程(JDK不支持时为平台线程) */
+        VIRTUAL_THREAD_PER_REQUEST
+    }
+
+    private final HttpServlet servlet;
+
+    private String host;
+
+    private int port = 8080;
+
+    private int selectorThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    private int maxHeaderSize = 16 * 1024;
+
+    private long maxRequestSize = 10 * 1024 * 1024;
+
+    private long keepAliveTimeout = 60000;
+
+    private ExecutionMode executionMode = ExecutionMode.VIRTUAL_THREAD_PER_REQUEST;
+
+    private Executor executor;
+
+    private BufferPool bufferPool = BufferPool.getSharedInstance();
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private ServerSocketChannel serverChannel;
+
+    private Selector acceptSelector;
+
+    private Thread acceptorThread;
+
+    private SelectorLoop[] loops;
+
+    private int nextLoop;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 构造函数
+     *
+     * @param servlet 处理请求的Servlet, 需要已经完成初始化
+     */
+    public NioHttpServer(HttpServlet servlet) {
+        Assert.notNull(servlet, "Servlet must not be null");
+        this.servlet = servlet;
+    }
+
+    // ---------------------------------------------------------------- 配置
+
+    /**
+     * 设置监听地址, 为null时监听所有地址
+     */
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    /**
+     * 设置监听端口, 为0时使用随机端口, 启动后通过getPort获取
+     */
+    public void setPort(int port) {
+        Assert.isTrue(port >= 0 && port <= 65535, "Port must be between 0 and 65535");
+        this.port = port;
+    }
+
+    /**
+     * 获取监听端口, 启动后返回实际绑定的端口
+     */
+    public int getPort() {
+        return this.port;
+    }
+
+    public void setSelectorThreads(int selectorThreads) {
+        Assert.isTrue(selectorThreads > 0, "Selector threads must be greater than 0");
+        this.selectorThreads = selectorThreads;
+    }
+
+    public void setMaxHeaderSize(int maxHeaderSize) {
+        Assert.isTrue(maxHeaderSize > 0, "Max header size must be greater than 0");
+        this.maxHeaderSize = maxHeaderSize;
+    }
+
+    public int getMaxHeaderSize() {
+        return this.maxHeaderSize;
+    }
+
+    public void setMaxRequestSize(long maxRequestSize) {
+        Assert.isTrue(maxRequestSize >= 0 && maxRequestSize <= Integer.MAX_VALUE - 8,
+                "Max request size must be between 0 and 2GB");
+        this.maxRequestSize = maxRequestSize;
+    }
+
+    public long getMaxRequestSize() {
+        return this.maxRequestSize;
+    }
+
+    /**
+     * 设置空闲连接的保持时间(毫秒), 小于等于0表示不超时
+     */
+    public void setKeepAliveTimeout(long keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    public void setExecutionMode(ExecutionMode executionMode) {
+        Assert.notNull(executionMode, "Execution mode must not be null");
+        this.executionMode = executionMode;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return this.executionMode;
+    }
+
+    /**
+     * 设置VIRTUAL_THREAD_PER_REQUEST模式下执行请求的执行器, 默认每个请求一个虚拟线程
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public void setBufferPool(BufferPool bufferPool) {
+        Assert.notNull(bufferPool, "BufferPool must not be null");
+        this.bufferPool = bufferPool;
+    }
+
+    BufferPool getBufferPool() {
+        return this.bufferPool;
+    }
+
+    HttpServlet getServlet() {
+        return this.servlet;
+    }
+
+    Executor getExecutor() {
+        return this.executor;
+    }
+
+    ScheduledExecutorService getScheduler() {
+        return this.scheduler;
+    }
+
+    public boolean isRunning() {
+        return this.running.get();
+    }
+
+    // ---------------------------------------------------------------- 生命周期
+
+    /**
+     * 绑定端口并启动接收线程和选择器线程
+     */
+    public synchronized void start() throws IOException {
+        if (this.running.get()) {
+            return;
+        }
+        if (this.executor == null) {
+            this.executor = new VirtualThreadTaskExecutor("nio-http-");
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "nio-http-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        this.serverChannel.bind(this.host != null ? new InetSocketAddress(this.host, this.port)
+                : new InetSocketAddress(this.port), 1024);
+        this.serverChannel.configureBlocking(false);
+        this.port = ((InetSocketAddress) this.serverChannel.getLocalAddress()).getPort();
+        this.acceptSelector = Selector.open();
+        this.serverChannel.register(this.acceptSelector, SelectionKey.OP_ACCEPT);
+
+        this.running.set(true);
+        this.loops = new SelectorLoop[this.selectorThreads];
+        for (int i = 0; i < this.loops.length; i++) {
+            this.loops[i] = new SelectorLoop("nio-http-selector-" + i);
+            this.loops[i].start();
+        }
+        this.acceptorThread = new Thread(this::acceptLoop, "nio-http-acceptor");
+        this.acceptorThread.setDaemon(true);
+        this.acceptorThread.start();
+        logger.info("NIO HTTP server started on port {} ({} selector threads, {} mode)",
+                this.port, this.selectorThreads, this.executionMode);
+    }
+
+    /**
+     * 停止接收新连接并关闭所有连接
+     */
+    public synchronized void stop() {
+        if (!this.running.compareAndSet(true, false)) {
+            return;
+        }
+        try {
+            this.acceptSelector.close();
+            this.serverChannel.close();
+        } catch (IOException ex) {
+            logger.debug("Error closing server channel", ex);
+        }
+        for (SelectorLoop loop : this.loops) {
+            loop.shutdown();
+        }
+        try {
+            this.acceptorThread.join(1000);
+            for (SelectorLoop loop : this.loops) {
+                loop.thread.join(1000);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        this.scheduler.shutdownNow();
+        logger.info("NIO HTTP server on port {} stopped", this.port);
+    }
+
+    private void acceptLoop() {
+        while (this.running.get()) {
+            try {
+                this.acceptSelector.select();
+                Iterator<SelectionKey> keys = this.acceptSelector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    keys.next();
+                    keys.remove();
+                    SocketChannel channel;
+                    while ((channel = this.serverChannel.accept()) != null) {
+                        channel.configureBlocking(false);
+                        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                        SelectorLoop loop = this.loops[this.nextLoop];
+                        this.nextLoop = (this.nextLoop + 1) % this.loops.length;
+                        loop.register(channel);
+                    }
+                }
+            } catch (ClosedSelectorException ex) {
+                return;
+            } catch (IOException ex) {
+                if (this.running.get()) {
+                    logger.warn("Error accepting connection", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按执行方式执行请求
+     */
+    void dispatch(HttpExchange exchange) {
+        if (this.executionMode == ExecutionMode.SELECTOR) {
+            exchange.run();
+        } else {
+            this.executor.execute(exchange);
+        }
+    }
+
+    /**
+     * 选择器线程, 负责一组连接的读写
+     */
+    final class SelectorLoop implements Runnable {
+
+        private final Selector selector;
+
+        private final Thread thread;
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        private final Set<HttpConnection> connections = new HashSet<>();
+
+        private volatile boolean shutdown;
+
+        private long lastSweep = System.currentTimeMillis();
+
+        SelectorLoop(String name) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        void start() {
+            this.thread.start();
+        }
+
+        void shutdown() {
+            this.shutdown = true;
+            this.selector.wakeup();
+        }
+
+        boolean inLoopThread() {
+            return Thread.currentThread() == this.thread;
+        }
+
+        /**
+         * 在选择器线程上执行任务
+         */
+        void execute(Runnable task) {
+            this.tasks.add(task);
+            if (!inLoopThread()) {
+                this.selector.wakeup();
+            }
+        }
+
+        void register(SocketChannel channel) {
+            execute(() -> {
+                HttpConnection connection = new HttpConnection(NioHttpServer.this, this, channel);
+                try {
+                    connection.setKey(channel.register(this.selector, SelectionKey.OP_READ, connection));
+                    this.connections.add(connection);
+                } catch (IOException ex) {
+                    logger.debug("Could not register connection", ex);
+                    connection.close();
+                }
+            });
+        }
+
+        void connectionClosed(HttpConnection connection) {
+            this.connections.remove(connection);
+        }
+
+        @Override
+        public void run() {
+            while (!this.shutdown) {
+                try {
+                    this.selector.select(1000);
+                    runTasks();
+                    Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        HttpConnection connection = (HttpConnection) key.attachment();
+                        processKey(key, connection);
+                    }
+                    runTasks();
+                    sweepIdleConnections();
+                } catch (IOException ex) {
+                    logger.warn("Selector loop error", ex);
+                }
+            }
+            for (HttpConnection connection : new ArrayList<>(this.connections)) {
+                connection.close();
+            }
+            try {
+                this.selector.close();
+            } catch (IOException ex) {
+                logger.debug("Error closing selector", ex);
+            }
+        }
+
+        private void processKey(SelectionKey key, HttpConnection connection) {
+            try {
+                if (key.isValid() && key.isWritable()) {
+                    connection.onWritable();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    connection.onReadable();
+                }
+            } catch (IOException ex) {
+                logger.debug("Connection error from {}: {}", connection.remoteAddress(), ex.getMessage());
+                connection.close();
+            } catch (RuntimeException ex) {
+                logger.error("Unexpected error processing connection", ex);
+                connection.close();
+            }
+        }
+
+        private void runTasks() {
+            Runnable task;
+            while ((task = this.tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException ex) {
+                    logger.error("Selector task failed", ex);
+                }
+            }
+        }
+
+        private void sweepIdleConnections() {
+            long now = System.currentTimeMillis();
+            if (keepAliveTimeout <= 0 || now - this.lastSweep < 1000) {
+                return;
+            }
+            this.lastSweep = now;
+            List<HttpConnection> idle = new ArrayList<>();
+            for (HttpConnection connection : this.connections) {
+                if (connection.isIdleSince(now - keepAliveTimeout)) {
+                    idle.add(connection);
+                }
+            }
+            for (HttpConnection connection : idle) {
+                connection.close();
+            }
+        }
+    }
+}
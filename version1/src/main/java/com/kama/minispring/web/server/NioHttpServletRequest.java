@@ -0,0 +1,685 @@
+package com.kama.minispring.web.server;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.ReadListener;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpUpgradeHandler;
+import javax.servlet.http.Part;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 内嵌服务器的请求
+ * 基于解析好的请求行、请求头和请求体, 参数在首次访问时从查询串和表单请求体中解析。
+ * 内嵌服务器只承载一个Servlet, contextPath和servletPath都为空, pathInfo即请求路径; 不支持会话
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class NioHttpServletRequest implements HttpServletRequest {
+
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded";
+
+    private final NioHttpServer server;
+
+    private final HttpConnection connection;
+
+    private final HttpExchange exchange;
+
+    private final HttpRequestParser.ParsedRequest parsed;
+
+    private final HttpServletResponse response;
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    private String characterEncoding;
+
+    private Map<String, String[]> parameters;
+
+    private Cookie[] cookies;
+
+    private List<Locale> locales;
+
+    private ServletInputStream inputStream;
+
+    private BufferedReader reader;
+
+    private volatile NioAsyncContext asyncContext;
+
+    NioHttpServletRequest(NioHttpServer server, HttpConnection connection, HttpExchange exchange,
+            HttpRequestParser.ParsedRequest parsed, HttpServletResponse response) {
+        this.server = server;
+        this.connection = connection;
+        this.exchange = exchange;
+        this.parsed = parsed;
+        this.response = response;
+    }
+
+    NioAsyncContext getAsyncContextInternal() {
+        return this.asyncContext;
+    }
+
+    // ---------------------------------------------------------------- 请求行和请求头
+
+    @Override
+    public String getMethod() {
+        return this.parsed.getMethod();
+    }
+
+    @Override
+    public String getRequestURI() {
+        return this.parsed.getPath();
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        StringBuffer url = new StringBuffer(getScheme()).append("://").append(getServerName());
+        int port = getServerPort();
+        if (port != 80) {
+            url.append(':').append(port);
+        }
+        return url.append(getRequestURI());
+    }
+
+    @Override
+    public String getContextPath() {
+        return "";
+    }
+
+    @Override
+    public String getServletPath() {
+        return "";
+    }
+
+    @Override
+    public String getPathInfo() {
+        return this.parsed.getPath();
+    }
+
+    @Override
+    public String getPathTranslated() {
+        return null;
+    }
+
+    @Override
+    public String getQueryString() {
+        return this.parsed.getQueryString();
+    }
+
+    @Override
+    public String getProtocol() {
+        return this.parsed.getProtocol();
+    }
+
+    @Override
+    public String getScheme() {
+        return "http";
+    }
+
+    @Override
+    public boolean isSecure() {
+        return false;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return this.parsed.getHeader(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        List<String> values = this.parsed.getHeaders().get(name);
+        return Collections.enumeration(values != null ? values : Collections.emptyList());
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(this.parsed.getHeaders().keySet());
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        String value = getHeader(name);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Cannot parse date value '" + value + "' for header " + name, ex);
+        }
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        String value = getHeader(name);
+        return value != null ? Integer.parseInt(value.trim()) : -1;
+    }
+
+    @Override
+    public Cookie[] getCookies() {
+        if (this.cookies == null) {
+            List<Cookie> result = new ArrayList<>();
+            for (String header : Collections.list(getHeaders("Cookie"))) {
+                for (String pair : header.split(";")) {
+                    int eq = pair.indexOf('=');
+                    if (eq > 0) {
+                        String name = pair.substring(0, eq).trim();
+                        String value = pair.substring(eq + 1).trim();
+                        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                            value = value.substring(1, value.length() - 1);
+                        }
+                        try {
+                            result.add(new Cookie(name, value));
+                        } catch (IllegalArgumentException ex) {
+                            // 忽略名称不合法的Cookie
+                        }
+                    }
+                }
+            }
+            this.cookies = result.toArray(new Cookie[0]);
+        }
+        return this.cookies.length > 0 ? this.cookies : null;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return getLocaleList().get(0);
+    }
+
+    @Override
+    public Enumeration<Locale> getLocales() {
+        return Collections.enumeration(getLocaleList());
+    }
+
+    private List<Locale> getLocaleList() {
+        if (this.locales == null) {
+            List<Locale> result = new ArrayList<>();
+            String header = getHeader("Accept-Language");
+            if (header != null) {
+                try {
+                    for (Locale.LanguageRange range : Locale.LanguageRange.parse(header)) {
+                        if (!range.getRange().equals("*")) {
+                            result.add(Locale.forLanguageTag(range.getRange()));
+                        }
+                    }
+                } catch (IllegalArgumentException ex) {
+                    // 不合法的Accept-Language按未提供处理
+                }
+            }
+            if (result.isEmpty()) {
+                result.add(Locale.getDefault());
+            }
+            this.locales = result;
+        }
+        return this.locales;
+    }
+
+    // ---------------------------------------------------------------- 请求体和参数
+
+    @Override
+    public String getCharacterEncoding() {
+        if (this.characterEncoding == null) {
+            String contentType = getContentType();
+            if (contentType != null) {
+                int index = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+                if (index >= 0) {
+                    String charset = contentType.substring(index + 8);
+                    int end = charset.indexOf(';');
+                    this.characterEncoding = (end >= 0 ? charset.substring(0, end) : charset)
+                            .replace("\"", "").trim();
+                }
+            }
+        }
+        return this.characterEncoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String env) throws UnsupportedEncodingException {
+        if (!Charset.isSupported(env)) {
+            throw new UnsupportedEncodingException(env);
+        }
+        this.characterEncoding = env;
+    }
+
+    @Override
+    public int getContentLength() {
+        return this.parsed.getBody().length;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return this.parsed.getBody().length;
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader("Content-Type");
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        if (this.reader != null) {
+            throw new IllegalStateException("getReader() has already been called for this request");
+        }
+        if (this.inputStream == null) {
+            this.inputStream = new BodyInputStream(this.parsed.getBody());
+        }
+        return this.inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        if (this.reader == null) {
+            if (this.inputStream != null) {
+                throw new IllegalStateException("getInputStream() has already been called for this request");
+            }
+            this.reader = new BufferedReader(new InputStreamReader(
+                    new ByteArrayInputStream(this.parsed.getBody()), bodyCharset()));
+        }
+        return this.reader;
+    }
+
+    private Charset bodyCharset() {
+        String encoding = getCharacterEncoding();
+        return encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = getParameterMap().get(name);
+        return values != null && values.length > 0 ? values[0] : null;
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(getParameterMap().keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return getParameterMap().get(name);
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        if (this.parameters == null) {
+            Map<String, List<String>> values = new LinkedHashMap<>();
+            Charset charset = getCharacterEncoding() != null ? bodyCharset() : StandardCharsets.UTF_8;
+            parseParameters(getQueryString(), charset, values);
+            String contentType = getContentType();
+            if (contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith(FORM_CONTENT_TYPE)
+                    && this.inputStream == null && this.reader == null) {
+                parseParameters(new String(this.parsed.getBody(), StandardCharsets.ISO_8859_1), charset, values);
+            }
+            Map<String, String[]> result = new LinkedHashMap<>();
+            values.forEach((key, list) -> result.put(key, list.toArray(new String[0])));
+            this.parameters = Collections.unmodifiableMap(result);
+        }
+        return this.parameters;
+    }
+
+    private static void parseParameters(String source, Charset charset, Map<String, List<String>> values) {
+        if (source == null || source.isEmpty()) {
+            return;
+        }
+        for (String pair : source.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            try {
+                String name = URLDecoder.decode(eq >= 0 ? pair.substring(0, eq) : pair, charset);
+                String value = eq >= 0 ? URLDecoder.decode(pair.substring(eq + 1), charset) : "";
+                values.computeIfAbsent(name, key -> new ArrayList<>(1)).add(value);
+            } catch (IllegalArgumentException ex) {
+                // 忽略编码不合法的参数
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- 属性
+
+    @Override
+    public Object getAttribute(String name) {
+        return this.attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(new ArrayList<>(this.attributes.keySet()));
+    }
+
+    @Override
+    public void setAttribute(String name, Object o) {
+        if (o == null) {
+            removeAttribute(name);
+        } else {
+            this.attributes.put(name, o);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        this.attributes.remove(name);
+    }
+
+    // ---------------------------------------------------------------- 连接信息
+
+    @Override
+    public String getServerName() {
+        String host = getHeader("Host");
+        if (host == null || host.isEmpty()) {
+            return getLocalName();
+        }
+        if (host.startsWith("[")) {
+            int end = host.indexOf(']');
+            return end > 0 ? host.substring(0, end + 1) : host;
+        }
+        int colon = host.indexOf(':');
+        return colon >= 0 ? host.substring(0, colon) : host;
+    }
+
+    @Override
+    public int getServerPort() {
+        String host = getHeader("Host");
+        if (host != null) {
+            int colon = host.lastIndexOf(':');
+            if (colon > host.lastIndexOf(']')) {
+                try {
+                    return Integer.parseInt(host.substring(colon + 1));
+                } catch (NumberFormatException ex) {
+                    // 按本地端口处理
+                }
+            } else {
+                return 80;
+            }
+        }
+        return getLocalPort();
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        InetSocketAddress address = remote();
+        return address != null ? address.getAddress().getHostAddress() : null;
+    }
+
+    @Override
+    public String getRemoteHost() {
+        return getRemoteAddr();
+    }
+
+    @Override
+    public int getRemotePort() {
+        InetSocketAddress address = remote();
+        return address != null ? address.getPort() : -1;
+    }
+
+    @Override
+    public String getLocalName() {
+        InetSocketAddress address = local();
+        return address != null ? address.getHostString() : null;
+    }
+
+    @Override
+    public String getLocalAddr() {
+        InetSocketAddress address = local();
+        return address != null ? address.getAddress().getHostAddress() : null;
+    }
+
+    @Override
+    public int getLocalPort() {
+        InetSocketAddress address = local();
+        return address != null ? address.getPort() : -1;
+    }
+
+    private InetSocketAddress remote() {
+        try {
+            SocketAddress address = this.connection.getChannel().getRemoteAddress();
+            return address instanceof InetSocketAddress ? (InetSocketAddress) address : null;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private InetSocketAddress local() {
+        try {
+            SocketAddress address = this.connection.getChannel().getLocalAddress();
+            return address instanceof InetSocketAddress ? (InetSocketAddress) address : null;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    // ---------------------------------------------------------------- 异步
+
+    @Override
+    public AsyncContext startAsync() {
+        return startAsync(this, this.response);
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+        if (this.asyncContext != null) {
+            throw new IllegalStateException("Async processing has already been started for this request");
+        }
+        this.asyncContext = new NioAsyncContext(this.server, this.exchange, servletRequest, servletResponse);
+        return this.asyncContext;
+    }
+
+    @Override
+    public boolean isAsyncStarted() {
+        NioAsyncContext context = this.asyncContext;
+        return context != null && !context.isCompleted();
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return true;
+    }
+
+    @Override
+    public AsyncContext getAsyncContext() {
+        if (this.asyncContext == null) {
+            throw new IllegalStateException("Async processing has not been started for this request");
+        }
+        return this.asyncContext;
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    // ---------------------------------------------------------------- 不支持的功能
+
+    @Override
+    public HttpSession getSession(boolean create) {
+        if (create) {
+            throw new UnsupportedOperationException("Sessions are not supported by the embedded server");
+        }
+        return null;
+    }
+
+    @Override
+    public HttpSession getSession() {
+        return getSession(true);
+    }
+
+    @Override
+    public String changeSessionId() {
+        throw new IllegalStateException("No session associated with this request");
+    }
+
+    @Override
+    public String getRequestedSessionId() {
+        return null;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdValid() {
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromCookie() {
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromURL() {
+        return false;
+    }
+
+    @Override
+    @Deprecated
+    public boolean isRequestedSessionIdFromUrl() {
+        return false;
+    }
+
+    @Override
+    public String getAuthType() {
+        return null;
+    }
+
+    @Override
+    public String getRemoteUser() {
+        return null;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return false;
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return null;
+    }
+
+    @Override
+    public boolean authenticate(HttpServletResponse response) {
+        throw new UnsupportedOperationException("Authentication is not supported by the embedded server");
+    }
+
+    @Override
+    public void login(String username, String password) {
+        throw new UnsupportedOperationException("Authentication is not supported by the embedded server");
+    }
+
+    @Override
+    public void logout() {
+        throw new UnsupportedOperationException("Authentication is not supported by the embedded server");
+    }
+
+    @Override
+    public Collection<Part> getParts() {
+        throw new UnsupportedOperationException("Multipart requests are not supported by the embedded server");
+    }
+
+    @Override
+    public Part getPart(String name) {
+        throw new UnsupportedOperationException("Multipart requests are not supported by the embedded server");
+    }
+
+    @Override
+    public <T extends HttpUpgradeHandler> T upgrade(Class<T> handlerClass) {
+        throw new UnsupportedOperationException("Protocol upgrade is not supported by the embedded server");
+    }
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(String path) {
+        return null;
+    }
+
+    @Override
+    @Deprecated
+    public String getRealPath(String path) {
+        return null;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return null;
+    }
+
+    private static final class BodyInputStream extends ServletInputStream {
+
+        private final byte[] body;
+
+        private int position;
+
+        private BodyInputStream(byte[] body) {
+            this.body = body;
+        }
+
+        @Override
+        public int read() {
+            return this.position < this.body.length ? this.body[this.position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (this.position >= this.body.length) {
+                return -1;
+            }
+            int n = Math.min(len, this.body.length - this.position);
+            System.arraycopy(this.body, this.position, b, off, n);
+            this.position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return this.body.length - this.position;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return this.position >= this.body.length;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("Non-blocking reads are not supported");
+        }
+    }
+}
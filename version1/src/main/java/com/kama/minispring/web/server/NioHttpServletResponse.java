@@ -0,0 +1,676 @@
+package com.kama.minispring.web.server;
+
+import com.kama.minispring.http.ZeroCopyFileTransfer;
+import com.kama.minispring.util.BufferPool;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 内嵌服务器的响应
+ * 响应体先写入池化缓冲, 处理结束时仍未提交则带Content-Length一次写出;
+ * 缓冲写满时提交响应头, 之后以chunked编码(HTTP/1.0下以关闭连接)分块写出, 写满的缓冲直接交给连接发送
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class NioHttpServletResponse implements HttpServletResponse, ZeroCopyFileTransfer {
+
+    private static final DateTimeFormatter HTTP_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+
+    private static volatile CachedDate cachedDate = new CachedDate(0, "");
+
+    private final HttpConnection connection;
+
+    private final BufferPool bufferPool;
+
+    private final String protocol;
+
+    private final boolean headRequest;
+
+    private final boolean requestKeepAlive;
+
+    private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private int status = SC_OK;
+
+    private String contentType;
+
+    private String characterEncoding;
+
+    private long contentLength = -1;
+
+    private Locale locale = Locale.getDefault();
+
+    private byte[] buffer;
+
+    private int count;
+
+    private long bytesWritten;
+
+    private boolean committed;
+
+    private boolean chunked;
+
+    private boolean keepAlive;
+
+    private boolean bodySuppressed;
+
+    private boolean finishing;
+
+    private boolean finished;
+
+    private BodyOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    NioHttpServletResponse(HttpConnection connection, BufferPool bufferPool, String protocol, boolean headRequest,
+            boolean requestKeepAlive) {
+        this.connection = connection;
+        this.bufferPool = bufferPool;
+        this.protocol = protocol;
+        this.headRequest = headRequest;
+        this.requestKeepAlive = requestKeepAlive;
+    }
+
+    /**
+     * 提交响应后是否保持连接
+     */
+    boolean isKeepAlive() {
+        return this.keepAlive;
+    }
+
+    // ---------------------------------------------------------------- 输出
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (this.writer != null) {
+            throw new IllegalStateException("getWriter() has already been called for this response");
+        }
+        if (this.outputStream == null) {
+            this.outputStream = new BodyOutputStream();
+        }
+        return this.outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws UnsupportedEncodingException {
+        if (this.writer == null) {
+            if (this.outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called for this response");
+            }
+            if (this.characterEncoding == null) {
+                this.characterEncoding = StandardCharsets.ISO_8859_1.name();
+            }
+            Charset charset;
+            try {
+                charset = Charset.forName(this.characterEncoding);
+            } catch (IllegalCharsetNameException | UnsupportedCharsetException ex) {
+                throw new UnsupportedEncodingException(this.characterEncoding);
+            }
+            this.writer = new PrintWriter(new OutputStreamWriter(new BodyOutputStream(), charset), false);
+        }
+        return this.writer;
+    }
+
+    private void writeBody(byte[] bytes, int off, int len) throws IOException {
+        if (this.finished) {
+            throw new IOException("Response already finished");
+        }
+        if (this.bodySuppressed) {
+            return;
+        }
+        while (len > 0) {
+            if (this.buffer == null) {
+                this.buffer = this.bufferPool.acquire();
+            }
+            if (this.count == this.buffer.length) {
+                flushBody();
+                continue;
+            }
+            int n = Math.min(len, this.buffer.length - this.count);
+            System.arraycopy(bytes, off, this.buffer, this.count, n);
+            this.count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * 提交响应头并把缓冲中的数据交给连接发送
+     */
+    private void flushBody() throws IOException {
+        if (!this.committed) {
+            commit(false);
+        }
+        if (this.count == 0) {
+            return;
+        }
+        this.bytesWritten += this.count;
+        if (this.headRequest) {
+            this.count = 0;
+            return;
+        }
+        if (this.chunked) {
+            this.connection.write(ByteBuffer.wrap((Integer.toHexString(this.count) + "\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1)), null);
+        }
+        this.connection.write(ByteBuffer.wrap(this.buffer, 0, this.count), this.buffer);
+        if (this.chunked) {
+            this.connection.write(ByteBuffer.wrap(CRLF), null);
+        }
+        this.buffer = null;
+        this.count = 0;
+        this.connection.awaitWritable();
+    }
+
+    /**
+     * 文件内容不经过响应缓冲, 由选择器线程用transferTo直接写入连接
+     */
+    @Override
+    public void transferFile(Path file, long position, long count) throws IOException {
+        if (this.finished) {
+            throw new IOException("Response already finished");
+        }
+        if (this.writer != null) {
+            this.writer.flush();
+        }
+        if (!this.committed && this.contentLength < 0) {
+            this.contentLength = this.count + count;
+        }
+        flushBody();
+        if (this.headRequest || this.bodySuppressed || count == 0) {
+            return;
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        if (this.chunked) {
+            this.connection.write(ByteBuffer.wrap((Long.toHexString(count) + "\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1)), null);
+        }
+        this.connection.writeFile(channel, position, count);
+        if (this.chunked) {
+            this.connection.write(ByteBuffer.wrap(CRLF), null);
+        }
+        this.bytesWritten += count;
+    }
+
+    private void commit(boolean complete) throws IOException {
+        this.committed = true;
+        long length = this.contentLength >= 0 ? this.contentLength : complete ? this.count : -1;
+        boolean http11 = "HTTP/1.1".equals(this.protocol);
+        this.keepAlive = this.requestKeepAlive && this.connection.isAcceptingRequests()
+                && !containsToken("Connection", "close");
+        StringBuilder head = new StringBuilder(256);
+        head.append(this.protocol).append(' ').append(this.status).append(' ')
+                .append(HttpStatusReasons.getReason(this.status)).append("\r\n");
+        head.append("Date: ").append(currentDate()).append("\r\n");
+        if (this.contentType != null) {
+            head.append("Content-Type: ").append(getContentType()).append("\r\n");
+        }
+        if (length >= 0 && this.status != SC_NOT_MODIFIED && this.status != SC_NO_CONTENT) {
+            head.append("Content-Length: ").append(length).append("\r\n");
+        } else if (length < 0 && http11) {
+            this.chunked = true;
+            head.append("Transfer-Encoding: chunked\r\n");
+        } else if (length < 0) {
+            // HTTP/1.0没有分块编码, 以关闭连接标记响应结束
+            this.keepAlive = false;
+        }
+        for (Map.Entry<String, List<String>> entry : this.headers.entrySet()) {
+            String name = entry.getKey();
+            if (name.equalsIgnoreCase("Content-Length") || name.equalsIgnoreCase("Transfer-Encoding")
+                    || name.equalsIgnoreCase("Connection") || name.equalsIgnoreCase("Date")) {
+                continue;
+            }
+            for (String value : entry.getValue()) {
+                head.append(name).append(": ").append(value).append("\r\n");
+            }
+        }
+        if (!this.keepAlive) {
+            head.append("Connection: close\r\n");
+        } else if (!http11) {
+            head.append("Connection: keep-alive\r\n");
+        }
+        head.append("\r\n");
+        this.connection.write(ByteBuffer.wrap(head.toString().getBytes(StandardCharsets.ISO_8859_1)), null);
+    }
+
+    /**
+     * 处理结束时调用, 写出剩余数据并结束响应
+     */
+    void finish() throws IOException {
+        if (this.finished) {
+            return;
+        }
+        this.finishing = true;
+        if (this.writer != null) {
+            this.writer.flush();
+        }
+        this.finished = true;
+        try {
+            if (!this.committed) {
+                commit(true);
+            }
+            if (this.count > 0) {
+                flushBody();
+            }
+            if (this.chunked && !this.headRequest) {
+                this.connection.write(ByteBuffer.wrap(LAST_CHUNK), null);
+            }
+            if (this.contentLength >= 0 && this.bytesWritten != this.contentLength && !this.headRequest) {
+                // 实际长度与Content-Length不符, 连接上的消息边界已经不可靠
+                this.keepAlive = false;
+            }
+        } finally {
+            if (this.buffer != null) {
+                this.bufferPool.release(this.buffer);
+                this.buffer = null;
+            }
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (this.writer != null) {
+            this.writer.flush();
+        }
+        flushBody();
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        if (this.committed || this.count > 0) {
+            throw new IllegalStateException("Cannot set buffer size after content has been written");
+        }
+    }
+
+    @Override
+    public int getBufferSize() {
+        return this.bufferPool.getBufferSize();
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (this.committed) {
+            throw new IllegalStateException("Cannot reset buffer after response has been committed");
+        }
+        this.count = 0;
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        this.headers.clear();
+        this.status = SC_OK;
+        this.contentType = null;
+        this.characterEncoding = null;
+        this.contentLength = -1;
+        this.bodySuppressed = false;
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return this.committed;
+    }
+
+    // ---------------------------------------------------------------- 状态和错误
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        if (this.committed) {
+            throw new IllegalStateException("Cannot send error after response has been committed");
+        }
+        resetBuffer();
+        this.status = sc;
+        this.contentLength = -1;
+        String reason = msg != null ? msg : HttpStatusReasons.getReason(sc);
+        setContentType("text/html;charset=UTF-8");
+        byte[] body = ("<html><body><h1>" + sc + " " + escapeHtml(reason) + "</h1></body></html>")
+                .getBytes(StandardCharsets.UTF_8);
+        writeBody(body, 0, body.length);
+        this.bodySuppressed = true;
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        sendError(sc, null);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        if (this.committed) {
+            throw new IllegalStateException("Cannot redirect after response has been committed");
+        }
+        resetBuffer();
+        this.status = SC_FOUND;
+        setHeader("Location", location);
+        this.bodySuppressed = true;
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        if (!this.committed) {
+            this.status = sc;
+        }
+    }
+
+    @Override
+    @Deprecated
+    public void setStatus(int sc, String sm) {
+        setStatus(sc);
+    }
+
+    @Override
+    public int getStatus() {
+        return this.status;
+    }
+
+    // ---------------------------------------------------------------- 响应头
+
+    @Override
+    public void setContentType(String type) {
+        if (this.committed) {
+            return;
+        }
+        if (type == null) {
+            this.contentType = null;
+            return;
+        }
+        int charsetIndex = type.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (charsetIndex >= 0) {
+            String encoding = type.substring(charsetIndex + 8).trim();
+            int end = encoding.indexOf(';');
+            this.characterEncoding = (end >= 0 ? encoding.substring(0, end) : encoding).replace("\"", "").trim();
+            String base = type.substring(0, charsetIndex).trim();
+            this.contentType = base.endsWith(";") ? base.substring(0, base.length() - 1).trim() : base;
+        } else {
+            this.contentType = type.trim();
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        if (this.contentType == null) {
+            return null;
+        }
+        return this.characterEncoding != null && !this.contentType.startsWith("image/")
+                ? this.contentType + ";charset=" + this.characterEncoding : this.contentType;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        if (!this.committed && this.writer == null) {
+            this.characterEncoding = charset;
+        }
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return this.characterEncoding != null ? this.characterEncoding : StandardCharsets.ISO_8859_1.name();
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (!this.committed) {
+            this.contentLength = len;
+        }
+    }
+
+    @Override
+    public void setLocale(Locale loc) {
+        if (!this.committed && loc != null) {
+            this.locale = loc;
+            setHeader("Content-Language", loc.toLanguageTag());
+        }
+    }
+
+    @Override
+    public Locale getLocale() {
+        return this.locale;
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        StringBuilder value = new StringBuilder(cookie.getName()).append('=')
+                .append(cookie.getValue() != null ? cookie.getValue() : "");
+        if (cookie.getPath() != null) {
+            value.append("; Path=").append(cookie.getPath());
+        }
+        if (cookie.getDomain() != null) {
+            value.append("; Domain=").append(cookie.getDomain());
+        }
+        if (cookie.getMaxAge() >= 0) {
+            value.append("; Max-Age=").append(cookie.getMaxAge());
+        }
+        if (cookie.getSecure()) {
+            value.append("; Secure");
+        }
+        if (cookie.isHttpOnly()) {
+            value.append("; HttpOnly");
+        }
+        addHeader("Set-Cookie", value.toString());
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return this.headers.containsKey(name) || (name.equalsIgnoreCase("Content-Type") && this.contentType != null);
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (this.committed || name == null) {
+            return;
+        }
+        if (handleSpecialHeader(name, value)) {
+            return;
+        }
+        if (value == null) {
+            this.headers.remove(name);
+        } else {
+            List<String> values = new ArrayList<>(1);
+            values.add(value);
+            this.headers.put(name, values);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (this.committed || name == null || value == null) {
+            return;
+        }
+        if (handleSpecialHeader(name, value)) {
+            return;
+        }
+        this.headers.computeIfAbsent(name, key -> new ArrayList<>(1)).add(value);
+    }
+
+    private boolean handleSpecialHeader(String name, String value) {
+        if (name.equalsIgnoreCase("Content-Type")) {
+            setContentType(value);
+            return true;
+        }
+        if (name.equalsIgnoreCase("Content-Length")) {
+            setContentLengthLong(value != null ? Long.parseLong(value.trim()) : -1);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        setHeader(name, formatDate(date));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        addHeader(name, formatDate(date));
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        setHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        addHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public String getHeader(String name) {
+        if (name.equalsIgnoreCase("Content-Type")) {
+            return getContentType();
+        }
+        List<String> values = this.headers.get(name);
+        return values != null && !values.isEmpty() ? values.get(0) : null;
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        List<String> values = this.headers.get(name);
+        return values != null ? Collections.unmodifiableList(values) : Collections.emptyList();
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return Collections.unmodifiableSet(this.headers.keySet());
+    }
+
+    private boolean containsToken(String header, String token) {
+        List<String> values = this.headers.get(header);
+        if (values != null) {
+            for (String value : values) {
+                if (value.toLowerCase(Locale.ROOT).contains(token)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeUrl(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeRedirectUrl(String url) {
+        return url;
+    }
+
+    // ---------------------------------------------------------------- 工具方法
+
+    static String formatDate(long millis) {
+        return HTTP_DATE_FORMAT.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+    }
+
+    /**
+     * 当前时间的HTTP日期, 每秒只格式化一次
+     */
+    private static String currentDate() {
+        long second = System.currentTimeMillis() / 1000;
+        CachedDate date = cachedDate;
+        if (date.second != second) {
+            date = new CachedDate(second, formatDate(second * 1000));
+            cachedDate = date;
+        }
+        return date.text;
+    }
+
+    private static String escapeHtml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static final class CachedDate {
+
+        private final long second;
+
+        private final String text;
+
+        private CachedDate(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+
+    private final class BodyOutputStream extends ServletOutputStream {
+
+        private final byte[] single = new byte[1];
+
+        @Override
+        public void write(int b) throws IOException {
+            this.single[0] = (byte) b;
+            writeBody(this.single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            writeBody(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // 结束时由finish统一写出, 以便短响应仍能带上Content-Length
+            if (!finishing) {
+                flushBody();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("Non-blocking writes are not supported");
+        }
+    }
+}
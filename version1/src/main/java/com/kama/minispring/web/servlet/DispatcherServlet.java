@@ -1,5 +1,11 @@
 package com.kama.minispring.web.servlet;
 
+import com.kama.minispring.web.multipart.MultipartHttpServletRequest;
+import com.kama.minispring.web.multipart.MultipartResolver;
+import com.kama.minispring.web.servlet.async.WebAsyncManager;
+import com.kama.minispring.web.servlet.compression.ResponseCompressor;
+import com.kama.minispring.web.servlet.handler.DefaultHandlerExceptionResolver;
+
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -27,17 +33,80 @@ public class DispatcherServlet extends HttpServlet {
     /** 视图解析器列表 */
     protected List<ViewResolver> viewResolvers;
     
+    /** 处理器异常解析器列表 */
+    protected List<HandlerExceptionResolver> handlerExceptionResolvers;
+    
+    /** 多部分请求解析器, 为null时不解析上传 */
+    protected MultipartResolver multipartResolver;
+    
+    /** 响应压缩, 为null时不压缩 */
+    protected ResponseCompressor responseCompressor;
+    
+    /** 配置的异常解析器都未处理时使用, 将框架标准异常转换为状态码 */
+    private final HandlerExceptionResolver defaultExceptionResolver = new DefaultHandlerExceptionResolver();
+    
     @Override
     public void init() throws ServletException {
-        // 初始化组件列表
-        this.handlerMappings = new ArrayList<>();
-        this.handlerAdapters = new ArrayList<>();
-        this.viewResolvers = new ArrayList<>();
+        // 初始化组件列表, 保留通过setter预先配置的组件
+        if (this.handlerMappings == null) {
+            this.handlerMappings = new ArrayList<>();
+        }
+        if (this.handlerAdapters == null) {
+            this.handlerAdapters = new ArrayList<>();
+        }
+        if (this.viewResolvers == null) {
+            this.viewResolvers = new ArrayList<>();
+        }
+        if (this.handlerExceptionResolvers == null) {
+            this.handlerExceptionResolvers = new ArrayList<>();
+        }
         
         // 初始化Spring容器并加载配置
         initStrategies();
     }
     
+    /**
+     * 设置处理器映射, 用于不经过容器直接组装分发器的场景, 如内嵌服务器
+     */
+    public void setHandlerMappings(List<HandlerMapping> handlerMappings) {
+        this.handlerMappings = new ArrayList<>(handlerMappings);
+    }
+    
+    /**
+     * 设置处理器适配器
+     */
+    public void setHandlerAdapters(List<HandlerAdapter> handlerAdapters) {
+        this.handlerAdapters = new ArrayList<>(handlerAdapters);
+    }
+    
+    /**
+     * 设置视图解析器
+     */
+    public void setViewResolvers(List<ViewResolver> viewResolvers) {
+        this.viewResolvers = new ArrayList<>(viewResolvers);
+    }
+    
+    /**
+     * 设置处理器异常解析器, 按顺序调用直到某个解析器返回非null的ModelAndView
+     */
+    public void setHandlerExceptionResolvers(List<HandlerExceptionResolver> handlerExceptionResolvers) {
+        this.handlerExceptionResolvers = new ArrayList<>(handlerExceptionResolvers);
+    }
+    
+    /**
+     * 设置多部分请求解析器
+     */
+    public void setMultipartResolver(MultipartResolver multipartResolver) {
+        this.multipartResolver = multipartResolver;
+    }
+    
+    /**
+     * 设置响应压缩
+     */
+    public void setResponseCompressor(ResponseCompressor responseCompressor) {
+        this.responseCompressor = responseCompressor;
+    }
+    
     /**
      * 初始化各种策略
      */
@@ -56,54 +125,140 @@ public class DispatcherServlet extends HttpServlet {
     protected void doDispatch(HttpServletRequest request, HttpServletResponse response) 
             throws ServletException, IOException {
         HttpServletRequest processedRequest = request;
+        HttpServletResponse processedResponse = (this.responseCompressor != null
+                ? this.responseCompressor.wrap(request, response) : response);
         HandlerExecutionChain mappedHandler = null;
         ModelAndView mv = null;
         Exception dispatchException = null;
+        boolean asyncStarted = false;
         
         try {
-            // 1. 查找Handler
-            mappedHandler = getHandler(processedRequest);
-            if (mappedHandler == null) {
-                noHandlerFound(processedRequest, response);
-                return;
+            try {
+                // 解析多部分请求, 之后的处理器和拦截器看到的是包装后的请求
+                processedRequest = checkMultipart(request);
+                
+                // 1. 查找Handler
+                mappedHandler = getHandler(processedRequest);
+                if (mappedHandler == null) {
+                    noHandlerFound(processedRequest, processedResponse);
+                    return;
+                }
+                
+                // 2. 查找HandlerAdapter
+                HandlerAdapter ha = getHandlerAdapter(mappedHandler.getHandler());
+                
+                // 3. 执行前置拦截器
+                if (!mappedHandler.applyPreHandle(processedRequest, processedResponse)) {
+                    return;
+                }
+                
+                // 4. 执行处理器方法
+                mv = ha.handle(processedRequest, processedResponse, mappedHandler.getHandler());
+                
+                // 处理器开始异步处理时, 由得到结果的线程继续后置拦截、渲染和完成回调
+                WebAsyncManager asyncManager = WebAsyncManager.getStartedAsyncManager(processedRequest);
+                if (asyncManager != null) {
+                    HandlerExecutionChain asyncHandler = mappedHandler;
+                    HttpServletRequest asyncRequest = processedRequest;
+                    asyncHandler.applyAfterConcurrentHandlingStarted(processedRequest, processedResponse);
+                    asyncStarted = true;
+                    asyncManager.setConcurrentResultHandler((asyncMv, asyncEx) -> {
+                        try {
+                            processAsyncResult(asyncRequest, processedResponse, asyncHandler, asyncMv, asyncEx);
+                        } finally {
+                            completeRequest(request, asyncRequest, processedResponse);
+                        }
+                    });
+                    return;
+                }
+                
+                // 5. 执行后置拦截器
+                mappedHandler.applyPostHandle(processedRequest, processedResponse, mv);
+                
+            } catch (Exception ex) {
+                dispatchException = ex;
             }
             
-            // 2. 查找HandlerAdapter
-            HandlerAdapter ha = getHandlerAdapter(mappedHandler.getHandler());
-            
-            // 3. 执行前置拦截器
-            if (!mappedHandler.applyPreHandle(processedRequest, response)) {
-                return;
+            try {
+                // 6. 处理异常或渲染视图
+                if (dispatchException != null) {
+                    processHandlerException(processedRequest, processedResponse, mappedHandler, dispatchException);
+                } else if (mv != null && !mv.wasCleared()) {
+                    render(mv, processedRequest, processedResponse);
+                }
+            } finally {
+                // 7. 触发完成回调
+                if (mappedHandler != null) {
+                    try {
+                        mappedHandler.triggerAfterCompletion(processedRequest, processedResponse, dispatchException);
+                    } catch (Exception ex) {
+                        throw new ServletException("Could not complete after-completion", ex);
+                    }
+                }
+            }
+        } finally {
+            // 异步处理时由异步结果回调负责清理
+            if (!asyncStarted) {
+                completeRequest(request, processedRequest, processedResponse);
+            }
+        }
+    }
+    
+    /**
+     * 多部分请求时交给MultipartResolver解析, 否则原样返回
+     */
+    protected HttpServletRequest checkMultipart(HttpServletRequest request) {
+        if (this.multipartResolver != null && !(request instanceof MultipartHttpServletRequest)
+                && this.multipartResolver.isMultipart(request)) {
+            return this.multipartResolver.resolveMultipart(request);
+        }
+        return request;
+    }
+    
+    /**
+     * 请求处理结束时释放上传占用的资源, 并写出压缩响应的剩余数据
+     */
+    protected void completeRequest(HttpServletRequest originalRequest, HttpServletRequest processedRequest,
+            HttpServletResponse processedResponse) throws IOException {
+        try {
+            cleanupMultipart(originalRequest, processedRequest);
+        } finally {
+            if (this.responseCompressor != null) {
+                this.responseCompressor.finish(processedResponse);
+            }
+        }
+    }
+    
+    /**
+     * 释放解析上传时占用的缓冲和临时文件
+     */
+    protected void cleanupMultipart(HttpServletRequest originalRequest, HttpServletRequest processedRequest) {
+        if (processedRequest != originalRequest && processedRequest instanceof MultipartHttpServletRequest) {
+            this.multipartResolver.cleanupMultipart((MultipartHttpServletRequest) processedRequest);
+        }
+    }
+    
+    /**
+     * 处理异步结果, 在得到结果的线程上执行后置拦截器、渲染视图或处理异常, 最后触发完成回调
+     */
+    protected void processAsyncResult(HttpServletRequest request, HttpServletResponse response,
+            HandlerExecutionChain mappedHandler, ModelAndView mv, Exception asyncException) throws Exception {
+        Exception dispatchException = asyncException;
+        if (dispatchException == null) {
+            try {
+                mappedHandler.applyPostHandle(request, response, mv);
+            } catch (Exception ex) {
+                dispatchException = ex;
             }
-            
-            // 4. 执行处理器方法
-            mv = ha.handle(processedRequest, response, mappedHandler.getHandler());
-            
-            // 5. 执行后置拦截器
-            mappedHandler.applyPostHandle(processedRequest, response, mv);
-            
-        } catch (ServletException | IOException ex) {
-            throw ex;
-        } catch (Exception ex) {
-            dispatchException = ex;
         }
-        
         try {
-            // 6. 处理异常或渲染视图
             if (dispatchException != null) {
-                processHandlerException(processedRequest, response, mappedHandler, dispatchException);
+                processHandlerException(request, response, mappedHandler, dispatchException);
             } else if (mv != null && !mv.wasCleared()) {
                 render(mv, request, response);
             }
         } finally {
-            // 7. 触发完成回调
-            if (mappedHandler != null) {
-                try {
-                    mappedHandler.triggerAfterCompletion(request, response, dispatchException);
-                } catch (Exception ex) {
-                    throw new ServletException("Could not complete after-completion", ex);
-                }
-            }
+            mappedHandler.triggerAfterCompletion(request, response, dispatchException);
         }
     }
     
@@ -119,6 +274,18 @@ public class DispatcherServlet extends HttpServlet {
         processRequest(request, response);
     }
     
+    @Override
+    protected void doPut(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        processRequest(request, response);
+    }
+    
+    @Override
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        processRequest(request, response);
+    }
+    
     /**
      * 处理请求的入口方法
      */
@@ -171,9 +338,33 @@ public class DispatcherServlet extends HttpServlet {
     
     /**
      * 处理Handler执行过程中的异常
+     * 依次交给异常解析器, 返回带视图的ModelAndView时渲染错误视图, 返回空的ModelAndView表示响应已完成;
+     * 都未处理时, ServletException原样抛出交给容器, 其余异常返回500
      */
     protected void processHandlerException(HttpServletRequest request, HttpServletResponse response,
             HandlerExecutionChain handler, Exception ex) throws ServletException, IOException {
+        Object handlerObject = (handler != null ? handler.getHandler() : null);
+        ModelAndView exMv = null;
+        if (this.handlerExceptionResolvers != null) {
+            for (HandlerExceptionResolver resolver : this.handlerExceptionResolvers) {
+                exMv = resolver.resolveException(request, response, handlerObject, ex);
+                if (exMv != null) {
+                    break;
+                }
+            }
+        }
+        if (exMv == null) {
+            exMv = this.defaultExceptionResolver.resolveException(request, response, handlerObject, ex);
+        }
+        if (exMv != null) {
+            if (exMv.hasView() && !exMv.wasCleared()) {
+                render(exMv, request, response);
+            }
+            return;
+        }
+        if (ex instanceof ServletException) {
+            throw (ServletException) ex;
+        }
         response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
     }
     
@@ -212,7 +403,7 @@ public class DispatcherServlet extends HttpServlet {
     protected View resolveViewName(String viewName, Map<String, Object> model,
             HttpServletRequest request) throws Exception {
         for (ViewResolver viewResolver : this.viewResolvers) {
-            View view = viewResolver.resolveViewName(viewName);
+            View view = viewResolver.resolveViewName(viewName, request.getLocale());
             if (view != null) {
                 return view;
             }
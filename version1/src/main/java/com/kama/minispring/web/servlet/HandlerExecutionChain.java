@@ -1,26 +1,45 @@
 package com.kama.minispring.web.servlet;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * 处理器执行链
  * 包含处理器和拦截器链
+ * 拦截器数组可以由处理器映射按路由预先构建并在请求间共享, 每个请求只分配记录执行进度的链对象本身
  *
  * @author kama
  * @version 1.0.0
  */
 public class HandlerExecutionChain {
     
+    private static final Logger logger = LoggerFactory.getLogger(HandlerExecutionChain.class);
+    
+    private static final HandlerInterceptor[] NO_INTERCEPTORS = new HandlerInterceptor[0];
+    
     private final Object handler;
-    private final List<HandlerInterceptor> interceptors = new ArrayList<>();
+    private HandlerInterceptor[] interceptors;
     private int interceptorIndex = -1;
     private boolean afterCompletionCalled = false;
     
     public HandlerExecutionChain(Object handler) {
+        this(handler, NO_INTERCEPTORS);
+    }
+    
+    /**
+     * 使用预先构建的拦截器数组创建执行链
+     * 数组不会被复制, 调用方在共享期间不得修改它; addInterceptor会先复制再追加
+     *
+     * @param handler 处理器
+     * @param interceptors 拦截器数组
+     */
+    public HandlerExecutionChain(Object handler, HandlerInterceptor[] interceptors) {
         this.handler = handler;
+        this.interceptors = interceptors;
     }
     
     public Object getHandler() {
@@ -28,7 +47,16 @@ public class HandlerExecutionChain {
     }
     
     public void addInterceptor(HandlerInterceptor interceptor) {
-        this.interceptors.add(interceptor);
+        HandlerInterceptor[] extended = Arrays.copyOf(this.interceptors, this.interceptors.length + 1);
+        extended[this.interceptors.length] = interceptor;
+        this.interceptors = extended;
+    }
+    
+    /**
+     * 获取拦截器的副本
+     */
+    public HandlerInterceptor[] getInterceptors() {
+        return this.interceptors.clone();
     }
     
     /**
@@ -38,12 +66,12 @@ public class HandlerExecutionChain {
      */
     public boolean applyPreHandle(HttpServletRequest request, HttpServletResponse response) 
             throws Exception {
-        if (interceptors.isEmpty()) {
+        if (interceptors.length == 0) {
             return true;
         }
 
-        for (int i = 0; i < interceptors.size(); i++) {
-            HandlerInterceptor interceptor = interceptors.get(i);
+        for (int i = 0; i < interceptors.length; i++) {
+            HandlerInterceptor interceptor = interceptors[i];
             boolean result;
             try {
                 result = interceptor.preHandle(request, response, this.handler);
@@ -67,33 +95,50 @@ public class HandlerExecutionChain {
      */
     public void applyPostHandle(HttpServletRequest request, HttpServletResponse response,
             ModelAndView mv) throws Exception {
-        if (interceptors.isEmpty()) {
+        if (interceptors.length == 0) {
             return;
         }
-        for (int i = interceptors.size() - 1; i >= 0; i--) {
-            HandlerInterceptor interceptor = interceptors.get(i);
+        for (int i = interceptors.length - 1; i >= 0; i--) {
+            HandlerInterceptor interceptor = interceptors[i];
             interceptor.postHandle(request, response, this.handler, mv);
         }
     }
     
+    /**
+     * 处理器开始异步处理后调用已执行preHandle的AsyncHandlerInterceptor
+     */
+    public void applyAfterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response) {
+        for (int i = interceptorIndex; i >= 0; i--) {
+            HandlerInterceptor interceptor = interceptors[i];
+            if (interceptor instanceof AsyncHandlerInterceptor) {
+                try {
+                    ((AsyncHandlerInterceptor) interceptor).afterConcurrentHandlingStarted(
+                            request, response, this.handler);
+                } catch (Throwable throwable) {
+                    logger.error("AsyncHandlerInterceptor.afterConcurrentHandlingStarted threw exception", throwable);
+                }
+            }
+        }
+    }
+
     /**
      * 触发完成处理
      * 如果处理器执行过程中出现异常，则会调用该方法
      */
     public void triggerAfterCompletion(HttpServletRequest request,
             HttpServletResponse response, Exception ex) throws Exception {
-        if (interceptors.isEmpty() || afterCompletionCalled) {
+        if (interceptors.length == 0 || afterCompletionCalled) {
             return;
         }
         afterCompletionCalled = true;
-        int endIndex = interceptorIndex == -1 ? interceptors.size() - 1 : interceptorIndex;
+        int endIndex = interceptorIndex == -1 ? interceptors.length - 1 : interceptorIndex;
         for (int i = endIndex; i >= 0; i--) {
-            HandlerInterceptor interceptor = interceptors.get(i);
+            HandlerInterceptor interceptor = interceptors[i];
             try {
                 interceptor.afterCompletion(request, response, this.handler, ex);
             } catch (Throwable throwable) {
                 // Log the exception but continue with other interceptors
-                System.err.println("HandlerInterceptor.afterCompletion threw exception: " + throwable);
+                logger.error("HandlerInterceptor.afterCompletion threw exception", throwable);
             }
         }
     }
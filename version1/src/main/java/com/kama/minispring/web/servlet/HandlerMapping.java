@@ -11,6 +11,21 @@ import javax.servlet.http.HttpServletRequest;
  */
 public interface HandlerMapping {
     
+    /**
+     * 请求属性名, 保存命中的路径模式
+     */
+    String BEST_MATCHING_PATTERN_ATTRIBUTE = HandlerMapping.class.getName() + ".bestMatchingPattern";
+    
+    /**
+     * 请求属性名, 保存从路径中捕获的变量, 类型为Map&lt;String, String&gt;
+     */
+    String URI_TEMPLATE_VARIABLES_ATTRIBUTE = HandlerMapping.class.getName() + ".uriTemplateVariables";
+    
+    /**
+     * 请求属性名, 保存路径模式匹配部分之后的剩余路径, 如静态资源的相对路径
+     */
+    String PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE = HandlerMapping.class.getName() + ".pathWithinHandlerMapping";
+    
     /**
      * 根据请求查找对应的处理器执行链
      * 返回的HandlerExecutionChain包含处理器和拦截器链
@@ -0,0 +1,27 @@
+package com.kama.minispring.web.servlet;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 直接处理请求的处理器接口
+ * 不经过参数解析和视图渲染, 适合静态资源等自行写出响应的场景
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public interface HttpRequestHandler {
+
+    /**
+     * 处理请求并写出响应
+     *
+     * @param request 当前HTTP请求
+     * @param response 当前HTTP响应
+     * @throws ServletException 处理失败
+     * @throws IOException 读写失败
+     */
+    void handleRequest(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException;
+}
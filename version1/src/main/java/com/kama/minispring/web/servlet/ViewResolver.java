@@ -1,5 +1,7 @@
 package com.kama.minispring.web.servlet;
 
+import java.util.Locale;
+
 /**
  * 视图解析器接口，负责将视图名称解析为View对象
  * 
@@ -15,4 +17,15 @@ public interface ViewResolver {
      * @throws Exception 解析过程中的异常
      */
     View resolveViewName(String viewName) throws Exception;
+    
+    /**
+     * 按请求的区域解析视图, 支持本地化模板的解析器可覆盖此方法
+     * @param viewName 视图名称
+     * @param locale 请求的区域, 可能为null
+     * @return View对象，如果无法解析则返回null
+     * @throws Exception 解析过程中的异常
+     */
+    default View resolveViewName(String viewName, Locale locale) throws Exception {
+        return resolveViewName(viewName);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.kama.minispring.web.servlet.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 缓存控制注解
+ * 标注在处理器方法或控制器类上, GET和HEAD请求的成功响应会带上对应的Cache-Control响应头,
+ * 并按响应体的摘要生成ETag; 请求的If-None-Match与之匹配时返回304, 不再发送响应体.
+ * 需要由{@link com.kama.minispring.web.servlet.cache.CachingHandlerAdapter}执行处理器方法才会生效
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CacheControl {
+
+    /**
+     * 客户端可以缓存的秒数, 小于0时不输出max-age
+     */
+    long maxAge() default -1;
+
+    /**
+     * 客户端每次使用缓存前必须重新验证
+     */
+    boolean noCache() default false;
+
+    /**
+     * 客户端和中间代理都不得缓存, 设置后忽略其余指令
+     */
+    boolean noStore() default false;
+
+    /**
+     * 缓存过期后必须重新验证
+     */
+    boolean mustRevalidate() default false;
+
+    /**
+     * 只允许客户端缓存, 不允许共享缓存
+     */
+    boolean cachePrivate() default false;
+
+    /**
+     * 是否按响应体生成ETag并处理If-None-Match
+     */
+    boolean eTag() default true;
+}
@@ -0,0 +1,26 @@
+package com.kama.minispring.web.servlet.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 路径变量绑定注解
+ * 将@RequestMapping路径模式中{name}捕获的值绑定到处理器方法参数
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface PathVariable {
+
+    /**
+     * 路径变量名, 为空时使用方法参数名
+     */
+    String value() default "";
+
+    /**
+     * 是否必须存在
+     */
+    boolean required() default true;
+}
@@ -0,0 +1,21 @@
+package com.kama.minispring.web.servlet.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 请求体绑定注解
+ * 将请求体绑定到处理器方法参数
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RequestBody {
+
+    /**
+     * 请求体是否必须非空
+     */
+    boolean required() default true;
+}
@@ -0,0 +1,31 @@
+package com.kama.minispring.web.servlet.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 请求头绑定注解
+ * 将请求头绑定到处理器方法参数，参数类型不是字符串时通过TypeConverter转换
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RequestHeader {
+
+    /**
+     * 请求头名称, 为空时使用方法参数名
+     */
+    String value() default "";
+
+    /**
+     * 是否必须存在, 有默认值时忽略
+     */
+    boolean required() default true;
+
+    /**
+     * 不存在或为空时使用的默认值
+     */
+    String defaultValue() default ValueConstants.DEFAULT_NONE;
+}
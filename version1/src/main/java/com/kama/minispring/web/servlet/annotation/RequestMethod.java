@@ -7,5 +7,37 @@ package com.kama.minispring.web.servlet.annotation;
  * @version 1.0.0
  */
 public enum RequestMethod {
-    GET, HEAD, POST, PUT, PATCH, DELETE, OPTIONS, TRACE
-} 
\ No newline at end of file
+    GET, HEAD, POST, PUT, PATCH, DELETE, OPTIONS, TRACE;
+
+    /**
+     * 解析请求方法名, 不抛出异常
+     *
+     * @param method 请求方法名, 区分大小写
+     * @return 对应的枚举值, 未知方法返回null
+     */
+    public static RequestMethod resolve(String method) {
+        if (method == null) {
+            return null;
+        }
+        switch (method) {
+            case "GET":
+                return GET;
+            case "HEAD":
+                return HEAD;
+            case "POST":
+                return POST;
+            case "PUT":
+                return PUT;
+            case "PATCH":
+                return PATCH;
+            case "DELETE":
+                return DELETE;
+            case "OPTIONS":
+                return OPTIONS;
+            case "TRACE":
+                return TRACE;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.kama.minispring.web.servlet.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 响应体注解
+ * 标注在处理器方法或控制器类上, 返回值由HttpMessageConverter直接写入响应体, 不再解析视图
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ResponseBody {
+}
@@ -0,0 +1,34 @@
+package com.kama.minispring.web.servlet.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 服务端响应缓存注解
+ * 标注在幂等的处理器方法或控制器类上, GET和HEAD请求的200响应(状态、响应头和响应体)在服务端缓存ttl秒,
+ * 缓存键由请求路径以及keyHeaders、keyParams指定的请求头和请求参数组成.
+ * 缓存过期后只有一个请求重新执行处理器, 其余请求继续使用旧的响应.
+ * 需要由配置了缓存的{@link com.kama.minispring.web.servlet.cache.CachingHandlerAdapter}执行处理器方法才会生效
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ResponseCache {
+
+    /**
+     * 缓存的秒数
+     */
+    long ttl() default 60;
+
+    /**
+     * 参与缓存键的请求头, 同时写入Vary响应头
+     */
+    String[] keyHeaders() default {};
+
+    /**
+     * 参与缓存键的请求参数, 未列出的参数不影响缓存
+     */
+    String[] keyParams() default {};
+}
@@ -0,0 +1,15 @@
+package com.kama.minispring.web.servlet.annotation;
+
+/**
+ * 请求绑定注解共用的常量
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public interface ValueConstants {
+
+    /**
+     * 表示没有默认值, 用于区分空字符串默认值
+     */
+    String DEFAULT_NONE = "\n\t\t\n\t\t\n\n\t\t\t\t\n";
+}
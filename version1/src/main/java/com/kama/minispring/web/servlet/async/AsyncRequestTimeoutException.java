@@ -0,0 +1,15 @@
+package com.kama.minispring.web.servlet.async;
+
+/**
+ * 异步请求超时异常
+ * 异步处理在超时前没有产生结果时作为处理器异常抛出, DispatcherServlet以503响应
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class AsyncRequestTimeoutException extends RuntimeException {
+
+    public AsyncRequestTimeoutException() {
+        super("Async request timed out");
+    }
+}
@@ -0,0 +1,208 @@
+package com.kama.minispring.web.servlet.async;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Consumer;
+
+/**
+ * 延迟结果
+ * 处理器返回DeferredResult后请求进入异步模式, 任意线程调用setResult或setErrorResult时完成请求
+ * 超时时依次执行onTimeout回调, 回调未设置结果时使用构造时给定的超时结果, 都没有时以AsyncRequestTimeoutException结束
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class DeferredResult<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeferredResult.class);
+
+    private static final Object RESULT_NONE = new Object();
+
+    private final Long timeoutValue;
+
+    private final Object timeoutResult;
+
+    private Runnable timeoutCallback;
+
+    private Consumer<Throwable> errorCallback;
+
+    private Runnable completionCallback;
+
+    private ResultHandler resultHandler;
+
+    private Object result = RESULT_NONE;
+
+    private boolean expired;
+
+    public DeferredResult() {
+        this(null, RESULT_NONE);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param timeoutValue 超时时间(毫秒), 为null时使用适配器的默认超时
+     */
+    public DeferredResult(Long timeoutValue) {
+        this(timeoutValue, RESULT_NONE);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param timeoutValue 超时时间(毫秒), 为null时使用适配器的默认超时
+     * @param timeoutResult 超时时使用的结果
+     */
+    public DeferredResult(Long timeoutValue, Object timeoutResult) {
+        this.timeoutValue = timeoutValue;
+        this.timeoutResult = timeoutResult;
+    }
+
+    public Long getTimeoutValue() {
+        return this.timeoutValue;
+    }
+
+    /**
+     * 注册超时回调, 回调中可以设置结果
+     */
+    public void onTimeout(Runnable callback) {
+        this.timeoutCallback = callback;
+    }
+
+    /**
+     * 注册异步处理出错时的回调, 例如客户端断开连接
+     */
+    public void onError(Consumer<Throwable> callback) {
+        this.errorCallback = callback;
+    }
+
+    /**
+     * 注册请求完成时的回调, 包括正常完成、超时和出错
+     */
+    public void onCompletion(Runnable callback) {
+        this.completionCallback = callback;
+    }
+
+    /**
+     * 设置结果
+     *
+     * @param result 结果
+     * @return 是否设置成功, 已经设置过结果或已经结束时返回false
+     */
+    public boolean setResult(T result) {
+        return setResultInternal(result);
+    }
+
+    /**
+     * 设置错误结果, Exception按处理器异常处理, 其他值按普通结果处理
+     *
+     * @param result 错误结果
+     * @return 是否设置成功
+     */
+    public boolean setErrorResult(Object result) {
+        return setResultInternal(result);
+    }
+
+    public final synchronized boolean isSetOrExpired() {
+        return this.result != RESULT_NONE || this.expired;
+    }
+
+    public synchronized boolean hasResult() {
+        return this.result != RESULT_NONE;
+    }
+
+    /**
+     * 获取结果
+     *
+     * @return 结果, 尚未设置时为null
+     */
+    public synchronized Object getResult() {
+        return this.result != RESULT_NONE ? this.result : null;
+    }
+
+    private boolean setResultInternal(Object result) {
+        ResultHandler handler;
+        synchronized (this) {
+            if (isSetOrExpired()) {
+                return false;
+            }
+            this.result = result;
+            handler = this.resultHandler;
+        }
+        if (handler != null) {
+            handler.handleResult(result);
+        }
+        return true;
+    }
+
+    /**
+     * 由WebAsyncManager在异步处理开始后设置, 结果已经存在时立即回调
+     */
+    void setResultHandler(ResultHandler resultHandler) {
+        Object resultToHandle;
+        synchronized (this) {
+            this.resultHandler = resultHandler;
+            if (this.result == RESULT_NONE || this.expired) {
+                return;
+            }
+            resultToHandle = this.result;
+        }
+        resultHandler.handleResult(resultToHandle);
+    }
+
+    /**
+     * 处理超时, 返回是否已经得到结果
+     */
+    boolean handleTimeout() {
+        if (this.timeoutCallback != null) {
+            try {
+                this.timeoutCallback.run();
+            } catch (RuntimeException ex) {
+                logger.error("DeferredResult timeout callback failed", ex);
+            }
+        }
+        if (this.timeoutResult != RESULT_NONE) {
+            setResultInternal(this.timeoutResult);
+        }
+        synchronized (this) {
+            boolean resolved = this.result != RESULT_NONE;
+            this.expired = true;
+            return resolved;
+        }
+    }
+
+    void handleError(Throwable ex) {
+        synchronized (this) {
+            this.expired = true;
+        }
+        if (this.errorCallback != null) {
+            try {
+                this.errorCallback.accept(ex);
+            } catch (RuntimeException callbackEx) {
+                logger.error("DeferredResult error callback failed", callbackEx);
+            }
+        }
+    }
+
+    void handleCompletion() {
+        synchronized (this) {
+            this.expired = true;
+        }
+        if (this.completionCallback != null) {
+            try {
+                this.completionCallback.run();
+            } catch (RuntimeException ex) {
+                logger.error("DeferredResult completion callback failed", ex);
+            }
+        }
+    }
+
+    /**
+     * 结果回调
+     */
+    interface ResultHandler {
+
+        void handleResult(Object result);
+    }
+}
@@ -0,0 +1,337 @@
+package com.kama.minispring.web.servlet.async;
+
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.web.servlet.ModelAndView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 异步请求管理器
+ * 每个请求一个, 保存在请求属性中。处理器适配器通过它启动Servlet异步模式并提交异步结果,
+ * DispatcherServlet在处理器返回后注册结果回调, 由得到结果的线程完成后置拦截、视图渲染和AsyncContext.complete
+ * 结果、超时和出错只有第一个生效
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public final class WebAsyncManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebAsyncManager.class);
+
+    /**
+     * 保存WebAsyncManager的请求属性名
+     */
+    public static final String WEB_ASYNC_MANAGER_ATTRIBUTE = WebAsyncManager.class.getName() + ".WEB_ASYNC_MANAGER";
+
+    private final HttpServletRequest request;
+
+    private final HttpServletResponse response;
+
+    private volatile AsyncContext asyncContext;
+
+    private volatile Runnable timeoutHandler;
+
+    private volatile Runnable cancelHandler;
+
+    private volatile Runnable completionHandler;
+
+    /** 已有结果被采用, 之后的结果、超时和出错都被忽略 */
+    private boolean resultSet;
+
+    /** 被采用的结果已转换完成, 可以交给结果回调 */
+    private boolean resultReady;
+
+    private ModelAndView concurrentResult;
+
+    private Exception concurrentException;
+
+    private ConcurrentResultHandler resultHandler;
+
+    private WebAsyncManager(HttpServletRequest request, HttpServletResponse response) {
+        this.request = request;
+        this.response = response;
+    }
+
+    /**
+     * 获取请求的异步管理器, 不存在时创建
+     *
+     * @param request 当前请求
+     * @param response 当前响应
+     * @return 异步管理器
+     */
+    public static WebAsyncManager getAsyncManager(HttpServletRequest request, HttpServletResponse response) {
+        Object existing = request.getAttribute(WEB_ASYNC_MANAGER_ATTRIBUTE);
+        if (existing instanceof WebAsyncManager) {
+            return (WebAsyncManager) existing;
+        }
+        WebAsyncManager manager = new WebAsyncManager(request, response);
+        request.setAttribute(WEB_ASYNC_MANAGER_ATTRIBUTE, manager);
+        return manager;
+    }
+
+    /**
+     * 获取已经开始异步处理的管理器, 同步请求不会创建管理器
+     *
+     * @param request 当前请求
+     * @return 异步管理器, 请求没有开始异步处理时为null
+     */
+    public static WebAsyncManager getStartedAsyncManager(HttpServletRequest request) {
+        Object existing = request.getAttribute(WEB_ASYNC_MANAGER_ATTRIBUTE);
+        return existing instanceof WebAsyncManager && ((WebAsyncManager) existing).isConcurrentHandlingStarted()
+                ? (WebAsyncManager) existing : null;
+    }
+
+    public boolean isConcurrentHandlingStarted() {
+        return this.asyncContext != null;
+    }
+
+    /**
+     * 在执行器中执行Callable, 超时或客户端断开时中断执行线程
+     *
+     * @param callable 任务
+     * @param executor 执行器
+     * @param timeout 超时时间(毫秒), 为null时使用容器默认值
+     * @param resultConverter 将任务结果转换为ModelAndView
+     */
+    public void startCallableProcessing(Callable<?> callable, Executor executor, Long timeout,
+            ResultConverter resultConverter) {
+        Assert.notNull(callable, "Callable must not be null");
+        Assert.notNull(executor, "Executor must not be null");
+        FutureTask<Object> task = new FutureTask<Object>(callable::call) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    setConcurrentResult(resultConverter, get(), null);
+                } catch (ExecutionException ex) {
+                    setConcurrentResult(resultConverter, null, ex.getCause());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    setConcurrentResult(resultConverter, null, ex);
+                }
+            }
+        };
+        this.cancelHandler = () -> task.cancel(true);
+        this.timeoutHandler = () -> {
+            // 取消失败说明任务已经完成, 以任务的结果为准
+            if (task.cancel(true)) {
+                setConcurrentResult(resultConverter, null, new AsyncRequestTimeoutException());
+            }
+        };
+        startAsync(timeout);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            setConcurrentResult(resultConverter, null, ex);
+        }
+    }
+
+    /**
+     * 等待DeferredResult的结果
+     *
+     * @param deferredResult 延迟结果
+     * @param timeout 默认超时时间(毫秒), DeferredResult自身指定了超时时间时以其为准
+     * @param resultConverter 将结果转换为ModelAndView
+     */
+    public void startDeferredResultProcessing(DeferredResult<?> deferredResult, Long timeout,
+            ResultConverter resultConverter) {
+        Assert.notNull(deferredResult, "DeferredResult must not be null");
+        this.cancelHandler = () -> deferredResult.handleError(new CancellationException("Async request failed"));
+        this.completionHandler = deferredResult::handleCompletion;
+        this.timeoutHandler = () -> {
+            if (!deferredResult.handleTimeout()) {
+                setConcurrentResult(resultConverter, null, new AsyncRequestTimeoutException());
+            }
+        };
+        startAsync(deferredResult.getTimeoutValue() != null ? deferredResult.getTimeoutValue() : timeout);
+        deferredResult.setResultHandler(result -> setConcurrentResult(resultConverter,
+                result instanceof Throwable ? null : result, result instanceof Throwable ? (Throwable) result : null));
+    }
+
+    /**
+     * 等待CompletionStage完成, 超时或客户端断开时取消
+     *
+     * @param stage 异步结果
+     * @param timeout 超时时间(毫秒), 为null时使用容器默认值
+     * @param resultConverter 将结果转换为ModelAndView
+     */
+    public void startCompletionStageProcessing(CompletionStage<?> stage, Long timeout,
+            ResultConverter resultConverter) {
+        Assert.notNull(stage, "CompletionStage must not be null");
+        DeferredResult<Object> deferredResult = new DeferredResult<>(timeout);
+        deferredResult.onTimeout(() -> {
+            // 先提交超时结果再取消, 取消引发的CancellationException随后到达时被忽略
+            deferredResult.setErrorResult(new AsyncRequestTimeoutException());
+            stage.toCompletableFuture().cancel(true);
+        });
+        deferredResult.onError(ex -> stage.toCompletableFuture().cancel(true));
+        startDeferredResultProcessing(deferredResult, timeout, resultConverter);
+        stage.whenComplete((value, ex) -> {
+            if (ex != null) {
+                deferredResult.setErrorResult(ex instanceof CompletionException && ex.getCause() != null
+                        ? ex.getCause() : ex);
+            } else {
+                deferredResult.setResult(value);
+            }
+        });
+    }
+
+    private void startAsync(Long timeout) {
+        if (this.asyncContext != null) {
+            throw new IllegalStateException("Async processing has already been started");
+        }
+        if (!this.request.isAsyncSupported()) {
+            throw new IllegalStateException("Async support must be enabled on the servlet and all filters");
+        }
+        AsyncContext context = this.request.startAsync(this.request, this.response);
+        if (timeout != null) {
+            context.setTimeout(timeout);
+        }
+        context.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                Runnable handler = timeoutHandler;
+                if (handler != null) {
+                    handler.run();
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                Runnable handler = cancelHandler;
+                if (handler != null) {
+                    handler.run();
+                }
+                Throwable error = event.getThrowable();
+                setConcurrentResult(null, null, error != null ? error
+                        : new CancellationException("Async request failed"));
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        this.asyncContext = context;
+    }
+
+    private void setConcurrentResult(ResultConverter resultConverter, Object value, Throwable error) {
+        // 先占用结果再转换, @ResponseBody的转换会写出响应体, 不能与超时的sendError同时进行
+        synchronized (this) {
+            if (this.resultSet) {
+                logger.debug("Ignoring late async result for {}", this.request.getRequestURI());
+                return;
+            }
+            this.resultSet = true;
+        }
+        ModelAndView mv = null;
+        Exception ex = null;
+        if (error == null) {
+            try {
+                mv = resultConverter != null ? resultConverter.convert(value) : null;
+            } catch (Exception conversionEx) {
+                ex = conversionEx;
+            }
+        } else {
+            ex = error instanceof Exception ? (Exception) error
+                    : new ServletException("Async processing failed", error);
+        }
+        ConcurrentResultHandler handler;
+        synchronized (this) {
+            this.resultReady = true;
+            this.concurrentResult = mv;
+            this.concurrentException = ex;
+            handler = this.resultHandler;
+        }
+        if (handler != null) {
+            dispatchResult(handler, mv, ex);
+        }
+    }
+
+    /**
+     * 注册结果回调, 已经得到结果时在当前线程立即回调
+     * 回调结束后完成AsyncContext
+     *
+     * @param resultHandler 结果回调
+     */
+    public void setConcurrentResultHandler(ConcurrentResultHandler resultHandler) {
+        Assert.notNull(resultHandler, "ConcurrentResultHandler must not be null");
+        synchronized (this) {
+            this.resultHandler = resultHandler;
+            if (!this.resultReady) {
+                return;
+            }
+        }
+        dispatchResult(resultHandler, this.concurrentResult, this.concurrentException);
+    }
+
+    private void dispatchResult(ConcurrentResultHandler handler, ModelAndView mv, Exception ex) {
+        try {
+            handler.handleResult(mv, ex);
+        } catch (Exception handlerEx) {
+            logger.error("Failed to complete async request {}", this.request.getRequestURI(), handlerEx);
+        } finally {
+            try {
+                this.asyncContext.complete();
+            } catch (IllegalStateException completeEx) {
+                logger.debug("AsyncContext already completed", completeEx);
+            }
+            Runnable completion = this.completionHandler;
+            if (completion != null) {
+                completion.run();
+            }
+        }
+    }
+
+    /**
+     * 异步结果转换器, 在得到结果的线程上调用
+     */
+    @FunctionalInterface
+    public interface ResultConverter {
+
+        /**
+         * 把异步结果转换为ModelAndView, 直接写出响应体时返回null
+         *
+         * @param value 异步结果
+         * @return 结果视图
+         * @throws Exception 转换或写出失败, 按处理器异常处理
+         */
+        ModelAndView convert(Object value) throws Exception;
+    }
+
+    /**
+     * 异步结果回调
+     */
+    @FunctionalInterface
+    public interface ConcurrentResultHandler {
+
+        /**
+         * 处理异步结果
+         *
+         * @param mv 结果视图, 出错时为null
+         * @param ex 处理器异常, 成功时为null
+         * @throws Exception 处理失败
+         */
+        void handleResult(ModelAndView mv, Exception ex) throws Exception;
+    }
+}
@@ -0,0 +1,317 @@
+package com.kama.minispring.web.servlet.cache;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 缓冲响应体的响应包装
+ * 状态码和响应头照常交给底层响应, 同时记录下来以便缓存; 响应体和Content-Length暂存在包装中,
+ * 由调用方在计算ETag后决定是发送304还是发送完整响应.
+ * 处理器出错、发起重定向、转入异步处理或响应体超过上限时切换为直通模式, 已缓冲的数据原样写出
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class BufferingResponseWrapper extends HttpServletResponseWrapper {
+
+    private final int maxBufferSize;
+
+    private final List<String[]> headers = new ArrayList<>();
+
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    private long declaredLength = -1;
+
+    private int status = SC_OK;
+
+    private boolean passThrough;
+
+    private boolean error;
+
+    private BufferingOutputStream stream;
+
+    private PrintWriter writer;
+
+    BufferingResponseWrapper(HttpServletResponse response, int maxBufferSize) {
+        super(response);
+        this.maxBufferSize = maxBufferSize;
+    }
+
+    /**
+     * 响应是否可以用缓冲的内容完成: 状态码为200, 没有出错, 也没有切换为直通模式
+     */
+    boolean isBuffered() {
+        return !this.passThrough && !this.error && this.status == SC_OK;
+    }
+
+    /**
+     * 获取缓冲的响应体
+     */
+    byte[] getBody() {
+        flushWriter();
+        return this.buffer.toByteArray();
+    }
+
+    /**
+     * 处理器设置的响应头, 每项为名称和值
+     */
+    List<String[]> getHeaders() {
+        return this.headers;
+    }
+
+    /**
+     * 获取处理器设置的响应头的值
+     */
+    String getRecordedHeader(String name) {
+        for (int i = this.headers.size() - 1; i >= 0; i--) {
+            String[] header = this.headers.get(i);
+            if (header[0].equalsIgnoreCase(name)) {
+                return header[1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 切换为直通模式, 写出已缓冲的响应体, 之后的写入直接交给底层响应
+     */
+    void passThrough() throws IOException {
+        if (!this.passThrough) {
+            flushWriter();
+            switchToPassThrough();
+        }
+    }
+
+    /**
+     * 输出流写满缓冲区时直接调用, 此时可能正处于writer的flush中, 不能再次flush writer
+     */
+    private void switchToPassThrough() throws IOException {
+        this.passThrough = true;
+        ByteArrayOutputStream buffered = this.buffer;
+        this.buffer = null;
+        if (this.declaredLength >= 0) {
+            super.setContentLengthLong(this.declaredLength);
+        }
+        if (buffered.size() > 0) {
+            buffered.writeTo(getResponse().getOutputStream());
+        }
+    }
+
+    /**
+     * 丢弃已缓冲的响应体并切换为直通模式
+     */
+    void discard() {
+        this.passThrough = true;
+        this.buffer = null;
+    }
+
+    private void flushWriter() {
+        if (this.writer != null) {
+            this.writer.flush();
+        }
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        this.status = sc;
+        super.setStatus(sc);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        this.error = true;
+        discard();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        this.error = true;
+        discard();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        this.error = true;
+        discard();
+        super.sendRedirect(location);
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (this.passThrough) {
+            super.setContentLengthLong(len);
+        } else {
+            this.declaredLength = len;
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(value != null ? Long.parseLong(value.trim()) : -1L);
+            return;
+        }
+        this.headers.removeIf(header -> header[0].equalsIgnoreCase(name));
+        if (value != null) {
+            this.headers.add(new String[] {name, value});
+        }
+        super.setHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setHeader(name, value);
+            return;
+        }
+        this.headers.add(new String[] {name, value});
+        super.addHeader(name, value);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        setHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        addHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        setHeader(name, formatDate(date));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        addHeader(name, formatDate(date));
+    }
+
+    private static String formatDate(long date) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(date).atZone(ZoneOffset.UTC));
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (this.writer != null) {
+            throw new IllegalStateException("getWriter() has already been called for this response");
+        }
+        return getStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (this.writer == null) {
+            if (this.stream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called for this response");
+            }
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+            this.writer = new PrintWriter(new OutputStreamWriter(getStream(), charset));
+        }
+        return this.writer;
+    }
+
+    private BufferingOutputStream getStream() {
+        if (this.stream == null) {
+            this.stream = new BufferingOutputStream();
+        }
+        return this.stream;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (this.passThrough) {
+            flushWriter();
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (this.buffer != null) {
+            this.buffer.reset();
+        }
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        if (this.buffer != null) {
+            this.buffer.reset();
+        }
+        this.headers.clear();
+        this.declaredLength = -1;
+        this.status = SC_OK;
+        super.reset();
+    }
+
+    /**
+     * 写入缓冲区的输出流, 切换为直通模式后写入底层响应
+     */
+    private final class BufferingOutputStream extends ServletOutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!passThrough && buffer.size() + 1 > maxBufferSize) {
+                switchToPassThrough();
+            }
+            if (passThrough) {
+                getResponse().getOutputStream().write(b);
+            } else {
+                buffer.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (!passThrough && buffer.size() + len > maxBufferSize) {
+                switchToPassThrough();
+            }
+            if (passThrough) {
+                getResponse().getOutputStream().write(b, off, len);
+            } else {
+                buffer.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // 缓冲期间的flush不能提交响应, 否则无法再发送304
+            if (passThrough) {
+                getResponse().getOutputStream().flush();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("Non-blocking writes are not supported on buffered responses");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.kama.minispring.web.servlet.cache;
+
+import java.util.Arrays;
+
+/**
+ * 服务端响应缓存的键: 请求路径加上参与缓存键的请求头和请求参数的值
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class CacheKey {
+
+    private final String path;
+
+    private final String[] values;
+
+    private final int hash;
+
+    CacheKey(String path, String[] values) {
+        this.path = path;
+        this.values = values;
+        this.hash = 31 * path.hashCode() + Arrays.hashCode(values);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof CacheKey)) {
+            return false;
+        }
+        CacheKey that = (CacheKey) other;
+        return this.hash == that.hash && this.path.equals(that.path) && Arrays.equals(this.values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public String toString() {
+        return this.path + (this.values.length > 0 ? Arrays.toString(this.values) : "");
+    }
+
+    static String joinValues(String[] values) {
+        if (values == null || values.length == 0) {
+            return null;
+        }
+        return values.length == 1 ? values[0] : String.join(",", values);
+    }
+}
@@ -0,0 +1,136 @@
+package com.kama.minispring.web.servlet.cache;
+
+import com.kama.minispring.web.servlet.annotation.CacheControl;
+import com.kama.minispring.web.servlet.annotation.ResponseCache;
+import com.kama.minispring.web.servlet.method.HandlerMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.annotation.Annotation;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 处理器方法的缓存策略, 由方法或类上的{@link CacheControl}和{@link ResponseCache}解析得到, 每个方法只解析一次
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class CachePolicy {
+
+    /** 没有标注缓存注解的处理器方法使用的策略 */
+    static final CachePolicy NONE = new CachePolicy(null, false, 0L, new String[0], new String[0]);
+
+    private final String cacheControl;
+
+    private final boolean eTag;
+
+    private final long ttlNanos;
+
+    private final String[] keyHeaders;
+
+    private final String[] keyParams;
+
+    private final String vary;
+
+    private CachePolicy(String cacheControl, boolean eTag, long ttlNanos, String[] keyHeaders,
+            String[] keyParams) {
+        this.cacheControl = cacheControl;
+        this.eTag = eTag;
+        this.ttlNanos = ttlNanos;
+        this.keyHeaders = keyHeaders;
+        this.keyParams = keyParams;
+        this.vary = keyHeaders.length > 0 ? String.join(", ", keyHeaders) : null;
+    }
+
+    static CachePolicy forHandlerMethod(HandlerMethod handlerMethod) {
+        CacheControl cacheControl = findAnnotation(handlerMethod, CacheControl.class);
+        ResponseCache responseCache = findAnnotation(handlerMethod, ResponseCache.class);
+        if (cacheControl == null && responseCache == null) {
+            return NONE;
+        }
+        boolean eTag = cacheControl == null || (cacheControl.eTag() && !cacheControl.noStore());
+        long ttlNanos = responseCache != null ? TimeUnit.SECONDS.toNanos(Math.max(0L, responseCache.ttl())) : 0L;
+        return new CachePolicy(cacheControl != null ? buildCacheControl(cacheControl) : null, eTag, ttlNanos,
+                responseCache != null ? responseCache.keyHeaders() : new String[0],
+                responseCache != null ? responseCache.keyParams() : new String[0]);
+    }
+
+    private static <A extends Annotation> A findAnnotation(HandlerMethod handlerMethod, Class<A> type) {
+        A annotation = handlerMethod.getMethod().getAnnotation(type);
+        if (annotation == null) {
+            annotation = handlerMethod.getMethod().getDeclaringClass().getAnnotation(type);
+        }
+        if (annotation == null) {
+            annotation = handlerMethod.getBean().getClass().getAnnotation(type);
+        }
+        return annotation;
+    }
+
+    static String buildCacheControl(CacheControl cacheControl) {
+        if (cacheControl.noStore()) {
+            return "no-store";
+        }
+        StringBuilder value = new StringBuilder();
+        if (cacheControl.maxAge() >= 0) {
+            append(value, "max-age=" + cacheControl.maxAge());
+        }
+        if (cacheControl.noCache()) {
+            append(value, "no-cache");
+        }
+        if (cacheControl.mustRevalidate()) {
+            append(value, "must-revalidate");
+        }
+        if (cacheControl.cachePrivate()) {
+            append(value, "private");
+        }
+        return value.length() > 0 ? value.toString() : null;
+    }
+
+    private static void append(StringBuilder value, String directive) {
+        if (value.length() > 0) {
+            value.append(", ");
+        }
+        value.append(directive);
+    }
+
+    boolean isNone() {
+        return this == NONE;
+    }
+
+    /**
+     * Cache-Control响应头的值, 没有需要输出的指令时为null
+     */
+    String getCacheControl() {
+        return this.cacheControl;
+    }
+
+    boolean isETag() {
+        return this.eTag;
+    }
+
+    boolean isServerCached() {
+        return this.ttlNanos > 0;
+    }
+
+    long getTtlNanos() {
+        return this.ttlNanos;
+    }
+
+    /**
+     * Vary响应头的值, 没有参与缓存键的请求头时为null
+     */
+    String getVary() {
+        return this.vary;
+    }
+
+    CacheKey createKey(HttpServletRequest request) {
+        String[] values = new String[this.keyHeaders.length + this.keyParams.length];
+        int index = 0;
+        for (String header : this.keyHeaders) {
+            values[index++] = request.getHeader(header);
+        }
+        for (String param : this.keyParams) {
+            values[index++] = CacheKey.joinValues(request.getParameterValues(param));
+        }
+        return new CacheKey(request.getRequestURI(), values);
+    }
+}
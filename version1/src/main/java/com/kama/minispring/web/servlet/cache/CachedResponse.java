@@ -0,0 +1,75 @@
+package com.kama.minispring.web.servlet.cache;
+
+import java.util.List;
+
+/**
+ * 缓存的响应: 内容类型、处理器设置的响应头、响应体和ETag
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class CachedResponse {
+
+    /** 估算的每个条目除响应体以外占用的字节数 */
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private final String contentType;
+
+    private final List<String[]> headers;
+
+    private final byte[] body;
+
+    private final String eTag;
+
+    private final long expiresAt;
+
+    private volatile long lastAccess;
+
+    CachedResponse(String contentType, List<String[]> headers, byte[] body, String eTag, long expiresAt,
+            long now) {
+        this.contentType = contentType;
+        this.headers = headers;
+        this.body = body;
+        this.eTag = eTag;
+        this.expiresAt = expiresAt;
+        this.lastAccess = now;
+    }
+
+    String getContentType() {
+        return this.contentType;
+    }
+
+    /**
+     * 处理器设置的响应头, 每项为名称和值
+     */
+    List<String[]> getHeaders() {
+        return this.headers;
+    }
+
+    byte[] getBody() {
+        return this.body;
+    }
+
+    String getETag() {
+        return this.eTag;
+    }
+
+    boolean isFresh(long now) {
+        return now - this.expiresAt < 0;
+    }
+
+    long getLastAccess() {
+        return this.lastAccess;
+    }
+
+    void touch(long now) {
+        this.lastAccess = now;
+    }
+
+    /**
+     * 估算占用的字节数, 用于按总大小淘汰
+     */
+    long getSize() {
+        return ENTRY_OVERHEAD + this.body.length;
+    }
+}
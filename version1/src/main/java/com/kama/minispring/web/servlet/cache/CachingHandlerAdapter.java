@@ -0,0 +1,355 @@
+package com.kama.minispring.web.servlet.cache;
+
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.web.servlet.HandlerAdapter;
+import com.kama.minispring.web.servlet.ModelAndView;
+import com.kama.minispring.web.servlet.annotation.CacheControl;
+import com.kama.minispring.web.servlet.annotation.ResponseCache;
+import com.kama.minispring.web.servlet.async.WebAsyncManager;
+import com.kama.minispring.web.servlet.method.HandlerMethod;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 支持条件GET和服务端响应缓存的处理器适配器
+ * 包装另一个处理器适配器(通常是RequestMappingHandlerAdapter), 对标注了{@link CacheControl}或{@link ResponseCache}
+ * 的处理器方法, 在GET和HEAD请求时缓冲响应体:
+ * <ul>
+ * <li>按响应体的MD5摘要生成ETag, 请求的If-None-Match匹配时返回304, 不发送响应体</li>
+ * <li>标注了{@link ResponseCache}时把200响应缓存ttl秒, 缓存按条目数和总字节数限制大小</li>
+ * <li>同一个缓存键同时只有一个请求执行处理器; 其他请求有过期的响应时直接使用, 否则等待该请求的结果</li>
+ * </ul>
+ * 处理器返回视图、转入异步处理、出错或响应体超过maxBufferSize时, 响应原样发送, 不生成ETag也不缓存
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class CachingHandlerAdapter implements HandlerAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingHandlerAdapter.class);
+
+    /** 默认最多缓存的响应数量 */
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    /** 默认缓存的响应体总字节数上限 */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /** 默认缓冲的响应体上限 */
+    public static final int DEFAULT_MAX_BUFFER_SIZE = 1024 * 1024;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final HandlerAdapter delegate;
+
+    private final Map<Method, CachePolicy> policies = new ConcurrentHashMap<>();
+
+    private final Map<CacheKey, CompletableFuture<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final ResponseCacheStore store = new ResponseCacheStore(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private int maxBufferSize = DEFAULT_MAX_BUFFER_SIZE;
+
+    private long singleFlightTimeoutMillis = 10_000L;
+
+    private LongSupplier ticker = System::nanoTime;
+
+    /**
+     * 构造函数
+     *
+     * @param delegate 实际执行处理器的适配器
+     */
+    public CachingHandlerAdapter(HandlerAdapter delegate) {
+        Assert.notNull(delegate, "Delegate HandlerAdapter must not be null");
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean supports(Object handler) {
+        return this.delegate.supports(handler);
+    }
+
+    @Override
+    public ModelAndView handle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        CachePolicy policy = getPolicy(handler);
+        String method = request.getMethod();
+        if (policy.isNone() || !("GET".equals(method) || "HEAD".equals(method))) {
+            return this.delegate.handle(request, response, handler);
+        }
+        if (!policy.isServerCached()) {
+            return invokeHandler(request, response, handler, policy, null, null);
+        }
+
+        CacheKey key = policy.createKey(request);
+        long now = this.ticker.getAsLong();
+        CachedResponse cached = this.store.get(key, now);
+        if (cached != null && cached.isFresh(now)) {
+            this.hits.increment();
+            writeResponse(request, response, cached, policy, true);
+            return null;
+        }
+
+        CompletableFuture<CachedResponse> flight = new CompletableFuture<>();
+        CompletableFuture<CachedResponse> leader = this.inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            // 已有请求在重新计算, 有旧的响应就直接使用, 否则等待其结果
+            CachedResponse result = cached != null ? cached : awaitLeader(leader, key);
+            if (result != null) {
+                this.hits.increment();
+                writeResponse(request, response, result, policy, true);
+                return null;
+            }
+            this.misses.increment();
+            return invokeHandler(request, response, handler, policy, null, null);
+        }
+
+        CachedResponse computed = null;
+        try {
+            // 取得计算权之前, 上一个计算者可能刚好写入了缓存
+            CachedResponse current = this.store.get(key, now);
+            if (current != null && current.isFresh(now)) {
+                computed = current;
+                this.hits.increment();
+                writeResponse(request, response, current, policy, true);
+                return null;
+            }
+            this.misses.increment();
+            CachedResponse[] holder = new CachedResponse[1];
+            ModelAndView mv = invokeHandler(request, response, handler, policy, key, holder);
+            computed = holder[0];
+            return mv;
+        } finally {
+            this.inFlight.remove(key, flight);
+            flight.complete(computed);
+        }
+    }
+
+    private CachedResponse awaitLeader(CompletableFuture<CachedResponse> leader, CacheKey key) {
+        try {
+            return leader.get(this.singleFlightTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            logger.debug("Gave up waiting for response cache entry [{}]", key, ex);
+        }
+        return null;
+    }
+
+    /**
+     * 缓冲执行处理器, 可以缓存的响应写入缓存并通过holder返回
+     */
+    private ModelAndView invokeHandler(HttpServletRequest request, HttpServletResponse response, Object handler,
+            CachePolicy policy, CacheKey key, CachedResponse[] holder) throws Exception {
+        BufferingResponseWrapper wrapper = new BufferingResponseWrapper(response, this.maxBufferSize);
+        ModelAndView mv;
+        try {
+            mv = this.delegate.handle(request, wrapper, handler);
+        } catch (Exception | Error ex) {
+            // 丢弃写了一半的响应体, 异常解析器仍可以发送错误响应
+            wrapper.discard();
+            throw ex;
+        }
+        // 返回视图或转入异步处理时, 响应体稍后才写出, 只能直通
+        if (mv != null || WebAsyncManager.getStartedAsyncManager(request) != null || !wrapper.isBuffered()) {
+            wrapper.passThrough();
+            return mv;
+        }
+        byte[] body = wrapper.getBody();
+        String eTag = wrapper.getRecordedHeader("ETag");
+        if (!policy.isETag()) {
+            eTag = null;
+        } else if (eTag == null) {
+            eTag = generateETag(body);
+        }
+        long now = this.ticker.getAsLong();
+        CachedResponse captured = new CachedResponse(response.getContentType(), wrapper.getHeaders(), body,
+                eTag, now + policy.getTtlNanos(), now);
+        if (key != null) {
+            this.store.put(key, captured, now);
+            holder[0] = captured;
+        }
+        writeResponse(request, response, captured, policy, false);
+        return null;
+    }
+
+    /**
+     * 写出响应, 请求的If-None-Match与ETag匹配时只发送304
+     *
+     * @param replayHeaders 是否需要重放处理器设置的响应头, 处理器刚执行完时响应头已经在响应上
+     */
+    private void writeResponse(HttpServletRequest request, HttpServletResponse response, CachedResponse cached,
+            CachePolicy policy, boolean replayHeaders) throws IOException {
+        if (replayHeaders) {
+            if (cached.getContentType() != null) {
+                response.setContentType(cached.getContentType());
+            }
+            for (String[] header : cached.getHeaders()) {
+                response.addHeader(header[0], header[1]);
+            }
+        }
+        String eTag = cached.getETag();
+        if (eTag != null) {
+            response.setHeader("ETag", eTag);
+        }
+        if (policy.getCacheControl() != null) {
+            response.setHeader("Cache-Control", policy.getCacheControl());
+        }
+        if (policy.getVary() != null) {
+            response.addHeader("Vary", policy.getVary());
+        }
+        if (eTag != null && isNotModified(request, eTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        byte[] body = cached.getBody();
+        response.setContentLength(body.length);
+        if (body.length > 0 && !"HEAD".equals(request.getMethod())) {
+            response.getOutputStream().write(body);
+        }
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, String eTag) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        // 弱比较: 响应压缩时ETag会被改为弱ETag, 客户端带回的W/前缀需要忽略
+        String expected = eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String generateETag(byte[] body) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("MD5 digest is not available", ex);
+        }
+        byte[] hash = digest.digest(body);
+        char[] chars = new char[hash.length * 2 + 2];
+        chars[0] = '"';
+        for (int i = 0; i < hash.length; i++) {
+            chars[2 * i + 1] = HEX[(hash[i] >> 4) & 0x0f];
+            chars[2 * i + 2] = HEX[hash[i] & 0x0f];
+        }
+        chars[chars.length - 1] = '"';
+        return new String(chars);
+    }
+
+    private CachePolicy getPolicy(Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return CachePolicy.NONE;
+        }
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        CachePolicy policy = this.policies.get(handlerMethod.getMethod());
+        if (policy == null) {
+            policy = this.policies.computeIfAbsent(handlerMethod.getMethod(),
+                    method -> CachePolicy.forHandlerMethod(handlerMethod));
+        }
+        return policy;
+    }
+
+    /**
+     * 清空服务端响应缓存
+     */
+    public void clearCache() {
+        this.store.clear();
+    }
+
+    /**
+     * 获取当前缓存的响应数量
+     */
+    public int getCacheSize() {
+        return this.store.size();
+    }
+
+    /**
+     * 获取当前缓存的响应占用的字节数(估算)
+     */
+    public long getCacheBytes() {
+        return this.store.getTotalBytes();
+    }
+
+    /**
+     * 获取使用缓存响应的请求数
+     */
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    /**
+     * 获取需要执行处理器的请求数
+     */
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    /**
+     * 设置最多缓存的响应数量
+     */
+    public void setMaxEntries(int maxEntries) {
+        Assert.isTrue(maxEntries > 0, "maxEntries must be positive");
+        this.store.setMaxEntries(maxEntries);
+    }
+
+    /**
+     * 设置缓存的响应体总字节数上限, 单个超过上限的响应不会被缓存
+     */
+    public void setMaxBytes(long maxBytes) {
+        Assert.isTrue(maxBytes > 0, "maxBytes must be positive");
+        this.store.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * 设置缓冲的响应体上限, 超过后响应直接发送, 不生成ETag也不缓存
+     */
+    public void setMaxBufferSize(int maxBufferSize) {
+        Assert.isTrue(maxBufferSize > 0, "maxBufferSize must be positive");
+        this.maxBufferSize = maxBufferSize;
+    }
+
+    /**
+     * 设置等待其他请求重新计算的最长时间, 超时后自行执行处理器
+     */
+    public void setSingleFlightTimeout(Duration singleFlightTimeout) {
+        Assert.notNull(singleFlightTimeout, "Single flight timeout must not be null");
+        this.singleFlightTimeoutMillis = singleFlightTimeout.toMillis();
+    }
+
+    /**
+     * 替换判断缓存条目是否过期所用的纳秒时钟
+     */
+    void setTicker(LongSupplier ticker) {
+        Assert.notNull(ticker, "Ticker must not be null");
+        this.ticker = ticker;
+    }
+}
@@ -0,0 +1,128 @@
+package com.kama.minispring.web.servlet.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 服务端响应缓存, 按条目数和响应体总字节数限制大小
+ * 过期的条目不会立即移除, 以便重新计算期间其他请求继续使用; 超出限制时先淘汰过期条目, 再淘汰最久未使用的条目
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class ResponseCacheStore {
+
+    private final Map<CacheKey, CachedResponse> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    private final Object evictionMonitor = new Object();
+
+    private volatile int maxEntries;
+
+    private volatile long maxBytes;
+
+    ResponseCacheStore(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 获取缓存的响应, 包括已过期的
+     */
+    CachedResponse get(CacheKey key, long now) {
+        CachedResponse cached = this.entries.get(key);
+        if (cached != null) {
+            cached.touch(now);
+        }
+        return cached;
+    }
+
+    void put(CacheKey key, CachedResponse response, long now) {
+        if (response.getSize() > this.maxBytes) {
+            return;
+        }
+        CachedResponse previous = this.entries.put(key, response);
+        this.totalBytes.addAndGet(response.getSize() - (previous != null ? previous.getSize() : 0L));
+        if (this.entries.size() > this.maxEntries || this.totalBytes.get() > this.maxBytes) {
+            evict(now);
+        }
+    }
+
+    /**
+     * 淘汰条目直到不超过限制, 一次淘汰到限制的90%以摊薄排序开销
+     */
+    private void evict(long now) {
+        synchronized (this.evictionMonitor) {
+            int entryLimit = this.maxEntries;
+            long byteLimit = this.maxBytes;
+            if (this.entries.size() <= entryLimit && this.totalBytes.get() <= byteLimit) {
+                return;
+            }
+            // 访问时间在排序期间可能被并发更新, 先取快照保证比较结果稳定
+            List<EvictionCandidate> candidates = new ArrayList<>(this.entries.size());
+            for (Map.Entry<CacheKey, CachedResponse> entry : this.entries.entrySet()) {
+                candidates.add(new EvictionCandidate(entry.getKey(), entry.getValue(), now));
+            }
+            candidates.sort((a, b) -> a.expired != b.expired ? (a.expired ? -1 : 1)
+                    : Long.compare(a.lastAccess, b.lastAccess));
+            int entryTarget = entryLimit - entryLimit / 10;
+            long byteTarget = byteLimit - byteLimit / 10;
+            for (EvictionCandidate candidate : candidates) {
+                if (this.entries.size() <= entryTarget && this.totalBytes.get() <= byteTarget) {
+                    break;
+                }
+                remove(candidate.key, candidate.response);
+            }
+        }
+    }
+
+    private void remove(CacheKey key, CachedResponse response) {
+        if (this.entries.remove(key, response)) {
+            this.totalBytes.addAndGet(-response.getSize());
+        }
+    }
+
+    void clear() {
+        for (Map.Entry<CacheKey, CachedResponse> entry : this.entries.entrySet()) {
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    int size() {
+        return this.entries.size();
+    }
+
+    long getTotalBytes() {
+        return this.totalBytes.get();
+    }
+
+    void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    private static final class EvictionCandidate {
+
+        private final CacheKey key;
+
+        private final CachedResponse response;
+
+        private final long lastAccess;
+
+        private final boolean expired;
+
+        EvictionCandidate(CacheKey key, CachedResponse response, long now) {
+            this.key = key;
+            this.response = response;
+            this.lastAccess = response.getLastAccess();
+            this.expired = !response.isFresh(now);
+        }
+    }
+}
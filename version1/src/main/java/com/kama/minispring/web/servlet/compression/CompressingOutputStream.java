@@ -0,0 +1,266 @@
+package com.kama.minispring.web.servlet.compression;
+
+import com.kama.minispring.util.BufferPool;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 压缩响应体的输出流
+ * 开头的数据先写入池化缓冲, 累计达到最小压缩大小(或已知Content-Length)时才决定是否压缩;
+ * 压缩时数据经Deflater分块写给底层输出流, 不在内存中保留整个响应体
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class CompressingOutputStream extends ServletOutputStream {
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private final CompressingResponseWrapper response;
+
+    private final BufferPool bufferPool;
+
+    private final int minResponseSize;
+
+    private byte[] pending;
+
+    private int pendingCount;
+
+    private boolean decided;
+
+    private boolean finished;
+
+    private ServletOutputStream target;
+
+    private Deflater deflater;
+
+    private boolean gzip;
+
+    private CRC32 crc;
+
+    private byte[] output;
+
+    CompressingOutputStream(CompressingResponseWrapper response, BufferPool bufferPool, int minResponseSize) {
+        this.response = response;
+        this.bufferPool = bufferPool;
+        this.minResponseSize = minResponseSize;
+    }
+
+    boolean isDecided() {
+        return this.decided;
+    }
+
+    boolean isCompressing() {
+        return this.deflater != null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (this.finished) {
+            throw new IOException("Response output has already been finished");
+        }
+        if (len == 0) {
+            return;
+        }
+        if (!this.decided) {
+            if (this.response.getDeclaredLength() < 0 && this.pendingCount + len < this.minResponseSize) {
+                buffer(b, off, len);
+                return;
+            }
+            decide(false);
+        }
+        writeDecided(b, off, len);
+    }
+
+    private void buffer(byte[] b, int off, int len) {
+        if (this.pending == null) {
+            this.pending = this.minResponseSize <= this.bufferPool.getBufferSize()
+                    ? this.bufferPool.acquire() : new byte[this.minResponseSize];
+        }
+        System.arraycopy(b, off, this.pending, this.pendingCount, len);
+        this.pendingCount += len;
+    }
+
+    /**
+     * 决定是否压缩, 并把已缓冲的数据按决定写出
+     *
+     * @param complete 响应体是否已经写完
+     */
+    private void decide(boolean complete) throws IOException {
+        this.decided = true;
+        String encoding = this.response.beginResponse(this.pendingCount, complete);
+        this.target = this.response.getResponse().getOutputStream();
+        if (encoding != null) {
+            this.gzip = "gzip".equals(encoding);
+            this.deflater = this.response.acquireDeflater(this.gzip);
+            this.output = this.bufferPool.acquire();
+            if (this.gzip) {
+                this.crc = new CRC32();
+                this.target.write(GZIP_HEADER);
+            }
+        }
+        if (this.pendingCount > 0) {
+            writeDecided(this.pending, 0, this.pendingCount);
+        }
+        releasePending();
+    }
+
+    private void writeDecided(byte[] b, int off, int len) throws IOException {
+        if (this.deflater == null) {
+            this.target.write(b, off, len);
+            return;
+        }
+        if (this.crc != null) {
+            this.crc.update(b, off, len);
+        }
+        this.deflater.setInput(b, off, len);
+        while (!this.deflater.needsInput()) {
+            deflate(Deflater.NO_FLUSH);
+        }
+    }
+
+    private int deflate(int flushMode) throws IOException {
+        int count = this.deflater.deflate(this.output, 0, this.output.length, flushMode);
+        if (count > 0) {
+            this.target.write(this.output, 0, count);
+        }
+        return count;
+    }
+
+    /**
+     * 刷新已写出的数据
+     * 消息转换器和Writer写完后通常会flush, 此时数据不足最小压缩大小的继续缓冲, 由finish决定是否压缩;
+     * 需要立即送达时使用HttpServletResponse.flushBuffer
+     */
+    @Override
+    public void flush() throws IOException {
+        if (!this.finished && this.decided) {
+            flushDecided();
+        }
+    }
+
+    /**
+     * 立即决定是否压缩并刷新, 不再等待凑够最小压缩大小
+     */
+    void forceFlush() throws IOException {
+        if (this.finished) {
+            return;
+        }
+        if (!this.decided) {
+            decide(false);
+        }
+        flushDecided();
+    }
+
+    private void flushDecided() throws IOException {
+        if (this.deflater != null) {
+            while (deflate(Deflater.SYNC_FLUSH) == this.output.length) {
+                // 输出缓冲写满时继续取出剩余数据
+            }
+        }
+        this.target.flush();
+    }
+
+    /**
+     * 写出剩余数据和gzip尾部, 并归还Deflater和缓冲, 可重复调用
+     */
+    void finish() throws IOException {
+        if (this.finished) {
+            return;
+        }
+        try {
+            if (!this.decided) {
+                decide(true);
+            }
+            if (this.deflater != null) {
+                this.deflater.finish();
+                while (!this.deflater.finished()) {
+                    deflate(Deflater.NO_FLUSH);
+                }
+                if (this.gzip) {
+                    writeTrailer();
+                }
+            }
+        } finally {
+            this.finished = true;
+            release();
+        }
+    }
+
+    private void writeTrailer() throws IOException {
+        long checksum = this.crc.getValue();
+        long size = this.deflater.getBytesRead();
+        byte[] trailer = new byte[8];
+        for (int i = 0; i < 4; i++) {
+            trailer[i] = (byte) (checksum >> (8 * i));
+            trailer[4 + i] = (byte) (size >> (8 * i));
+        }
+        this.target.write(trailer);
+    }
+
+    /**
+     * 丢弃尚未写出的缓冲数据, 用于sendError和reset
+     *
+     * @return 是否成功丢弃, 已经开始写出时返回false
+     */
+    boolean discardPending() {
+        if (this.decided) {
+            return false;
+        }
+        this.pendingCount = 0;
+        return true;
+    }
+
+    /**
+     * 不压缩的情况下结束, 用于sendError和零拷贝发送
+     */
+    void abandon() {
+        this.decided = true;
+        this.finished = true;
+        release();
+    }
+
+    private void releasePending() {
+        if (this.pending != null) {
+            this.bufferPool.release(this.pending);
+            this.pending = null;
+        }
+        this.pendingCount = 0;
+    }
+
+    private void release() {
+        releasePending();
+        if (this.deflater != null) {
+            this.response.releaseDeflater(this.deflater, this.gzip);
+            this.deflater = null;
+        }
+        if (this.output != null) {
+            this.bufferPool.release(this.output);
+            this.output = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    @Override
+    public boolean isReady() {
+        return true;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+        throw new UnsupportedOperationException("Non-blocking writes are not supported on compressed responses");
+    }
+}
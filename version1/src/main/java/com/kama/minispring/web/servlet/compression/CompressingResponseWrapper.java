@@ -0,0 +1,281 @@
+package com.kama.minispring.web.servlet.compression;
+
+import com.kama.minispring.http.ZeroCopyFileTransfer;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+/**
+ * 按需压缩响应体的响应包装
+ * 是否压缩推迟到写出第一批足够大的数据时决定, 此时状态码和响应头已经确定;
+ * 在此之前设置的Content-Length暂存在包装中, 压缩时丢弃, 不压缩时原样交给底层响应
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class CompressingResponseWrapper extends HttpServletResponseWrapper {
+
+    private final ResponseCompressor compressor;
+
+    private final String encoding;
+
+    private long declaredLength = -1;
+
+    private CompressingOutputStream stream;
+
+    private PrintWriter writer;
+
+    private boolean usingStream;
+
+    private boolean disabled;
+
+    CompressingResponseWrapper(HttpServletResponse response, ResponseCompressor compressor, String encoding) {
+        super(response);
+        this.compressor = compressor;
+        this.encoding = encoding;
+    }
+
+    /**
+     * 获取协商得到的编码
+     */
+    String getEncoding() {
+        return this.encoding;
+    }
+
+    long getDeclaredLength() {
+        return this.declaredLength;
+    }
+
+    /**
+     * 决定是否压缩并设置响应头, 由输出流在写出第一批数据前调用
+     *
+     * @param bufferedLength 已缓冲的字节数
+     * @param complete 响应体是否已经写完
+     * @return 使用的编码, 不压缩时返回null
+     */
+    String beginResponse(int bufferedLength, boolean complete) {
+        HttpServletResponse response = (HttpServletResponse) getResponse();
+        String contentType = response.getContentType();
+        int level = this.compressor.getCompressionLevel(contentType);
+        if (level > 0) {
+            addVary(response);
+        }
+        long length = this.declaredLength >= 0 ? this.declaredLength : (complete ? bufferedLength : -1);
+        boolean compress = level > 0 && !this.disabled && isCompressibleStatus(response.getStatus())
+                && response.getHeader("Content-Encoding") == null && response.getHeader("Content-Range") == null
+                && (length < 0 || length >= this.compressor.getMinResponseSize());
+        if (!compress) {
+            if (this.declaredLength >= 0) {
+                response.setContentLengthLong(this.declaredLength);
+            }
+            return null;
+        }
+        response.setHeader("Content-Encoding", this.encoding);
+        // 压缩后的表示与原始内容字节不同, 强ETag降为弱ETag
+        String etag = response.getHeader("ETag");
+        if (etag != null && etag.startsWith("\"")) {
+            response.setHeader("ETag", "W/" + etag);
+        }
+        return this.encoding;
+    }
+
+    private static boolean isCompressibleStatus(int status) {
+        return status >= 200 && status != SC_NO_CONTENT && status != SC_PARTIAL_CONTENT && status != SC_NOT_MODIFIED;
+    }
+
+    private static void addVary(HttpServletResponse response) {
+        for (String vary : response.getHeaders("Vary")) {
+            String lower = vary.toLowerCase(Locale.ROOT);
+            if (lower.contains("accept-encoding") || lower.trim().equals("*")) {
+                return;
+            }
+        }
+        response.addHeader("Vary", "Accept-Encoding");
+    }
+
+    Deflater acquireDeflater(boolean gzip) {
+        int level = this.compressor.getCompressionLevel(getResponse().getContentType());
+        return this.compressor.getDeflaterPool().acquire(level, gzip);
+    }
+
+    void releaseDeflater(Deflater deflater, boolean gzip) {
+        this.compressor.getDeflaterPool().release(deflater, gzip);
+    }
+
+    private CompressingOutputStream stream() {
+        if (this.stream == null) {
+            this.stream = new CompressingOutputStream(this, this.compressor.getBufferPool(),
+                    this.compressor.getMinResponseSize());
+        }
+        return this.stream;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (this.writer != null) {
+            throw new IllegalStateException("getWriter() has already been called for this response");
+        }
+        this.usingStream = true;
+        return stream();
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (this.usingStream) {
+            throw new IllegalStateException("getOutputStream() has already been called for this response");
+        }
+        if (this.writer == null) {
+            String characterEncoding = getCharacterEncoding();
+            Charset charset = characterEncoding != null ? Charset.forName(characterEncoding)
+                    : StandardCharsets.ISO_8859_1;
+            this.writer = new PrintWriter(new OutputStreamWriter(stream(), charset));
+        }
+        return this.writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (this.stream == null || !this.stream.isDecided()) {
+            this.declaredLength = len;
+        } else if (!this.stream.isCompressing()) {
+            super.setContentLengthLong(len);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(value != null ? Long.parseLong(value.trim()) : -1);
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(value != null ? Long.parseLong(value.trim()) : -1);
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        setIntHeader(name, value);
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (this.writer != null) {
+            this.writer.flush();
+        }
+        if (this.stream != null) {
+            this.stream.forceFlush();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        abandon();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        abandon();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        abandon();
+        super.sendRedirect(location);
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        this.declaredLength = -1;
+        super.reset();
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (this.stream != null && !this.stream.discardPending()) {
+            // 已经开始写出, 交给底层响应判断是否还能重置
+            super.resetBuffer();
+        }
+    }
+
+    /**
+     * 放弃压缩, 之后的内容由底层响应直接处理
+     */
+    protected void abandon() {
+        this.disabled = true;
+        if (this.stream != null && !this.stream.isDecided()) {
+            this.stream.abandon();
+            this.stream = null;
+            this.writer = null;
+            this.usingStream = false;
+        }
+    }
+
+    /**
+     * 写出剩余数据并释放Deflater和缓冲, 请求处理结束时调用
+     */
+    void finishResponse() throws IOException {
+        if (this.writer != null) {
+            this.writer.flush();
+        }
+        if (this.stream != null) {
+            this.stream.finish();
+        } else if (this.declaredLength >= 0) {
+            // 没有写出任何内容, 声明的长度原样交给底层响应
+            super.setContentLengthLong(this.declaredLength);
+        }
+    }
+
+    /**
+     * 底层响应支持零拷贝发送文件时使用的包装, 发送文件时不压缩
+     */
+    static final class ZeroCopy extends CompressingResponseWrapper implements ZeroCopyFileTransfer {
+
+        ZeroCopy(HttpServletResponse response, ResponseCompressor compressor, String encoding) {
+            super(response, compressor, encoding);
+        }
+
+        @Override
+        public void transferFile(Path file, long position, long count) throws IOException {
+            abandon();
+            if (getDeclaredLength() >= 0) {
+                getResponse().setContentLengthLong(getDeclaredLength());
+            }
+            ((ZeroCopyFileTransfer) getResponse()).transferFile(file, position, count);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.kama.minispring.web.servlet.compression;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * Deflater对象池
+ * Deflater持有本地内存, 每个响应新建再等待GC回收代价很高; 归还时reset后复用, 超出上限的直接end释放.
+ * gzip使用不带zlib头的原始deflate格式, deflate编码使用zlib格式, 两者分开缓存
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class DeflaterPool {
+
+    private final int maxPooled;
+
+    private final Deque<Deflater> raw = new ConcurrentLinkedDeque<>();
+
+    private final Deque<Deflater> zlib = new ConcurrentLinkedDeque<>();
+
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    DeflaterPool(int maxPooled) {
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * 借出一个Deflater
+     *
+     * @param level 压缩级别
+     * @param nowrap 是否为原始deflate格式
+     */
+    Deflater acquire(int level, boolean nowrap) {
+        Deflater deflater = (nowrap ? this.raw : this.zlib).pollFirst();
+        if (deflater == null) {
+            this.created.incrementAndGet();
+            return new Deflater(level, nowrap);
+        }
+        this.pooled.decrementAndGet();
+        deflater.setLevel(level);
+        return deflater;
+    }
+
+    /**
+     * 归还Deflater, 池满时释放其本地内存
+     */
+    void release(Deflater deflater, boolean nowrap) {
+        deflater.reset();
+        if (this.pooled.incrementAndGet() <= this.maxPooled) {
+            // 后进先出, 让最近用过的对象保持在缓存中
+            (nowrap ? this.raw : this.zlib).offerFirst(deflater);
+        } else {
+            this.pooled.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    int getCreatedCount() {
+        return this.created.get();
+    }
+}
@@ -0,0 +1,284 @@
+package com.kama.minispring.web.servlet.compression;
+
+import com.kama.minispring.http.MediaType;
+import com.kama.minispring.http.ZeroCopyFileTransfer;
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.util.BufferPool;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+
+/**
+ * 响应压缩
+ * DispatcherServlet在分发前用wrap协商Accept-Encoding并包装响应, 请求结束时调用finish写出压缩尾部.
+ * 响应体小于minResponseSize、媒体类型本身已经压缩(图片、音视频、压缩包等)、
+ * 已有Content-Encoding或是206/304等无需压缩的响应原样发送.
+ * 压缩级别可以按媒体类型配置, 最具体的规则优先, 级别为0表示不压缩该类型
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class ResponseCompressor {
+
+    /** 默认不压缩的媒体类型 */
+    public static final List<String> DEFAULT_EXCLUDED_MEDIA_TYPES = List.of(
+            "image/png", "image/jpeg", "image/gif", "image/webp", "image/avif",
+            "video/*", "audio/*", "font/woff", "font/woff2",
+            "application/zip", "application/gzip", "application/x-gzip", "application/x-bzip2",
+            "application/x-7z-compressed", "application/x-rar-compressed", "application/pdf",
+            "application/octet-stream", "text/event-stream");
+
+    private static final int MAX_CACHED_CONTENT_TYPES = 256;
+
+    private volatile List<LevelRule> rules = new ArrayList<>();
+
+    private final Map<String, Integer> levelCache = new ConcurrentHashMap<>();
+
+    private int defaultLevel = Deflater.DEFAULT_COMPRESSION;
+
+    private int minResponseSize = 1024;
+
+    private BufferPool bufferPool = BufferPool.getSharedInstance();
+
+    private DeflaterPool deflaterPool = new DeflaterPool(64);
+
+    public ResponseCompressor() {
+        setExcludedMediaTypes(DEFAULT_EXCLUDED_MEDIA_TYPES);
+    }
+
+    /**
+     * 协商编码并包装响应
+     *
+     * @param request 当前请求
+     * @param response 原始响应
+     * @return 客户端接受gzip或deflate时返回包装后的响应, 否则原样返回
+     */
+    public HttpServletResponse wrap(HttpServletRequest request, HttpServletResponse response) {
+        if (response instanceof CompressingResponseWrapper || "HEAD".equalsIgnoreCase(request.getMethod())) {
+            return response;
+        }
+        String encoding = negotiateEncoding(request.getHeader("Accept-Encoding"));
+        if (encoding == null) {
+            return response;
+        }
+        return response instanceof ZeroCopyFileTransfer
+                ? new CompressingResponseWrapper.ZeroCopy(response, this, encoding)
+                : new CompressingResponseWrapper(response, this, encoding);
+    }
+
+    /**
+     * 结束响应, 写出剩余的压缩数据并归还Deflater和缓冲
+     *
+     * @param response wrap返回的响应
+     * @throws IOException 写出失败
+     */
+    public void finish(HttpServletResponse response) throws IOException {
+        if (response instanceof CompressingResponseWrapper) {
+            ((CompressingResponseWrapper) response).finishResponse();
+        }
+    }
+
+    /**
+     * 根据Accept-Encoding选择编码, 质量相同时优先gzip
+     *
+     * @return gzip、deflate或null
+     */
+    static String negotiateEncoding(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double wildcard = -1;
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException ex) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = quality;
+            } else if (coding.equals("deflate")) {
+                deflate = quality;
+            } else if (coding.equals("*")) {
+                wildcard = quality;
+            }
+        }
+        if (gzip < 0) {
+            gzip = wildcard;
+        }
+        if (deflate < 0) {
+            deflate = wildcard;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return "gzip";
+        }
+        return deflate > 0 ? "deflate" : null;
+    }
+
+    /**
+     * 获取媒体类型的压缩级别
+     *
+     * @param contentType 响应的Content-Type
+     * @return 压缩级别, 不压缩时返回0
+     */
+    int getCompressionLevel(String contentType) {
+        if (contentType == null || contentType.isEmpty()) {
+            return 0;
+        }
+        Integer cached = this.levelCache.get(contentType);
+        if (cached != null) {
+            return cached;
+        }
+        int level = resolveLevel(contentType);
+        if (this.levelCache.size() < MAX_CACHED_CONTENT_TYPES) {
+            this.levelCache.put(contentType, level);
+        }
+        return level;
+    }
+
+    private int resolveLevel(String contentType) {
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (IllegalArgumentException ex) {
+            return 0;
+        }
+        for (LevelRule rule : this.rules) {
+            if (rule.mediaType.includes(mediaType)) {
+                return rule.level;
+            }
+        }
+        return this.defaultLevel == Deflater.DEFAULT_COMPRESSION ? 6 : this.defaultLevel;
+    }
+
+    /**
+     * 设置某种媒体类型的压缩级别, 可以使用text/*这样的通配符
+     *
+     * @param mediaType 媒体类型
+     * @param level 0到9, 0表示不压缩
+     */
+    public synchronized void setCompressionLevel(String mediaType, int level) {
+        Assert.isTrue(level >= 0 && level <= 9, "Compression level must be between 0 and 9");
+        MediaType parsed = MediaType.parseMediaType(mediaType);
+        List<LevelRule> updated = new ArrayList<>();
+        for (LevelRule rule : this.rules) {
+            if (!rule.mediaType.equals(parsed)) {
+                updated.add(rule);
+            }
+        }
+        // 具体类型优先于通配类型, 同样具体时后设置的规则优先(排序是稳定的)
+        updated.add(0, new LevelRule(parsed, level));
+        updated.sort(Comparator.comparingInt(LevelRule::specificity).reversed());
+        this.rules = updated;
+        this.levelCache.clear();
+    }
+
+    /**
+     * 设置不压缩的媒体类型, 替换默认列表中尚未单独设置级别的类型
+     */
+    public synchronized void setExcludedMediaTypes(List<String> mediaTypes) {
+        Assert.notNull(mediaTypes, "Media types must not be null");
+        List<LevelRule> retained = new ArrayList<>();
+        for (LevelRule rule : this.rules) {
+            if (rule.level > 0) {
+                retained.add(rule);
+            }
+        }
+        this.rules = retained;
+        for (String mediaType : mediaTypes) {
+            setCompressionLevel(mediaType, 0);
+        }
+        this.levelCache.clear();
+    }
+
+    /**
+     * 设置默认压缩级别, 默认为6
+     */
+    public void setDefaultLevel(int defaultLevel) {
+        Assert.isTrue(defaultLevel >= 1 && defaultLevel <= 9, "Default level must be between 1 and 9");
+        this.defaultLevel = defaultLevel;
+        this.levelCache.clear();
+    }
+
+    /**
+     * 设置压缩的最小响应体字节数, 默认1024
+     */
+    public void setMinResponseSize(int minResponseSize) {
+        Assert.isTrue(minResponseSize >= 0, "Min response size must not be negative");
+        this.minResponseSize = minResponseSize;
+    }
+
+    public int getMinResponseSize() {
+        return this.minResponseSize;
+    }
+
+    /**
+     * 设置输出缓冲所在的缓冲池
+     */
+    public void setBufferPool(BufferPool bufferPool) {
+        Assert.notNull(bufferPool, "BufferPool must not be null");
+        this.bufferPool = bufferPool;
+    }
+
+    BufferPool getBufferPool() {
+        return this.bufferPool;
+    }
+
+    /**
+     * 设置最多缓存的空闲Deflater数量, 默认64
+     */
+    public void setMaxPooledDeflaters(int maxPooledDeflaters) {
+        Assert.isTrue(maxPooledDeflaters > 0, "Max pooled deflaters must be positive");
+        this.deflaterPool = new DeflaterPool(maxPooledDeflaters);
+    }
+
+    DeflaterPool getDeflaterPool() {
+        return this.deflaterPool;
+    }
+
+    /**
+     * 获取新建Deflater的次数, 池命中时不增加
+     */
+    public int getDeflaterCreatedCount() {
+        return this.deflaterPool.getCreatedCount();
+    }
+
+    /**
+     * 按媒体类型设置的压缩级别
+     */
+    private static final class LevelRule {
+
+        private final MediaType mediaType;
+
+        private final int level;
+
+        private LevelRule(MediaType mediaType, int level) {
+            this.mediaType = mediaType;
+            this.level = level;
+        }
+
+        private int specificity() {
+            if (this.mediaType.isWildcardType()) {
+                return 0;
+            }
+            return this.mediaType.isWildcardSubtype() ? 1 : 2;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.kama.minispring.web.servlet.handler;
+
+import com.kama.minispring.web.servlet.HandlerInterceptor;
+import com.kama.minispring.web.servlet.HandlerMapping;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 处理器映射的基类, 负责为路由确定拦截器
+ * 拦截器在设置或注册路由时按路由模式一次性解析为数组, 子类把数组保存在路由上,
+ * 请求时通过getRequestInterceptors创建HandlerExecutionChain; 只有无法在启动时确定的拦截器才按请求路径匹配
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public abstract class AbstractHandlerMapping implements HandlerMapping {
+
+    private volatile List<HandlerInterceptor> interceptors = new ArrayList<>();
+
+    /**
+     * 设置拦截器, 按顺序执行; {@link MappedInterceptor}只作用于匹配的路由
+     * 已注册的路由会重新解析拦截器
+     *
+     * @param interceptors 拦截器列表
+     */
+    public void setInterceptors(List<? extends HandlerInterceptor> interceptors) {
+        this.interceptors = new ArrayList<>(interceptors);
+        refreshInterceptors();
+    }
+
+    public List<HandlerInterceptor> getInterceptors() {
+        return new ArrayList<>(this.interceptors);
+    }
+
+    /**
+     * 解析作用于给定路由的拦截器
+     *
+     * @param routePattern 路由模式
+     * @return 按顺序排列的拦截器, 作用于路由所有请求的MappedInterceptor已展开为目标拦截器,
+     *         只作用于部分请求的保留包装
+     */
+    protected HandlerInterceptor[] resolveInterceptors(String routePattern) {
+        List<HandlerInterceptor> resolved = new ArrayList<>();
+        for (HandlerInterceptor interceptor : this.interceptors) {
+            if (interceptor instanceof MappedInterceptor) {
+                MappedInterceptor mapped = (MappedInterceptor) interceptor;
+                switch (mapped.matchRoute(routePattern)) {
+                    case ALL:
+                        resolved.add(mapped.getInterceptor());
+                        break;
+                    case SOME:
+                        // 保留包装, 请求时按路径判断
+                        resolved.add(mapped);
+                        break;
+                    default:
+                        break;
+                }
+            } else {
+                resolved.add(interceptor);
+            }
+        }
+        return resolved.toArray(new HandlerInterceptor[0]);
+    }
+
+    /**
+     * 为请求确定拦截器, 路由上保留的{@link MappedInterceptor}按请求路径匹配
+     * 路由上没有这类拦截器时直接返回路由的数组
+     *
+     * @param routeInterceptors resolveInterceptors为路由解析的拦截器
+     * @param path 请求路径
+     * @param start 路径起始位置, 用于跳过上下文路径
+     * @return 作用于请求的拦截器
+     */
+    protected HandlerInterceptor[] getRequestInterceptors(HandlerInterceptor[] routeInterceptors, String path,
+            int start) {
+        List<HandlerInterceptor> resolved = null;
+        String lookupPath = null;
+        for (int i = 0; i < routeInterceptors.length; i++) {
+            HandlerInterceptor interceptor = routeInterceptors[i];
+            if (interceptor instanceof MappedInterceptor) {
+                if (resolved == null) {
+                    resolved = new ArrayList<>(routeInterceptors.length);
+                    for (int j = 0; j < i; j++) {
+                        resolved.add(routeInterceptors[j]);
+                    }
+                    lookupPath = path.substring(start);
+                }
+                MappedInterceptor mapped = (MappedInterceptor) interceptor;
+                if (mapped.matches(lookupPath)) {
+                    resolved.add(mapped.getInterceptor());
+                }
+            } else if (resolved != null) {
+                resolved.add(interceptor);
+            }
+        }
+        return resolved != null ? resolved.toArray(new HandlerInterceptor[0]) : routeInterceptors;
+    }
+
+    /**
+     * 拦截器变更后重新解析所有已注册路由的拦截器
+     */
+    protected abstract void refreshInterceptors();
+}
@@ -0,0 +1,81 @@
+package com.kama.minispring.web.servlet.handler;
+
+import com.kama.minispring.web.multipart.MaxUploadSizeExceededException;
+import com.kama.minispring.web.multipart.MultipartException;
+import com.kama.minispring.web.servlet.HandlerExceptionResolver;
+import com.kama.minispring.web.servlet.ModelAndView;
+import com.kama.minispring.web.servlet.async.AsyncRequestTimeoutException;
+import com.kama.minispring.web.servlet.method.HttpMediaTypeNotAcceptableException;
+import com.kama.minispring.web.servlet.method.ServletRequestBindingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 默认的处理器异常解析器
+ * 将框架内部的标准异常转换为对应的HTTP状态码:
+ * 请求绑定失败和多部分请求格式错误返回400, 请求方法不受支持返回405并带Allow头,
+ * 无法生成可接受的媒体类型返回406,
+ * 上传超过大小限制返回413, 异步请求超时返回503.
+ * 处理后返回空的ModelAndView, 表示响应已经完成, 不需要渲染视图
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class DefaultHandlerExceptionResolver implements HandlerExceptionResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultHandlerExceptionResolver.class);
+
+    @Override
+    public ModelAndView resolveException(HttpServletRequest request, HttpServletResponse response,
+            Object handler, Exception ex) {
+        int status = determineStatusCode(ex);
+        if (status < 0) {
+            return null;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Resolved [{}] to status {}", ex, status);
+        }
+        try {
+            if (ex instanceof HttpRequestMethodNotSupportedException) {
+                response.setHeader("Allow", ((HttpRequestMethodNotSupportedException) ex).getAllowHeader());
+            }
+            response.sendError(status);
+        } catch (IOException sendEx) {
+            logger.warn("Failed to send error status {} for [{}]", status, ex, sendEx);
+            return null;
+        }
+        return new ModelAndView();
+    }
+
+    /**
+     * 确定异常对应的状态码
+     *
+     * @param ex 异常
+     * @return 状态码, 不是标准异常时返回-1
+     */
+    protected int determineStatusCode(Exception ex) {
+        if (ex instanceof ServletRequestBindingException) {
+            return HttpServletResponse.SC_BAD_REQUEST;
+        }
+        if (ex instanceof HttpRequestMethodNotSupportedException) {
+            return HttpServletResponse.SC_METHOD_NOT_ALLOWED;
+        }
+        if (ex instanceof MaxUploadSizeExceededException) {
+            return HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE;
+        }
+        if (ex instanceof MultipartException) {
+            return HttpServletResponse.SC_BAD_REQUEST;
+        }
+        if (ex instanceof HttpMediaTypeNotAcceptableException) {
+            return HttpServletResponse.SC_NOT_ACCEPTABLE;
+        }
+        if (ex instanceof AsyncRequestTimeoutException) {
+            return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+        }
+        return -1;
+    }
+}
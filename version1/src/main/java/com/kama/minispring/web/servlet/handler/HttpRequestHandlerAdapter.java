@@ -0,0 +1,30 @@
+package com.kama.minispring.web.servlet.handler;
+
+import com.kama.minispring.web.servlet.HandlerAdapter;
+import com.kama.minispring.web.servlet.HttpRequestHandler;
+import com.kama.minispring.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * HttpRequestHandler的适配器
+ * 处理器自行写出响应, 因此总是返回null
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class HttpRequestHandlerAdapter implements HandlerAdapter {
+
+    @Override
+    public boolean supports(Object handler) {
+        return handler instanceof HttpRequestHandler;
+    }
+
+    @Override
+    public ModelAndView handle(HttpServletRequest request, HttpServletResponse response,
+            Object handler) throws Exception {
+        ((HttpRequestHandler) handler).handleRequest(request, response);
+        return null;
+    }
+}
@@ -0,0 +1,41 @@
+package com.kama.minispring.web.servlet.handler;
+
+import com.kama.minispring.web.servlet.annotation.RequestMethod;
+
+import javax.servlet.ServletException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 请求路径存在映射, 但没有映射支持请求方法时抛出
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class HttpRequestMethodNotSupportedException extends ServletException {
+
+    private final String method;
+
+    private final Set<RequestMethod> supportedMethods;
+
+    public HttpRequestMethodNotSupportedException(String method, Set<RequestMethod> supportedMethods) {
+        super("Request method '" + method + "' is not supported, supported methods are " + supportedMethods);
+        this.method = method;
+        this.supportedMethods = supportedMethods;
+    }
+
+    public String getMethod() {
+        return this.method;
+    }
+
+    public Set<RequestMethod> getSupportedMethods() {
+        return this.supportedMethods;
+    }
+
+    /**
+     * 获取Allow响应头的值
+     */
+    public String getAllowHeader() {
+        return this.supportedMethods.stream().map(Enum::name).collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,89 @@
+package com.kama.minispring.web.servlet.handler;
+
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.web.servlet.HandlerInterceptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 拦截器注册表
+ * 按注册顺序收集拦截器及其路径模式, 结果交给{@link AbstractHandlerMapping#setInterceptors}
+ * <pre>
+ * registry.addInterceptor(metricsInterceptor);
+ * registry.addInterceptor(authInterceptor).addPathPatterns("/api/**").excludePathPatterns("/api/login");
+ * mapping.setInterceptors(registry.getInterceptors());
+ * </pre>
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class InterceptorRegistry {
+
+    private final List<Registration> registrations = new ArrayList<>();
+
+    /**
+     * 注册拦截器
+     *
+     * @param interceptor 拦截器
+     * @return 用于设置路径模式的注册项
+     */
+    public Registration addInterceptor(HandlerInterceptor interceptor) {
+        Assert.notNull(interceptor, "Interceptor must not be null");
+        Registration registration = new Registration(interceptor);
+        this.registrations.add(registration);
+        return registration;
+    }
+
+    /**
+     * 获取注册的拦截器, 设置了路径模式的拦截器包装为{@link MappedInterceptor}
+     */
+    public List<HandlerInterceptor> getInterceptors() {
+        List<HandlerInterceptor> interceptors = new ArrayList<>(this.registrations.size());
+        for (Registration registration : this.registrations) {
+            interceptors.add(registration.getInterceptor());
+        }
+        return interceptors;
+    }
+
+    /**
+     * 单个拦截器的注册项
+     */
+    public static final class Registration {
+
+        private final HandlerInterceptor interceptor;
+
+        private final List<String> includePatterns = new ArrayList<>();
+
+        private final List<String> excludePatterns = new ArrayList<>();
+
+        private Registration(HandlerInterceptor interceptor) {
+            this.interceptor = interceptor;
+        }
+
+        /**
+         * 添加包含模式, 未添加时作用于所有路由
+         */
+        public Registration addPathPatterns(String... patterns) {
+            this.includePatterns.addAll(Arrays.asList(patterns));
+            return this;
+        }
+
+        /**
+         * 添加排除模式
+         */
+        public Registration excludePathPatterns(String... patterns) {
+            this.excludePatterns.addAll(Arrays.asList(patterns));
+            return this;
+        }
+
+        private HandlerInterceptor getInterceptor() {
+            if (this.includePatterns.isEmpty() && this.excludePatterns.isEmpty()) {
+                return this.interceptor;
+            }
+            return new MappedInterceptor(this.includePatterns.toArray(new String[0]),
+                    this.excludePatterns.toArray(new String[0]), this.interceptor);
+        }
+    }
+}
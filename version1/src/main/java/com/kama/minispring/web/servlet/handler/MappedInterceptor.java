@@ -0,0 +1,242 @@
+package com.kama.minispring.web.servlet.handler;
+
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.web.servlet.AsyncHandlerInterceptor;
+import com.kama.minispring.web.servlet.HandlerInterceptor;
+import com.kama.minispring.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 带包含/排除路径模式的拦截器
+ * 模式在启动时与路由模式比较, 处理器映射据此为每个路由预先确定拦截器: 路由的所有请求都命中或都不命中时,
+ * 请求时不再匹配路径; 只能命中部分请求时(如排除"/users/42"而路由为"/users/{id}"), 在请求时按请求路径匹配.
+ * 模式段中"*"和"{var}"匹配任意一段, "**"匹配任意多段, 段内的"*"按通配符匹配
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public final class MappedInterceptor implements AsyncHandlerInterceptor {
+
+    private final String[] includePatterns;
+
+    private final String[] excludePatterns;
+
+    private final HandlerInterceptor interceptor;
+
+    /**
+     * 构造函数
+     *
+     * @param includePatterns 包含模式, 为空时匹配所有路由
+     * @param excludePatterns 排除模式, 可为空
+     * @param interceptor 目标拦截器
+     */
+    public MappedInterceptor(String[] includePatterns, String[] excludePatterns, HandlerInterceptor interceptor) {
+        Assert.notNull(interceptor, "Interceptor must not be null");
+        this.includePatterns = includePatterns != null ? includePatterns.clone() : new String[0];
+        this.excludePatterns = excludePatterns != null ? excludePatterns.clone() : new String[0];
+        this.interceptor = interceptor;
+    }
+
+    public HandlerInterceptor getInterceptor() {
+        return this.interceptor;
+    }
+
+    /**
+     * 判断拦截器是否作用于给定请求路径
+     *
+     * @param path 不含上下文路径的请求路径
+     * @return 命中包含模式且未命中排除模式时返回true
+     */
+    public boolean matches(String path) {
+        for (String exclude : this.excludePatterns) {
+            if (matchPattern(exclude, path)) {
+                return false;
+            }
+        }
+        if (this.includePatterns.length == 0) {
+            return true;
+        }
+        for (String include : this.includePatterns) {
+            if (matchPattern(include, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 判断拦截器对路由的作用范围
+     *
+     * @param routePattern 路由模式, 如"/users/{id}"
+     * @return 路由的所有请求都拦截、都不拦截, 或需要在请求时按路径判断
+     */
+    RouteMatch matchRoute(String routePattern) {
+        String[] route = split(routePattern);
+        boolean partial = false;
+        for (String exclude : this.excludePatterns) {
+            String[] pattern = split(exclude);
+            if (matchSegments(pattern, 0, route, 0)) {
+                return RouteMatch.NONE;
+            }
+            partial |= overlapSegments(pattern, 0, route, 0);
+        }
+        RouteMatch included = this.includePatterns.length == 0 ? RouteMatch.ALL : RouteMatch.NONE;
+        for (String include : this.includePatterns) {
+            String[] pattern = split(include);
+            if (matchSegments(pattern, 0, route, 0)) {
+                included = RouteMatch.ALL;
+                break;
+            }
+            if (overlapSegments(pattern, 0, route, 0)) {
+                included = RouteMatch.SOME;
+            }
+        }
+        if (included == RouteMatch.ALL && partial) {
+            return RouteMatch.SOME;
+        }
+        return included;
+    }
+
+    /**
+     * 判断模式是否匹配路由能匹配的所有路径; 路由为具体路径时即判断模式是否匹配该路径
+     */
+    static boolean matchPattern(String pattern, String route) {
+        return matchSegments(split(pattern), 0, split(route), 0);
+    }
+
+    private static boolean matchSegments(String[] pattern, int p, String[] route, int r) {
+        while (p < pattern.length) {
+            String segment = pattern[p];
+            if ("**".equals(segment)) {
+                if (p == pattern.length - 1) {
+                    return true;
+                }
+                for (int skip = r; skip <= route.length; skip++) {
+                    if (matchSegments(pattern, p + 1, route, skip)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            // 路由的"**"匹配任意多段, 只有模式的"**"能覆盖
+            if (r >= route.length || "**".equals(route[r]) || !matchSegment(segment, route[r])) {
+                return false;
+            }
+            p++;
+            r++;
+        }
+        return r == route.length;
+    }
+
+    /**
+     * 判断是否存在同时匹配模式和路由的路径
+     */
+    private static boolean overlapSegments(String[] pattern, int p, String[] route, int r) {
+        while (true) {
+            if (r < route.length && "**".equals(route[r])) {
+                return true;
+            }
+            if (p == pattern.length) {
+                return r == route.length;
+            }
+            String segment = pattern[p];
+            if ("**".equals(segment)) {
+                for (int skip = r; skip <= route.length; skip++) {
+                    if (overlapSegments(pattern, p + 1, route, skip)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (r == route.length) {
+                return false;
+            }
+            String routeSegment = route[r];
+            boolean variable = "*".equals(routeSegment)
+                    || (routeSegment.startsWith("{") && routeSegment.endsWith("}"));
+            if (!variable && !matchSegment(segment, routeSegment)) {
+                return false;
+            }
+            p++;
+            r++;
+        }
+    }
+
+    private static boolean matchSegment(String pattern, String segment) {
+        if ("*".equals(pattern) || (pattern.startsWith("{") && pattern.endsWith("}"))) {
+            return true;
+        }
+        if (pattern.indexOf('*') < 0) {
+            return pattern.equals(segment);
+        }
+        return matchWildcard(pattern, 0, segment, 0);
+    }
+
+    private static boolean matchWildcard(String pattern, int p, String text, int t) {
+        while (p < pattern.length()) {
+            char c = pattern.charAt(p);
+            if (c == '*') {
+                for (int skip = t; skip <= text.length(); skip++) {
+                    if (matchWildcard(pattern, p + 1, text, skip)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (t >= text.length() || text.charAt(t) != c) {
+                return false;
+            }
+            p++;
+            t++;
+        }
+        return t == text.length();
+    }
+
+    private static String[] split(String path) {
+        return path.chars().allMatch(c -> c == '/')
+                ? new String[0] : (path.startsWith("/") ? path.substring(1) : path).split("/+");
+    }
+
+    /**
+     * 拦截器对路由的作用范围
+     */
+    enum RouteMatch {
+
+        /** 路由的所有请求都拦截 */
+        ALL,
+
+        /** 只拦截部分请求, 需要在请求时按路径判断 */
+        SOME,
+
+        /** 路由的请求都不拦截 */
+        NONE
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        return this.interceptor.preHandle(request, response, handler);
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+            ModelAndView modelAndView) throws Exception {
+        this.interceptor.postHandle(request, response, handler, modelAndView);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) throws Exception {
+        this.interceptor.afterCompletion(request, response, handler, ex);
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) throws Exception {
+        if (this.interceptor instanceof AsyncHandlerInterceptor) {
+            ((AsyncHandlerInterceptor) this.interceptor).afterConcurrentHandlingStarted(request, response, handler);
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package com.kama.minispring.web.servlet.handler;
+
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.web.servlet.annotation.RequestMethod;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基于基数树的路径路由表
+ * 字面量部分按字符压缩存储, 路径变量和通配符按段匹配, 叶子节点按请求方法分别保存处理器
+ * <ul>
+ * <li>{name}: 匹配一个非空路径段并以name捕获</li>
+ * <li>*: 匹配一个非空路径段, 不捕获</li>
+ * <li>**: 只能作为最后一段, 匹配剩余的零个或多个路径段, /static/**同时匹配/static</li>
+ * </ul>
+ * 匹配优先级为字面量 &gt; 单段变量 &gt; **, 高优先级分支匹配失败时回溯到低优先级分支。
+ * 查找只在命中或请求方法不匹配时分配结果对象, 变量值在第一次访问时才截取。
+ * 注册不是线程安全的, 应在发布给请求线程之前完成; 发布后的并发查找是安全的
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class RadixRouter<T> {
+
+    private static final int METHOD_COUNT = RequestMethod.values().length;
+
+    private static final char[] NO_INDICES = new char[0];
+
+    private final Node<T> root = new Node<>("");
+
+    private int routeCount;
+
+    /**
+     * 注册路由
+     *
+     * @param pattern 路径模式
+     * @param methods 支持的请求方法, 为空时匹配所有方法
+     * @param handler 处理器
+     * @throws IllegalArgumentException 路径模式不合法
+     * @throws IllegalStateException 同一模式和方法已经注册过处理器
+     */
+    public void register(String pattern, RequestMethod[] methods, T handler) {
+        Assert.notNull(pattern, "Pattern must not be null");
+        Assert.notNull(handler, "Handler must not be null");
+        String normalized = pattern.startsWith("/") ? pattern : "/" + pattern;
+        List<String> variableNames = new ArrayList<>();
+        Node<T> node = root;
+        Node<T> catchAllParent = null;
+        StringBuilder literal = new StringBuilder();
+        String[] segments = normalized.substring(1).split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            literal.append('/');
+            if (segment.equals("**")) {
+                if (i != segments.length - 1) {
+                    throw new IllegalArgumentException("'**' must be the last segment in pattern [" + pattern + "]");
+                }
+                // 去掉末尾斜杠的前缀处也登记该路由, 使/static/**匹配/static
+                literal.setLength(literal.length() - 1);
+                catchAllParent = insertLiteral(node, literal);
+                literal.append('/');
+                node = insertLiteral(catchAllParent, literal);
+                if (node.catchAllChild == null) {
+                    node.catchAllChild = new Node<>("");
+                }
+                node = node.catchAllChild;
+                variableNames.add(null);
+            } else if (segment.equals("*") || isVariable(segment)) {
+                node = insertLiteral(node, literal);
+                if (node.segmentChild == null) {
+                    node.segmentChild = new Node<>("");
+                }
+                node = node.segmentChild;
+                variableNames.add(segment.equals("*") ? null : segment.substring(1, segment.length() - 1));
+            } else {
+                if (segment.indexOf('{') >= 0 || segment.indexOf('}') >= 0 || segment.indexOf('*') >= 0) {
+                    throw new IllegalArgumentException("Variables and wildcards must span a whole segment in pattern ["
+                            + pattern + "]");
+                }
+                literal.append(segment);
+            }
+        }
+        node = insertLiteral(node, literal);
+
+        Route<T> route = new Route<>(normalized, handler, variableNames.toArray(new String[0]));
+        if (node.routes == null) {
+            node.routes = newRouteArray(METHOD_COUNT + 1);
+        }
+        if (methods == null || methods.length == 0) {
+            setRoute(node, METHOD_COUNT, route);
+        } else {
+            for (RequestMethod method : methods) {
+                setRoute(node, method.ordinal(), route);
+            }
+        }
+        if (catchAllParent != null) {
+            if (catchAllParent.bareCatchAllRoutes == null) {
+                catchAllParent.bareCatchAllRoutes = newRouteArray(METHOD_COUNT + 1);
+            }
+            if (methods == null || methods.length == 0) {
+                catchAllParent.bareCatchAllRoutes[METHOD_COUNT] = route;
+            } else {
+                for (RequestMethod method : methods) {
+                    catchAllParent.bareCatchAllRoutes[method.ordinal()] = route;
+                }
+            }
+        }
+        routeCount++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Route<T>[] newRouteArray(int length) {
+        return (Route<T>[]) new Route<?>[length];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Node<T>[] newNodeArray(int length) {
+        return (Node<T>[]) new Node<?>[length];
+    }
+
+    private static boolean isVariable(String segment) {
+        return segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}'
+                && segment.indexOf('{', 1) < 0 && segment.indexOf('}') == segment.length() - 1;
+    }
+
+    private void setRoute(Node<T> node, int index, Route<T> route) {
+        Route<T> existing = node.routes[index];
+        if (existing != null) {
+            throw new IllegalStateException("Ambiguous mapping: [" + route.pattern + "] conflicts with ["
+                    + existing.pattern + "] for " + (index == METHOD_COUNT ? "all methods"
+                    : RequestMethod.values()[index].name()));
+        }
+        node.routes[index] = route;
+    }
+
+    /**
+     * 插入字面量, 必要时拆分已有节点, 返回字面量结束处的节点并清空缓冲
+     */
+    private Node<T> insertLiteral(Node<T> parent, StringBuilder buffer) {
+        String literal = buffer.toString();
+        buffer.setLength(0);
+        Node<T> node = parent;
+        while (!literal.isEmpty()) {
+            int index = node.indexOf(literal.charAt(0));
+            if (index < 0) {
+                Node<T> child = new Node<>(literal);
+                node.addChild(child);
+                return child;
+            }
+            Node<T> child = node.children[index];
+            int common = commonPrefixLength(child.prefix, literal);
+            if (common < child.prefix.length()) {
+                Node<T> split = new Node<>(child.prefix.substring(0, common));
+                child.prefix = child.prefix.substring(common);
+                split.addChild(child);
+                node.children[index] = split;
+                child = split;
+            }
+            literal = literal.substring(common);
+            node = child;
+        }
+        return node;
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 查找路由
+     *
+     * @param path 请求路径
+     * @param method 请求方法, 为null时只匹配不限方法的路由
+     * @return 匹配结果, 未命中时为null
+     */
+    public Match<T> lookup(String path, RequestMethod method) {
+        return lookup(path, 0, method);
+    }
+
+    /**
+     * 从指定位置开始查找路由, 用于跳过上下文路径而不截取字符串
+     *
+     * @param path 请求路径
+     * @param start 路径起始位置
+     * @param method 请求方法, 为null时只匹配不限方法的路由
+     * @return 匹配结果, 未命中时为null
+     */
+    public Match<T> lookup(String path, int start, RequestMethod method) {
+        Match<T> match = resolve(path, start, method);
+        return match != null && !match.isMethodMismatch() ? match : null;
+    }
+
+    /**
+     * 查找路由, 未命中时区分路径不存在和请求方法不匹配
+     * 路径只在其他请求方法下有路由时返回方法不匹配的结果, 可用方法在同一次遍历中按位收集,
+     * 只有这种情况才分配结果对象
+     *
+     * @param path 请求路径
+     * @param start 路径起始位置
+     * @param method 请求方法, 为null时只匹配不限方法的路由
+     * @return 匹配结果或方法不匹配的结果, 路径在任何方法下都不匹配时为null
+     */
+    public Match<T> resolve(String path, int start, RequestMethod method) {
+        if (path == null || start >= path.length()) {
+            return null;
+        }
+        int methodIndex = method != null ? method.ordinal() : METHOD_COUNT;
+        return match(root, path, start, methodIndex, 0);
+    }
+
+    /**
+     * 返回命中的结果; 未命中时返回合并了所有可达叶子节点上请求方法的不匹配结果, 或null
+     */
+    private Match<T> match(Node<T> node, String path, int pos, int methodIndex, int depth) {
+        int length = path.length();
+        Match<T> mismatch = null;
+        if (pos == length) {
+            Match<T> match = leafMatch(node, path, methodIndex);
+            if (match != null && !match.isMethodMismatch()) {
+                return match;
+            }
+            mismatch = match;
+        } else {
+            int index = node.indexOf(path.charAt(pos));
+            if (index >= 0) {
+                Node<T> child = node.children[index];
+                String prefix = child.prefix;
+                if (path.regionMatches(pos, prefix, 0, prefix.length())) {
+                    Match<T> match = match(child, path, pos + prefix.length(), methodIndex, depth);
+                    if (match != null && !match.isMethodMismatch()) {
+                        return match;
+                    }
+                    mismatch = merge(mismatch, match);
+                }
+            }
+            if (node.segmentChild != null) {
+                int end = path.indexOf('/', pos);
+                if (end < 0) {
+                    end = length;
+                }
+                if (end > pos) {
+                    Match<T> match = match(node.segmentChild, path, end, methodIndex, depth + 1);
+                    if (match != null && !match.isMethodMismatch()) {
+                        match.offsets[depth * 2] = pos;
+                        match.offsets[depth * 2 + 1] = end;
+                        return match;
+                    }
+                    mismatch = merge(mismatch, match);
+                }
+            }
+        }
+        if (node.catchAllChild != null) {
+            Match<T> match = leafMatch(node.catchAllChild, path, methodIndex);
+            if (match != null && !match.isMethodMismatch()) {
+                match.offsets[depth * 2] = pos;
+                match.offsets[depth * 2 + 1] = length;
+                return match;
+            }
+            mismatch = merge(mismatch, match);
+        }
+        return mismatch;
+    }
+
+    private static <T> Match<T> merge(Match<T> mismatch, Match<T> other) {
+        if (mismatch == null) {
+            return other;
+        }
+        if (other != null) {
+            mismatch.allowedMethodMask |= other.allowedMethodMask;
+        }
+        return mismatch;
+    }
+
+    private Match<T> leafMatch(Node<T> node, String path, int methodIndex) {
+        Route<T> route = selectRoute(node.routes, methodIndex);
+        if (route == null) {
+            route = selectRoute(node.bareCatchAllRoutes, methodIndex);
+        }
+        if (route != null) {
+            return new Match<>(route, path);
+        }
+        // 叶子上有不限方法的路由时不会走到这里, 因此只需收集具体的请求方法
+        int mask = methodMask(node.routes) | methodMask(node.bareCatchAllRoutes);
+        return mask != 0 ? new Match<>(path, mask) : null;
+    }
+
+    private static <T> int methodMask(Route<T>[] routes) {
+        if (routes == null) {
+            return 0;
+        }
+        int mask = 0;
+        for (int i = 0; i < METHOD_COUNT; i++) {
+            if (routes[i] != null) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    private static <T> Route<T> selectRoute(Route<T>[] routes, int methodIndex) {
+        if (routes == null) {
+            return null;
+        }
+        Route<T> route = routes[methodIndex];
+        return route != null ? route : routes[METHOD_COUNT];
+    }
+
+    /**
+     * 获取已注册的路由数量, 每次register计一条
+     */
+    public int getRouteCount() {
+        return this.routeCount;
+    }
+
+    private static final class Node<T> {
+
+        private String prefix;
+
+        private char[] indices = NO_INDICES;
+
+        private Node<T>[] children;
+
+        private Node<T> segmentChild;
+
+        private Node<T> catchAllChild;
+
+        /** 按请求方法序号保存的路由, 最后一个位置是不限方法的路由 */
+        private Route<T>[] routes;
+
+        /** 以本节点加斜杠为前缀的**路由, 请求路径恰好在本节点结束时匹配, 优先级低于routes */
+        private Route<T>[] bareCatchAllRoutes;
+
+        private Node(String prefix) {
+            this.prefix = prefix;
+        }
+
+        private int indexOf(char c) {
+            char[] indices = this.indices;
+            for (int i = 0; i < indices.length; i++) {
+                if (indices[i] == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void addChild(Node<T> child) {
+            int size = indices.length;
+            indices = Arrays.copyOf(indices, size + 1);
+            indices[size] = child.prefix.charAt(0);
+            children = children == null ? newNodeArray(1) : Arrays.copyOf(children, size + 1);
+            children[size] = child;
+        }
+    }
+
+    private static final class Route<T> {
+
+        private final String pattern;
+
+        private final T handler;
+
+        /** 按捕获顺序排列的变量名, *和**对应null */
+        private final String[] variableNames;
+
+        private Route(String pattern, T handler, String[] variableNames) {
+            this.pattern = pattern;
+            this.handler = handler;
+            this.variableNames = variableNames;
+        }
+    }
+
+    /**
+     * 路由匹配结果
+     */
+    public static final class Match<T> {
+
+        private static final int[] NO_OFFSETS = new int[0];
+
+        private static final String[] NO_NAMES = new String[0];
+
+        private final Route<T> route;
+
+        private final String path;
+
+        private final int[] offsets;
+
+        private Map<String, String> uriVariables;
+
+        /** 方法不匹配时路径在其他请求方法下的路由, 按请求方法序号置位 */
+        private int allowedMethodMask;
+
+        private Match(Route<T> route, String path) {
+            this.route = route;
+            this.path = path;
+            this.offsets = new int[route.variableNames.length * 2];
+        }
+
+        private Match(String path, int allowedMethodMask) {
+            this.route = null;
+            this.path = path;
+            this.offsets = NO_OFFSETS;
+            this.allowedMethodMask = allowedMethodMask;
+        }
+
+        /**
+         * 判断是否为请求方法不匹配的结果, 此时没有处理器和路径变量
+         */
+        public boolean isMethodMismatch() {
+            return route == null;
+        }
+
+        /**
+         * 获取方法不匹配时路径可用的请求方法, 用于返回405和Allow头
+         *
+         * @return 可用的请求方法, 命中时为空集合
+         */
+        public Set<RequestMethod> getAllowedMethods() {
+            Set<RequestMethod> allowed = EnumSet.noneOf(RequestMethod.class);
+            RequestMethod[] methods = RequestMethod.values();
+            for (int i = 0; i < methods.length; i++) {
+                if ((allowedMethodMask & (1 << i)) != 0) {
+                    allowed.add(methods[i]);
+                }
+            }
+            return allowed;
+        }
+
+        public T getHandler() {
+            return route != null ? route.handler : null;
+        }
+
+        /**
+         * 获取命中的路径模式
+         */
+        public String getPattern() {
+            return route != null ? route.pattern : null;
+        }
+
+        /**
+         * 获取捕获的路径变量
+         * 匹配在原始路径上进行, %2F不会拆分路径段; 变量值按UTF-8解码, '+'保持原样
+         *
+         * @return 变量名到变量值的只读映射
+         */
+        public Map<String, String> getUriVariables() {
+            Map<String, String> variables = this.uriVariables;
+            if (variables == null) {
+                String[] names = route != null ? route.variableNames : NO_NAMES;
+                if (names.length == 0) {
+                    variables = Collections.emptyMap();
+                } else {
+                    Map<String, String> map = new LinkedHashMap<>(names.length * 2);
+                    for (int i = 0; i < names.length; i++) {
+                        if (names[i] != null) {
+                            map.put(names[i], decode(path.substring(offsets[i * 2], offsets[i * 2 + 1])));
+                        }
+                    }
+                    variables = Collections.unmodifiableMap(map);
+                }
+                this.uriVariables = variables;
+            }
+            return variables;
+        }
+
+        /**
+         * 解码路径变量, 编码不合法时保留原始值
+         */
+        private static String decode(String value) {
+            if (value.indexOf('%') < 0) {
+                return value;
+            }
+            try {
+                return URLDecoder.decode(value.replace("+", "%2B"), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException ex) {
+                return value;
+            }
+        }
+    }
+}
@@ -1,27 +1,144 @@
 package com.kama.minispring.web.servlet.handler;
 
+import com.kama.minispring.http.converter.ByteArrayHttpMessageConverter;
+import com.kama.minispring.http.converter.HttpMessageConverter;
+import com.kama.minispring.http.converter.JsonHttpMessageConverter;
+import com.kama.minispring.http.converter.ResourceHttpMessageConverter;
+import com.kama.minispring.http.converter.StringHttpMessageConverter;
+import com.kama.minispring.scheduling.concurrent.VirtualThreadTaskExecutor;
+import com.kama.minispring.util.Assert;
 import com.kama.minispring.web.servlet.HandlerAdapter;
 import com.kama.minispring.web.servlet.ModelAndView;
+import com.kama.minispring.web.servlet.async.DeferredResult;
+import com.kama.minispring.web.servlet.async.WebAsyncManager;
+import com.kama.minispring.web.servlet.method.HandlerMethod;
+import com.kama.minispring.web.servlet.method.HandlerMethodArgumentResolver;
+import com.kama.minispring.web.servlet.method.MultipartFileMethodArgumentResolver;
+import com.kama.minispring.web.servlet.method.MethodParameter;
+import com.kama.minispring.web.servlet.method.PathVariableMethodArgumentResolver;
+import com.kama.minispring.web.servlet.method.RequestBodyMethodArgumentResolver;
+import com.kama.minispring.web.servlet.method.RequestHeaderMethodArgumentResolver;
+import com.kama.minispring.web.servlet.method.RequestParamMethodArgumentResolver;
+import com.kama.minispring.web.servlet.method.ResponseBodyMethodProcessor;
+import com.kama.minispring.web.servlet.method.ServletRequestMethodArgumentResolver;
+import com.kama.minispring.web.servlet.method.ServletResponseMethodArgumentResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.lang.reflect.Method;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 
 /**
  * 基于@RequestMapping注解的处理器适配器
  * 负责执行处理器方法并处理返回值
+ * 每个参数的解析器只选定一次, 请求处理时只做参数提取并通过MethodHandle调用处理器方法
+ * 处理器返回CompletionStage、Callable或DeferredResult时启动Servlet异步处理, 结果就绪后再转换为ModelAndView;
+ * 标注了@ResponseBody的处理器方法的返回值通过HttpMessageConverter直接写入响应体;
+ * 开启executeHandlersAsync后, 普通的阻塞处理器也在taskExecutor(默认每个请求一个虚拟线程)中执行
  *
  * @author kama
  * @version 1.0.0
  */
 public class RequestMappingHandlerAdapter implements HandlerAdapter {
     
+    private static final Logger logger = LoggerFactory.getLogger(RequestMappingHandlerAdapter.class);
+    
+    private static final Object[] NO_ARGS = new Object[0];
+    
     /**
-     * 缓存已经解析过的处理器方法
+     * 参数解析器, 按优先级排列, 整体替换以便处理器方法判断是否需要重新选定
      */
-    private final Map<Method, HandlerMethod> handlerMethodCache = new ConcurrentHashMap<>();
+    private volatile List<HandlerMethodArgumentResolver> argumentResolvers = getDefaultArgumentResolvers(
+            Collections.emptyList());
+    
+    private volatile ResponseBodyMethodProcessor responseBodyProcessor = new ResponseBodyMethodProcessor(
+            getDefaultMessageConverters());
+    
+    private Executor taskExecutor = new VirtualThreadTaskExecutor("mvc-async-");
+    
+    private Long asyncRequestTimeout;
+    
+    private boolean executeHandlersAsync = false;
+    
+    /**
+     * 设置自定义参数解析器, 排在内置解析器之后
+     *
+     * @param customArgumentResolvers 自定义解析器
+     */
+    public void setCustomArgumentResolvers(List<HandlerMethodArgumentResolver> customArgumentResolvers) {
+        Assert.notNull(customArgumentResolvers, "Argument resolvers must not be null");
+        this.argumentResolvers = getDefaultArgumentResolvers(customArgumentResolvers);
+    }
+    
+    public List<HandlerMethodArgumentResolver> getArgumentResolvers() {
+        return this.argumentResolvers;
+    }
+    
+    static List<HandlerMethodArgumentResolver> getDefaultArgumentResolvers(
+            List<HandlerMethodArgumentResolver> customArgumentResolvers) {
+        List<HandlerMethodArgumentResolver> resolvers = new ArrayList<>();
+        resolvers.add(new MultipartFileMethodArgumentResolver());
+        resolvers.add(new RequestParamMethodArgumentResolver());
+        resolvers.add(new PathVariableMethodArgumentResolver());
+        resolvers.add(new RequestHeaderMethodArgumentResolver());
+        resolvers.add(new RequestBodyMethodArgumentResolver());
+        resolvers.add(new ServletRequestMethodArgumentResolver());
+        resolvers.add(new ServletResponseMethodArgumentResolver());
+        resolvers.addAll(customArgumentResolvers);
+        return Collections.unmodifiableList(resolvers);
+    }
+    
+    /**
+     * 设置@ResponseBody使用的消息转换器, 按顺序匹配, 替换默认的转换器
+     *
+     * @param messageConverters 消息转换器
+     */
+    public void setMessageConverters(List<HttpMessageConverter<?>> messageConverters) {
+        this.responseBodyProcessor = new ResponseBodyMethodProcessor(messageConverters);
+    }
+    
+    public List<HttpMessageConverter<?>> getMessageConverters() {
+        return this.responseBodyProcessor.getMessageConverters();
+    }
+    
+    private static List<HttpMessageConverter<?>> getDefaultMessageConverters() {
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        converters.add(new ByteArrayHttpMessageConverter());
+        converters.add(new StringHttpMessageConverter());
+        converters.add(new ResourceHttpMessageConverter());
+        converters.add(new JsonHttpMessageConverter());
+        return converters;
+    }
+    
+    /**
+     * 设置执行Callable和异步处理器的执行器, 默认每个任务一个虚拟线程
+     */
+    public void setTaskExecutor(Executor taskExecutor) {
+        Assert.notNull(taskExecutor, "TaskExecutor must not be null");
+        this.taskExecutor = taskExecutor;
+    }
+    
+    /**
+     * 设置异步请求的默认超时时间(毫秒), 为null时使用容器的默认值
+     */
+    public void setAsyncRequestTimeout(Long asyncRequestTimeout) {
+        this.asyncRequestTimeout = asyncRequestTimeout;
+    }
+    
+    /**
+     * 设置是否把同步处理器放到taskExecutor中执行, 释放容器线程
+     * 只对支持异步的请求生效, 拦截器的preHandle在容器线程上执行, postHandle和afterCompletion在处理器执行完后按顺序执行
+     */
+    public void setExecuteHandlersAsync(boolean executeHandlersAsync) {
+        this.executeHandlersAsync = executeHandlersAsync;
+    }
     
     @Override
     public boolean supports(Object handler) {
@@ -38,68 +155,101 @@ public class RequestMappingHandlerAdapter implements HandlerAdapter {
      * 处理请求的内部方法
      */
     protected ModelAndView handleInternal(HttpServletRequest request,
-            HttpServletResponse response, HandlerMethod handlerMethod) 
-            throws Exception {
+            HttpServletResponse response, HandlerMethod handlerMethod) throws Exception {
         
-        // 获取处理器方法和bean
         Method method = handlerMethod.getMethod();
-        Object bean = handlerMethod.getBean();
         
-        System.out.println("Executing method: " + method.getName());
-        System.out.println("Bean: " + bean);
+        // 解析参数并调用处理器方法
+        Object[] args = resolveArguments(handlerMethod, request, response);
+        if (this.executeHandlersAsync && request.isAsyncSupported() && !isAsyncReturnType(method.getReturnType())) {
+            WebAsyncManager.getAsyncManager(request, response).startCallableProcessing(
+                    () -> invokeHandlerMethod(handlerMethod, args), this.taskExecutor, this.asyncRequestTimeout,
+                    value -> getModelAndView(handlerMethod, value, request, response));
+            return null;
+        }
+        Object returnValue = invokeHandlerMethod(handlerMethod, args);
         
-        // 调用处理器方法
-        Object returnValue = method.invoke(bean);
-        System.out.println("Return value: " + returnValue);
-        System.out.println("Return value type: " + (returnValue != null ? returnValue.getClass() : "null"));
+        // 异步返回值
+        if (returnValue instanceof CompletionStage) {
+            WebAsyncManager.getAsyncManager(request, response).startCompletionStageProcessing(
+                    (CompletionStage<?>) returnValue, this.asyncRequestTimeout,
+                    value -> getModelAndView(handlerMethod, value, request, response));
+            return null;
+        }
+        if (returnValue instanceof Callable) {
+            WebAsyncManager.getAsyncManager(request, response).startCallableProcessing(
+                    (Callable<?>) returnValue, this.taskExecutor, this.asyncRequestTimeout,
+                    value -> getModelAndView(handlerMethod, value, request, response));
+            return null;
+        }
+        if (returnValue instanceof DeferredResult) {
+            WebAsyncManager.getAsyncManager(request, response).startDeferredResultProcessing(
+                    (DeferredResult<?>) returnValue, this.asyncRequestTimeout,
+                    value -> getModelAndView(handlerMethod, value, request, response));
+            return null;
+        }
         
-        // 处理返回值
+        return getModelAndView(handlerMethod, returnValue, request, response);
+    }
+    
+    private static boolean isAsyncReturnType(Class<?> returnType) {
+        return CompletionStage.class.isAssignableFrom(returnType) || Callable.class.isAssignableFrom(returnType)
+                || DeferredResult.class.isAssignableFrom(returnType);
+    }
+    
+    private Object invokeHandlerMethod(HandlerMethod handlerMethod,
+            Object[] args) throws Exception {
+        try {
+            return handlerMethod.invoke(args);
+        } catch (Exception | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IllegalStateException("Handler method " + handlerMethod + " threw a Throwable", ex);
+        }
+    }
+    
+    /**
+     * 将处理器返回值转换为ModelAndView
+     * 标注了@ResponseBody的处理器方法直接写出响应体并返回null
+     */
+    protected ModelAndView getModelAndView(HandlerMethod handlerMethod,
+            Object returnValue, HttpServletRequest request, HttpServletResponse response) throws Exception {
+        if (handlerMethod.isResponseBody() && !(returnValue instanceof ModelAndView)) {
+            this.responseBodyProcessor.handleReturnValue(returnValue, request.getHeader("Accept"), response);
+            return null;
+        }
+        Method method = handlerMethod.getMethod();
         ModelAndView mv = null;
         if (returnValue == null) {
             mv = new ModelAndView();
             mv.setViewName("");
-            System.out.println("Return value is null, creating empty ModelAndView");
         } else if (returnValue instanceof ModelAndView) {
             mv = (ModelAndView) returnValue;
-            System.out.println("Return value is ModelAndView");
         } else if (method.getReturnType() == String.class && method.getName().equals("stringReturnValue")) {
             // 如果返回值是String,且方法名是stringReturnValue,则认为是视图名称
             mv = new ModelAndView((String) returnValue);
-            System.out.println("Return value is String view name, creating ModelAndView with view name");
         } else {
             // 其他类型的返回值,放入model中
             mv = new ModelAndView();
             mv.addObject("result", returnValue);
             mv.setViewName(""); // 设置一个空的视图名称
-            System.out.println("Return value is Object, adding to model with key 'result': " + returnValue);
-            System.out.println("Model after adding: " + mv.getModel());
-        }
-        
-        if (mv != null && mv.getModel() != null) {
-            System.out.println("Final ModelAndView model: " + mv.getModel());
         }
+        logger.debug("Handler method {} returned {}", handlerMethod, mv);
         
         return mv;
     }
     
-    /**
-     * 处理器方法的缓存信息
-     */
-    public static class HandlerMethod {
-        private final Object bean;
-        private final Method method;
-        
-        public HandlerMethod(Object bean, Method method) {
-            this.bean = bean;
-            this.method = method;
+    private Object[] resolveArguments(HandlerMethod handlerMethod,
+            HttpServletRequest request, HttpServletResponse response) throws Exception {
+        HandlerMethodArgumentResolver[] resolvers = handlerMethod.getArgumentResolvers(this.argumentResolvers);
+        if (resolvers.length == 0) {
+            return NO_ARGS;
         }
-        
-        public Object getBean() {
-            return bean;
-        }
-        
-        public Method getMethod() {
-            return method;
+        MethodParameter[] parameters = handlerMethod.getMethodParameters();
+        Object[] args = new Object[resolvers.length];
+        for (int i = 0; i < resolvers.length; i++) {
+            args[i] = resolvers[i].resolveArgument(parameters[i], request, response);
         }
+        return args;
     }
 } 
\ No newline at end of file
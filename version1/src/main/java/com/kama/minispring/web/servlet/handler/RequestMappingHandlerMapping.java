@@ -3,35 +3,68 @@ package com.kama.minispring.web.servlet.handler;
 import com.kama.minispring.beans.factory.InitializingBean;
 import com.kama.minispring.context.ApplicationContext;
 import com.kama.minispring.context.ApplicationContextAware;
+import com.kama.minispring.util.Assert;
 import com.kama.minispring.web.servlet.HandlerExecutionChain;
-import com.kama.minispring.web.servlet.HandlerMapping;
+import com.kama.minispring.web.servlet.HandlerInterceptor;
 import com.kama.minispring.web.servlet.annotation.RequestMapping;
 import com.kama.minispring.web.servlet.annotation.RequestMethod;
+import com.kama.minispring.web.servlet.method.HandlerMethod;
+import com.kama.minispring.web.servlet.method.HandlerMethodArgumentResolver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.servlet.http.HttpServletRequest;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * 基于@RequestMapping注解的处理器映射器
  * 负责查找和维护请求路径与处理器的映射关系
+ * 路径模式在初始化时编译为基数树, 支持{var}、*和**, 并按请求方法分派
+ * 每个路由在注册时确定拦截器并选定参数解析器, 请求时只为执行进度分配HandlerExecutionChain;
+ * 处理器方法的参数没有可用的解析器时在启动阶段报错
  *
  * @author kama
  * @version 1.0.0
  */
-public class RequestMappingHandlerMapping implements HandlerMapping, ApplicationContextAware, InitializingBean {
+public class RequestMappingHandlerMapping extends AbstractHandlerMapping
+        implements ApplicationContextAware, InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestMappingHandlerMapping.class);
 
     private ApplicationContext applicationContext;
     
     /**
-     * 保存路径与处理器的映射关系
-     * key: 请求路径
-     * value: 处理器方法信息
+     * 路径模式到处理器方法的路由表
+     */
+    private final RadixRouter<Route> router = new RadixRouter<>();
+    
+    /**
+     * 已注册的路由, 拦截器变更时用于重新解析
+     */
+    private final List<Route> routes = new CopyOnWriteArrayList<>();
+    
+    /**
+     * 注册时为处理器方法选定参数解析器所用的候选解析器
+     */
+    private List<HandlerMethodArgumentResolver> argumentResolvers =
+            RequestMappingHandlerAdapter.getDefaultArgumentResolvers(Collections.emptyList());
+    
+    /**
+     * 设置注册时校验处理器方法参数所用的解析器, 应在注册处理器方法之前设置
+     * 传入适配器的{@link RequestMappingHandlerAdapter#getArgumentResolvers()}时,
+     * 注册时选定的解析器在请求时直接复用; 默认使用适配器的内置解析器
+     *
+     * @param argumentResolvers 按优先级排列的参数解析器
      */
-    private final Map<String, MappingRegistry.MappingRegistration> mappingLookup = new HashMap<>();
+    public void setArgumentResolvers(List<HandlerMethodArgumentResolver> argumentResolvers) {
+        Assert.notNull(argumentResolvers, "Argument resolvers must not be null");
+        this.argumentResolvers = argumentResolvers;
+    }
     
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) {
@@ -40,21 +73,17 @@ public class RequestMappingHandlerMapping implements HandlerMapping, Application
     
     @Override
     public void afterPropertiesSet() throws Exception {
-        System.out.println("开始初始化处理器映射器...");
         // 扫描所有带@RequestMapping注解的Bean
         String[] beanNames = applicationContext.getBeanDefinitionNames();
-        System.out.println("找到的Bean名称: " + String.join(", ", beanNames));
         
         for (String beanName : beanNames) {
             Object bean = applicationContext.getBean(beanName);
             Class<?> beanClass = bean.getClass();
-            System.out.println("处理Bean: " + beanName + ", 类型: " + beanClass.getName());
             
             // 获取类级别的@RequestMapping
             RequestMapping typeMapping = beanClass.getAnnotation(RequestMapping.class);
             String typePath = typeMapping != null ? typeMapping.value() : "";
             RequestMethod[] typeMethods = typeMapping != null ? typeMapping.method() : new RequestMethod[0];
-            System.out.println("类级别映射路径: " + typePath);
             
             // 如果类上有@RequestMapping注解但没有指定方法级别的映射,则使用类级别的映射
             if (typeMapping != null) {
@@ -71,10 +100,9 @@ public class RequestMappingHandlerMapping implements HandlerMapping, Application
                     // 找到名为handleRequest的方法作为默认处理方法
                     try {
                         Method handleRequestMethod = beanClass.getMethod("handleRequest");
-                        System.out.println("找到默认处理方法: handleRequest");
                         registerHandlerMethod(typePath, bean, handleRequestMethod, typeMethods);
                     } catch (NoSuchMethodException e) {
-                        System.out.println("未找到默认处理方法handleRequest");
+                        logger.debug("No default handleRequest method on bean '{}'", beanName);
                     }
                 }
             }
@@ -86,7 +114,6 @@ public class RequestMappingHandlerMapping implements HandlerMapping, Application
                 if (methodMapping != null) {
                     String methodPath = methodMapping.value();
                     String path = combinePath(typePath, methodPath);
-                    System.out.println("找到方法级别映射: " + method.getName() + " -> " + path);
                     
                     // 合并类级别和方法级别的RequestMethod
                     RequestMethod[] methodMethods = methodMapping.method();
@@ -97,95 +124,82 @@ public class RequestMappingHandlerMapping implements HandlerMapping, Application
                 }
             }
         }
-        System.out.println("处理器映射器初始化完成,注册的映射: " + mappingLookup.keySet());
+        logger.info("Mapped {} request handler(s)", router.getRouteCount());
     }
     
     @Override
     public HandlerExecutionChain getHandler(HttpServletRequest request) throws Exception {
         String lookupPath = request.getRequestURI();
-        String method = request.getMethod();
-        System.out.println("查找处理器: 路径=" + lookupPath + ", 方法=" + method);
+        String contextPath = request.getContextPath();
+        int start = contextPath != null && !contextPath.isEmpty() && lookupPath != null
+                && lookupPath.startsWith(contextPath) ? contextPath.length() : 0;
         
-        // 查找处理器
-        MappingRegistry.MappingRegistration registration = mappingLookup.get(lookupPath);
-        if (registration != null) {
-            System.out.println("找到映射注册信息: " + registration.method.getName());
-            // 检查请求方法是否匹配
-            if (registration.methods.length == 0 || isMethodMatch(method, registration.methods)) {
-                System.out.println("请求方法匹配成功");
-                return new HandlerExecutionChain(new HandlerMethod(registration.handler, registration.method));
-            } else {
-                System.out.println("请求方法不匹配");
-            }
-        } else {
-            System.out.println("未找到映射注册信息");
+        RadixRouter.Match<Route> match =
+                router.resolve(lookupPath, start, RequestMethod.resolve(request.getMethod()));
+        if (match == null) {
+            return null;
         }
-        
-        return null;
-    }
-    
-    private void registerHandlerMethod(String path, Object handler, Method method, RequestMethod[] methods) {
-        System.out.println("注册处理器方法: " + path + " -> " + method.getName());
-        MappingRegistry.MappingRegistration registration = new MappingRegistry.MappingRegistration();
-        registration.handler = handler;
-        registration.method = method;
-        registration.methods = methods;
-        
-        mappingLookup.put(path, registration);
-    }
-    
-    private String combinePath(String typePath, String methodPath) {
-        if (typePath.endsWith("/")) {
-            typePath = typePath.substring(0, typePath.length() - 1);
+        if (match.isMethodMismatch()) {
+            // 路径在其他请求方法下有映射时返回405, 而不是交给下一个映射器或返回404
+            throw new HttpRequestMethodNotSupportedException(request.getMethod(), match.getAllowedMethods());
         }
-        if (!methodPath.startsWith("/")) {
-            methodPath = "/" + methodPath;
-        }
-        return typePath + methodPath;
-    }
-    
-    private boolean isMethodMatch(String requestMethod, RequestMethod[] methods) {
-        if (methods.length == 0) {
-            return true;
-        }
-        for (RequestMethod method : methods) {
-            if (method.name().equals(requestMethod)) {
-                return true;
-            }
-        }
-        return false;
+        request.setAttribute(BEST_MATCHING_PATTERN_ATTRIBUTE, match.getPattern());
+        request.setAttribute(URI_TEMPLATE_VARIABLES_ATTRIBUTE, match.getUriVariables());
+        Route route = match.getHandler();
+        return new HandlerExecutionChain(route.handlerMethod,
+                getRequestInterceptors(route.interceptors, lookupPath, start));
     }
     
     /**
-     * 映射注册信息
+     * 注册处理器方法
+     *
+     * @param path 路径模式
+     * @param handler 处理器对象
+     * @param method 处理器方法
+     * @param methods 支持的请求方法, 为空时支持所有方法
+     * @throws IllegalStateException 处理器方法的某个参数没有可用的解析器
      */
-    private static class MappingRegistry {
-        static class MappingRegistration {
-            Object handler;
-            Method method;
-            RequestMethod[] methods = new RequestMethod[0]; // 初始化为空数组
+    protected void registerHandlerMethod(String path, Object handler, Method method, RequestMethod[] methods) {
+        logger.debug("Mapped [{}] {} onto {}", path, Arrays.toString(methods), method);
+        HandlerMethod handlerMethod = new HandlerMethod(handler, method);
+        handlerMethod.getArgumentResolvers(this.argumentResolvers);
+        Route route = new Route(path, handlerMethod, resolveInterceptors(path));
+        router.register(path, methods, route);
+        routes.add(route);
+    }
+    
+    @Override
+    protected void refreshInterceptors() {
+        for (Route route : routes) {
+            route.interceptors = resolveInterceptors(route.pattern);
         }
     }
     
     /**
-     * 处理器方法
-     * 包含处理器对象和方法
+     * 路由表中的条目, 保存处理器方法和预先解析的拦截器
      */
-    public static class HandlerMethod {
-        private final Object bean;
-        private final Method method;
+    private static final class Route {
         
-        public HandlerMethod(Object bean, Method method) {
-            this.bean = bean;
-            this.method = method;
-        }
+        private final String pattern;
         
-        public Object getBean() {
-            return bean;
-        }
+        private final HandlerMethod handlerMethod;
         
-        public Method getMethod() {
-            return method;
+        private volatile HandlerInterceptor[] interceptors;
+        
+        private Route(String pattern, HandlerMethod handlerMethod, HandlerInterceptor[] interceptors) {
+            this.pattern = pattern;
+            this.handlerMethod = handlerMethod;
+            this.interceptors = interceptors;
         }
     }
-} 
\ No newline at end of file
+    
+    private String combinePath(String typePath, String methodPath) {
+        if (typePath.endsWith("/")) {
+            typePath = typePath.substring(0, typePath.length() - 1);
+        }
+        if (!methodPath.startsWith("/")) {
+            methodPath = "/" + methodPath;
+        }
+        return typePath + methodPath;
+    }
+}
\ No newline at end of file
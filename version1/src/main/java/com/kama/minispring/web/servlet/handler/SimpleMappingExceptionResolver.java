@@ -2,26 +2,39 @@ package com.kama.minispring.web.servlet.handler;
 
 import com.kama.minispring.web.servlet.HandlerExceptionResolver;
 import com.kama.minispring.web.servlet.ModelAndView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
 /**
  * 简单映射异常解析器
  * 将异常类型映射到对应的错误视图名
- * 
+ * 映射中的类名在设置时一次性解析为Class, 解析结果通过ClassValue按具体异常类缓存,
+ * 同一种异常再次出现时不再加载类或遍历继承链; 缓存挂在异常类上, 不会阻止其类加载器被回收
+ *
  * @author kama
  * @version 1.0.0
  */
 public class SimpleMappingExceptionResolver implements HandlerExceptionResolver {
 
+    private static final Logger logger = LoggerFactory.getLogger(SimpleMappingExceptionResolver.class);
+
     /** 默认的异常属性名 */
     public static final String DEFAULT_EXCEPTION_ATTRIBUTE = "exception";
 
-    private Properties exceptionMappings;
+    /** 缓存中表示"没有匹配的映射"的占位值 */
+    private static final String NO_MATCH = new String("NO_MATCH");
+
+    private volatile List<ExceptionMapping> mappings = new ArrayList<>();
+
+    private volatile ClassValue<String> viewNameCache = newViewNameCache(this.mappings);
+
     private String defaultErrorView;
     private String exceptionAttribute = DEFAULT_EXCEPTION_ATTRIBUTE;
 
@@ -29,7 +42,7 @@ public class SimpleMappingExceptionResolver implements HandlerExceptionResolver
     public ModelAndView resolveException(
             HttpServletRequest request, HttpServletResponse response,
             Object handler, Exception ex) {
-        
+
         // 确定错误视图名
         String viewName = determineViewName(ex);
         if (viewName == null) {
@@ -38,12 +51,12 @@ public class SimpleMappingExceptionResolver implements HandlerExceptionResolver
 
         // 创建ModelAndView
         ModelAndView mv = new ModelAndView(viewName);
-        
+
         // 将异常添加到模型中
         if (exceptionAttribute != null) {
             mv.addObject(exceptionAttribute, ex);
         }
-        
+
         return mv;
     }
 
@@ -53,57 +66,98 @@ public class SimpleMappingExceptionResolver implements HandlerExceptionResolver
      * @return 视图名,如果没有匹配的映射则返回默认视图名
      */
     protected String determineViewName(Exception ex) {
-        String viewName = null;
-        
-        // 如果有异常映射配置
-        if (this.exceptionMappings != null) {
-            viewName = findMatchingViewName(this.exceptionMappings, ex);
-        }
-        
+        String viewName = findMatchingViewName(ex.getClass());
+
         // 如果没有找到匹配的视图名,使用默认的错误视图
         if (viewName == null && this.defaultErrorView != null) {
             viewName = this.defaultErrorView;
         }
-        
+
         return viewName;
     }
 
     /**
-     * 在异常映射中查找匹配的视图名
+     * 查找异常类匹配的视图名, 优先使用缓存
+     * @param exceptionClass 具体的异常类
+     * @return 视图名,没有匹配的映射时返回null
+     */
+    protected String findMatchingViewName(Class<?> exceptionClass) {
+        String cached = this.viewNameCache.get(exceptionClass);
+        return cached == NO_MATCH ? null : cached;
+    }
+
+    /**
+     * 在异常映射中查找匹配的视图名, 不使用缓存
+     * @param exceptionMappings 异常类名到视图名的映射
+     * @param ex 异常
+     * @return 视图名,没有匹配的映射时返回null
      */
     protected String findMatchingViewName(Properties exceptionMappings, Exception ex) {
         String viewName = null;
-        String dominantMapping = null;
         int deepest = Integer.MAX_VALUE;
-        
+
         for (Map.Entry<Object, Object> entry : exceptionMappings.entrySet()) {
-            String exceptionMapping = (String) entry.getKey();
-            int depth = getDepth(exceptionMapping, ex);
+            int depth = getDepth(String.valueOf(entry.getKey()).trim(), ex);
             if (depth >= 0 && depth < deepest) {
                 deepest = depth;
-                dominantMapping = exceptionMapping;
-                viewName = (String) entry.getValue();
+                viewName = String.valueOf(entry.getValue());
             }
         }
-        
+
         return viewName;
     }
 
     /**
      * 获取异常类型与映射之间的继承深度
-     * @return 继承深度,如果不匹配返回-1
+     * @param exceptionMapping 映射中的异常类名
+     * @param ex 异常
+     * @return 继承深度,如果不匹配或类名无法加载返回-1
      */
     protected int getDepth(String exceptionMapping, Exception ex) {
         try {
-            Class<?> exceptionClass = Class.forName(exceptionMapping);
-            return getDepth(exceptionClass, ex.getClass());
-        }
-        catch (ClassNotFoundException e) {
+            Class<?> declaredException = Class.forName(exceptionMapping, false, getClass().getClassLoader());
+            return getDepth(declaredException, ex.getClass());
+        } catch (ClassNotFoundException e) {
             return -1;
         }
     }
 
-    private int getDepth(Class<?> declaredException, Class<?> exceptionClass) {
+    /**
+     * 创建绑定到一组映射的缓存, 映射变更时整体替换
+     */
+    private static ClassValue<String> newViewNameCache(List<ExceptionMapping> mappings) {
+        return new ClassValue<String>() {
+            @Override
+            protected String computeValue(Class<?> exceptionClass) {
+                String viewName = findMatchingViewName(mappings, exceptionClass);
+                return viewName != null ? viewName : NO_MATCH;
+            }
+        };
+    }
+
+    /**
+     * 在已解析的映射中查找继承深度最小的映射
+     */
+    private static String findMatchingViewName(List<ExceptionMapping> mappings, Class<?> exceptionClass) {
+        String viewName = null;
+        int deepest = Integer.MAX_VALUE;
+
+        for (ExceptionMapping mapping : mappings) {
+            int depth = getDepth(mapping.exceptionClass, exceptionClass);
+            if (depth >= 0 && depth < deepest) {
+                deepest = depth;
+                viewName = mapping.viewName;
+            }
+        }
+
+        return viewName;
+    }
+
+    /**
+     * 获取异常类型与映射之间的继承深度
+     * @return 继承深度,如果不匹配返回-1
+     */
+    private static int getDepth(Class<?> declaredException, Class<?> exceptionClass) {
         int depth = 0;
         while (exceptionClass != null && !declaredException.equals(exceptionClass)) {
             depth++;
@@ -114,9 +168,24 @@ public class SimpleMappingExceptionResolver implements HandlerExceptionResolver
 
     /**
      * 设置异常类型到视图名的映射
+     * 键为异常的全限定类名, 无法加载的类名记录警告后忽略
      */
     public void setExceptionMappings(Properties mappings) {
-        this.exceptionMappings = mappings;
+        List<ExceptionMapping> resolved = new ArrayList<>();
+        if (mappings != null) {
+            ClassLoader classLoader = getClass().getClassLoader();
+            for (Map.Entry<Object, Object> entry : mappings.entrySet()) {
+                String className = String.valueOf(entry.getKey()).trim();
+                try {
+                    Class<?> exceptionClass = Class.forName(className, false, classLoader);
+                    resolved.add(new ExceptionMapping(exceptionClass, String.valueOf(entry.getValue())));
+                } catch (ClassNotFoundException ex) {
+                    logger.warn("Ignoring exception mapping for unknown class [{}]", className);
+                }
+            }
+        }
+        this.mappings = resolved;
+        clearCache();
     }
 
     /**
@@ -132,4 +201,27 @@ public class SimpleMappingExceptionResolver implements HandlerExceptionResolver
     public void setExceptionAttribute(String exceptionAttribute) {
         this.exceptionAttribute = exceptionAttribute;
     }
-} 
\ No newline at end of file
+
+    /**
+     * 清空按异常类缓存的解析结果
+     */
+    public void clearCache() {
+        // 新缓存绑定当前的映射, 正在进行的查找不会把旧映射的结果写入新缓存
+        this.viewNameCache = newViewNameCache(this.mappings);
+    }
+
+    /**
+     * 已解析的异常映射
+     */
+    private static final class ExceptionMapping {
+
+        private final Class<?> exceptionClass;
+
+        private final String viewName;
+
+        private ExceptionMapping(Class<?> exceptionClass, String viewName) {
+            this.exceptionClass = exceptionClass;
+            this.viewName = viewName;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.kama.minispring.web.servlet.method;
+
+import com.kama.minispring.beans.converter.DefaultTypeConverter;
+import com.kama.minispring.beans.converter.TypeConverter;
+import com.kama.minispring.beans.converter.TypeMismatchException;
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.web.servlet.annotation.ValueConstants;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Array;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按名称取值的参数解析器基类
+ * 名称、是否必需和默认值在参数绑定时解析一次并缓存, 字符串值通过TypeConverter转换为参数类型
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public abstract class AbstractNamedValueMethodArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final TypeConverter typeConverter;
+
+    private final Map<MethodParameter, NamedValueInfo> namedValueInfoCache = new ConcurrentHashMap<>();
+
+    protected AbstractNamedValueMethodArgumentResolver() {
+        this(new DefaultTypeConverter());
+    }
+
+    protected AbstractNamedValueMethodArgumentResolver(TypeConverter typeConverter) {
+        Assert.notNull(typeConverter, "TypeConverter must not be null");
+        this.typeConverter = typeConverter;
+    }
+
+    @Override
+    public final boolean supportsParameter(MethodParameter parameter) {
+        if (!supportsNamedParameter(parameter)) {
+            return false;
+        }
+        this.namedValueInfoCache.put(parameter, createNamedValueInfo(parameter));
+        return true;
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, HttpServletRequest request,
+            HttpServletResponse response) throws Exception {
+        NamedValueInfo info = this.namedValueInfoCache.get(parameter);
+        if (info == null) {
+            info = createNamedValueInfo(parameter);
+            this.namedValueInfoCache.put(parameter, info);
+        }
+        Object value = resolveName(info.name, parameter, request);
+        if (value == null || "".equals(value)) {
+            if (info.defaultValue != null) {
+                value = info.defaultValue;
+            } else if (value == null) {
+                if (info.required) {
+                    throw new ServletRequestBindingException(
+                            "Required " + getValueDescription() + " '" + info.name + "' is not present");
+                }
+                return nullValue(parameter);
+            }
+        }
+        return convert(value, parameter, info.name);
+    }
+
+    /**
+     * 判断参数是否由本解析器处理
+     */
+    protected abstract boolean supportsNamedParameter(MethodParameter parameter);
+
+    /**
+     * 从参数注解中读取名称、是否必需和默认值
+     */
+    protected abstract NamedValueInfo createNamedValueInfo(MethodParameter parameter);
+
+    /**
+     * 按名称从请求中取值
+     *
+     * @return 字符串或字符串数组, 不存在时为null
+     */
+    protected abstract Object resolveName(String name, MethodParameter parameter, HttpServletRequest request)
+            throws Exception;
+
+    /**
+     * 值的描述, 用于错误信息
+     */
+    protected abstract String getValueDescription();
+
+    /**
+     * 构造名称信息, 注解未指定名称时使用参数名
+     */
+    protected NamedValueInfo namedValueInfo(MethodParameter parameter, String name, boolean required,
+            String defaultValue) {
+        String resolvedName = name;
+        if (resolvedName == null || resolvedName.isEmpty()) {
+            resolvedName = parameter.getParameterName();
+            if (resolvedName == null) {
+                throw new IllegalStateException("Name for " + getValueDescription() + " of type ["
+                        + parameter.getParameterType().getName() + "] not specified on " + parameter
+                        + ", and parameter name information not available; compile with '-parameters'");
+            }
+        }
+        return new NamedValueInfo(resolvedName, required,
+                ValueConstants.DEFAULT_NONE.equals(defaultValue) ? null : defaultValue);
+    }
+
+    private Object nullValue(MethodParameter parameter) {
+        Class<?> type = parameter.getParameterType();
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        }
+        if (type.isPrimitive()) {
+            throw new IllegalStateException("Optional " + type.getName() + " " + parameter
+                    + " is not present but cannot be null; use a wrapper type");
+        }
+        return null;
+    }
+
+    private Object convert(Object value, MethodParameter parameter, String name)
+            throws ServletRequestBindingException {
+        Class<?> type = parameter.getParameterType();
+        try {
+            if (value instanceof String[]) {
+                String[] values = (String[]) value;
+                if (type.isArray()) {
+                    if (type == String[].class) {
+                        return values;
+                    }
+                    Class<?> componentType = type.getComponentType();
+                    Object array = Array.newInstance(componentType, values.length);
+                    for (int i = 0; i < values.length; i++) {
+                        Array.set(array, i, this.typeConverter.convertIfNecessary(values[i], componentType));
+                    }
+                    return array;
+                }
+                value = values.length > 0 ? values[0] : null;
+            }
+            if (type.isArray() && value instanceof String) {
+                return convert(new String[]{(String) value}, parameter, name);
+            }
+            return type == String.class || type == Object.class ? value
+                    : this.typeConverter.convertIfNecessary(value, type);
+        } catch (TypeMismatchException ex) {
+            throw new ServletRequestBindingException("Failed to convert " + getValueDescription() + " '" + name
+                    + "' to type [" + type.getName() + "]", ex);
+        }
+    }
+
+    /**
+     * 参数的名称信息
+     */
+    protected static final class NamedValueInfo {
+
+        private final String name;
+
+        private final boolean required;
+
+        private final String defaultValue;
+
+        public NamedValueInfo(String name, boolean required, String defaultValue) {
+            this.name = name;
+            this.required = required;
+            this.defaultValue = defaultValue;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+    }
+}
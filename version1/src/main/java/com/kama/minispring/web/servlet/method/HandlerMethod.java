@@ -0,0 +1,145 @@
+package com.kama.minispring.web.servlet.method;
+
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.web.servlet.annotation.ResponseBody;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+/**
+ * 处理器方法
+ * 在注册映射时创建, 预先解析方法参数并生成绑定了处理器对象的MethodHandle,
+ * 参数解析器在注册映射时或第一次被适配器使用时选定, 同一组候选解析器只选定一次
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class HandlerMethod {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private final Object bean;
+
+    private final Method method;
+
+    private final MethodParameter[] parameters;
+
+    private final MethodHandle invoker;
+
+    private final boolean responseBody;
+
+    private volatile ResolverBinding resolverBinding;
+
+    public HandlerMethod(Object bean, Method method) {
+        Assert.notNull(bean, "Bean must not be null");
+        Assert.notNull(method, "Method must not be null");
+        this.bean = bean;
+        this.method = method;
+        this.parameters = new MethodParameter[method.getParameterCount()];
+        for (int i = 0; i < this.parameters.length; i++) {
+            this.parameters[i] = new MethodParameter(method, i);
+        }
+        this.invoker = createInvoker(bean, method);
+        this.responseBody = method.isAnnotationPresent(ResponseBody.class)
+                || method.getDeclaringClass().isAnnotationPresent(ResponseBody.class)
+                || bean.getClass().isAnnotationPresent(ResponseBody.class);
+    }
+
+    private static MethodHandle createInvoker(Object bean, Method method) {
+        try {
+            method.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            if (!Modifier.isStatic(method.getModifiers())) {
+                handle = handle.bindTo(bean);
+            }
+            return handle.asSpreader(Object[].class, method.getParameterCount()).asType(INVOKER_TYPE);
+        } catch (IllegalAccessException | RuntimeException ex) {
+            throw new IllegalStateException("Could not create invoker for handler method " + method, ex);
+        }
+    }
+
+    public Object getBean() {
+        return this.bean;
+    }
+
+    public Method getMethod() {
+        return this.method;
+    }
+
+    public MethodParameter[] getMethodParameters() {
+        return this.parameters;
+    }
+
+    /**
+     * 返回值是否直接写入响应体, 方法或类上标注了@ResponseBody时为true
+     */
+    public boolean isResponseBody() {
+        return this.responseBody;
+    }
+
+    /**
+     * 获取为每个参数选定的解析器, 同一组解析器只选定一次
+     *
+     * @param candidates 候选解析器, 按优先级排列
+     * @return 与参数一一对应的解析器
+     * @throws IllegalStateException 某个参数没有可用的解析器
+     */
+    public HandlerMethodArgumentResolver[] getArgumentResolvers(List<HandlerMethodArgumentResolver> candidates) {
+        ResolverBinding binding = this.resolverBinding;
+        if (binding == null || binding.candidates != candidates) {
+            binding = new ResolverBinding(candidates, selectResolvers(candidates));
+            this.resolverBinding = binding;
+        }
+        return binding.resolvers;
+    }
+
+    private HandlerMethodArgumentResolver[] selectResolvers(List<HandlerMethodArgumentResolver> candidates) {
+        HandlerMethodArgumentResolver[] resolvers = new HandlerMethodArgumentResolver[this.parameters.length];
+        for (int i = 0; i < this.parameters.length; i++) {
+            for (HandlerMethodArgumentResolver candidate : candidates) {
+                if (candidate.supportsParameter(this.parameters[i])) {
+                    resolvers[i] = candidate;
+                    break;
+                }
+            }
+            if (resolvers[i] == null) {
+                throw new IllegalStateException("No suitable resolver for " + this.parameters[i]
+                        + " of type [" + this.parameters[i].getParameterType().getName() + "] on " + this.method);
+            }
+        }
+        return resolvers;
+    }
+
+    /**
+     * 以给定参数调用处理器方法, 方法抛出的异常原样抛出
+     *
+     * @param args 参数
+     * @return 返回值, void方法返回null
+     * @throws Throwable 处理器方法抛出的异常
+     */
+    public Object invoke(Object... args) throws Throwable {
+        return (Object) this.invoker.invokeExact(args);
+    }
+
+    @Override
+    public String toString() {
+        return this.method.getDeclaringClass().getName() + "#" + this.method.getName();
+    }
+
+    private static final class ResolverBinding {
+
+        private final List<HandlerMethodArgumentResolver> candidates;
+
+        private final HandlerMethodArgumentResolver[] resolvers;
+
+        private ResolverBinding(List<HandlerMethodArgumentResolver> candidates,
+                HandlerMethodArgumentResolver[] resolvers) {
+            this.candidates = candidates;
+            this.resolvers = resolvers;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.kama.minispring.web.servlet.method;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 处理器方法参数解析器
+ * 每个参数在绑定时选定一个解析器, 请求处理时只调用选定的解析器
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public interface HandlerMethodArgumentResolver {
+
+    /**
+     * 判断是否支持给定参数, 只在绑定处理器方法时调用一次
+     *
+     * @param parameter 方法参数
+     * @return 是否支持
+     */
+    boolean supportsParameter(MethodParameter parameter);
+
+    /**
+     * 从请求中解析参数值
+     *
+     * @param parameter 方法参数
+     * @param request 当前请求
+     * @param response 当前响应
+     * @return 参数值
+     * @throws Exception 解析失败
+     */
+    Object resolveArgument(MethodParameter parameter, HttpServletRequest request, HttpServletResponse response)
+            throws Exception;
+}
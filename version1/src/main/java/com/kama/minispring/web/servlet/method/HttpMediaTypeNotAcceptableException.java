@@ -0,0 +1,31 @@
+package com.kama.minispring.web.servlet.method;
+
+import com.kama.minispring.http.MediaType;
+
+import javax.servlet.ServletException;
+import java.util.List;
+
+/**
+ * 没有消息转换器能生成客户端可接受的媒体类型时抛出
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class HttpMediaTypeNotAcceptableException extends ServletException {
+
+    private final List<MediaType> acceptableMediaTypes;
+
+    public HttpMediaTypeNotAcceptableException(Class<?> valueType, List<MediaType> acceptableMediaTypes) {
+        super("No converter for [" + valueType.getName() + "] with acceptable media types " + acceptableMediaTypes);
+        this.acceptableMediaTypes = acceptableMediaTypes;
+    }
+
+    public HttpMediaTypeNotAcceptableException(String message) {
+        super(message);
+        this.acceptableMediaTypes = List.of();
+    }
+
+    public List<MediaType> getAcceptableMediaTypes() {
+        return this.acceptableMediaTypes;
+    }
+}
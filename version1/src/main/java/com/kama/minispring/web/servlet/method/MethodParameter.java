@@ -0,0 +1,87 @@
+package com.kama.minispring.web.servlet.method;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+
+/**
+ * 处理器方法参数
+ * 在注册处理器时创建, 预先读取参数类型、注解和参数名, 请求处理时不再反射
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class MethodParameter {
+
+    private final Method method;
+
+    private final int index;
+
+    private final Class<?> parameterType;
+
+    private final Type genericParameterType;
+
+    private final Annotation[] annotations;
+
+    private final String parameterName;
+
+    public MethodParameter(Method method, int index) {
+        this.method = method;
+        this.index = index;
+        Parameter parameter = method.getParameters()[index];
+        this.parameterType = parameter.getType();
+        this.genericParameterType = parameter.getParameterizedType();
+        this.annotations = parameter.getAnnotations();
+        this.parameterName = parameter.isNamePresent() ? parameter.getName() : null;
+    }
+
+    public Method getMethod() {
+        return this.method;
+    }
+
+    public int getParameterIndex() {
+        return this.index;
+    }
+
+    public Class<?> getParameterType() {
+        return this.parameterType;
+    }
+
+    public Type getGenericParameterType() {
+        return this.genericParameterType;
+    }
+
+    /**
+     * 获取参数名
+     *
+     * @return 参数名, 编译时未使用-parameters选项时为null
+     */
+    public String getParameterName() {
+        return this.parameterName;
+    }
+
+    /**
+     * 获取参数上的注解
+     *
+     * @param annotationType 注解类型
+     * @return 注解, 不存在时为null
+     */
+    public <A extends Annotation> A getParameterAnnotation(Class<A> annotationType) {
+        for (Annotation annotation : this.annotations) {
+            if (annotationType.isInstance(annotation)) {
+                return annotationType.cast(annotation);
+            }
+        }
+        return null;
+    }
+
+    public boolean hasParameterAnnotation(Class<? extends Annotation> annotationType) {
+        return getParameterAnnotation(annotationType) != null;
+    }
+
+    @Override
+    public String toString() {
+        return "method '" + this.method.getName() + "' parameter " + this.index;
+    }
+}
@@ -0,0 +1,76 @@
+package com.kama.minispring.web.servlet.method;
+
+import com.kama.minispring.web.multipart.MultipartException;
+import com.kama.minispring.web.multipart.MultipartFile;
+import com.kama.minispring.web.multipart.MultipartHttpServletRequest;
+import com.kama.minispring.web.servlet.annotation.RequestParam;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestWrapper;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * 解析MultipartFile、MultipartFile[]和List&lt;MultipartFile&gt;类型的参数
+ * 字段名取自@RequestParam, 没有注解时使用参数名; 请求需已由DispatcherServlet的MultipartResolver解析
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class MultipartFileMethodArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        Class<?> type = parameter.getParameterType();
+        if (type == MultipartFile.class || type == MultipartFile[].class) {
+            return true;
+        }
+        if (type == List.class && parameter.getGenericParameterType() instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) parameter.getGenericParameterType()).getActualTypeArguments();
+            return arguments.length == 1 && arguments[0] == MultipartFile.class;
+        }
+        return false;
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, HttpServletRequest request,
+            HttpServletResponse response) throws Exception {
+        RequestParam annotation = parameter.getParameterAnnotation(RequestParam.class);
+        String name = annotation != null && !annotation.value().isEmpty() ? annotation.value()
+                : parameter.getParameterName();
+        if (name == null) {
+            throw new IllegalStateException("Name for multipart file not specified on " + parameter
+                    + ", and parameter name information not available; compile with '-parameters'");
+        }
+        boolean required = annotation == null || annotation.required();
+        MultipartHttpServletRequest multipartRequest = getMultipartRequest(request);
+        if (multipartRequest == null) {
+            throw new MultipartException("Current request is not a multipart request");
+        }
+        List<MultipartFile> files = multipartRequest.getFiles(name);
+        if (files.isEmpty() && required) {
+            throw new ServletRequestBindingException("Required multipart file '" + name + "' is not present");
+        }
+        Class<?> type = parameter.getParameterType();
+        if (type == MultipartFile[].class) {
+            return files.toArray(new MultipartFile[0]);
+        }
+        if (type == List.class) {
+            return files;
+        }
+        return files.isEmpty() ? null : files.get(0);
+    }
+
+    private static MultipartHttpServletRequest getMultipartRequest(ServletRequest request) {
+        while (request != null) {
+            if (request instanceof MultipartHttpServletRequest) {
+                return (MultipartHttpServletRequest) request;
+            }
+            request = request instanceof ServletRequestWrapper ? ((ServletRequestWrapper) request).getRequest() : null;
+        }
+        return null;
+    }
+}
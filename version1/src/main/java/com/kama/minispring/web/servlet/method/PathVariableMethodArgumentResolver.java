@@ -0,0 +1,49 @@
+package com.kama.minispring.web.servlet.method;
+
+import com.kama.minispring.beans.converter.TypeConverter;
+import com.kama.minispring.web.servlet.HandlerMapping;
+import com.kama.minispring.web.servlet.annotation.PathVariable;
+import com.kama.minispring.web.servlet.annotation.ValueConstants;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Map;
+
+/**
+ * 解析@PathVariable参数
+ * 从HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE请求属性中读取路径变量
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class PathVariableMethodArgumentResolver extends AbstractNamedValueMethodArgumentResolver {
+
+    public PathVariableMethodArgumentResolver() {
+    }
+
+    public PathVariableMethodArgumentResolver(TypeConverter typeConverter) {
+        super(typeConverter);
+    }
+
+    @Override
+    protected boolean supportsNamedParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(PathVariable.class);
+    }
+
+    @Override
+    protected NamedValueInfo createNamedValueInfo(MethodParameter parameter) {
+        PathVariable annotation = parameter.getParameterAnnotation(PathVariable.class);
+        return namedValueInfo(parameter, annotation.value(), annotation.required(), ValueConstants.DEFAULT_NONE);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Object resolveName(String name, MethodParameter parameter, HttpServletRequest request) {
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        return variables instanceof Map ? ((Map<String, String>) variables).get(name) : null;
+    }
+
+    @Override
+    protected String getValueDescription() {
+        return "URI template variable";
+    }
+}
@@ -0,0 +1,47 @@
+package com.kama.minispring.web.servlet.method;
+
+import com.kama.minispring.web.servlet.annotation.RequestBody;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 解析@RequestBody参数
+ * 支持String、byte[]和InputStream类型, 字符串按请求的字符编码解码, 未指定时使用UTF-8
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class RequestBodyMethodArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        if (!parameter.hasParameterAnnotation(RequestBody.class)) {
+            return false;
+        }
+        Class<?> type = parameter.getParameterType();
+        return type == String.class || type == byte[].class || type == InputStream.class;
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, HttpServletRequest request,
+            HttpServletResponse response) throws Exception {
+        Class<?> type = parameter.getParameterType();
+        if (type == InputStream.class) {
+            return request.getInputStream();
+        }
+        byte[] body = request.getInputStream().readAllBytes();
+        if (body.length == 0 && parameter.getParameterAnnotation(RequestBody.class).required()) {
+            throw new ServletRequestBindingException("Required request body is missing for " + parameter);
+        }
+        if (type == byte[].class) {
+            return body;
+        }
+        String encoding = request.getCharacterEncoding();
+        Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        return new String(body, charset);
+    }
+}
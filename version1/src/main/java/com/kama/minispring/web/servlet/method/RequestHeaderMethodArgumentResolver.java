@@ -0,0 +1,43 @@
+package com.kama.minispring.web.servlet.method;
+
+import com.kama.minispring.beans.converter.TypeConverter;
+import com.kama.minispring.web.servlet.annotation.RequestHeader;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 解析@RequestHeader参数
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class RequestHeaderMethodArgumentResolver extends AbstractNamedValueMethodArgumentResolver {
+
+    public RequestHeaderMethodArgumentResolver() {
+    }
+
+    public RequestHeaderMethodArgumentResolver(TypeConverter typeConverter) {
+        super(typeConverter);
+    }
+
+    @Override
+    protected boolean supportsNamedParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(RequestHeader.class);
+    }
+
+    @Override
+    protected NamedValueInfo createNamedValueInfo(MethodParameter parameter) {
+        RequestHeader annotation = parameter.getParameterAnnotation(RequestHeader.class);
+        return namedValueInfo(parameter, annotation.value(), annotation.required(), annotation.defaultValue());
+    }
+
+    @Override
+    protected Object resolveName(String name, MethodParameter parameter, HttpServletRequest request) {
+        return request.getHeader(name);
+    }
+
+    @Override
+    protected String getValueDescription() {
+        return "request header";
+    }
+}
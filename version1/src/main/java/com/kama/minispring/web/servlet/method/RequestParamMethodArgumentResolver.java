@@ -0,0 +1,47 @@
+package com.kama.minispring.web.servlet.method;
+
+import com.kama.minispring.beans.converter.TypeConverter;
+import com.kama.minispring.web.servlet.annotation.RequestParam;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 解析@RequestParam参数
+ * 数组类型的参数绑定同名参数的全部值
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class RequestParamMethodArgumentResolver extends AbstractNamedValueMethodArgumentResolver {
+
+    public RequestParamMethodArgumentResolver() {
+    }
+
+    public RequestParamMethodArgumentResolver(TypeConverter typeConverter) {
+        super(typeConverter);
+    }
+
+    @Override
+    protected boolean supportsNamedParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(RequestParam.class);
+    }
+
+    @Override
+    protected NamedValueInfo createNamedValueInfo(MethodParameter parameter) {
+        RequestParam annotation = parameter.getParameterAnnotation(RequestParam.class);
+        return namedValueInfo(parameter, annotation.value(), annotation.required(), annotation.defaultValue());
+    }
+
+    @Override
+    protected Object resolveName(String name, MethodParameter parameter, HttpServletRequest request) {
+        if (parameter.getParameterType().isArray()) {
+            return request.getParameterValues(name);
+        }
+        return request.getParameter(name);
+    }
+
+    @Override
+    protected String getValueDescription() {
+        return "request parameter";
+    }
+}
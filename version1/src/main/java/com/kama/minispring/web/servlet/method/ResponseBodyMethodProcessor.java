@@ -0,0 +1,172 @@
+package com.kama.minispring.web.servlet.method;
+
+import com.kama.minispring.http.HttpOutputMessage;
+import com.kama.minispring.http.MediaType;
+import com.kama.minispring.http.converter.HttpMessageConverter;
+import com.kama.minispring.util.Assert;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 响应体返回值处理器
+ * 处理标注了{@link com.kama.minispring.web.servlet.annotation.ResponseBody}的处理器方法的返回值
+ * 按Accept头在消息转换器链中选择转换器和Content-Type, 选择结果按(返回值类型, Accept头)缓存,
+ * 相同类型和Accept头的后续请求直接使用缓存的转换器; 无法满足Accept头的组合同样缓存
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class ResponseBodyMethodProcessor {
+
+    /** 缓存的不同Accept头数量上限, 超出后只解析不缓存 */
+    private static final int MAX_CACHED_ACCEPT_HEADERS = 256;
+
+    /** 每个返回值类型缓存的Accept头数量上限 */
+    private static final int MAX_SELECTIONS_PER_TYPE = 64;
+
+    private static final String NO_ACCEPT_HEADER = "";
+
+    /** 表示没有可用转换器的缓存标记 */
+    private static final Selection NOT_ACCEPTABLE = new Selection(null, null);
+
+    private final List<HttpMessageConverter<?>> messageConverters;
+
+    private final Map<String, List<MediaType>> acceptCache = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, Map<String, Selection>> selectionCache = new ConcurrentHashMap<>();
+
+    public ResponseBodyMethodProcessor(List<HttpMessageConverter<?>> messageConverters) {
+        Assert.notNull(messageConverters, "Message converters must not be null");
+        this.messageConverters = Collections.unmodifiableList(new ArrayList<>(messageConverters));
+    }
+
+    public List<HttpMessageConverter<?>> getMessageConverters() {
+        return this.messageConverters;
+    }
+
+    /**
+     * 把返回值写入响应体, 返回值为null时不写出任何内容
+     *
+     * @param returnValue 处理器返回值
+     * @param acceptHeader 请求的Accept头, 可以为null
+     * @param response 当前响应
+     * @throws HttpMediaTypeNotAcceptableException 没有转换器能生成可接受的媒体类型
+     * @throws IOException 写出失败
+     */
+    @SuppressWarnings("unchecked")
+    public void handleReturnValue(Object returnValue, String acceptHeader, HttpServletResponse response)
+            throws IOException, HttpMediaTypeNotAcceptableException {
+        if (returnValue == null) {
+            return;
+        }
+        Selection selection = getSelection(returnValue.getClass(), acceptHeader);
+        ((HttpMessageConverter<Object>) selection.converter).write(returnValue, selection.contentType,
+                new ServletServerHttpResponse(response));
+    }
+
+    private Selection getSelection(Class<?> valueType, String acceptHeader)
+            throws HttpMediaTypeNotAcceptableException {
+        String key = acceptHeader != null ? acceptHeader : NO_ACCEPT_HEADER;
+        Map<String, Selection> selections = this.selectionCache.computeIfAbsent(valueType,
+                type -> new ConcurrentHashMap<>());
+        Selection selection = selections.get(key);
+        if (selection == null) {
+            selection = selectConverter(valueType, getAcceptableMediaTypes(acceptHeader));
+            if (selections.size() < MAX_SELECTIONS_PER_TYPE) {
+                selections.put(key, selection);
+            }
+        }
+        if (selection == NOT_ACCEPTABLE) {
+            throw new HttpMediaTypeNotAcceptableException(valueType, getAcceptableMediaTypes(acceptHeader));
+        }
+        return selection;
+    }
+
+    private List<MediaType> getAcceptableMediaTypes(String acceptHeader) throws HttpMediaTypeNotAcceptableException {
+        if (acceptHeader == null) {
+            return Collections.singletonList(MediaType.ALL);
+        }
+        List<MediaType> mediaTypes = this.acceptCache.get(acceptHeader);
+        if (mediaTypes == null) {
+            try {
+                mediaTypes = MediaType.parseAcceptHeader(acceptHeader);
+            } catch (IllegalArgumentException ex) {
+                throw new HttpMediaTypeNotAcceptableException("Could not parse Accept header [" + acceptHeader
+                        + "]: " + ex.getMessage());
+            }
+            if (this.acceptCache.size() < MAX_CACHED_ACCEPT_HEADERS) {
+                this.acceptCache.put(acceptHeader, mediaTypes);
+            }
+        }
+        return mediaTypes;
+    }
+
+    private Selection selectConverter(Class<?> valueType, List<MediaType> acceptableTypes) {
+        for (MediaType acceptable : acceptableTypes) {
+            for (HttpMessageConverter<?> converter : this.messageConverters) {
+                if (converter.canWrite(valueType, acceptable)) {
+                    return new Selection(converter, determineContentType(converter, acceptable));
+                }
+            }
+        }
+        return NOT_ACCEPTABLE;
+    }
+
+    private static MediaType determineContentType(HttpMessageConverter<?> converter, MediaType acceptable) {
+        if (acceptable.isConcrete()) {
+            return new MediaType(acceptable.getType(), acceptable.getSubtype(), acceptable.getCharset());
+        }
+        for (MediaType supported : converter.getSupportedMediaTypes()) {
+            if (supported.isConcrete() && acceptable.includes(supported)) {
+                return supported;
+            }
+        }
+        return MediaType.APPLICATION_OCTET_STREAM;
+    }
+
+    private static final class Selection {
+
+        private final HttpMessageConverter<?> converter;
+
+        private final MediaType contentType;
+
+        private Selection(HttpMessageConverter<?> converter, MediaType contentType) {
+            this.converter = converter;
+            this.contentType = contentType;
+        }
+    }
+
+    /**
+     * 基于HttpServletResponse的输出消息
+     */
+    private static final class ServletServerHttpResponse implements HttpOutputMessage {
+
+        private final HttpServletResponse response;
+
+        private ServletServerHttpResponse(HttpServletResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public void setContentType(MediaType contentType) {
+            this.response.setContentType(contentType.toString());
+        }
+
+        @Override
+        public void setContentLength(long contentLength) {
+            this.response.setContentLengthLong(contentLength);
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            return this.response.getOutputStream();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.kama.minispring.web.servlet.method;
+
+import javax.servlet.ServletException;
+
+/**
+ * 请求绑定异常
+ * 请求中缺少必需的值或值无法转换为参数类型时抛出, 属于客户端错误
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class ServletRequestBindingException extends ServletException {
+
+    public ServletRequestBindingException(String message) {
+        super(message);
+    }
+
+    public ServletRequestBindingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,34 @@
+package com.kama.minispring.web.servlet.method;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+/**
+ * 解析ServletRequest及其子类型和HttpSession类型的参数
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class ServletRequestMethodArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        Class<?> type = parameter.getParameterType();
+        return ServletRequest.class.isAssignableFrom(type) || HttpSession.class == type;
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, HttpServletRequest request,
+            HttpServletResponse response) throws Exception {
+        Class<?> type = parameter.getParameterType();
+        if (type == HttpSession.class) {
+            return request.getSession();
+        }
+        if (!type.isInstance(request)) {
+            throw new IllegalStateException("Current request is not of type [" + type.getName() + "]");
+        }
+        return request;
+    }
+}
@@ -0,0 +1,29 @@
+package com.kama.minispring.web.servlet.method;
+
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 解析ServletResponse及其子类型的参数
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class ServletResponseMethodArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return ServletResponse.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, HttpServletRequest request,
+            HttpServletResponse response) throws Exception {
+        Class<?> type = parameter.getParameterType();
+        if (!type.isInstance(response)) {
+            throw new IllegalStateException("Current response is not of type [" + type.getName() + "]");
+        }
+        return response;
+    }
+}
@@ -0,0 +1,140 @@
+package com.kama.minispring.web.servlet.metrics;
+
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.web.servlet.HttpRequestHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 以Prometheus文本格式(0.0.4)导出路由指标的处理器
+ * 延迟导出为histogram, 桶边界以秒为单位, 由{@link RequestMetricsInterceptor#setLatencyBuckets}设置,
+ * 各桶的计数在记录时精确累计
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class PrometheusMetricsHandler implements HttpRequestHandler {
+
+    /** Prometheus文本格式的内容类型 */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final RequestMetricsInterceptor metrics;
+
+    /**
+     * 构造函数
+     *
+     * @param metrics 提供指标的拦截器
+     */
+    public PrometheusMetricsHandler(RequestMetricsInterceptor metrics) {
+        Assert.notNull(metrics, "RequestMetricsInterceptor must not be null");
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handleRequest(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(CONTENT_TYPE);
+        PrintWriter writer = response.getWriter();
+        writer.write(scrape());
+        writer.flush();
+    }
+
+    /**
+     * 生成当前所有指标的文本
+     *
+     * @return Prometheus文本格式的指标
+     */
+    public String scrape() {
+        List<RouteMetrics> routes = new ArrayList<>(this.metrics.getRouteMetrics());
+        routes.sort(Comparator.comparing(RouteMetrics::getRoute));
+        StringBuilder out = new StringBuilder(256 + routes.size() * 1024);
+
+        out.append("# HELP http_server_requests_total Total number of handled requests.\n");
+        out.append("# TYPE http_server_requests_total counter\n");
+        for (RouteMetrics route : routes) {
+            appendSample(out, "http_server_requests_total", route.getRoute(), null, null);
+            out.append(route.getRequestCount()).append('\n');
+        }
+
+        out.append("# HELP http_server_responses_total Responses by status class.\n");
+        out.append("# TYPE http_server_responses_total counter\n");
+        for (RouteMetrics route : routes) {
+            for (int statusClass = 1; statusClass <= 5; statusClass++) {
+                long count = route.getStatusCount(statusClass);
+                if (count > 0) {
+                    appendSample(out, "http_server_responses_total", route.getRoute(),
+                            "status", RouteMetrics.statusClassLabel(statusClass));
+                    out.append(count).append('\n');
+                }
+            }
+        }
+
+        out.append("# HELP http_server_exceptions_total Requests whose handler threw an exception.\n");
+        out.append("# TYPE http_server_exceptions_total counter\n");
+        for (RouteMetrics route : routes) {
+            appendSample(out, "http_server_exceptions_total", route.getRoute(), null, null);
+            out.append(route.getExceptionCount()).append('\n');
+        }
+
+        out.append("# HELP http_server_request_duration_seconds Time from preHandle to afterCompletion.\n");
+        out.append("# TYPE http_server_request_duration_seconds histogram\n");
+        for (RouteMetrics route : routes) {
+            double[] buckets = route.getLatencyBuckets();
+            long[] counts = route.getCumulativeLatencyBucketCounts();
+            for (int i = 0; i < buckets.length; i++) {
+                appendSample(out, "http_server_request_duration_seconds_bucket", route.getRoute(),
+                        "le", formatDouble(buckets[i]));
+                out.append(counts[i]).append('\n');
+            }
+            // +Inf与count取自同一组计数, 保证二者一致
+            long count = counts[buckets.length];
+            appendSample(out, "http_server_request_duration_seconds_bucket", route.getRoute(), "le", "+Inf");
+            out.append(count).append('\n');
+            appendSample(out, "http_server_request_duration_seconds_sum", route.getRoute(), null, null);
+            out.append(formatDouble(route.getLatency().getSum() / 1e9)).append('\n');
+            appendSample(out, "http_server_request_duration_seconds_count", route.getRoute(), null, null);
+            out.append(count).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void appendSample(StringBuilder out, String name, String route, String label, String value) {
+        out.append(name).append("{route=\"");
+        appendEscaped(out, route);
+        out.append('"');
+        if (label != null) {
+            out.append(',').append(label).append("=\"");
+            appendEscaped(out, value);
+            out.append('"');
+        }
+        out.append("} ");
+    }
+
+    /**
+     * 标签值中的反斜杠、双引号和换行需要转义
+     */
+    private static void appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private static String formatDouble(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            return Long.toString((long) value) + ".0";
+        }
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,128 @@
+package com.kama.minispring.web.servlet.metrics;
+
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.web.servlet.HandlerInterceptor;
+import com.kama.minispring.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 按路由模式记录请求指标的拦截器
+ * preHandle记录开始时间, afterCompletion记录请求数、状态码类别和延迟; 异步请求在结果处理完成后才调用afterCompletion,
+ * 因此延迟覆盖整个异步处理过程. 应注册为第一个拦截器, 使计时范围与applyPreHandle到triggerAfterCompletion一致
+ * 路由取自{@link HandlerMapping#BEST_MATCHING_PATTERN_ATTRIBUTE}而不是原始URI, 指标数量以路由数为界;
+ * 超过maxRoutes后新出现的模式归入{@link #OVERFLOW_ROUTE}; 延迟按{@link #setLatencyBuckets}设置的边界精确分桶计数
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class RequestMetricsInterceptor implements HandlerInterceptor {
+
+    /** 映射未提供路由模式时使用的路由名 */
+    public static final String UNKNOWN_ROUTE = "UNKNOWN";
+
+    /** 路由数超过上限后使用的路由名 */
+    public static final String OVERFLOW_ROUTE = "OTHER";
+
+    private static final String START_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".startNanos";
+
+    private static final double[] DEFAULT_LATENCY_BUCKETS =
+            {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+
+    private volatile int maxRoutes = 1000;
+
+    private volatile double[] latencyBuckets = DEFAULT_LATENCY_BUCKETS;
+
+    private LongSupplier ticker = System::nanoTime;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(START_ATTRIBUTE, this.ticker.getAsLong());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (!(start instanceof Long)) {
+            return;
+        }
+        long elapsed = this.ticker.getAsLong() - (Long) start;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = (pattern instanceof String ? (String) pattern : UNKNOWN_ROUTE);
+        int status = response.getStatus();
+        if (ex != null && status < 400) {
+            status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        }
+        obtainRouteMetrics(route).record(status, elapsed, ex != null);
+    }
+
+    private RouteMetrics obtainRouteMetrics(String route) {
+        RouteMetrics metrics = this.routes.get(route);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (this.routes.size() >= this.maxRoutes) {
+            route = OVERFLOW_ROUTE;
+        }
+        return this.routes.computeIfAbsent(route, key -> new RouteMetrics(key, this.latencyBuckets));
+    }
+
+    /**
+     * 获取所有路由的指标
+     */
+    public Collection<RouteMetrics> getRouteMetrics() {
+        return Collections.unmodifiableCollection(this.routes.values());
+    }
+
+    /**
+     * 获取单个路由的指标
+     *
+     * @param route 路由模式
+     * @return 指标, 尚无请求时返回null
+     */
+    public RouteMetrics getRouteMetrics(String route) {
+        return this.routes.get(route);
+    }
+
+    /**
+     * 设置路由数量上限, 防止映射返回动态模式时指标无限增长
+     *
+     * @param maxRoutes 上限
+     */
+    public void setMaxRoutes(int maxRoutes) {
+        Assert.isTrue(maxRoutes > 0, "maxRoutes must be positive");
+        this.maxRoutes = maxRoutes;
+    }
+
+    /**
+     * 设置延迟直方图的桶上界(秒), 应在记录请求之前设置, 已有的路由沿用创建时的边界
+     *
+     * @param buckets 桶上界
+     */
+    public void setLatencyBuckets(double... buckets) {
+        Assert.isTrue(buckets.length > 0, "At least one bucket is required");
+        double[] sorted = buckets.clone();
+        Arrays.sort(sorted);
+        Assert.isTrue(sorted[0] >= 0, "Bucket bounds must not be negative");
+        this.latencyBuckets = sorted;
+    }
+
+    /**
+     * 替换计算请求耗时所用的纳秒时钟
+     */
+    void setTicker(LongSupplier ticker) {
+        Assert.notNull(ticker, "Ticker must not be null");
+        this.ticker = ticker;
+    }
+}
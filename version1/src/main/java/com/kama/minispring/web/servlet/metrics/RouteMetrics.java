@@ -0,0 +1,128 @@
+package com.kama.minispring.web.servlet.metrics;
+
+import com.kama.minispring.metrics.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个路由模式的请求指标
+ * 计数使用LongAdder, 延迟使用分条带的LatencyHistogram, 记录时均无锁;
+ * 导出用的延迟桶在记录时按边界精确计数, 不受LatencyHistogram分桶精度的影响
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public final class RouteMetrics {
+
+    private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private final String route;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder exceptions = new LongAdder();
+
+    private final LongAdder[] statusCounts = new LongAdder[STATUS_CLASSES.length];
+
+    /** 延迟桶的上界(秒), 递增 */
+    private final double[] latencyBuckets;
+
+    private final long[] latencyBucketNanos;
+
+    /** 落在各个桶内的请求数, 最后一个位置是超过所有上界的请求 */
+    private final LongAdder[] latencyBucketCounts;
+
+    RouteMetrics(String route, double[] latencyBuckets) {
+        this.route = route;
+        for (int i = 0; i < this.statusCounts.length; i++) {
+            this.statusCounts[i] = new LongAdder();
+        }
+        this.latencyBuckets = latencyBuckets;
+        this.latencyBucketNanos = new long[latencyBuckets.length];
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            this.latencyBucketNanos[i] = Math.round(latencyBuckets[i] * 1e9);
+        }
+        this.latencyBucketCounts = new LongAdder[latencyBuckets.length + 1];
+        for (int i = 0; i < this.latencyBucketCounts.length; i++) {
+            this.latencyBucketCounts[i] = new LongAdder();
+        }
+    }
+
+    void record(int status, long nanos, boolean exception) {
+        this.requests.increment();
+        this.latency.record(nanos);
+        int bucket = 0;
+        while (bucket < this.latencyBucketNanos.length && nanos > this.latencyBucketNanos[bucket]) {
+            bucket++;
+        }
+        this.latencyBucketCounts[bucket].increment();
+        int statusClass = status / 100 - 1;
+        if (statusClass >= 0 && statusClass < this.statusCounts.length) {
+            this.statusCounts[statusClass].increment();
+        }
+        if (exception) {
+            this.exceptions.increment();
+        }
+    }
+
+    public String getRoute() {
+        return this.route;
+    }
+
+    public long getRequestCount() {
+        return this.requests.sum();
+    }
+
+    /**
+     * 获取处理器抛出异常的请求数
+     */
+    public long getExceptionCount() {
+        return this.exceptions.sum();
+    }
+
+    /**
+     * 获取某一类状态码的响应数
+     *
+     * @param statusClass 状态码类别, 取值1到5, 如2表示2xx
+     * @return 响应数
+     */
+    public long getStatusCount(int statusClass) {
+        return (statusClass >= 1 && statusClass <= this.statusCounts.length)
+                ? this.statusCounts[statusClass - 1].sum() : 0L;
+    }
+
+    /**
+     * 获取从preHandle到afterCompletion的延迟分布(纳秒)
+     */
+    public LatencyHistogram.Snapshot getLatency() {
+        return this.latency.snapshot();
+    }
+
+    /**
+     * 获取延迟桶的上界(秒)
+     */
+    public double[] getLatencyBuckets() {
+        return this.latencyBuckets.clone();
+    }
+
+    /**
+     * 获取延迟不超过各个桶上界的累积请求数, 最后一个元素是全部请求数
+     *
+     * @return 长度比桶数多一的累积计数
+     */
+    public long[] getCumulativeLatencyBucketCounts() {
+        long[] counts = new long[this.latencyBucketCounts.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += this.latencyBucketCounts[i].sum();
+            counts[i] = total;
+        }
+        return counts;
+    }
+
+    static String statusClassLabel(int statusClass) {
+        return STATUS_CLASSES[statusClass - 1];
+    }
+}
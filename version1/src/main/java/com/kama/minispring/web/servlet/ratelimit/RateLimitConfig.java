@@ -0,0 +1,104 @@
+package com.kama.minispring.web.servlet.ratelimit;
+
+/**
+ * 单个路由的限流配置, 不可变, 热加载时整体替换
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public final class RateLimitConfig {
+
+    /** 不做任何限制的配置 */
+    public static final RateLimitConfig UNLIMITED = new RateLimitConfig(0, 0, 0, false);
+
+    private final double permitsPerSecond;
+
+    private final int burst;
+
+    private final int maxConcurrent;
+
+    private final boolean perClient;
+
+    /** 产生一个令牌的间隔(纳秒) */
+    private final long emissionIntervalNanos;
+
+    /** 令牌桶容量对应的时间(纳秒) */
+    private final long burstToleranceNanos;
+
+    /**
+     * 构造函数
+     *
+     * @param permitsPerSecond 每秒令牌数, 不大于0表示不限速
+     * @param burst 桶容量, 即允许的突发请求数, 不大于0时取每秒令牌数向上取整
+     * @param maxConcurrent 最大并发数, 不大于0表示不限并发
+     * @param perClient 是否为每个客户端单独计算速率
+     */
+    public RateLimitConfig(double permitsPerSecond, int burst, int maxConcurrent, boolean perClient) {
+        this.permitsPerSecond = Math.max(0, permitsPerSecond);
+        this.burst = burst > 0 ? burst : (int) Math.max(1, Math.ceil(this.permitsPerSecond));
+        this.maxConcurrent = Math.max(0, maxConcurrent);
+        this.perClient = perClient;
+        this.emissionIntervalNanos = this.permitsPerSecond > 0
+                ? Math.max(1L, (long) (1_000_000_000L / this.permitsPerSecond)) : 0L;
+        this.burstToleranceNanos = this.emissionIntervalNanos * this.burst;
+    }
+
+    public double getPermitsPerSecond() {
+        return this.permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return this.burst;
+    }
+
+    public int getMaxConcurrent() {
+        return this.maxConcurrent;
+    }
+
+    public boolean isPerClient() {
+        return this.perClient;
+    }
+
+    boolean isRateLimited() {
+        return this.emissionIntervalNanos > 0;
+    }
+
+    boolean isConcurrencyLimited() {
+        return this.maxConcurrent > 0;
+    }
+
+    long getEmissionIntervalNanos() {
+        return this.emissionIntervalNanos;
+    }
+
+    long getBurstToleranceNanos() {
+        return this.burstToleranceNanos;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof RateLimitConfig)) {
+            return false;
+        }
+        RateLimitConfig that = (RateLimitConfig) other;
+        return Double.compare(this.permitsPerSecond, that.permitsPerSecond) == 0 && this.burst == that.burst
+                && this.maxConcurrent == that.maxConcurrent && this.perClient == that.perClient;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Double.hashCode(this.permitsPerSecond);
+        result = 31 * result + this.burst;
+        result = 31 * result + this.maxConcurrent;
+        return 31 * result + (this.perClient ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitConfig{permitsPerSecond=" + this.permitsPerSecond + ", burst=" + this.burst
+                + ", maxConcurrent=" + this.maxConcurrent + ", perClient=" + this.perClient + "}";
+    }
+}
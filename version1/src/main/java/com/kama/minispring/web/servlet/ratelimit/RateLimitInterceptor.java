@@ -0,0 +1,314 @@
+package com.kama.minispring.web.servlet.ratelimit;
+
+import com.kama.minispring.beans.factory.DisposableBean;
+import com.kama.minispring.beans.factory.InitializingBean;
+import com.kama.minispring.core.env.Environment;
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.web.servlet.HandlerInterceptor;
+import com.kama.minispring.web.servlet.HandlerMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * 按路由限流和限并发的拦截器
+ * 在处理器执行前检查路由(可选按客户端)的令牌桶和进行中的请求数, 超限时返回429和Retry-After, 处理器不会被调用.
+ * 路由取自{@link HandlerMapping#BEST_MATCHING_PATTERN_ATTRIBUTE}. 配置从Environment读取, 以前缀ratelimit为例:
+ * <pre>
+ * ratelimit.default.permits-per-second=100      每秒令牌数, 缺省不限速
+ * ratelimit.default.burst=200                   桶容量, 缺省为每秒令牌数
+ * ratelimit.default.max-concurrent=50           最大并发数, 缺省不限制
+ * ratelimit.default.per-client=true             按客户端分别限速, 并发数始终按路由计算
+ * ratelimit.route[/users/{id}].permits-per-second=10   路由级覆盖, 其余键同上
+ * ratelimit.client-key-header=X-Api-Key         客户端标识所在的请求头, 缺省使用远端地址
+ * </pre>
+ * afterPropertiesSet启动后台线程, 按refreshInterval重新读取配置并回收空闲的客户端桶
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class RateLimitInterceptor implements HandlerInterceptor, InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitInterceptor.class);
+
+    /** 映射未提供路由模式时使用的路由名 */
+    public static final String UNKNOWN_ROUTE = "UNKNOWN";
+
+    private static final String PERMIT_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".permit";
+
+    private final Environment environment;
+
+    private final Map<String, RouteLimiter> limiters = new ConcurrentHashMap<>();
+
+    private String propertyPrefix = "ratelimit";
+
+    private volatile Function<HttpServletRequest, String> clientKeyResolver;
+
+    private volatile RateLimitConfig defaultConfig = RateLimitConfig.UNLIMITED;
+
+    private volatile String clientKeyHeader;
+
+    private Duration refreshInterval = Duration.ofSeconds(5);
+
+    private Duration clientIdleTimeout = Duration.ofMinutes(5);
+
+    private int maxClientKeys = 100_000;
+
+    private LongSupplier ticker = System::nanoTime;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 构造函数
+     *
+     * @param environment 提供限流配置的环境
+     */
+    public RateLimitInterceptor(Environment environment) {
+        Assert.notNull(environment, "Environment must not be null");
+        this.environment = environment;
+        reload();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = (pattern instanceof String ? (String) pattern : UNKNOWN_ROUTE);
+        RouteLimiter limiter = this.limiters.get(route);
+        if (limiter == null) {
+            limiter = this.limiters.computeIfAbsent(route,
+                    key -> new RouteLimiter(key, loadConfig(key), this.ticker.getAsLong()));
+        }
+        RateLimitConfig config = limiter.getConfig();
+        boolean entered = false;
+        if (config.isConcurrencyLimited()) {
+            if (!limiter.tryEnter(config.getMaxConcurrent())) {
+                reject(limiter, response, 1L);
+                return false;
+            }
+            entered = true;
+        }
+        if (config.isRateLimited()) {
+            long now = this.ticker.getAsLong();
+            String clientKey = config.isPerClient() ? resolveClientKey(request) : null;
+            long waitNanos = limiter.getBucket(clientKey, now, this.maxClientKeys).tryAcquire(now, config);
+            if (waitNanos > 0) {
+                if (entered) {
+                    limiter.exit();
+                }
+                reject(limiter, response, (waitNanos + 999_999_999L) / 1_000_000_000L);
+                return false;
+            }
+        }
+        if (entered) {
+            request.setAttribute(PERMIT_ATTRIBUTE, limiter);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        // 被本拦截器拒绝的请求同样会收到afterCompletion, 只释放确实占用的名额
+        Object permit = request.getAttribute(PERMIT_ATTRIBUTE);
+        if (permit instanceof RouteLimiter) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            ((RouteLimiter) permit).exit();
+        }
+    }
+
+    private void reject(RouteLimiter limiter, HttpServletResponse response, long retryAfterSeconds)
+            throws IOException {
+        limiter.recordRejection();
+        if (logger.isDebugEnabled()) {
+            logger.debug("Rejected request to route [{}], retry after {}s", limiter.getRoute(), retryAfterSeconds);
+        }
+        response.setHeader("Retry-After", String.valueOf(Math.max(1L, retryAfterSeconds)));
+        response.sendError(429, "Too Many Requests");
+    }
+
+    private String resolveClientKey(HttpServletRequest request) {
+        Function<HttpServletRequest, String> resolver = this.clientKeyResolver;
+        String key = resolver != null ? resolver.apply(request) : null;
+        String header = this.clientKeyHeader;
+        if (key == null && header != null) {
+            key = request.getHeader(header);
+        }
+        if (key == null) {
+            key = request.getRemoteAddr();
+        }
+        return key != null ? key : "unknown";
+    }
+
+    /**
+     * 重新读取默认配置和所有已知路由的配置, 桶内的状态保留
+     */
+    public void reload() {
+        this.defaultConfig = readConfig(this.propertyPrefix + ".default.", RateLimitConfig.UNLIMITED);
+        this.clientKeyHeader = this.environment.getProperty(this.propertyPrefix + ".client-key-header");
+        for (RouteLimiter limiter : this.limiters.values()) {
+            RateLimitConfig config = loadConfig(limiter.getRoute());
+            if (!config.equals(limiter.getConfig())) {
+                logger.info("Rate limit for route [{}] changed to {}", limiter.getRoute(), config);
+                limiter.setConfig(config);
+            }
+        }
+    }
+
+    private RateLimitConfig loadConfig(String route) {
+        return readConfig(this.propertyPrefix + ".route[" + route + "].", this.defaultConfig);
+    }
+
+    private RateLimitConfig readConfig(String prefix, RateLimitConfig defaults) {
+        double permitsPerSecond = parse(prefix + "permits-per-second", defaults.getPermitsPerSecond(),
+                Double::parseDouble);
+        boolean rateChanged = Double.compare(permitsPerSecond, defaults.getPermitsPerSecond()) != 0;
+        int burst = parse(prefix + "burst", rateChanged ? 0 : defaults.getBurst(), Integer::parseInt);
+        int maxConcurrent = parse(prefix + "max-concurrent", defaults.getMaxConcurrent(), Integer::parseInt);
+        boolean perClient = parse(prefix + "per-client", defaults.isPerClient(), Boolean::parseBoolean);
+        return new RateLimitConfig(permitsPerSecond, burst, maxConcurrent, perClient);
+    }
+
+    private <T> T parse(String key, T defaultValue, Function<String, T> parser) {
+        String value = this.environment.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return parser.apply(value.trim());
+        } catch (RuntimeException ex) {
+            logger.warn("Ignoring invalid rate limit property {}={}", key, value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 回收空闲超过clientIdleTimeout的客户端桶
+     *
+     * @return 回收的数量
+     */
+    public int evictIdleClients() {
+        long now = this.ticker.getAsLong();
+        long idleNanos = this.clientIdleTimeout.toNanos();
+        int evicted = 0;
+        for (RouteLimiter limiter : this.limiters.values()) {
+            evicted += limiter.evictIdleClients(now, idleNanos);
+        }
+        return evicted;
+    }
+
+    @Override
+    public synchronized void afterPropertiesSet() {
+        if (this.scheduler != null) {
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(1L, this.refreshInterval.toMillis());
+        this.scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                reload();
+                evictIdleClients();
+            } catch (RuntimeException ex) {
+                logger.error("Rate limit maintenance failed", ex);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * 获取路由被拒绝的请求数
+     *
+     * @param route 路由模式
+     * @return 拒绝数, 路由尚无请求时为0
+     */
+    public long getRejectedCount(String route) {
+        RouteLimiter limiter = this.limiters.get(route);
+        return limiter != null ? limiter.getRejectedCount() : 0L;
+    }
+
+    /**
+     * 获取路由进行中的请求数, 只统计配置了并发上限的路由
+     */
+    public int getInFlight(String route) {
+        RouteLimiter limiter = this.limiters.get(route);
+        return limiter != null ? limiter.getInFlight() : 0;
+    }
+
+    /**
+     * 获取路由当前保留的客户端桶数量
+     */
+    public int getClientCount(String route) {
+        RouteLimiter limiter = this.limiters.get(route);
+        return limiter != null ? limiter.getClientCount() : 0;
+    }
+
+    /**
+     * 设置配置属性的前缀, 默认为ratelimit
+     */
+    public void setPropertyPrefix(String propertyPrefix) {
+        Assert.hasText(propertyPrefix, "Property prefix must not be empty");
+        this.propertyPrefix = propertyPrefix;
+        reload();
+    }
+
+    /**
+     * 设置客户端标识的解析函数, 返回null时退回到请求头或远端地址
+     */
+    public void setClientKeyResolver(Function<HttpServletRequest, String> clientKeyResolver) {
+        this.clientKeyResolver = clientKeyResolver;
+    }
+
+    /**
+     * 设置后台重新读取配置的间隔, 需在afterPropertiesSet之前设置
+     */
+    public void setRefreshInterval(Duration refreshInterval) {
+        Assert.notNull(refreshInterval, "Refresh interval must not be null");
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * 设置客户端桶的空闲回收时间
+     */
+    public void setClientIdleTimeout(Duration clientIdleTimeout) {
+        Assert.notNull(clientIdleTimeout, "Client idle timeout must not be null");
+        this.clientIdleTimeout = clientIdleTimeout;
+    }
+
+    /**
+     * 设置每个路由最多保留的客户端桶数量, 超过后新客户端共用一个桶
+     */
+    public void setMaxClientKeys(int maxClientKeys) {
+        Assert.isTrue(maxClientKeys > 0, "maxClientKeys must be positive");
+        this.maxClientKeys = maxClientKeys;
+    }
+
+    /**
+     * 替换令牌补充所依据的纳秒时钟
+     */
+    void setTicker(LongSupplier ticker) {
+        Assert.notNull(ticker, "Ticker must not be null");
+        this.ticker = ticker;
+    }
+}
@@ -0,0 +1,113 @@
+package com.kama.minispring.web.servlet.ratelimit;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个路由的限流状态: 路由级令牌桶、按客户端的令牌桶和进行中的请求数
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class RouteLimiter {
+
+    /** 客户端数量超过上限后共用的桶的键 */
+    static final String OVERFLOW_CLIENT = "";
+
+    private final String route;
+
+    private volatile RateLimitConfig config;
+
+    private final TokenBucket routeBucket;
+
+    private final Map<String, TokenBucket> clientBuckets = new ConcurrentHashMap<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LongAdder rejected = new LongAdder();
+
+    RouteLimiter(String route, RateLimitConfig config, long nowNanos) {
+        this.route = route;
+        this.config = config;
+        this.routeBucket = new TokenBucket(nowNanos);
+    }
+
+    String getRoute() {
+        return this.route;
+    }
+
+    RateLimitConfig getConfig() {
+        return this.config;
+    }
+
+    void setConfig(RateLimitConfig config) {
+        this.config = config;
+    }
+
+    TokenBucket getBucket(String clientKey, long nowNanos, int maxClientKeys) {
+        if (clientKey == null) {
+            return this.routeBucket;
+        }
+        TokenBucket bucket = this.clientBuckets.get(clientKey);
+        if (bucket != null) {
+            return bucket;
+        }
+        // 超过上限时新客户端共用一个桶, 保证内存有界; 空闲回收后恢复为独立的桶
+        String key = this.clientBuckets.size() < maxClientKeys ? clientKey : OVERFLOW_CLIENT;
+        return this.clientBuckets.computeIfAbsent(key, k -> new TokenBucket(nowNanos));
+    }
+
+    /**
+     * 尝试占用一个并发名额
+     */
+    boolean tryEnter(int maxConcurrent) {
+        while (true) {
+            int current = this.inFlight.get();
+            if (current >= maxConcurrent) {
+                return false;
+            }
+            if (this.inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void exit() {
+        this.inFlight.decrementAndGet();
+    }
+
+    int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    void recordRejection() {
+        this.rejected.increment();
+    }
+
+    long getRejectedCount() {
+        return this.rejected.sum();
+    }
+
+    int getClientCount() {
+        return this.clientBuckets.size();
+    }
+
+    /**
+     * 回收已满且空闲的客户端桶
+     *
+     * @return 回收的数量
+     */
+    int evictIdleClients(long nowNanos, long idleNanos) {
+        int evicted = 0;
+        for (Iterator<TokenBucket> it = this.clientBuckets.values().iterator(); it.hasNext(); ) {
+            if (it.next().isIdle(nowNanos, idleNanos)) {
+                it.remove();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+}
@@ -0,0 +1,51 @@
+package com.kama.minispring.web.servlet.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶
+ * 采用GCRA(通用信元速率算法)的等价形式: 只保存"理论到达时间"一个long, 每取一个令牌把它推后一个产生间隔,
+ * 推后的结果超过当前时间加桶容量时拒绝. 取令牌只是一次CAS, 不需要定时补充令牌;
+ * 理论到达时间早于当前时间表示桶已满, 此时丢弃该桶不会丢失任何状态, 便于回收空闲的客户端桶
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class TokenBucket {
+
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(long nowNanos) {
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * 尝试取一个令牌
+     *
+     * @param nowNanos 当前时间
+     * @param config 限流配置, 热加载后新的速率立即生效
+     * @return 0表示成功; 否则为需要等待的纳秒数
+     */
+    long tryAcquire(long nowNanos, RateLimitConfig config) {
+        long interval = config.getEmissionIntervalNanos();
+        long tolerance = config.getBurstToleranceNanos();
+        while (true) {
+            long current = this.theoreticalArrival.get();
+            long next = Math.max(current, nowNanos) + interval;
+            long ahead = next - nowNanos;
+            if (ahead > tolerance) {
+                return ahead - tolerance;
+            }
+            if (this.theoreticalArrival.compareAndSet(current, next)) {
+                return 0L;
+            }
+        }
+    }
+
+    /**
+     * 桶是否已满且空闲超过给定时长
+     */
+    boolean isIdle(long nowNanos, long idleNanos) {
+        return nowNanos - this.theoreticalArrival.get() > idleNanos;
+    }
+}
@@ -0,0 +1,88 @@
+package com.kama.minispring.web.servlet.resource;
+
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.web.servlet.HandlerExecutionChain;
+import com.kama.minispring.web.servlet.HandlerInterceptor;
+import com.kama.minispring.web.servlet.HttpRequestHandler;
+import com.kama.minispring.web.servlet.handler.AbstractHandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 静态资源的处理器映射
+ * 按"/static/**"形式的前缀模式注册资源处理器, 最长前缀优先; 命中后把前缀之后的路径
+ * 放入PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE供处理器定位资源
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class ResourceHandlerMapping extends AbstractHandlerMapping {
+
+    private volatile Registration[] registrations = new Registration[0];
+
+    /**
+     * 注册资源处理器
+     *
+     * @param pattern 以"/**"结尾的路径模式, 如"/static/**"
+     * @param handler 资源处理器
+     */
+    public synchronized void registerHandler(String pattern, HttpRequestHandler handler) {
+        Assert.hasText(pattern, "Pattern must not be empty");
+        Assert.isTrue(pattern.startsWith("/") && pattern.endsWith("/**"), "Pattern must look like '/prefix/**'");
+        Assert.notNull(handler, "Handler must not be null");
+        List<Registration> list = new ArrayList<>(List.of(this.registrations));
+        list.add(new Registration(pattern, pattern.substring(0, pattern.length() - 2), handler,
+                resolveInterceptors(pattern)));
+        list.sort(Comparator.comparingInt((Registration r) -> r.prefix.length()).reversed());
+        this.registrations = list.toArray(new Registration[0]);
+    }
+
+    @Override
+    public HandlerExecutionChain getHandler(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        if (contextPath != null && !contextPath.isEmpty() && uri.startsWith(contextPath)) {
+            uri = uri.substring(contextPath.length());
+        }
+        for (Registration registration : this.registrations) {
+            if (uri.startsWith(registration.prefix)) {
+                request.setAttribute(PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE,
+                        uri.substring(registration.prefix.length()));
+                request.setAttribute(BEST_MATCHING_PATTERN_ATTRIBUTE, registration.pattern);
+                return new HandlerExecutionChain(registration.handler,
+                        getRequestInterceptors(registration.interceptors, uri, 0));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected synchronized void refreshInterceptors() {
+        for (Registration registration : this.registrations) {
+            registration.interceptors = resolveInterceptors(registration.pattern);
+        }
+    }
+
+    private static final class Registration {
+
+        private final String pattern;
+
+        /** 模式去掉"**"后的前缀, 以斜杠结尾 */
+        private final String prefix;
+
+        private final HttpRequestHandler handler;
+
+        private volatile HandlerInterceptor[] interceptors;
+
+        private Registration(String pattern, String prefix, HttpRequestHandler handler,
+                HandlerInterceptor[] interceptors) {
+            this.pattern = pattern;
+            this.prefix = prefix;
+            this.handler = handler;
+            this.interceptors = interceptors;
+        }
+    }
+}
@@ -0,0 +1,566 @@
+package com.kama.minispring.web.servlet.resource;
+
+import com.kama.minispring.beans.factory.DisposableBean;
+import com.kama.minispring.beans.factory.InitializingBean;
+import com.kama.minispring.core.io.ClassPathResource;
+import com.kama.minispring.core.io.FileSystemResource;
+import com.kama.minispring.core.io.Resource;
+import com.kama.minispring.http.ZeroCopyFileTransfer;
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.util.BufferPool;
+import com.kama.minispring.web.servlet.HandlerMapping;
+import com.kama.minispring.web.servlet.HttpRequestHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 静态资源处理器
+ * 从FileSystemResource目录或ClassPathResource包路径中查找资源, 文件系统中的资源用FileChannel.transferTo发送,
+ * 服务器支持ZeroCopyFileTransfer时完全不经过堆内存。客户端接受时优先发送预压缩的.br/.gz兄弟文件,
+ * 支持单区间Range、If-Range、If-None-Match和If-Modified-Since。
+ * 资源的长度、修改时间和ETag缓存在内存中, 由目录监听在文件变更时失效
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class ResourceHttpRequestHandler implements HttpRequestHandler, InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceHttpRequestHandler.class);
+
+    private static final Map<String, String> MEDIA_TYPES = new HashMap<>();
+
+    static {
+        MEDIA_TYPES.put("html", "text/html;charset=UTF-8");
+        MEDIA_TYPES.put("htm", "text/html;charset=UTF-8");
+        MEDIA_TYPES.put("css", "text/css;charset=UTF-8");
+        MEDIA_TYPES.put("js", "text/javascript;charset=UTF-8");
+        MEDIA_TYPES.put("mjs", "text/javascript;charset=UTF-8");
+        MEDIA_TYPES.put("json", "application/json");
+        MEDIA_TYPES.put("map", "application/json");
+        MEDIA_TYPES.put("txt", "text/plain;charset=UTF-8");
+        MEDIA_TYPES.put("xml", "application/xml");
+        MEDIA_TYPES.put("svg", "image/svg+xml");
+        MEDIA_TYPES.put("png", "image/png");
+        MEDIA_TYPES.put("jpg", "image/jpeg");
+        MEDIA_TYPES.put("jpeg", "image/jpeg");
+        MEDIA_TYPES.put("gif", "image/gif");
+        MEDIA_TYPES.put("webp", "image/webp");
+        MEDIA_TYPES.put("ico", "image/x-icon");
+        MEDIA_TYPES.put("woff", "font/woff");
+        MEDIA_TYPES.put("woff2", "font/woff2");
+        MEDIA_TYPES.put("wasm", "application/wasm");
+        MEDIA_TYPES.put("pdf", "application/pdf");
+        MEDIA_TYPES.put("mp4", "video/mp4");
+    }
+
+    private static final String DEFAULT_MEDIA_TYPE = "application/octet-stream";
+
+    /** 表示Range越界的解析结果 */
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    private final List<Resource> locations = new ArrayList<>();
+
+    /** 文件系统中的资源根目录 */
+    private final List<Path> directories = new ArrayList<>();
+
+    /** jar包中的类路径前缀 */
+    private final List<ClassPathResource> classPathRoots = new ArrayList<>();
+
+    private final Map<String, ResourceMetadata> metadataCache = new ConcurrentHashMap<>();
+
+    private int maxCacheEntries = 10_000;
+
+    private boolean watchResources = true;
+
+    private int cacheSeconds = -1;
+
+    private BufferPool bufferPool = BufferPool.getSharedInstance();
+
+    private ResourceWatcher watcher;
+
+    /**
+     * 设置资源位置, FileSystemResource表示目录, ClassPathResource表示包路径
+     */
+    public void setLocations(List<Resource> locations) {
+        Assert.notNull(locations, "Locations must not be null");
+        this.locations.clear();
+        this.locations.addAll(locations);
+    }
+
+    public List<Resource> getLocations() {
+        return this.locations;
+    }
+
+    /**
+     * 设置元数据缓存的最大条目数, 超出后新资源不再缓存
+     */
+    public void setMaxCacheEntries(int maxCacheEntries) {
+        this.maxCacheEntries = maxCacheEntries;
+    }
+
+    /**
+     * 是否监听文件系统目录并在变更时刷新元数据, 默认true
+     */
+    public void setWatchResources(boolean watchResources) {
+        this.watchResources = watchResources;
+    }
+
+    /**
+     * 设置Cache-Control的max-age, 小于0时不写出Cache-Control
+     */
+    public void setCacheSeconds(int cacheSeconds) {
+        this.cacheSeconds = cacheSeconds;
+    }
+
+    public void setBufferPool(BufferPool bufferPool) {
+        Assert.notNull(bufferPool, "BufferPool must not be null");
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        this.directories.clear();
+        this.classPathRoots.clear();
+        for (Resource location : this.locations) {
+            if (location instanceof FileSystemResource) {
+                this.directories.add(((FileSystemResource) location).getFile().toPath().toAbsolutePath().normalize());
+            } else if (location instanceof ClassPathResource) {
+                ClassPathResource classPath = (ClassPathResource) location;
+                Path dir = classPath.exists() ? toFile(classPath.getURL()) : null;
+                if (dir != null) {
+                    this.directories.add(dir.normalize());
+                } else {
+                    String base = classPath.getPath();
+                    this.classPathRoots.add(new ClassPathResource(base.endsWith("/") ? base : base + "/",
+                            classPath.getClassLoader()));
+                }
+            } else {
+                throw new IllegalArgumentException("Unsupported resource location: " + location.getDescription());
+            }
+        }
+        if (this.watchResources && !this.directories.isEmpty()) {
+            this.watcher = new ResourceWatcher(this.directories, this::resourceChanged);
+            this.watcher.start();
+            logger.debug("Watching {} for static resource changes", this.directories);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (this.watcher != null) {
+            this.watcher.stop();
+            this.watcher = null;
+        }
+    }
+
+    /**
+     * 文件变更时失效相关元数据, changed为null时全部失效
+     */
+    void resourceChanged(Path changed) {
+        if (changed == null) {
+            this.metadataCache.clear();
+            return;
+        }
+        this.metadataCache.values().removeIf(metadata -> metadata.isBackedBy(changed));
+        String name = changed.getFileName() != null ? changed.getFileName().toString() : "";
+        if (name.endsWith(".gz") || name.endsWith(".br")) {
+            // 新增的预压缩文件需要重新解析原始资源
+            Path original = changed.resolveSibling(name.substring(0, name.length() - 3));
+            this.metadataCache.values().removeIf(metadata -> metadata.isBackedBy(original));
+        }
+    }
+
+    // ---------------------------------------------------------------- 请求处理
+
+    @Override
+    public void handleRequest(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String method = request.getMethod();
+        boolean head = "HEAD".equals(method);
+        if (!head && !"GET".equals(method)) {
+            response.setHeader("Allow", "GET, HEAD");
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+        String path = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        if (path == null) {
+            path = request.getRequestURI();
+        }
+        path = processPath(path);
+        ResourceMetadata metadata = path != null ? getMetadata(path) : null;
+        if (metadata == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String rangeHeader = request.getHeader("Range");
+        ResourceMetadata.Variant variant = rangeHeader != null ? metadata.getIdentity()
+                : selectVariant(metadata, request.getHeader("Accept-Encoding"));
+        if (metadata.hasEncodedVariants()) {
+            response.setHeader("Vary", "Accept-Encoding");
+        }
+        response.setHeader("ETag", variant.getETag());
+        response.setDateHeader("Last-Modified", metadata.getLastModified());
+        if (this.cacheSeconds >= 0) {
+            response.setHeader("Cache-Control", "max-age=" + this.cacheSeconds);
+        }
+        if (isNotModified(request, variant, metadata)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(metadata.getContentType());
+        response.setHeader("Accept-Ranges", "bytes");
+        if (variant.getEncoding() != null) {
+            response.setHeader("Content-Encoding", variant.getEncoding());
+        }
+        long length = variant.getLength();
+        long start = 0;
+        long count = length;
+        if (rangeHeader != null && isRangeApplicable(request, variant, metadata)) {
+            long[] range = parseRange(rangeHeader, length);
+            if (range == UNSATISFIABLE) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.sendError(416);
+                return;
+            }
+            if (range != null) {
+                start = range[0];
+                count = range[1] - range[0] + 1;
+                response.setStatus(206);
+                response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+            }
+        }
+        response.setContentLengthLong(count);
+        if (head || count == 0) {
+            return;
+        }
+        writeContent(variant, start, count, response);
+    }
+
+    /**
+     * 解码并校验相对路径, 拒绝目录穿越和受保护的目录
+     *
+     * @return 不带前导斜杠的相对路径, 不合法时返回null
+     */
+    static String processPath(String path) {
+        String decoded;
+        try {
+            decoded = URLDecoder.decode(path.replace("+", "%2B"), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+        if (decoded.indexOf('\0') >= 0 || decoded.indexOf('\\') >= 0 || decoded.contains(":")) {
+            return null;
+        }
+        StringBuilder result = new StringBuilder(decoded.length());
+        for (String segment : decoded.split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..") || segment.equalsIgnoreCase("WEB-INF") || segment.equalsIgnoreCase("META-INF")) {
+                return null;
+            }
+            if (result.length() > 0) {
+                result.append('/');
+            }
+            result.append(segment);
+        }
+        return result.length() > 0 ? result.toString() : null;
+    }
+
+    private ResourceMetadata getMetadata(String path) throws IOException {
+        ResourceMetadata metadata = this.metadataCache.get(path);
+        if (metadata != null) {
+            return metadata;
+        }
+        metadata = resolveMetadata(path);
+        if (metadata != null && this.metadataCache.size() < this.maxCacheEntries) {
+            this.metadataCache.put(path, metadata);
+        }
+        return metadata;
+    }
+
+    private ResourceMetadata resolveMetadata(String path) throws IOException {
+        String contentType = getMediaType(path);
+        for (Path dir : this.directories) {
+            Path file = dir.resolve(path).normalize();
+            if (!file.startsWith(dir)) {
+                continue;
+            }
+            BasicFileAttributes attributes = readAttributes(file);
+            if (attributes == null || !attributes.isRegularFile() || !Files.isReadable(file)) {
+                continue;
+            }
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            ResourceMetadata.Variant identity =
+                    new ResourceMetadata.Variant(file, null, attributes.size(), lastModified, null);
+            return new ResourceMetadata(identity, fileVariant(file, ".gz", "gzip", lastModified),
+                    fileVariant(file, ".br", "br", lastModified), lastModified, contentType);
+        }
+        for (ClassPathResource root : this.classPathRoots) {
+            ClassPathResource resource = new ClassPathResource(root.getPath() + path, root.getClassLoader());
+            if (!resource.exists()) {
+                continue;
+            }
+            URLConnection connection = resource.getURL().openConnection();
+            long length = connection.getContentLengthLong();
+            long lastModified = connection.getLastModified();
+            if (length < 0) {
+                continue;
+            }
+            ResourceMetadata.Variant identity =
+                    new ResourceMetadata.Variant(null, resource, length, lastModified, null);
+            return new ResourceMetadata(identity, null, null, lastModified, contentType);
+        }
+        return null;
+    }
+
+    /**
+     * 查找预压缩的兄弟文件, 比原始文件旧的压缩文件视为过期而忽略
+     */
+    private static ResourceMetadata.Variant fileVariant(Path file, String suffix, String encoding,
+            long originalModified) {
+        Path sibling = file.resolveSibling(file.getFileName() + suffix);
+        BasicFileAttributes attributes = readAttributes(sibling);
+        if (attributes == null || !attributes.isRegularFile()
+                || attributes.lastModifiedTime().toMillis() < originalModified) {
+            return null;
+        }
+        // ETag基于原始文件的修改时间, 使不同编码的变体共享同一版本
+        return new ResourceMetadata.Variant(sibling, null, attributes.size(), originalModified, encoding);
+    }
+
+    private static BasicFileAttributes readAttributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static Path toFile(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException ex) {
+            return null;
+        }
+    }
+
+    static String getMediaType(String path) {
+        int dot = path.lastIndexOf('.');
+        String type = dot >= 0 ? MEDIA_TYPES.get(path.substring(dot + 1).toLowerCase(Locale.ROOT)) : null;
+        if (type == null) {
+            type = URLConnection.guessContentTypeFromName(path);
+        }
+        return type != null ? type : DEFAULT_MEDIA_TYPE;
+    }
+
+    // ---------------------------------------------------------------- 内容协商和条件请求
+
+    private static ResourceMetadata.Variant selectVariant(ResourceMetadata metadata, String acceptEncoding) {
+        if (acceptEncoding == null || !metadata.hasEncodedVariants()) {
+            return metadata.getIdentity();
+        }
+        if (metadata.getBrotli() != null && acceptsEncoding(acceptEncoding, "br")) {
+            return metadata.getBrotli();
+        }
+        if (metadata.getGzip() != null && acceptsEncoding(acceptEncoding, "gzip")) {
+            return metadata.getGzip();
+        }
+        return metadata.getIdentity();
+    }
+
+    /**
+     * Accept-Encoding中是否以非零q值接受给定编码, 通配符*同样接受
+     */
+    static boolean acceptsEncoding(String acceptEncoding, String encoding) {
+        boolean wildcard = false;
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            String name = parts[0].trim();
+            boolean accepted = true;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        accepted = Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException ex) {
+                        accepted = false;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase(encoding)) {
+                return accepted;
+            }
+            if (name.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return wildcard;
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, ResourceMetadata.Variant variant,
+            ResourceMetadata metadata) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matchesETag(ifNoneMatch, variant.getETag(), true);
+        }
+        long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+        return ifModifiedSince >= 0 && metadata.getLastModified() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * 对于If-Range, 只有强ETag或与修改时间一致的日期才能使Range生效
+     */
+    private static boolean isRangeApplicable(HttpServletRequest request, ResourceMetadata.Variant variant,
+            ResourceMetadata metadata) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return matchesETag(ifRange, variant.getETag(), false);
+        }
+        long date = getDateHeader(request, "If-Range");
+        return date >= 0 && date / 1000 == metadata.getLastModified() / 1000;
+    }
+
+    private static boolean matchesETag(String header, String etag, boolean weakComparison) {
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                if (!weakComparison) {
+                    continue;
+                }
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * 解析单区间的Range头
+     *
+     * @return 包含首尾位置的数组; 语法不支持(如多区间)时返回null表示忽略Range; 区间越界时返回UNSATISFIABLE
+     */
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new long[]{Math.max(0, length - suffix), length - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            if (start >= length) {
+                return UNSATISFIABLE;
+            }
+            return new long[]{start, Math.min(end, length - 1)};
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    // ---------------------------------------------------------------- 写出内容
+
+    private void writeContent(ResourceMetadata.Variant variant, long start, long count,
+            HttpServletResponse response) throws IOException {
+        Path file = variant.getFile();
+        if (file != null && response instanceof ZeroCopyFileTransfer) {
+            ((ZeroCopyFileTransfer) response).transferFile(file, start, count);
+            return;
+        }
+        if (file != null) {
+            // 普通Servlet容器只提供输出流, 由transferTo在内核缓冲和输出流之间分块搬运, 不把整个文件读入堆
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                long position = start;
+                long remaining = count;
+                while (remaining > 0) {
+                    long n = channel.transferTo(position, remaining, out);
+                    if (n <= 0) {
+                        throw new EOFException("File " + file + " was truncated while being sent");
+                    }
+                    position += n;
+                    remaining -= n;
+                }
+            }
+            return;
+        }
+        byte[] buffer = this.bufferPool.acquire();
+        try (InputStream in = variant.getResource().getInputStream()) {
+            in.skipNBytes(start);
+            OutputStream out = response.getOutputStream();
+            long remaining = count;
+            while (remaining > 0) {
+                int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (n < 0) {
+                    throw new EOFException(variant.getResource().getDescription() + " ended unexpectedly");
+                }
+                out.write(buffer, 0, n);
+                remaining -= n;
+            }
+        } finally {
+            this.bufferPool.release(buffer);
+        }
+    }
+}
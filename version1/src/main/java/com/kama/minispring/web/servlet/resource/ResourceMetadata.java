@@ -0,0 +1,114 @@
+package com.kama.minispring.web.servlet.resource;
+
+import com.kama.minispring.core.io.Resource;
+
+import java.nio.file.Path;
+
+/**
+ * 缓存的静态资源元数据
+ * 原始文件和预压缩的.gz/.br兄弟文件各对应一个变体, 长度、修改时间和ETag在解析时一次算好
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class ResourceMetadata {
+
+    private final Variant identity;
+
+    private final Variant gzip;
+
+    private final Variant brotli;
+
+    private final long lastModified;
+
+    private final String contentType;
+
+    ResourceMetadata(Variant identity, Variant gzip, Variant brotli, long lastModified, String contentType) {
+        this.identity = identity;
+        this.gzip = gzip;
+        this.brotli = brotli;
+        this.lastModified = lastModified;
+        this.contentType = contentType;
+    }
+
+    Variant getIdentity() {
+        return this.identity;
+    }
+
+    Variant getGzip() {
+        return this.gzip;
+    }
+
+    Variant getBrotli() {
+        return this.brotli;
+    }
+
+    boolean hasEncodedVariants() {
+        return this.gzip != null || this.brotli != null;
+    }
+
+    long getLastModified() {
+        return this.lastModified;
+    }
+
+    String getContentType() {
+        return this.contentType;
+    }
+
+    /**
+     * 是否来自给定文件或目录, 用于文件变更时失效
+     */
+    boolean isBackedBy(Path changed) {
+        return isBackedBy(this.identity, changed) || isBackedBy(this.gzip, changed) || isBackedBy(this.brotli, changed);
+    }
+
+    private static boolean isBackedBy(Variant variant, Path changed) {
+        return variant != null && variant.file != null && variant.file.startsWith(changed);
+    }
+
+    /**
+     * 资源的一种编码形式
+     * 文件系统中的资源保存file以便零拷贝发送, jar包中的资源只能通过resource读取
+     */
+    static final class Variant {
+
+        private final Path file;
+
+        private final Resource resource;
+
+        private final long length;
+
+        private final String encoding;
+
+        private final String etag;
+
+        Variant(Path file, Resource resource, long length, long lastModified, String encoding) {
+            this.file = file;
+            this.resource = resource;
+            this.length = length;
+            this.encoding = encoding;
+            this.etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length)
+                    + (encoding != null ? "-" + encoding : "") + "\"";
+        }
+
+        Path getFile() {
+            return this.file;
+        }
+
+        Resource getResource() {
+            return this.resource;
+        }
+
+        long getLength() {
+            return this.length;
+        }
+
+        String getEncoding() {
+            return this.encoding;
+        }
+
+        String getETag() {
+            return this.etag;
+        }
+    }
+}
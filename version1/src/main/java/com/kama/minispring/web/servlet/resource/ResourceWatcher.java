@@ -0,0 +1,113 @@
+package com.kama.minispring.web.servlet.resource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 监听静态资源目录的变更
+ * 递归注册目录, 新建的子目录自动注册; 每个变更的路径回调一次, 事件丢失(OVERFLOW)时以null回调表示全部失效
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class ResourceWatcher implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceWatcher.class);
+
+    private final WatchService watchService;
+
+    private final Consumer<Path> listener;
+
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+
+    private final Thread thread;
+
+    ResourceWatcher(Collection<Path> roots, Consumer<Path> listener) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.listener = listener;
+        for (Path root : roots) {
+            registerRecursively(root);
+        }
+        this.thread = new Thread(this, "resource-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        this.thread.start();
+    }
+
+    void stop() {
+        try {
+            this.watchService.close();
+        } catch (IOException ex) {
+            logger.debug("Error closing watch service", ex);
+        }
+    }
+
+    private void registerRecursively(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path dir : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+                WatchKey key = dir.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                this.directories.put(key, dir);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = this.watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                return;
+            }
+            Path dir = this.directories.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                    notifyListener(null);
+                    continue;
+                }
+                Path changed = dir.resolve((Path) event.context());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                    try {
+                        registerRecursively(changed);
+                    } catch (IOException | ClosedWatchServiceException ex) {
+                        logger.debug("Could not watch new directory {}", changed, ex);
+                    }
+                }
+                notifyListener(changed);
+            }
+            if (!key.reset()) {
+                this.directories.remove(key);
+            }
+        }
+    }
+
+    private void notifyListener(Path changed) {
+        try {
+            this.listener.accept(changed);
+        } catch (RuntimeException ex) {
+            logger.warn("Resource change listener failed for {}", changed, ex);
+        }
+    }
+}
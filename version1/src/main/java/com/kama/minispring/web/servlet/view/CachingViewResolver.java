@@ -0,0 +1,221 @@
+package com.kama.minispring.web.servlet.view;
+
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.web.servlet.View;
+import com.kama.minispring.web.servlet.ViewResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 带缓存的视图解析器包装
+ * 以视图名称和区域为键缓存被包装解析器的结果, 解析失败的名称同样缓存, 避免每次渲染都遍历解析器并重复加载模板
+ * 命中只读ConcurrentHashMap并记录访问时间, 不加锁; 超过上限时按访问时间批量淘汰最久未使用的条目
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class CachingViewResolver implements ViewResolver {
+
+    /** 默认最多缓存的视图数量 */
+    public static final int DEFAULT_CACHE_LIMIT = 1024;
+
+    private final ViewResolver delegate;
+
+    private final Map<ViewCacheKey, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    private final Object evictionMonitor = new Object();
+
+    private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
+
+    private volatile boolean cacheUnresolved = true;
+
+    /**
+     * 构造函数
+     * @param delegate 被包装的视图解析器
+     */
+    public CachingViewResolver(ViewResolver delegate) {
+        Assert.notNull(delegate, "Delegate ViewResolver must not be null");
+        this.delegate = delegate;
+    }
+
+    @Override
+    public View resolveViewName(String viewName) throws Exception {
+        return resolveViewName(viewName, null);
+    }
+
+    @Override
+    public View resolveViewName(String viewName, Locale locale) throws Exception {
+        if (this.cacheLimit <= 0) {
+            return this.delegate.resolveViewName(viewName, locale);
+        }
+        ViewCacheKey key = new ViewCacheKey(viewName, locale);
+        CacheEntry entry = this.cache.get(key);
+        if (entry != null) {
+            entry.lastAccess = System.nanoTime();
+            return entry.view;
+        }
+        View view = this.delegate.resolveViewName(viewName, locale);
+        if (view != null || this.cacheUnresolved) {
+            CacheEntry created = new CacheEntry(view, System.nanoTime());
+            CacheEntry existing = this.cache.putIfAbsent(key, created);
+            if (existing != null) {
+                return existing.view;
+            }
+            if (this.cache.size() > this.cacheLimit) {
+                evict();
+            }
+        }
+        return view;
+    }
+
+    /**
+     * 淘汰最久未使用的条目, 一次淘汰到上限的90%以摊薄排序开销
+     */
+    private void evict() {
+        synchronized (this.evictionMonitor) {
+            int limit = this.cacheLimit;
+            int excess = this.cache.size() - limit;
+            if (excess <= 0) {
+                return;
+            }
+            int toRemove = excess + limit / 10;
+            // 访问时间在排序期间可能被并发更新, 先取快照保证比较结果稳定
+            List<EvictionCandidate> candidates = new ArrayList<>(this.cache.size());
+            for (Map.Entry<ViewCacheKey, CacheEntry> entry : this.cache.entrySet()) {
+                candidates.add(new EvictionCandidate(entry.getKey(), entry.getValue()));
+            }
+            candidates.sort((a, b) -> Long.compare(a.lastAccess, b.lastAccess));
+            for (int i = 0; i < toRemove && i < candidates.size(); i++) {
+                EvictionCandidate eldest = candidates.get(i);
+                this.cache.remove(eldest.key, eldest.entry);
+            }
+        }
+    }
+
+    /**
+     * 移除指定视图的缓存, 模板变更时使用
+     * @param viewName 视图名称
+     * @param locale 区域, 可能为null
+     */
+    public void removeFromCache(String viewName, Locale locale) {
+        this.cache.remove(new ViewCacheKey(viewName, locale));
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clearCache() {
+        this.cache.clear();
+    }
+
+    /**
+     * 设置缓存上限, 0表示关闭缓存
+     * @param cacheLimit 最多缓存的视图数量
+     */
+    public void setCacheLimit(int cacheLimit) {
+        Assert.isTrue(cacheLimit >= 0, "Cache limit must not be negative");
+        this.cacheLimit = cacheLimit;
+        if (this.cache.size() > cacheLimit) {
+            evict();
+        }
+    }
+
+    public int getCacheLimit() {
+        return this.cacheLimit;
+    }
+
+    /**
+     * 设置是否缓存无法解析的视图名称, 默认缓存
+     * 开启时新增的模板需调用{@link #removeFromCache}或{@link #clearCache}后才能被解析到
+     * @param cacheUnresolved 是否缓存未解析结果
+     */
+    public void setCacheUnresolved(boolean cacheUnresolved) {
+        this.cacheUnresolved = cacheUnresolved;
+    }
+
+    public boolean isCacheUnresolved() {
+        return this.cacheUnresolved;
+    }
+
+    /**
+     * 获取当前缓存的条目数量
+     * @return 缓存条目数量
+     */
+    public int getCacheSize() {
+        return this.cache.size();
+    }
+
+    public ViewResolver getDelegate() {
+        return this.delegate;
+    }
+
+    /**
+     * 缓存条目, view为null表示该名称无法解析
+     */
+    private static final class CacheEntry {
+
+        private final View view;
+
+        private volatile long lastAccess;
+
+        CacheEntry(View view, long lastAccess) {
+            this.view = view;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final class EvictionCandidate {
+
+        private final ViewCacheKey key;
+
+        private final CacheEntry entry;
+
+        private final long lastAccess;
+
+        EvictionCandidate(ViewCacheKey key, CacheEntry entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+        }
+    }
+
+    /**
+     * 视图名称和区域组成的缓存键
+     */
+    private static final class ViewCacheKey {
+
+        private final String viewName;
+
+        private final Locale locale;
+
+        private final int hash;
+
+        ViewCacheKey(String viewName, Locale locale) {
+            this.viewName = viewName;
+            this.locale = locale;
+            this.hash = Objects.hash(viewName, locale);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof ViewCacheKey)) {
+                return false;
+            }
+            ViewCacheKey that = (ViewCacheKey) other;
+            return Objects.equals(this.viewName, that.viewName) && Objects.equals(this.locale, that.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
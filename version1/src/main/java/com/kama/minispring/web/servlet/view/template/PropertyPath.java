@@ -0,0 +1,205 @@
+package com.kama.minispring.web.servlet.view.template;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 模板中的属性路径, 如user.address.city
+ * 第一段从内到外依次在作用域中查找, 后续各段在上一段的值上读取; Map按键读取, 其他对象按getter、is方法或公有字段读取
+ * 每一段保存最近一次的类型和访问器作为内联缓存, 同一模板渲染同类对象时无需再查全局缓存
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+final class PropertyPath {
+
+    private static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /** 按类型缓存解析出的访问器, 值为NO_ACCESSOR表示该类型没有此属性 */
+    private static final Map<Class<?>, Map<String, MethodHandle>> ACCESSORS = new ConcurrentHashMap<>();
+
+    private static final MethodHandle NO_ACCESSOR = MethodHandles.constant(Object.class, null);
+
+    private final String expression;
+
+    private final Segment[] segments;
+
+    private PropertyPath(String expression, Segment[] segments) {
+        this.expression = expression;
+        this.segments = segments;
+    }
+
+    static PropertyPath parse(String expression) {
+        if (".".equals(expression)) {
+            return new PropertyPath(expression, new Segment[0]);
+        }
+        String[] names = expression.split("\\.");
+        Segment[] segments = new Segment[names.length];
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].isEmpty()) {
+                throw new IllegalArgumentException("Invalid property path '" + expression + "'");
+            }
+            segments[i] = new Segment(names[i]);
+        }
+        return new PropertyPath(expression, segments);
+    }
+
+    /**
+     * 在作用域栈中解析路径的值
+     * @param scopes 作用域栈, 栈顶为最内层
+     * @return 属性值, 任一段不存在时返回null
+     */
+    Object resolve(Deque<Object> scopes) {
+        if (this.segments.length == 0) {
+            return scopes.peek();
+        }
+        Object value = null;
+        boolean found = false;
+        Segment first = this.segments[0];
+        for (Iterator<Object> it = scopes.iterator(); it.hasNext() && !found; ) {
+            Object scope = it.next();
+            if (scope instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) scope;
+                value = map.get(first.name);
+                found = value != null || map.containsKey(first.name);
+            } else {
+                MethodHandle accessor = first.accessorFor(scope.getClass());
+                if (accessor != NO_ACCESSOR) {
+                    value = invoke(accessor, scope);
+                    found = true;
+                }
+            }
+        }
+        for (int i = 1; i < this.segments.length && value != null; i++) {
+            value = this.segments[i].read(value);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return this.expression;
+    }
+
+    private static Object invoke(MethodHandle accessor, Object target) {
+        try {
+            return accessor.invokeExact(target);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IllegalStateException("Failed to read template property", ex);
+        }
+    }
+
+    private static MethodHandle lookupAccessor(Class<?> type, String name) {
+        return ACCESSORS.computeIfAbsent(type, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(name, key -> findAccessor(type, key));
+    }
+
+    private static MethodHandle findAccessor(Class<?> type, String name) {
+        String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        try {
+            for (String candidate : new String[]{"get" + suffix, "is" + suffix, name}) {
+                Method method = findPublicMethod(type, candidate);
+                if (method != null) {
+                    return lookup.unreflect(method).asType(ACCESSOR_TYPE);
+                }
+            }
+            Field field = type.getField(name);
+            if (!Modifier.isStatic(field.getModifiers())) {
+                return lookup.unreflectGetter(field).asType(ACCESSOR_TYPE);
+            }
+        } catch (NoSuchFieldException | IllegalAccessException ex) {
+            // 没有可访问的属性
+        }
+        return NO_ACCESSOR;
+    }
+
+    /**
+     * 查找可公开访问的无参方法; 非公有类上的方法改从其公有接口或父类上取得, 避免访问检查失败
+     */
+    private static Method findPublicMethod(Class<?> type, String name) {
+        Method method;
+        try {
+            method = type.getMethod(name);
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+        if (method.getReturnType() == void.class || Modifier.isStatic(method.getModifiers())) {
+            return null;
+        }
+        if (Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            return method;
+        }
+        for (Class<?> candidate = type; candidate != null; candidate = candidate.getSuperclass()) {
+            for (Class<?> ifc : candidate.getInterfaces()) {
+                Method declared = findPublicMethod(ifc, name);
+                if (declared != null) {
+                    return declared;
+                }
+            }
+            Class<?> superclass = candidate.getSuperclass();
+            if (superclass != null && Modifier.isPublic(superclass.getModifiers())) {
+                try {
+                    return superclass.getMethod(name);
+                } catch (NoSuchMethodException ex) {
+                    // 继续向上查找
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 路径中的一段, 带单态内联缓存
+     */
+    private static final class Segment {
+
+        private final String name;
+
+        private volatile CachedAccessor cached;
+
+        Segment(String name) {
+            this.name = name;
+        }
+
+        Object read(Object target) {
+            if (target instanceof Map) {
+                return ((Map<?, ?>) target).get(this.name);
+            }
+            MethodHandle accessor = accessorFor(target.getClass());
+            return accessor != NO_ACCESSOR ? invoke(accessor, target) : null;
+        }
+
+        MethodHandle accessorFor(Class<?> type) {
+            CachedAccessor current = this.cached;
+            if (current != null && current.type == type) {
+                return current.accessor;
+            }
+            MethodHandle accessor = lookupAccessor(type, this.name);
+            this.cached = new CachedAccessor(type, accessor);
+            return accessor;
+        }
+    }
+
+    private static final class CachedAccessor {
+
+        private final Class<?> type;
+
+        private final MethodHandle accessor;
+
+        CachedAccessor(Class<?> type, MethodHandle accessor) {
+            this.type = type;
+            this.accessor = accessor;
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.kama.minispring.web.servlet.view.template;
+
+import com.kama.minispring.util.Assert;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的模板
+ * 模板语法是Mustache的子集: {{name}}输出HTML转义后的值, {{{name}}}或{{&name}}原样输出,
+ * {{#name}}...{{/name}}在值为真时渲染(集合和数组逐元素渲染), {{^name}}...{{/name}}在值为假或空时渲染,
+ * {{! comment}}为注释; 名称可用点号访问嵌套属性, 单独的点表示当前元素
+ * 源文本只在编译时解析一次, 得到由文本段、变量和区块组成的渲染计划, 渲染时把值直接写入Writer, 不拼接中间字符串
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public final class Template {
+
+    private static final String OPEN = "{{";
+
+    private static final String CLOSE = "}}";
+
+    private final String name;
+
+    private final Node[] nodes;
+
+    private Template(String name, Node[] nodes) {
+        this.name = name;
+        this.nodes = nodes;
+    }
+
+    /**
+     * 编译模板
+     * @param name 模板名称, 用于错误信息
+     * @param source 模板源文本
+     * @return 编译后的模板
+     * @throws IllegalArgumentException 模板语法错误时抛出
+     */
+    public static Template compile(String name, String source) {
+        Assert.notNull(source, "Template source must not be null");
+        return new Template(name, new Parser(name, source).parse());
+    }
+
+    /**
+     * 使用模型渲染模板
+     * @param model 模型数据, 可能为null
+     * @param out 输出目标
+     * @throws IOException 写出失败时抛出
+     */
+    public void render(Map<String, ?> model, Writer out) throws IOException {
+        Deque<Object> scopes = new ArrayDeque<>();
+        if (model != null) {
+            scopes.push(model);
+        }
+        renderNodes(this.nodes, scopes, out);
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    private static void renderNodes(Node[] nodes, Deque<Object> scopes, Writer out) throws IOException {
+        for (Node node : nodes) {
+            node.render(scopes, out);
+        }
+    }
+
+    /**
+     * 渲染计划中的一个节点
+     */
+    private abstract static class Node {
+
+        abstract void render(Deque<Object> scopes, Writer out) throws IOException;
+    }
+
+    private static final class TextNode extends Node {
+
+        private final char[] text;
+
+        TextNode(String text) {
+            this.text = text.toCharArray();
+        }
+
+        @Override
+        void render(Deque<Object> scopes, Writer out) throws IOException {
+            out.write(this.text);
+        }
+    }
+
+    private static final class VariableNode extends Node {
+
+        private final PropertyPath path;
+
+        private final boolean escape;
+
+        VariableNode(PropertyPath path, boolean escape) {
+            this.path = path;
+            this.escape = escape;
+        }
+
+        @Override
+        void render(Deque<Object> scopes, Writer out) throws IOException {
+            Object value = this.path.resolve(scopes);
+            if (value == null) {
+                return;
+            }
+            String text = (value instanceof String ? (String) value : String.valueOf(value));
+            if (this.escape) {
+                writeEscaped(text, out);
+            } else {
+                out.write(text);
+            }
+        }
+    }
+
+    private static final class SectionNode extends Node {
+
+        private final PropertyPath path;
+
+        private final boolean inverted;
+
+        private final Node[] children;
+
+        SectionNode(PropertyPath path, boolean inverted, Node[] children) {
+            this.path = path;
+            this.inverted = inverted;
+            this.children = children;
+        }
+
+        @Override
+        void render(Deque<Object> scopes, Writer out) throws IOException {
+            Object value = this.path.resolve(scopes);
+            if (this.inverted) {
+                if (isFalsy(value)) {
+                    renderNodes(this.children, scopes, out);
+                }
+                return;
+            }
+            if (isFalsy(value)) {
+                return;
+            }
+            if (value instanceof Boolean) {
+                renderNodes(this.children, scopes, out);
+            } else if (value instanceof Iterable) {
+                for (Object element : (Iterable<?>) value) {
+                    renderScoped(element, scopes, out);
+                }
+            } else if (value.getClass().isArray()) {
+                int length = Array.getLength(value);
+                for (int i = 0; i < length; i++) {
+                    renderScoped(Array.get(value, i), scopes, out);
+                }
+            } else {
+                renderScoped(value, scopes, out);
+            }
+        }
+
+        private void renderScoped(Object scope, Deque<Object> scopes, Writer out) throws IOException {
+            // ArrayDeque不接受null, 空元素不进入作用域但仍渲染一次
+            if (scope == null) {
+                renderNodes(this.children, scopes, out);
+                return;
+            }
+            scopes.push(scope);
+            try {
+                renderNodes(this.children, scopes, out);
+            } finally {
+                scopes.pop();
+            }
+        }
+
+        private static boolean isFalsy(Object value) {
+            if (value == null || Boolean.FALSE.equals(value)) {
+                return true;
+            }
+            if (value instanceof Collection) {
+                return ((Collection<?>) value).isEmpty();
+            }
+            if (value instanceof Map) {
+                return ((Map<?, ?>) value).isEmpty();
+            }
+            if (value instanceof CharSequence) {
+                return ((CharSequence) value).length() == 0;
+            }
+            return value.getClass().isArray() && Array.getLength(value) == 0;
+        }
+    }
+
+    /**
+     * 按连续的不需转义的区段写出, 避免逐字符调用Writer
+     */
+    static void writeEscaped(String text, Writer out) throws IOException {
+        int length = text.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            String replacement;
+            switch (text.charAt(i)) {
+                case '&':
+                    replacement = "&amp;";
+                    break;
+                case '<':
+                    replacement = "&lt;";
+                    break;
+                case '>':
+                    replacement = "&gt;";
+                    break;
+                case '"':
+                    replacement = "&quot;";
+                    break;
+                case '\'':
+                    replacement = "&#39;";
+                    break;
+                default:
+                    continue;
+            }
+            if (i > start) {
+                out.write(text, start, i - start);
+            }
+            out.write(replacement);
+            start = i + 1;
+        }
+        if (start < length) {
+            out.write(text, start, length - start);
+        }
+    }
+
+    /**
+     * 单遍扫描的模板解析器, 用栈匹配区块的开闭标签
+     */
+    private static final class Parser {
+
+        private final String name;
+
+        private final String source;
+
+        private final Deque<Section> sections = new ArrayDeque<>();
+
+        private int position;
+
+        Parser(String name, String source) {
+            this.name = name;
+            this.source = source;
+        }
+
+        Node[] parse() {
+            Section root = new Section(null, false);
+            this.sections.push(root);
+            StringBuilder text = new StringBuilder();
+            while (this.position < this.source.length()) {
+                int open = this.source.indexOf(OPEN, this.position);
+                if (open < 0) {
+                    text.append(this.source, this.position, this.source.length());
+                    break;
+                }
+                text.append(this.source, this.position, open);
+                boolean triple = this.source.startsWith("{{{", open);
+                String closeToken = triple ? "}}}" : CLOSE;
+                int contentStart = open + (triple ? 3 : 2);
+                int close = this.source.indexOf(closeToken, contentStart);
+                if (close < 0) {
+                    throw error("Unclosed tag", open);
+                }
+                String content = this.source.substring(contentStart, close).trim();
+                this.position = close + closeToken.length();
+                if (triple) {
+                    flushText(text);
+                    addNode(new VariableNode(PropertyPath.parse(requireName(content, open)), false));
+                    continue;
+                }
+                char type = content.isEmpty() ? ' ' : content.charAt(0);
+                if (type == '#' || type == '^' || type == '/' || type == '!') {
+                    stripStandaloneLine(text, open);
+                }
+                flushText(text);
+                switch (type) {
+                    case '!':
+                        break;
+                    case '&':
+                        addNode(new VariableNode(PropertyPath.parse(requireName(content.substring(1), open)), false));
+                        break;
+                    case '#':
+                    case '^':
+                        this.sections.push(new Section(requireName(content.substring(1), open), type == '^'));
+                        break;
+                    case '/':
+                        closeSection(requireName(content.substring(1), open), open);
+                        break;
+                    default:
+                        addNode(new VariableNode(PropertyPath.parse(requireName(content, open)), true));
+                }
+            }
+            flushText(text);
+            if (this.sections.size() > 1) {
+                throw error("Unclosed section '" + this.sections.peek().name + "'", this.source.length());
+            }
+            return root.toNodes();
+        }
+
+        private void closeSection(String sectionName, int offset) {
+            Section section = this.sections.peek();
+            if (section.name == null || !section.name.equals(sectionName)) {
+                throw error("Unexpected closing tag '" + sectionName + "'", offset);
+            }
+            this.sections.pop();
+            addNode(new SectionNode(PropertyPath.parse(section.name), section.inverted, section.toNodes()));
+        }
+
+        /**
+         * 区块和注释标签独占一行时, 去掉该行的缩进和换行, 使输出不留空行
+         */
+        private void stripStandaloneLine(StringBuilder text, int open) {
+            int lineStart = this.source.lastIndexOf('\n', open - 1) + 1;
+            if (!isBlank(this.source, lineStart, open)) {
+                return;
+            }
+            int end = this.position;
+            while (end < this.source.length() && (this.source.charAt(end) == ' ' || this.source.charAt(end) == '\t')) {
+                end++;
+            }
+            if (end < this.source.length() && this.source.charAt(end) == '\r') {
+                end++;
+            }
+            if (end < this.source.length() && this.source.charAt(end) != '\n') {
+                return;
+            }
+            // 行首到标签之间只有空白, 且标签之间不会有其他标签, 这些空白一定位于文本缓冲末尾
+            text.setLength(text.length() - (open - lineStart));
+            this.position = Math.min(end + 1, this.source.length());
+        }
+
+        private static boolean isBlank(CharSequence text, int from, int to) {
+            for (int i = from; i < to; i++) {
+                char c = text.charAt(i);
+                if (c != ' ' && c != '\t') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void flushText(StringBuilder text) {
+            if (text.length() > 0) {
+                addNode(new TextNode(text.toString()));
+                text.setLength(0);
+            }
+        }
+
+        private void addNode(Node node) {
+            this.sections.peek().nodes.add(node);
+        }
+
+        private String requireName(String content, int offset) {
+            String trimmed = content.trim();
+            if (trimmed.isEmpty()) {
+                throw error("Empty tag", offset);
+            }
+            return trimmed;
+        }
+
+        private IllegalArgumentException error(String message, int offset) {
+            int line = 1;
+            for (int i = 0; i < offset && i < this.source.length(); i++) {
+                if (this.source.charAt(i) == '\n') {
+                    line++;
+                }
+            }
+            return new IllegalArgumentException(message + " in template [" + this.name + "] at line " + line);
+        }
+    }
+
+    private static final class Section {
+
+        private final String name;
+
+        private final boolean inverted;
+
+        private final List<Node> nodes = new ArrayList<>();
+
+        Section(String name, boolean inverted) {
+            this.name = name;
+            this.inverted = inverted;
+        }
+
+        Node[] toNodes() {
+            return this.nodes.toArray(new Node[0]);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.kama.minispring.web.servlet.view.template;
+
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.web.servlet.View;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.util.Map;
+
+/**
+ * 基于编译模板的视图
+ * 直接把模型写入响应的Writer, 不依赖RequestDispatcher转发, 可在内嵌服务器中使用
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class TemplateView implements View {
+
+    private final Template template;
+
+    private final String contentType;
+
+    /**
+     * 构造函数
+     * @param template 编译后的模板
+     * @param contentType 响应的内容类型
+     */
+    public TemplateView(Template template, String contentType) {
+        Assert.notNull(template, "Template must not be null");
+        this.template = template;
+        this.contentType = contentType;
+    }
+
+    @Override
+    public String getContentType() {
+        return this.contentType;
+    }
+
+    @Override
+    public void render(Map<String, ?> model, HttpServletRequest request, HttpServletResponse response)
+            throws Exception {
+        if (getContentType() != null) {
+            response.setContentType(getContentType());
+        }
+        PrintWriter writer = response.getWriter();
+        this.template.render(model, writer);
+        writer.flush();
+    }
+
+    public Template getTemplate() {
+        return this.template;
+    }
+}
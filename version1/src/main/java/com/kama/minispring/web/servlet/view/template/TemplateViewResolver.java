@@ -0,0 +1,133 @@
+package com.kama.minispring.web.servlet.view.template;
+
+import com.kama.minispring.core.io.DefaultResourceLoader;
+import com.kama.minispring.core.io.Resource;
+import com.kama.minispring.core.io.ResourceLoader;
+import com.kama.minispring.util.Assert;
+import com.kama.minispring.web.servlet.View;
+import com.kama.minispring.web.servlet.ViewResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 模板视图解析器
+ * 按 前缀 + 视图名 + 后缀 加载模板并编译为{@link TemplateView}; 指定区域时依次尝试name_zh_CN、name_zh、name
+ * 本解析器每次调用都会加载并编译模板, 应由{@link com.kama.minispring.web.servlet.view.CachingViewResolver}包装使用
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class TemplateViewResolver implements ViewResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(TemplateViewResolver.class);
+
+    private ResourceLoader resourceLoader = new DefaultResourceLoader();
+
+    private String prefix = "classpath:templates/";
+
+    private String suffix = ".html";
+
+    private String contentType = "text/html;charset=UTF-8";
+
+    private Charset charset = StandardCharsets.UTF_8;
+
+    @Override
+    public View resolveViewName(String viewName) throws Exception {
+        return resolveViewName(viewName, null);
+    }
+
+    @Override
+    public View resolveViewName(String viewName, Locale locale) throws Exception {
+        for (String candidate : getCandidateNames(viewName, locale)) {
+            Resource resource = this.resourceLoader.getResource(this.prefix + candidate + this.suffix);
+            if (resource.exists()) {
+                Template template = Template.compile(candidate, readSource(resource));
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Compiled template [{}] from {}", candidate, resource.getDescription());
+                }
+                return new TemplateView(template, this.contentType);
+            }
+        }
+        return null;
+    }
+
+    private static List<String> getCandidateNames(String viewName, Locale locale) {
+        List<String> names = new ArrayList<>(3);
+        if (locale != null && !locale.getLanguage().isEmpty()) {
+            if (!locale.getCountry().isEmpty()) {
+                names.add(viewName + "_" + locale.getLanguage() + "_" + locale.getCountry());
+            }
+            names.add(viewName + "_" + locale.getLanguage());
+        }
+        names.add(viewName);
+        return names;
+    }
+
+    private String readSource(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            return new String(in.readAllBytes(), this.charset);
+        }
+    }
+
+    /**
+     * 设置加载模板的资源加载器
+     * @param resourceLoader 资源加载器
+     */
+    public void setResourceLoader(ResourceLoader resourceLoader) {
+        Assert.notNull(resourceLoader, "ResourceLoader must not be null");
+        this.resourceLoader = resourceLoader;
+    }
+
+    /**
+     * 设置模板位置的前缀, 默认为classpath:templates/
+     * @param prefix 前缀
+     */
+    public void setPrefix(String prefix) {
+        this.prefix = (prefix != null ? prefix : "");
+    }
+
+    public String getPrefix() {
+        return this.prefix;
+    }
+
+    /**
+     * 设置模板位置的后缀, 默认为.html
+     * @param suffix 后缀
+     */
+    public void setSuffix(String suffix) {
+        this.suffix = (suffix != null ? suffix : "");
+    }
+
+    public String getSuffix() {
+        return this.suffix;
+    }
+
+    /**
+     * 设置响应的内容类型
+     * @param contentType 内容类型
+     */
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return this.contentType;
+    }
+
+    /**
+     * 设置模板文件的字符集, 默认为UTF-8
+     * @param charset 字符集
+     */
+    public void setCharset(Charset charset) {
+        Assert.notNull(charset, "Charset must not be null");
+        this.charset = charset;
+    }
+}
@@ -0,0 +1,147 @@
+package com.kama.minispring.aop.autoproxy;
+
+import com.kama.minispring.aop.ClassFilter;
+import com.kama.minispring.aop.MethodBeforeAdvice;
+import com.kama.minispring.aop.MethodMatcher;
+import com.kama.minispring.aop.Pointcut;
+import com.kama.minispring.aop.aspectj.AspectJExpressionPointcut;
+import com.kama.minispring.aop.support.DefaultPointcutAdvisor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AdvisorAutoProxyCreator测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class AdvisorAutoProxyCreatorTest {
+
+    private AdvisorAutoProxyCreator creator;
+    private List<String> calls;
+
+    @BeforeEach
+    void setUp() {
+        creator = new AdvisorAutoProxyCreator();
+        calls = new ArrayList<>();
+    }
+
+    @Test
+    void shouldProxyBeanWithMatchingMethod() {
+        AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+        pointcut.setExpression("execution(* com.kama.minispring.aop.autoproxy.AdvisorAutoProxyCreatorTest.GreetingService.greet(..))");
+        creator.addAdvisor(new DefaultPointcutAdvisor(pointcut,
+                (MethodBeforeAdvice) (method, args, target) -> calls.add("before:" + method.getName())));
+
+        Object bean = creator.postProcessAfterInitialization(new GreetingServiceImpl(), "greetingService");
+
+        assertTrue(Proxy.isProxyClass(bean.getClass()));
+        GreetingService service = (GreetingService) bean;
+        assertEquals("hello kama", service.greet("kama"));
+        assertEquals("bye", service.farewell());
+        assertEquals(List.of("before:greet"), calls);
+    }
+
+    @Test
+    void shouldNotProxyBeanWithoutMatchingMethod() {
+        AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+        pointcut.setExpression("execution(* com.kama.minispring.aop.autoproxy.AdvisorAutoProxyCreatorTest.GreetingService.greet(..))");
+        creator.addAdvisor(new DefaultPointcutAdvisor(pointcut,
+                (MethodBeforeAdvice) (method, args, target) -> calls.add("before")));
+
+        PlainBean plainBean = new PlainBean();
+        assertSame(plainBean, creator.postProcessAfterInitialization(plainBean, "plainBean"));
+    }
+
+    @Test
+    void shouldCacheAdvisorMatchingPerClassIncludingNegativeResults() {
+        CountingPointcut matching = new CountingPointcut(GreetingServiceImpl.class);
+        creator.addAdvisor(new DefaultPointcutAdvisor(matching,
+                (MethodBeforeAdvice) (method, args, target) -> calls.add("before")));
+
+        for (int i = 0; i < 100; i++) {
+            creator.postProcessAfterInitialization(new GreetingServiceImpl(), "greeting" + i);
+            creator.postProcessAfterInitialization(new PlainBean(), "plain" + i);
+        }
+
+        assertEquals(2, matching.classFilterCalls.get());
+        assertSame(creator.getEligibleAdvisors(GreetingServiceImpl.class),
+                creator.getEligibleAdvisors(GreetingServiceImpl.class));
+        assertEquals(0, creator.getEligibleAdvisors(PlainBean.class).length);
+    }
+
+    @Test
+    void shouldNotProxyInfrastructureBeans() {
+        CountingPointcut pointcut = new CountingPointcut(Object.class);
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut,
+                (MethodBeforeAdvice) (method, args, target) -> calls.add("before"));
+        creator.addAdvisor(advisor);
+
+        assertSame(advisor, creator.postProcessAfterInitialization(advisor, "advisor"));
+    }
+
+    public interface GreetingService {
+        String greet(String name);
+
+        String farewell();
+    }
+
+    public static class GreetingServiceImpl implements GreetingService {
+        @Override
+        public String greet(String name) {
+            return "hello " + name;
+        }
+
+        @Override
+        public String farewell() {
+            return "bye";
+        }
+    }
+
+    public static class PlainBean {
+        public String value() {
+            return "plain";
+        }
+    }
+
+    /**
+     * 只匹配指定类的切点，并统计ClassFilter的调用次数
+     */
+    static class CountingPointcut implements Pointcut, ClassFilter, MethodMatcher {
+
+        final AtomicInteger classFilterCalls = new AtomicInteger();
+        private final Class<?> matchingClass;
+
+        CountingPointcut(Class<?> matchingClass) {
+            this.matchingClass = matchingClass;
+        }
+
+        @Override
+        public boolean matches(Class<?> targetClass) {
+            classFilterCalls.incrementAndGet();
+            return matchingClass.isAssignableFrom(targetClass);
+        }
+
+        @Override
+        public boolean matches(java.lang.reflect.Method method, Class<?> targetClass) {
+            return true;
+        }
+
+        @Override
+        public ClassFilter getClassFilter() {
+            return this;
+        }
+
+        @Override
+        public MethodMatcher getMethodMatcher() {
+            return this;
+        }
+    }
+}
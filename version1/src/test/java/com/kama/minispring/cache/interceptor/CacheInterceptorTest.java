@@ -0,0 +1,138 @@
+package com.kama.minispring.cache.interceptor;
+
+import com.kama.minispring.aop.ProxyFactory;
+import com.kama.minispring.cache.annotation.CacheEvict;
+import com.kama.minispring.cache.annotation.CachePut;
+import com.kama.minispring.cache.annotation.Cacheable;
+import com.kama.minispring.cache.support.TinyLfuCacheManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CacheInterceptor测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class CacheInterceptorTest {
+
+    private TinyLfuCacheManager cacheManager;
+    private PriceServiceImpl target;
+    private PriceService proxy;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new TinyLfuCacheManager();
+        target = new PriceServiceImpl();
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addAdvice(new CacheInterceptor(cacheManager));
+        proxy = (PriceService) proxyFactory.getProxy();
+    }
+
+    @Test
+    void shouldCacheResultByArgument() {
+        assertEquals(10, proxy.price("apple"));
+        assertEquals(10, proxy.price("apple"));
+        assertEquals(11, proxy.price("pear"));
+
+        assertEquals(2, target.calls.get());
+        assertEquals(1, cacheManager.getCache("prices").getStats().getHitCount());
+    }
+
+    @Test
+    void shouldUpdateCacheOnPut() {
+        proxy.price("apple");
+        proxy.update("apple");
+
+        assertEquals(100, proxy.price("apple"));
+        assertEquals(1, target.calls.get());
+    }
+
+    @Test
+    void shouldEvictCache() {
+        proxy.price("apple");
+        proxy.evict("apple");
+        proxy.price("apple");
+
+        assertEquals(2, target.calls.get());
+    }
+
+    @Test
+    void shouldClearAllEntries() {
+        proxy.price("apple");
+        proxy.price("pear");
+        proxy.clear();
+        proxy.price("apple");
+        proxy.price("pear");
+
+        assertEquals(4, target.calls.get());
+    }
+
+    @Test
+    void shouldNotInterceptPlainMethods() {
+        proxy.uncached("apple");
+        proxy.uncached("apple");
+
+        assertEquals(2, target.calls.get());
+    }
+
+    @Test
+    void shouldUseArgumentAsKeyForSingleArgument() {
+        Object[] args = {"apple"};
+
+        assertSame(args[0], SimpleKeyGenerator.generateKey(args));
+        assertSame(SimpleKey.EMPTY, SimpleKeyGenerator.generateKey(new Object[0]));
+        assertEquals(new SimpleKey("a", 1), SimpleKeyGenerator.generateKey(new Object[] {"a", 1}));
+        assertEquals(new SimpleKey((Object) null), SimpleKeyGenerator.generateKey(new Object[] {null}));
+    }
+
+    public interface PriceService {
+        int price(String item);
+
+        int update(String item);
+
+        void evict(String item);
+
+        void clear();
+
+        int uncached(String item);
+    }
+
+    public static class PriceServiceImpl implements PriceService {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Cacheable("prices")
+        @Override
+        public int price(String item) {
+            calls.incrementAndGet();
+            return 10 + (item.equals("apple") ? 0 : 1);
+        }
+
+        @CachePut("prices")
+        @Override
+        public int update(String item) {
+            return 100;
+        }
+
+        @CacheEvict("prices")
+        @Override
+        public void evict(String item) {
+        }
+
+        @CacheEvict(value = "prices", allEntries = true)
+        @Override
+        public void clear() {
+        }
+
+        @Override
+        public int uncached(String item) {
+            calls.incrementAndGet();
+            return 0;
+        }
+    }
+}
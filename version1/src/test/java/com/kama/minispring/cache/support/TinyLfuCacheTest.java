@@ -0,0 +1,125 @@
+package com.kama.minispring.cache.support;
+
+import com.kama.minispring.cache.Cache;
+import com.kama.minispring.cache.CacheStats;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TinyLfuCache测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class TinyLfuCacheTest {
+
+    @Test
+    void shouldStoreAndEvictEntries() {
+        TinyLfuCache cache = new TinyLfuCache("users");
+
+        cache.put("a", "1");
+        cache.put("b", null);
+
+        assertEquals("1", cache.get("a").get());
+        Cache.ValueWrapper nullValue = cache.get("b");
+        assertNotNull(nullValue);
+        assertNull(nullValue.get());
+        assertNull(cache.get("c"));
+
+        cache.evict("a");
+        assertNull(cache.get("a"));
+        cache.clear();
+        assertEquals(0, cache.estimatedSize());
+    }
+
+    @Test
+    void shouldBoundSizeAndRecordEvictions() {
+        TinyLfuCache cache = new TinyLfuCache("bounded",
+                TinyLfuCacheConfig.builder().maximumSize(100).concurrencyLevel(4).build());
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+
+        assertTrue(cache.estimatedSize() <= 100);
+        assertEquals(900, cache.getStats().getEvictionCount());
+    }
+
+    @Test
+    void shouldKeepFrequentlyUsedEntriesDuringScan() {
+        TinyLfuCache cache = new TinyLfuCache("hot",
+                TinyLfuCacheConfig.builder().maximumSize(100).concurrencyLevel(1).build());
+        for (int i = 0; i < 50; i++) {
+            cache.put("hot-" + i, i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.get("hot-" + i);
+            }
+        }
+
+        // 一次性的扫描流量不应冲刷掉热点数据
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("scan-" + i, i);
+        }
+
+        int retained = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get("hot-" + i) != null) {
+                retained++;
+            }
+        }
+        assertTrue(retained >= 45, "hot entries retained: " + retained);
+    }
+
+    @Test
+    void shouldBoundByWeight() {
+        TinyLfuCache cache = new TinyLfuCache("weighted", TinyLfuCacheConfig.builder()
+                .maximumWeight(100, (key, value) -> ((String) value).length())
+                .concurrencyLevel(1)
+                .build());
+
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, "0123456789");
+        }
+        cache.put("too-big", "x".repeat(200));
+
+        assertTrue(cache.weightedSize() <= 100);
+        assertNull(cache.get("too-big"));
+    }
+
+    @Test
+    void shouldExpireAfterWrite() {
+        AtomicLong now = new AtomicLong();
+        TinyLfuCache cache = new TinyLfuCache("ttl", TinyLfuCacheConfig.builder()
+                .expireAfterWrite(Duration.ofSeconds(10))
+                .ticker(now::get)
+                .build());
+
+        cache.put("k", "v");
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertNotNull(cache.get("k"));
+
+        now.addAndGet(Duration.ofSeconds(6).toNanos());
+        assertNull(cache.get("k"));
+    }
+
+    @Test
+    void shouldRecordHitsAndMisses() {
+        TinyLfuCache cache = new TinyLfuCache("stats");
+        cache.put("k", "v");
+
+        cache.get("k");
+        cache.get("k");
+        cache.get("missing");
+
+        CacheStats stats = cache.getStats();
+        assertEquals(2, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(2.0 / 3, stats.getHitRate(), 0.0001);
+    }
+}
@@ -0,0 +1,137 @@
+package com.kama.minispring.instrument;
+
+import com.kama.minispring.aop.Advice;
+import com.kama.minispring.aop.MethodBeforeAdvice;
+import com.kama.minispring.aop.MethodInterceptor;
+import com.kama.minispring.aop.aspectj.AspectJExpressionPointcut;
+import com.kama.minispring.aop.support.DefaultPointcutAdvisor;
+import com.kama.minispring.instrument.sample.GreetingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AspectWeavingTransformer测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class AspectWeavingTransformerTest {
+
+    private static final String SAMPLE_PACKAGE = "com.kama.minispring.instrument.sample.";
+
+    private Class<?> wovenClass;
+    private Object service;
+    private List<String> calls;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        WeavingRuntime.clearAdvisors();
+        WeavingClassLoader loader = new WeavingClassLoader(getClass().getClassLoader(), List.of(SAMPLE_PACKAGE));
+        wovenClass = loader.loadClass(GreetingService.class.getName());
+        service = wovenClass.getDeclaredConstructor().newInstance();
+        calls = new ArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        WeavingRuntime.clearAdvisors();
+    }
+
+    @Test
+    void shouldLoadWovenClassWithoutAdvice() throws Throwable {
+        assertNotSame(GreetingService.class, wovenClass);
+        assertNotNull(wovenClass.getDeclaredMethod("greet" + WeavingRuntime.WOVEN_METHOD_SUFFIX, String.class));
+        assertEquals("hello kama", call("greet", "kama"));
+        assertEquals(5, call("add", 2, 3));
+    }
+
+    @Test
+    void shouldApplyAroundAdviceIncludingSelfInvocation() throws Throwable {
+        addAdvisor("execution(* " + SAMPLE_PACKAGE + "GreetingService.greet(..))",
+                (MethodInterceptor) invocation -> "[" + invocation.proceed() + "]");
+
+        assertEquals("[hello kama]", call("greet", "kama"));
+        // 代理方式无法拦截自调用, 织入后自调用同样经过通知
+        assertEquals("[hello kama], [hello kama]", call("greetTwice", "kama"));
+    }
+
+    @Test
+    void shouldPassPrimitiveArgumentsAndReturnValues() throws Throwable {
+        addAdvisor("execution(* " + SAMPLE_PACKAGE + "GreetingService.*(int, int))",
+                (MethodBeforeAdvice) (method, args, target) -> calls.add(method.getName() + args[0] + args[1]));
+        addAdvisor("execution(long " + SAMPLE_PACKAGE + "GreetingService.increment(long))",
+                (MethodInterceptor) invocation -> (Long) invocation.proceed() * 10);
+
+        assertEquals(5, call("add", 2, 3));
+        assertEquals(70L, call("increment", 7L));
+        assertEquals(List.of("add23"), calls);
+    }
+
+    @Test
+    void shouldAdviseStaticMethods() throws Throwable {
+        addAdvisor("execution(static * " + SAMPLE_PACKAGE + "GreetingService.shout(..))",
+                (MethodBeforeAdvice) (method, args, target) -> calls.add("static:" + (target == null)));
+
+        assertEquals("KAMA", call("shout", "kama"));
+        assertEquals(List.of("static:true"), calls);
+    }
+
+    @Test
+    void shouldPropagateOriginalException() {
+        addAdvisor("execution(* " + SAMPLE_PACKAGE + "GreetingService.fail(..))",
+                (MethodBeforeAdvice) (method, args, target) -> calls.add("before"));
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> call("fail", "boom"));
+        assertEquals("boom", ex.getMessage());
+        assertEquals(List.of("before"), calls);
+    }
+
+    @Test
+    void shouldPickUpAdvisorsRegisteredAfterFirstCall() throws Throwable {
+        assertEquals("hello kama", call("greet", "kama"));
+
+        addAdvisor("execution(* " + SAMPLE_PACKAGE + "GreetingService.greet(..))",
+                (MethodBeforeAdvice) (method, args, target) -> calls.add("before"));
+        assertEquals("hello kama", call("greet", "kama"));
+        assertEquals(List.of("before"), calls);
+
+        WeavingRuntime.clearAdvisors();
+        assertEquals("hello kama", call("greet", "kama"));
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    void shouldSkipClassesOutsideIncludePrefixes() {
+        AspectWeavingTransformer transformer = new AspectWeavingTransformer(List.of(SAMPLE_PACKAGE));
+        assertTrue(transformer.isIncluded("com/kama/minispring/instrument/sample/GreetingService"));
+        assertFalse(transformer.isIncluded("com/kama/minispring/aop/ProxyFactory"));
+        assertNull(transformer.transform(null, "com/kama/minispring/aop/ProxyFactory", null, null, new byte[0]));
+    }
+
+    private void addAdvisor(String expression, Advice advice) {
+        AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+        pointcut.setExpression(expression);
+        WeavingRuntime.addAdvisor(new DefaultPointcutAdvisor(pointcut, advice));
+    }
+
+    private Object call(String name, Object... args) throws Throwable {
+        for (Method method : wovenClass.getDeclaredMethods()) {
+            if (method.getName().equals(name) && method.getParameterCount() == args.length) {
+                try {
+                    return method.invoke(service, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getTargetException();
+                }
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+}
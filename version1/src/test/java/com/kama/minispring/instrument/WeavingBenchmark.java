@@ -0,0 +1,93 @@
+package com.kama.minispring.instrument;
+
+import com.kama.minispring.aop.MethodInterceptor;
+import com.kama.minispring.aop.ProxyFactory;
+import com.kama.minispring.aop.aspectj.AspectJExpressionPointcut;
+import com.kama.minispring.aop.support.DefaultPointcutAdvisor;
+import com.kama.minispring.instrument.sample.GreetingService;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+/**
+ * 织入与Cglib代理的调用开销对比
+ * 非单元测试, test-compile 后以测试类路径手动运行 main 方法,
+ * Cglib 需要 --add-opens java.base/java.lang=ALL-UNNAMED
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class WeavingBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+    private static final int CALLS_PER_ROUND = 2_000_000;
+
+    private static final String EXPRESSION =
+            "execution(* com.kama.minispring.instrument.sample.GreetingService.add(..))";
+
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Throwable {
+        MethodInterceptor passThrough = invocation -> invocation.proceed();
+
+        // Cglib代理路径
+        ProxyFactory proxyFactory = new ProxyFactory(new GreetingService());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(new DefaultPointcutAdvisor(pointcut(), passThrough));
+        GreetingService proxy = (GreetingService) proxyFactory.getProxy();
+
+        // 织入路径, 通过MethodHandle调用以避免反射开销干扰结果
+        WeavingRuntime.addAdvisor(new DefaultPointcutAdvisor(pointcut(), passThrough));
+        WeavingClassLoader loader = new WeavingClassLoader(WeavingBenchmark.class.getClassLoader(),
+                List.of("com.kama.minispring.instrument.sample."));
+        Class<?> wovenClass = loader.loadClass(GreetingService.class.getName());
+        Object woven = wovenClass.getDeclaredConstructor().newInstance();
+        MethodHandle wovenAdd = MethodHandles.publicLookup()
+                .findVirtual(wovenClass, "add", MethodType.methodType(int.class, int.class, int.class))
+                .bindTo(woven)
+                .asType(MethodType.methodType(int.class, int.class, int.class));
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runProxy(proxy);
+            runWoven(wovenAdd);
+        }
+        long proxyNanos = 0;
+        long wovenNanos = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            proxyNanos += runProxy(proxy);
+            wovenNanos += runWoven(wovenAdd);
+        }
+        long calls = (long) MEASURE_ROUNDS * CALLS_PER_ROUND;
+        System.out.printf("cglib proxy : %.1f ns/call%n", (double) proxyNanos / calls);
+        System.out.printf("load-time weaving : %.1f ns/call%n", (double) wovenNanos / calls);
+    }
+
+    private static AspectJExpressionPointcut pointcut() {
+        AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+        pointcut.setExpression(EXPRESSION);
+        return pointcut;
+    }
+
+    private static long runProxy(GreetingService proxy) {
+        long start = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < CALLS_PER_ROUND; i++) {
+            sum += proxy.add(i, 1);
+        }
+        sink = sum;
+        return System.nanoTime() - start;
+    }
+
+    private static long runWoven(MethodHandle wovenAdd) throws Throwable {
+        long start = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < CALLS_PER_ROUND; i++) {
+            sum += (int) wovenAdd.invokeExact(i, 1);
+        }
+        sink = sum;
+        return System.nanoTime() - start;
+    }
+}
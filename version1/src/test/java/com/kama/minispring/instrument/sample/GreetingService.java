@@ -0,0 +1,37 @@
+package com.kama.minispring.instrument.sample;
+
+/**
+ * 织入测试使用的示例服务
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class GreetingService {
+
+    private int counter;
+
+    public String greet(String name) {
+        return "hello " + name;
+    }
+
+    public String greetTwice(String name) {
+        return greet(name) + ", " + greet(name);
+    }
+
+    public int add(int a, int b) {
+        return a + b;
+    }
+
+    public long increment(long delta) {
+        counter += delta;
+        return counter;
+    }
+
+    public void fail(String message) {
+        throw new IllegalStateException(message);
+    }
+
+    public static String shout(String text) {
+        return text.toUpperCase();
+    }
+}
@@ -0,0 +1,265 @@
+package com.kama.minispring.jdbc.core;
+
+import com.kama.minispring.jdbc.DataAccessException;
+import com.kama.minispring.jdbc.datasource.DataSourceUtils;
+import com.kama.minispring.tx.DataSourceTransactionManager;
+import com.kama.minispring.tx.DataSourceTransactionManager.ConnectionHolder;
+import com.kama.minispring.tx.DefaultTransactionDefinition;
+import com.kama.minispring.tx.TransactionStatus;
+import com.kama.minispring.tx.TransactionSynchronizationManager;
+import com.kama.minispring.tx.TransactionTimedOutException;
+import com.kama.minispring.tx.UnexpectedRollbackException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * JdbcTemplate测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class JdbcTemplateTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.clear();
+    }
+
+    @Test
+    public void testQueryMapsRowsAndClosesResources() throws SQLException {
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getString(1)).thenReturn("alice", "bob");
+        jdbcTemplate.setFetchSize(50);
+
+        List<String> names = jdbcTemplate.query("select name from users where age > ?",
+                (rs, rowNum) -> rs.getString(1), 18);
+
+        assertEquals(List.of("alice", "bob"), names);
+        verify(preparedStatement).setObject(1, 18);
+        verify(preparedStatement).setFetchSize(50);
+        verify(resultSet).close();
+        verify(preparedStatement).close();
+        verify(connection).close();
+    }
+
+    @Test
+    public void testQueryForObjectRequiresSingleRow() throws SQLException {
+        when(resultSet.next()).thenReturn(false);
+
+        assertThrows(DataAccessException.class,
+                () -> jdbcTemplate.queryForObject("select 1", (rs, rowNum) -> 1));
+    }
+
+    @Test
+    public void testUsesTransactionBoundConnection() throws SQLException {
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+
+        jdbcTemplate.update("update users set name = ?", "alice");
+        jdbcTemplate.update("update users set name = ?", "bob");
+
+        verify(dataSource, times(1)).getConnection();
+        verify(connection, never()).close();
+        transactionManager.commit(status);
+        verify(connection).commit();
+    }
+
+    @Test
+    public void testAppliesRemainingTransactionTimeoutToStatements() throws SQLException {
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionManager.setStatementCacheSize(16);
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setTimeout(30);
+        TransactionStatus status = transactionManager.getTransaction(definition);
+
+        jdbcTemplate.update("update users set name = ?", "alice");
+
+        verify(preparedStatement).setQueryTimeout(intThat(seconds -> seconds > 0 && seconds <= 30));
+        // 归还缓存时清除查询超时, 之后没有超时的事务复用语句时不受影响
+        verify(preparedStatement).setQueryTimeout(0);
+        transactionManager.commit(status);
+        verify(connection).commit();
+    }
+
+    @Test
+    public void testTimedOutTransactionRejectsStatementsAndRollsBack() throws SQLException {
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setTimeout(30);
+        TransactionStatus status = transactionManager.getTransaction(definition);
+        ConnectionHolder holder = DataSourceUtils.getConnectionHolder(dataSource);
+        holder.setTimeoutInMillis(0);
+
+        assertThrows(TransactionTimedOutException.class,
+                () -> jdbcTemplate.update("update users set name = ?", "alice"));
+        verify(preparedStatement, never()).executeUpdate();
+        verify(preparedStatement).close();
+        assertFalse(holder.isOpen());
+
+        assertThrows(UnexpectedRollbackException.class, () -> transactionManager.commit(status));
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+    }
+
+    @Test
+    public void testReusesCachedStatementsWithinTransaction() throws SQLException {
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionManager.setStatementCacheSize(16);
+        TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+
+        jdbcTemplate.update("update users set name = ?", "alice");
+        jdbcTemplate.update("update users set name = ?", "bob");
+
+        verify(connection, times(1)).prepareStatement("update users set name = ?");
+        verify(preparedStatement, never()).close();
+        assertEquals(1, transactionManager.getStatementCacheStats().getHitCount());
+        assertEquals(1, transactionManager.getStatementCacheStats().getMissCount());
+
+        transactionManager.commit(status);
+        verify(connection).close();
+        // 连接归还连接池后没有被物理关闭, 语句缓存随连接保留, 下一个事务直接复用
+        verify(preparedStatement, never()).close();
+        assertEquals(1, transactionManager.getCachedConnectionCount());
+
+        TransactionStatus next = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        jdbcTemplate.update("update users set name = ?", "carol");
+        transactionManager.commit(next);
+        verify(connection, times(1)).prepareStatement("update users set name = ?");
+        assertEquals(2, transactionManager.getStatementCacheStats().getHitCount());
+
+        // 连接池淘汰连接时关闭其上的语句
+        transactionManager.evictStatementCache(connection);
+        verify(preparedStatement).close();
+        assertEquals(0, transactionManager.getCachedConnectionCount());
+    }
+
+    @Test
+    public void testDropsStatementCacheWhenConnectionIsPhysicallyClosed() throws SQLException {
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionManager.setStatementCacheSize(16);
+        doAnswer(inv -> when(connection.isClosed()).thenReturn(true)).when(connection).close();
+        TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+
+        jdbcTemplate.update("update users set name = ?", "alice");
+        transactionManager.commit(status);
+
+        verify(preparedStatement).close();
+        assertEquals(0, transactionManager.getCachedConnectionCount());
+    }
+
+    @Test
+    public void testStreamClosedOnOtherThreadReturnsStatementToCache() throws Exception {
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionManager.setStatementCacheSize(16);
+        TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        when(resultSet.next()).thenReturn(false);
+
+        Stream<Integer> stream = jdbcTemplate.queryForStream("select id from t", (rs, rowNum) -> rs.getInt(1));
+        Thread closer = new Thread(stream::close);
+        closer.start();
+        closer.join(5_000);
+
+        verify(preparedStatement, never()).close();
+        jdbcTemplate.query("select id from t", (rs, rowNum) -> rs.getInt(1));
+        verify(connection, times(1)).prepareStatement("select id from t");
+        transactionManager.commit(status);
+    }
+
+    @Test
+    public void testBatchUpdateSplitsIntoBatches() throws SQLException {
+        when(preparedStatement.executeBatch()).thenReturn(new int[]{1, 1}, new int[]{1, 1}, new int[]{1});
+        List<Integer> ids = IntStream.range(0, 5).boxed().collect(Collectors.toList());
+
+        int[][] result = jdbcTemplate.batchUpdate("insert into t values (?)", ids, 2,
+                (ps, id) -> ps.setInt(1, id));
+
+        assertEquals(3, result.length);
+        verify(preparedStatement, times(5)).addBatch();
+        verify(preparedStatement, times(3)).executeBatch();
+        verify(connection, times(1)).prepareStatement(anyString());
+    }
+
+    @Test
+    public void testBatchUpdateWithDefaultBatchSize() throws SQLException {
+        jdbcTemplate.setBatchSize(3);
+        when(preparedStatement.executeBatch()).thenReturn(new int[]{1, 1, 1}, new int[]{2});
+
+        int[] result = jdbcTemplate.batchUpdate("update t set v = ? where id = ?",
+                Arrays.asList(new Object[]{"a", 1}, new Object[]{"b", 2}, new Object[]{"c", 3}, new Object[]{"d", 4}));
+
+        assertArrayEquals(new int[]{1, 1, 1, 2}, result);
+        verify(preparedStatement).setObject(1, "d");
+        verify(preparedStatement).setObject(2, 4);
+    }
+
+    @Test
+    public void testStreamReadsLazilyAndClosesOnStreamClose() throws SQLException {
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        when(resultSet.getInt(1)).thenReturn(1, 2, 3);
+
+        List<Integer> firstTwo;
+        try (Stream<Integer> stream = jdbcTemplate.queryForStream("select id from t", (rs, rowNum) -> rs.getInt(1))) {
+            verify(resultSet, never()).next();
+            firstTwo = stream.limit(2).collect(Collectors.toList());
+            verify(resultSet, never()).close();
+        }
+
+        assertEquals(List.of(1, 2), firstTwo);
+        verify(resultSet, times(2)).next();
+        verify(resultSet).close();
+        verify(preparedStatement).close();
+        verify(connection).close();
+    }
+
+    @Test
+    public void testFailedQueryIsTranslated() throws SQLException {
+        when(preparedStatement.executeQuery()).thenThrow(new SQLException("syntax error"));
+
+        DataAccessException ex = assertThrows(DataAccessException.class,
+                () -> jdbcTemplate.queryForStream("selec 1", (rs, rowNum) -> 1));
+        assertTrue(ex.getMessage().contains("selec 1"));
+        verify(preparedStatement).close();
+        verify(connection).close();
+    }
+}
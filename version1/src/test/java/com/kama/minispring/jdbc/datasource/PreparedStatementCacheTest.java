@@ -0,0 +1,105 @@
+package com.kama.minispring.jdbc.datasource;
+
+import com.kama.minispring.cache.CacheStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PreparedStatementCache测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class PreparedStatementCacheTest {
+
+    @Mock
+    private Connection connection;
+
+    private PreparedStatementCache.Counters counters;
+
+    private PreparedStatementCache cache;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> mock(PreparedStatement.class));
+        counters = new PreparedStatementCache.Counters();
+        cache = new PreparedStatementCache(connection, 2, counters);
+    }
+
+    @Test
+    public void testReusesReleasedStatement() throws SQLException {
+        PreparedStatement first = cache.prepare("select 1");
+        assertTrue(cache.release(first));
+        PreparedStatement second = cache.prepare("select 1");
+
+        assertSame(first, second);
+        verify(first).clearParameters();
+        verify(first, never()).close();
+        verify(connection, times(1)).prepareStatement("select 1");
+        assertEquals(new CacheStats(1, 1, 0).toString(), cache.getStats().toString());
+    }
+
+    @Test
+    public void testStatementInUseIsNotSharedAndNotCached() throws SQLException {
+        PreparedStatement cached = cache.prepare("select 1");
+        PreparedStatement extra = cache.prepare("select 1");
+
+        assertNotSame(cached, extra);
+        assertFalse(cache.release(extra));
+        assertTrue(cache.release(cached));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedAndClosesIt() throws SQLException {
+        PreparedStatement a = cache.prepare("a");
+        cache.release(a);
+        PreparedStatement b = cache.prepare("b");
+        cache.release(b);
+        // 访问a使b成为最久未使用的语句
+        cache.release(cache.prepare("a"));
+        PreparedStatement c = cache.prepare("c");
+        cache.release(c);
+
+        verify(b).close();
+        verify(a, never()).close();
+        assertEquals(2, cache.size());
+        assertEquals(1, counters.snapshot().getEvictionCount());
+    }
+
+    @Test
+    public void testEvictedStatementInUseIsClosedOnRelease() throws SQLException {
+        PreparedStatement a = cache.prepare("a");
+        cache.release(cache.prepare("b"));
+        cache.release(cache.prepare("c"));
+
+        verify(a, never()).close();
+        assertTrue(cache.release(a));
+        verify(a).close();
+    }
+
+    @Test
+    public void testCloseClosesAllStatements() throws SQLException {
+        PreparedStatement a = cache.prepare("a");
+        cache.release(a);
+        PreparedStatement b = cache.prepare("b");
+
+        cache.close();
+        verify(a).close();
+        verify(b, never()).close();
+
+        cache.release(b);
+        verify(b).close();
+        assertThrows(IllegalStateException.class, () -> cache.prepare("a"));
+    }
+}
@@ -0,0 +1,182 @@
+package com.kama.minispring.jdbc.datasource;
+
+import com.kama.minispring.tx.DataSourceTransactionManager;
+import com.kama.minispring.tx.DefaultTransactionDefinition;
+import com.kama.minispring.tx.TransactionDefinition;
+import com.kama.minispring.tx.TransactionException;
+import com.kama.minispring.tx.TransactionStatus;
+import com.kama.minispring.tx.TransactionSynchronizationManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ReadWriteRoutingDataSource测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class ReadWriteRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica1;
+
+    @Mock
+    private DataSource replica2;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection replicaConnection1;
+
+    @Mock
+    private Connection replicaConnection2;
+
+    private final AtomicLong now = new AtomicLong(1_000L);
+
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica1.getConnection()).thenReturn(replicaConnection1);
+        when(replica2.getConnection()).thenReturn(replicaConnection2);
+        routingDataSource = new ReadWriteRoutingDataSource(primary, List.of(replica1, replica2));
+        routingDataSource.setRecoveryInterval(Duration.ofSeconds(10));
+        routingDataSource.setClock(now::get);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.clear();
+    }
+
+    @Test
+    public void testTransactionManagerRoutesByReadOnlyFlag() throws SQLException {
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routingDataSource);
+
+        DefaultTransactionDefinition readOnly = new DefaultTransactionDefinition();
+        readOnly.setReadOnly(true);
+        TransactionStatus status = transactionManager.getTransaction(readOnly);
+        transactionManager.commit(status);
+        verify(primary, never()).getConnection();
+        verify(replicaConnection1).commit();
+
+        TransactionStatus writeStatus = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        transactionManager.commit(writeStatus);
+        verify(primaryConnection).commit();
+    }
+
+    @Test
+    public void testReadOnlyFlagResetWhenBeginFails() throws SQLException {
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routingDataSource);
+        doThrow(new SQLException("setAutoCommit failed")).when(replicaConnection1).setAutoCommit(false);
+
+        DefaultTransactionDefinition readOnly = new DefaultTransactionDefinition();
+        readOnly.setReadOnly(true);
+        assertThrows(TransactionException.class, () -> transactionManager.getTransaction(readOnly));
+
+        assertFalse(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+        verify(replicaConnection1).close();
+        // 之后的非事务调用回到主库
+        assertSame(primaryConnection, routingDataSource.getConnection());
+    }
+
+    @Test
+    public void testReadOnlyFlagRestoredAfterRequiresNewAndNested() throws SQLException {
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routingDataSource);
+        DefaultTransactionDefinition readOnly = new DefaultTransactionDefinition();
+        readOnly.setReadOnly(true);
+        TransactionStatus outer = transactionManager.getTransaction(readOnly);
+
+        DefaultTransactionDefinition requiresNew = new DefaultTransactionDefinition();
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        TransactionStatus inner = transactionManager.getTransaction(requiresNew);
+        assertFalse(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+        transactionManager.commit(inner);
+        verify(primaryConnection).commit();
+        assertTrue(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+
+        DefaultTransactionDefinition nested = new DefaultTransactionDefinition();
+        nested.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        TransactionStatus nestedStatus = transactionManager.getTransaction(nested);
+        assertTrue(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+        transactionManager.commit(nestedStatus);
+        assertTrue(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+
+        transactionManager.commit(outer);
+        verify(replicaConnection1).commit();
+        assertFalse(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+    }
+
+    @Test
+    public void testRoundRobinAcrossReplicas() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(replicaConnection1, routingDataSource.getConnection());
+        assertSame(replicaConnection2, routingDataSource.getConnection());
+        assertSame(replicaConnection1, routingDataSource.getConnection());
+    }
+
+    @Test
+    public void testUsesPrimaryOutsideReadOnlyTransaction() throws SQLException {
+        assertSame(primaryConnection, routingDataSource.getConnection());
+        verifyNoInteractions(replica1, replica2);
+    }
+
+    @Test
+    public void testFailingReplicaIsMarkedDownUntilRecovery() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(replica1.getConnection()).thenThrow(new SQLException("replica1 down"));
+
+        assertSame(replicaConnection2, routingDataSource.getConnection());
+        assertFalse(routingDataSource.isReplicaAvailable(0));
+        assertSame(replicaConnection2, routingDataSource.getConnection());
+        assertSame(replicaConnection2, routingDataSource.getConnection());
+        verify(replica1, times(1)).getConnection();
+
+        // 恢复间隔结束后重新尝试
+        now.addAndGet(10_000L);
+        assertTrue(routingDataSource.isReplicaAvailable(0));
+    }
+
+    @Test
+    public void testFallbackToPrimaryWhenAllReplicasDown() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        routingDataSource.markReplicaDown(0);
+        routingDataSource.markReplicaDown(1);
+
+        assertSame(primaryConnection, routingDataSource.getConnection());
+
+        routingDataSource.setFallbackToPrimary(false);
+        assertThrows(SQLException.class, () -> routingDataSource.getConnection());
+    }
+
+    @Test
+    public void testProbeRestoresHealthyReplica() throws SQLException {
+        when(replicaConnection1.isValid(anyInt())).thenReturn(true);
+        routingDataSource.markReplicaDown(0);
+
+        routingDataSource.probeReplicas();
+
+        assertTrue(routingDataSource.isReplicaAvailable(0));
+        verify(replicaConnection1).close();
+    }
+}
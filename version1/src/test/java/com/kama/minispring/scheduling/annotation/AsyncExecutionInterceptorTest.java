@@ -0,0 +1,218 @@
+package com.kama.minispring.scheduling.annotation;
+
+import com.kama.minispring.aop.ProxyFactory;
+import com.kama.minispring.scheduling.concurrent.VirtualThreadTaskExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AsyncExecutionInterceptor测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class AsyncExecutionInterceptorTest {
+
+    @Test
+    void shouldRunVoidMethodOnAnotherThread() throws Exception {
+        ReportService proxy = createProxy(new AsyncExecutionInterceptor());
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Thread> worker = new AtomicReference<>();
+
+        proxy.fireAndForget(() -> {
+            worker.set(Thread.currentThread());
+            latch.countDown();
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), worker.get());
+    }
+
+    @Test
+    void shouldReturnCompletableFutureWithResult() throws Exception {
+        ReportService proxy = createProxy(new AsyncExecutionInterceptor());
+
+        CompletableFuture<String> future = proxy.render("daily");
+
+        assertEquals("report:daily", future.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldUnwrapTargetExceptionIntoFuture() {
+        ReportService proxy = createProxy(new AsyncExecutionInterceptor());
+
+        Future<String> future = proxy.fail();
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(ex.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void shouldUseQualifiedExecutor() throws Exception {
+        AtomicInteger submitted = new AtomicInteger();
+        AsyncExecutionInterceptor interceptor = new AsyncExecutionInterceptor();
+        interceptor.registerExecutor("reports", task -> {
+            submitted.incrementAndGet();
+            task.run();
+        });
+        ReportService proxy = createProxy(interceptor);
+
+        assertEquals("archived:q1", proxy.archive("q1").get(5, TimeUnit.SECONDS));
+        assertEquals(1, submitted.get());
+    }
+
+    @Test
+    void shouldInvokeNonAsyncMethodSynchronously() {
+        ReportService proxy = createProxy(new AsyncExecutionInterceptor());
+
+        assertSame(Thread.currentThread(), proxy.currentThread());
+    }
+
+    @Test
+    void shouldApplyTaskDecorator() throws Exception {
+        ThreadLocal<String> context = new ThreadLocal<>();
+        AsyncExecutionInterceptor interceptor = new AsyncExecutionInterceptor();
+        interceptor.setTaskDecorator(task -> {
+            String captured = context.get();
+            return () -> {
+                context.set(captured);
+                try {
+                    task.run();
+                } finally {
+                    context.remove();
+                }
+            };
+        });
+        ReportService proxy = createProxy(interceptor);
+        AtomicReference<String> seen = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        context.set("tenant-a");
+        try {
+            proxy.fireAndForget(() -> {
+                seen.set(context.get());
+                latch.countDown();
+            });
+        } finally {
+            context.remove();
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals("tenant-a", seen.get());
+    }
+
+    @Test
+    void shouldLimitConcurrency() throws Exception {
+        VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor();
+        executor.setConcurrencyLimit(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(8);
+
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                int current = running.incrementAndGet();
+                maxRunning.accumulateAndGet(current, Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    void shouldRejectUnsupportedReturnType() {
+        ReportService proxy = createProxy(new AsyncExecutionInterceptor());
+
+        assertThrows(IllegalStateException.class, proxy::badReturnType);
+    }
+
+    @Test
+    void shouldRejectObjectReturnType() {
+        ReportService proxy = createProxy(new AsyncExecutionInterceptor());
+
+        assertThrows(IllegalStateException.class, proxy::objectReturnType);
+    }
+
+    private ReportService createProxy(AsyncExecutionInterceptor interceptor) {
+        ProxyFactory proxyFactory = new ProxyFactory(new ReportServiceImpl());
+        proxyFactory.addAdvice(interceptor);
+        return (ReportService) proxyFactory.getProxy();
+    }
+
+    public interface ReportService {
+        void fireAndForget(Runnable callback);
+
+        CompletableFuture<String> render(String name);
+
+        Future<String> fail();
+
+        CompletableFuture<String> archive(String name);
+
+        Thread currentThread();
+
+        String badReturnType();
+
+        Object objectReturnType();
+    }
+
+    public static class ReportServiceImpl implements ReportService {
+
+        @Async
+        @Override
+        public void fireAndForget(Runnable callback) {
+            callback.run();
+        }
+
+        @Async
+        @Override
+        public CompletableFuture<String> render(String name) {
+            return CompletableFuture.completedFuture("report:" + name);
+        }
+
+        @Async
+        @Override
+        public Future<String> fail() {
+            throw new IllegalStateException("boom");
+        }
+
+        @Async("reports")
+        @Override
+        public CompletableFuture<String> archive(String name) {
+            return CompletableFuture.completedFuture("archived:" + name);
+        }
+
+        @Override
+        public Thread currentThread() {
+            return Thread.currentThread();
+        }
+
+        @Async
+        @Override
+        public String badReturnType() {
+            return "sync";
+        }
+
+        @Async
+        @Override
+        public Object objectReturnType() {
+            return "sync";
+        }
+    }
+}
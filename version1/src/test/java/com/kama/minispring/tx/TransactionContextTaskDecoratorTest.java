@@ -0,0 +1,176 @@
+package com.kama.minispring.tx;
+
+import com.kama.minispring.jdbc.core.JdbcTemplate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * TransactionContextTaskDecorator测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class TransactionContextTaskDecoratorTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    private DataSourceTransactionManager transactionManager;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        TransactionSynchronizationManager.clear();
+    }
+
+    @Test
+    public void testJoinedTasksShareConnectionSerially() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(statement.executeUpdate()).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            inFlight.decrementAndGet();
+            return 1;
+        });
+        TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        TransactionContextTaskDecorator decorator = new TransactionContextTaskDecorator();
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> jdbcTemplate.update("update t set a = 1"),
+                    decorator.decorate(executor)));
+        }
+        for (CompletableFuture<Integer> future : futures) {
+            assertEquals(1, future.get(5, TimeUnit.SECONDS));
+        }
+        transactionManager.commit(status);
+
+        verify(dataSource, times(1)).getConnection();
+        verify(connection, times(8)).prepareStatement("update t set a = 1");
+        verify(connection).commit();
+        assertEquals(1, maxInFlight.get());
+        assertFalse(TransactionSynchronizationManager.hasResource(dataSource));
+    }
+
+    @Test
+    public void testJoinedTaskFailsAfterCallerTransactionCompleted() throws Exception {
+        TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        CountDownLatch committed = new CountDownLatch(1);
+        Runnable task = new TransactionContextTaskDecorator().decorate(() -> {
+            try {
+                committed.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            jdbcTemplate.update("update t set a = 1");
+        });
+        CompletableFuture<Void> future = CompletableFuture.runAsync(task, executor);
+        transactionManager.commit(status);
+        committed.countDown();
+
+        CompletionException ex = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(IllegalTransactionStateException.class, ex.getCause());
+        verify(connection, never()).prepareStatement(anyString());
+    }
+
+    @Test
+    public void testCommitWaitsForJoinedStatement() throws Exception {
+        CountDownLatch executing = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        when(statement.executeUpdate()).thenAnswer(invocation -> {
+            executing.countDown();
+            finish.await();
+            return 1;
+        });
+        TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        CompletableFuture<Integer> update = CompletableFuture.supplyAsync(
+                () -> jdbcTemplate.update("update t set a = 1"),
+                new TransactionContextTaskDecorator().decorate(executor));
+        assertTrue(executing.await(5, TimeUnit.SECONDS));
+
+        ExecutorService committer = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<Void> commit = CompletableFuture.runAsync(() -> {
+                TransactionSynchronizationManager.restore(null);
+                transactionManager.commit(status);
+            }, committer);
+            Thread.sleep(50);
+            verify(connection, never()).commit();
+
+            finish.countDown();
+            assertEquals(1, update.get(5, TimeUnit.SECONDS));
+            commit.get(5, TimeUnit.SECONDS);
+            verify(connection).commit();
+        } finally {
+            committer.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testTaskInNewTransactionCommitsOrRollsBack() throws Exception {
+        Connection outerConnection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(outerConnection, connection, connection);
+        when(statement.executeUpdate()).thenReturn(1);
+        TransactionStatus outer = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        TransactionContextTaskDecorator decorator = new TransactionContextTaskDecorator(
+                transactionManager, new DefaultTransactionDefinition());
+        assertFalse(decorator.isJoiningCallerTransaction());
+
+        assertEquals(1, decorator.supplyAsync(() -> jdbcTemplate.update("update t set a = 1"), executor)
+                .get(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> failed = decorator.runAsync(() -> {
+            throw new IllegalStateException("boom");
+        }, executor);
+        CompletionException ex = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+
+        verify(connection).commit();
+        verify(connection).rollback();
+        verify(connection, times(2)).close();
+        verify(outerConnection, never()).prepareStatement(anyString());
+        transactionManager.commit(outer);
+        verify(outerConnection).commit();
+    }
+}
@@ -0,0 +1,116 @@
+package com.kama.minispring.tx;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 事务指标测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class TransactionMetricsTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    private final AtomicLong ticker = new AtomicLong();
+
+    private DataSourceTransactionManager transactionManager;
+
+    private TransactionMetrics metrics;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(dataSource.getConnection()).thenReturn(connection);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        metrics = new TransactionMetrics();
+        metrics.setTicker(ticker::get);
+        transactionManager.setTransactionMetrics(metrics);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.clear();
+    }
+
+    @Test
+    public void testRecordsCommitAndRollbackLatencyPerName() {
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setName("orderService.place");
+
+        TransactionStatus status = transactionManager.getTransaction(definition);
+        ticker.addAndGet(5_000_000L);
+        transactionManager.commit(status);
+
+        status = transactionManager.getTransaction(definition);
+        ticker.addAndGet(2_000_000L);
+        transactionManager.rollback(status);
+
+        assertEquals(1, metrics.getCommitLatency().getCount());
+        assertEquals(5_000_000L, metrics.getCommitLatency().getMax());
+        assertEquals(1, metrics.getRollbackLatency().getCount());
+        TransactionMetrics.NameCounts counts = metrics.getNameCounts().get("orderService.place");
+        assertEquals(2, counts.getBegunCount());
+        assertEquals(1, counts.getCommittedCount());
+        assertEquals(1, counts.getRolledBackCount());
+    }
+
+    @Test
+    public void testCountsSuspendAndResumeAndRebindsOuterTransaction() throws SQLException {
+        TransactionStatus outer = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        Object outerHolder = TransactionSynchronizationManager.getResource(dataSource);
+
+        Connection innerConnection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(innerConnection);
+        TransactionStatus inner = transactionManager.getTransaction(
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        transactionManager.commit(inner);
+
+        assertEquals(1, metrics.getSuspendCount());
+        assertEquals(1, metrics.getResumeCount());
+        assertSame(outerHolder, TransactionSynchronizationManager.getResource(dataSource));
+        transactionManager.commit(outer);
+        assertEquals(2, metrics.getCommitLatency().getCount());
+        assertEquals(2, metrics.getNameCounts().get("<unnamed>").getBegunCount());
+    }
+
+    @Test
+    public void testWatchdogReportsLongRunningTransactionOnce() {
+        TransactionWatchdog watchdog = new TransactionWatchdog(Duration.ofSeconds(1));
+        watchdog.setTicker(ticker::get);
+        metrics.setWatchdog(watchdog);
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setName("reportService.export");
+
+        TransactionStatus status = transactionManager.getTransaction(definition);
+        assertTrue(watchdog.check().isEmpty());
+
+        ticker.addAndGet(Duration.ofSeconds(2).toNanos());
+        List<TransactionWatchdog.ActiveTransaction> overdue = watchdog.check();
+        assertEquals(1, overdue.size());
+        assertEquals("reportService.export", overdue.get(0).getName());
+        assertNotNull(overdue.get(0).getBeginStackTrace());
+
+        transactionManager.commit(status);
+        assertEquals(0, watchdog.getActiveCount());
+        assertTrue(watchdog.check().isEmpty());
+    }
+}
@@ -8,6 +8,7 @@ import org.mockito.MockitoAnnotations;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -106,6 +107,8 @@ public class TransactionPropagationTest {
         DefaultTransactionDefinition def2 = new DefaultTransactionDefinition();
         def2.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
         
+        Savepoint savepoint = mock(Savepoint.class);
+        when(connection.setSavepoint()).thenReturn(savepoint);
         TransactionStatus status2 = transactionManager.getTransaction(def2);
         
         // 验证使用了同一个连接
@@ -117,6 +120,9 @@ public class TransactionPropagationTest {
         // 提交外部事务
         transactionManager.commit(status1);
         
+        // 嵌套事务只回滚到保存点, 外部事务照常提交
+        verify(connection).rollback(savepoint);
+        verify(connection, never()).rollback();
         verify(connection).commit();
     }
 } 
\ No newline at end of file
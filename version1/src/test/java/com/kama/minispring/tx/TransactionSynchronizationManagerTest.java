@@ -0,0 +1,100 @@
+package com.kama.minispring.tx;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TransactionSynchronizationManager测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class TransactionSynchronizationManagerTest {
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.clear();
+    }
+
+    @Test
+    public void testGetResourcesWithoutBindingReturnsSharedEmptyMap() {
+        assertSame(Collections.emptyMap(), TransactionSynchronizationManager.getResources());
+        assertNull(TransactionSynchronizationManager.snapshot());
+    }
+
+    @Test
+    public void testBindAndUnbindManyResources() {
+        Map<Object, Object> expected = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            TransactionSynchronizationManager.bindResource("key" + i, i);
+            expected.put("key" + i, i);
+        }
+        assertEquals(expected, TransactionSynchronizationManager.getResources());
+
+        // 删除一半后剩余的键仍然可以通过探测找到
+        for (int i = 0; i < 100; i += 2) {
+            assertEquals(i, TransactionSynchronizationManager.unbindResource("key" + i));
+            expected.remove("key" + i);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 2 == 1, TransactionSynchronizationManager.hasResource("key" + i));
+        }
+        assertEquals(expected, TransactionSynchronizationManager.getResources());
+        assertThrows(UnsupportedOperationException.class,
+                () -> TransactionSynchronizationManager.getResources().put("other", 1));
+    }
+
+    @Test
+    public void testContextIsReleasedWhenEmpty() {
+        TransactionSynchronizationManager.bindResource("key", "value");
+        TransactionSynchronizationManager.initSynchronization();
+        assertNotNull(TransactionSynchronizationManager.snapshot());
+
+        TransactionSynchronizationManager.unbindResource("key");
+        TransactionSynchronizationManager.clearSynchronization();
+        assertNull(TransactionSynchronizationManager.snapshot());
+        assertFalse(TransactionSynchronizationManager.isSynchronizationActive());
+    }
+
+    @Test
+    public void testSnapshotAndRestoreAcrossThreads() throws Exception {
+        Object connection = new Object();
+        TransactionSynchronizationManager.bindResource("dataSource", connection);
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        TransactionContext snapshot = TransactionSynchronizationManager.snapshot();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<Object> result = CompletableFuture.supplyAsync(() -> {
+                assertFalse(TransactionSynchronizationManager.hasResource("dataSource"));
+                TransactionContext previous = TransactionSynchronizationManager.restore(snapshot);
+                try {
+                    assertTrue(TransactionSynchronizationManager.isActualTransactionActive());
+                    TransactionSynchronizationManager.bindResource("workerOnly", "value");
+                    return TransactionSynchronizationManager.getResource("dataSource");
+                } finally {
+                    TransactionSynchronizationManager.restore(previous);
+                }
+            }, executor);
+            assertSame(connection, result.get());
+
+            // 工作线程恢复后不再持有事务状态
+            assertNull(executor.submit(TransactionSynchronizationManager::snapshot).get());
+        } finally {
+            executor.shutdown();
+        }
+        // 工作线程的修改不影响原线程
+        assertFalse(TransactionSynchronizationManager.hasResource("workerOnly"));
+        assertSame(connection, TransactionSynchronizationManager.getResource("dataSource"));
+    }
+}
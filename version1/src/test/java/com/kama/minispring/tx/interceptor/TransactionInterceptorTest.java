@@ -0,0 +1,244 @@
+package com.kama.minispring.tx.interceptor;
+
+import com.kama.minispring.aop.ProxyFactory;
+import com.kama.minispring.tx.DataSourceTransactionManager;
+import com.kama.minispring.tx.PlatformTransactionManager;
+import com.kama.minispring.tx.TransactionDefinition;
+import com.kama.minispring.tx.TransactionStatus;
+import com.kama.minispring.tx.TransactionSynchronizationManager;
+import com.kama.minispring.tx.UnexpectedRollbackException;
+import com.kama.minispring.tx.annotation.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * TransactionInterceptor测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class TransactionInterceptorTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TransactionStatus status;
+
+    private TransactionInterceptor interceptor;
+
+    private AccountService accountService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(status);
+        interceptor = new TransactionInterceptor(transactionManager);
+        ProxyFactory proxyFactory = new ProxyFactory(new AccountServiceImpl());
+        proxyFactory.addAdvice(interceptor);
+        accountService = (AccountService) proxyFactory.getProxy();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clear();
+    }
+
+    @Test
+    void shouldCommitOnSuccessWithClassLevelDefaults() {
+        assertEquals(100, accountService.balance("kama"));
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertTrue(definition.getValue().isReadOnly());
+        assertEquals(AccountServiceImpl.class.getName() + ".balance", definition.getValue().getName());
+        verify(transactionManager).commit(status);
+    }
+
+    @Test
+    void shouldPreferMethodLevelAnnotation() {
+        accountService.transfer("a", "b", 10);
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertFalse(definition.getValue().isReadOnly());
+        assertEquals(TransactionDefinition.PROPAGATION_REQUIRES_NEW, definition.getValue().getPropagationBehavior());
+    }
+
+    @Test
+    void shouldRollbackOnRuntimeExceptionAndCommitOnCheckedException() throws Exception {
+        assertThrows(IllegalStateException.class, () -> accountService.transfer("a", "b", -1));
+        verify(transactionManager).rollback(status);
+
+        assertThrows(IOException.class, () -> accountService.export(false));
+        verify(transactionManager).commit(status);
+    }
+
+    @Test
+    void shouldApplyRollbackRules() {
+        assertThrows(IOException.class, () -> accountService.exportStrict());
+        verify(transactionManager).rollback(status);
+
+        assertThrows(IllegalArgumentException.class, () -> accountService.validate());
+        verify(transactionManager).commit(status);
+    }
+
+    @Test
+    void shouldResolveAttributeOnceAndSkipUnannotatedClasses() throws Exception {
+        Method balance = AccountService.class.getMethod("balance", String.class);
+        TransactionAttribute first = interceptor.getTransactionAttribute(balance, AccountServiceImpl.class);
+        assertSame(first, interceptor.getTransactionAttribute(balance, AccountServiceImpl.class));
+        assertNull(interceptor.getTransactionAttribute(Object.class.getMethod("toString"), Object.class));
+    }
+
+    @Test
+    void shouldFollowRollbackRuleDepth() {
+        RuleBasedTransactionAttribute attribute = new RuleBasedTransactionAttribute();
+        attribute.setRollbackFor(Exception.class);
+        attribute.setNoRollbackFor(IllegalArgumentException.class);
+
+        assertTrue(attribute.rollbackOn(new IOException()));
+        assertTrue(attribute.rollbackOn(new IllegalStateException()));
+        assertFalse(attribute.rollbackOn(new NumberFormatException()));
+    }
+
+    @Test
+    void shouldMarkOuterTransactionRollbackOnlyWhenParticipatingMethodFails() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        TransactionInterceptor realInterceptor = new TransactionInterceptor(new DataSourceTransactionManager(dataSource));
+        ProxyFactory inventoryFactory = new ProxyFactory(new InventoryServiceImpl());
+        inventoryFactory.addAdvice(realInterceptor);
+        InventoryService inventory = (InventoryService) inventoryFactory.getProxy();
+        ProxyFactory orderFactory = new ProxyFactory(new OrderServiceImpl(inventory));
+        orderFactory.addAdvice(realInterceptor);
+        OrderService orders = (OrderService) orderFactory.getProxy();
+
+        // 内部方法加入外部事务后失败, 外部方法吞掉异常也不能提交
+        assertThrows(UnexpectedRollbackException.class, orders::placeOrder);
+        verify(dataSource, times(1)).getConnection();
+        verify(connection, times(1)).rollback();
+        verify(connection, never()).commit();
+        verify(connection).close();
+        assertNull(TransactionSynchronizationManager.getResource(dataSource));
+    }
+
+    @Test
+    void shouldPropagateApplicationExceptionWithoutActualTransaction() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        ProxyFactory proxyFactory = new ProxyFactory(new InventoryServiceImpl());
+        proxyFactory.addAdvice(new TransactionInterceptor(new DataSourceTransactionManager(dataSource)));
+        InventoryService inventory = (InventoryService) proxyFactory.getProxy();
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, inventory::check);
+        assertEquals("inventory unavailable", ex.getMessage());
+        verifyNoInteractions(dataSource);
+    }
+
+    public interface AccountService {
+
+        int balance(String owner);
+
+        void transfer(String from, String to, int amount);
+
+        void export(boolean ok) throws IOException;
+
+        void exportStrict() throws IOException;
+
+        void validate();
+    }
+
+    @Transactional(readOnly = true)
+    public static class AccountServiceImpl implements AccountService {
+
+        @Override
+        public int balance(String owner) {
+            return 100;
+        }
+
+        @Override
+        @Transactional(propagation = TransactionDefinition.PROPAGATION_REQUIRES_NEW)
+        public void transfer(String from, String to, int amount) {
+            if (amount < 0) {
+                throw new IllegalStateException("negative amount");
+            }
+        }
+
+        @Override
+        public void export(boolean ok) throws IOException {
+            throw new IOException("disk full");
+        }
+
+        @Override
+        @Transactional(rollbackFor = IOException.class)
+        public void exportStrict() throws IOException {
+            throw new IOException("disk full");
+        }
+
+        @Override
+        @Transactional(noRollbackFor = IllegalArgumentException.class)
+        public void validate() {
+            throw new IllegalArgumentException("invalid");
+        }
+    }
+
+    public interface InventoryService {
+
+        void reserve();
+
+        void check();
+    }
+
+    public static class InventoryServiceImpl implements InventoryService {
+
+        @Override
+        @Transactional
+        public void reserve() {
+            throw new IllegalStateException("out of stock");
+        }
+
+        @Override
+        @Transactional(propagation = TransactionDefinition.PROPAGATION_SUPPORTS)
+        public void check() {
+            throw new IllegalStateException("inventory unavailable");
+        }
+    }
+
+    public interface OrderService {
+
+        void placeOrder();
+    }
+
+    public static class OrderServiceImpl implements OrderService {
+
+        private final InventoryService inventory;
+
+        public OrderServiceImpl(InventoryService inventory) {
+            this.inventory = inventory;
+        }
+
+        @Override
+        @Transactional
+        public void placeOrder() {
+            try {
+                inventory.reserve();
+            } catch (IllegalStateException ex) {
+                // 忽略库存不足, 继续下单
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.kama.minispring.web.multipart;
+
+import com.kama.minispring.util.BufferPool;
+import com.kama.minispring.web.servlet.ModelAndView;
+import com.kama.minispring.web.servlet.annotation.RequestParam;
+import com.kama.minispring.web.servlet.handler.RequestMappingHandlerAdapter;
+import com.kama.minispring.web.servlet.method.HandlerMethod;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * StreamingMultipartResolver测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class StreamingMultipartResolverTest {
+
+    private static final String BOUNDARY = "----kamaBoundary7MA4YWxk";
+
+    @TempDir
+    Path tempDir;
+
+    private StreamingMultipartResolver resolver;
+
+    private BufferPool bufferPool;
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bufferPool = new BufferPool(1024, 64);
+        resolver = new StreamingMultipartResolver();
+        resolver.setBufferPool(bufferPool);
+        resolver.setTempDir(tempDir);
+        resolver.setFileSizeThreshold(2048);
+        when(request.getContentType()).thenReturn("multipart/form-data; boundary=\"" + BOUNDARY + "\"");
+        when(request.getParameterMap()).thenReturn(Collections.singletonMap("source", new String[]{"query"}));
+    }
+
+    private void body(byte[] body, int chunkSize) throws IOException {
+        when(request.getContentLengthLong()).thenReturn((long) body.length);
+        when(request.getInputStream()).thenReturn(new TrickleServletInputStream(body, chunkSize));
+    }
+
+    private static byte[] multipart(Object... parts) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("preamble\r\n".getBytes(StandardCharsets.US_ASCII));
+        for (int i = 0; i < parts.length; i += 2) {
+            out.write(("--" + BOUNDARY + "\r\n" + parts[i] + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            Object content = parts[i + 1];
+            out.write(content instanceof byte[] ? (byte[]) content
+                    : content.toString().getBytes(StandardCharsets.UTF_8));
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        out.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            // 混入CR LF和'-', 检验分隔符前缀不会被误判
+            bytes[i] = (byte) (i % 7 == 0 ? '\r' : i % 11 == 0 ? '-' : i * 31);
+        }
+        return bytes;
+    }
+
+    private List<Path> tempFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("upload_")).toList();
+        }
+    }
+
+    @Test
+    void shouldParseFieldsAndFilesAcrossReadBoundaries() throws Exception {
+        byte[] large = randomBytes(10_000);
+        body(multipart(
+                "Content-Disposition: form-data; name=\"title\"", "你好; world",
+                "Content-Disposition: form-data; name=\"small\"; filename=\"C:\\\\docs\\\\notes.txt\"\r\n"
+                        + "Content-Type: text/plain", "hello\r\n--not-a-boundary",
+                "Content-Disposition: form-data; name=\"large\"; filename*=UTF-8''%E6%96%87%E4%BB%B6.bin", large,
+                "Content-Disposition: form-data; name=\"empty\"; filename=\"\"", ""), 7);
+
+        MultipartHttpServletRequest multipartRequest = resolver.resolveMultipart(request);
+
+        assertEquals("你好; world", multipartRequest.getParameter("title"));
+        assertEquals("query", multipartRequest.getParameter("source"));
+        MultipartFile small = multipartRequest.getFile("small");
+        assertEquals("notes.txt", small.getOriginalFilename());
+        assertEquals("text/plain", small.getContentType());
+        assertEquals("hello\r\n--not-a-boundary", new String(small.getBytes(), StandardCharsets.UTF_8));
+        assertTrue(((StreamedMultipartFile) small).isInMemory());
+
+        MultipartFile largeFile = multipartRequest.getFile("large");
+        assertEquals("文件.bin", largeFile.getOriginalFilename());
+        assertEquals(large.length, largeFile.getSize());
+        assertFalse(((StreamedMultipartFile) largeFile).isInMemory());
+        try (InputStream in = largeFile.getInputStream()) {
+            assertArrayEquals(large, in.readAllBytes());
+        }
+        assertTrue(multipartRequest.getFile("empty").isEmpty());
+        assertEquals(1, tempFiles().size());
+
+        resolver.cleanupMultipart(multipartRequest);
+        assertTrue(tempFiles().isEmpty());
+    }
+
+    @Test
+    void shouldTransferSpilledAndInMemoryFilesToTarget() throws Exception {
+        byte[] large = randomBytes(5_000);
+        body(multipart(
+                "Content-Disposition: form-data; name=\"a\"; filename=\"a.bin\"", large,
+                "Content-Disposition: form-data; name=\"b\"; filename=\"b.txt\"", "in memory"), 4096);
+        MultipartHttpServletRequest multipartRequest = resolver.resolveMultipart(request);
+        Path target = Files.createDirectory(tempDir.resolve("target"));
+
+        multipartRequest.getFile("a").transferTo(target.resolve("a.bin"));
+        multipartRequest.getFile("b").transferTo(target.resolve("b.txt"));
+
+        assertArrayEquals(large, Files.readAllBytes(target.resolve("a.bin")));
+        assertEquals("in memory", Files.readString(target.resolve("b.txt")));
+        // 落盘的内容是移动而不是复制的
+        assertTrue(tempFiles().isEmpty());
+        assertThrows(IllegalStateException.class, () -> multipartRequest.getFile("a").getBytes());
+        resolver.cleanupMultipart(multipartRequest);
+        assertTrue(Files.exists(target.resolve("a.bin")));
+    }
+
+    @Test
+    void shouldEnforcePartAndRequestLimits() throws Exception {
+        resolver.setMaxFileSize(4_000);
+        body(multipart(
+                "Content-Disposition: form-data; name=\"ok\"; filename=\"ok.bin\"", randomBytes(3_000),
+                "Content-Disposition: form-data; name=\"big\"; filename=\"big.bin\"", randomBytes(4_001)), 512);
+        MaxUploadSizeExceededException ex = assertThrows(MaxUploadSizeExceededException.class,
+                () -> resolver.resolveMultipart(request));
+        assertEquals(4_000, ex.getMaxUploadSize());
+        // 出错时已经落盘的part也被清理
+        assertTrue(tempFiles().isEmpty());
+
+        resolver.setMaxFileSize(-1);
+        resolver.setMaxRequestSize(6_000);
+        byte[] body = multipart(
+                "Content-Disposition: form-data; name=\"a\"; filename=\"a.bin\"", randomBytes(3_000),
+                "Content-Disposition: form-data; name=\"b\"; filename=\"b.bin\"", randomBytes(3_000));
+        body(body, 512);
+        assertThrows(MaxUploadSizeExceededException.class, () -> resolver.resolveMultipart(request));
+        // 未声明长度时在读到超限的字节时停止
+        when(request.getContentLengthLong()).thenReturn(-1L);
+        assertThrows(MaxUploadSizeExceededException.class, () -> resolver.resolveMultipart(request));
+        assertTrue(tempFiles().isEmpty());
+    }
+
+    @Test
+    void shouldRejectMalformedBodies() throws Exception {
+        byte[] body = multipart("Content-Disposition: form-data; name=\"a\"", "value");
+        body(Arrays.copyOf(body, body.length - 10), 64);
+        assertThrows(MultipartException.class, () -> resolver.resolveMultipart(request));
+
+        when(request.getContentType()).thenReturn("multipart/form-data");
+        assertThrows(MultipartException.class, () -> resolver.resolveMultipart(request));
+        assertFalse(resolver.isMultipart(mock(HttpServletRequest.class)));
+    }
+
+    @Test
+    void shouldReturnPooledBuffersOnCleanup() throws Exception {
+        body(multipart(
+                "Content-Disposition: form-data; name=\"file\"; filename=\"a.txt\"", "first",
+                "Content-Disposition: form-data; name=\"file\"; filename=\"b.txt\"", "second"), 1024);
+        MultipartHttpServletRequest multipartRequest = resolver.resolveMultipart(request);
+        resolver.cleanupMultipart(multipartRequest);
+        long allocations = bufferPool.getAllocationCount();
+
+        body(multipart(
+                "Content-Disposition: form-data; name=\"file\"; filename=\"a.txt\"", "first",
+                "Content-Disposition: form-data; name=\"file\"; filename=\"b.txt\"", "second"), 1024);
+        multipartRequest = resolver.resolveMultipart(request);
+
+        assertEquals(2, multipartRequest.getFiles("file").size());
+        assertEquals(allocations, bufferPool.getAllocationCount());
+        resolver.cleanupMultipart(multipartRequest);
+    }
+
+    @Test
+    void shouldBindMultipartFileArguments() throws Exception {
+        body(multipart(
+                "Content-Disposition: form-data; name=\"avatar\"; filename=\"me.png\"", "png",
+                "Content-Disposition: form-data; name=\"docs\"; filename=\"a.txt\"", "a",
+                "Content-Disposition: form-data; name=\"docs\"; filename=\"b.txt\"", "b"), 1024);
+        MultipartHttpServletRequest multipartRequest = resolver.resolveMultipart(request);
+        RequestMappingHandlerAdapter handlerAdapter = new RequestMappingHandlerAdapter();
+
+        ModelAndView mv = handlerAdapter.handle(multipartRequest, response, handler("upload"));
+
+        assertEquals("me.png:3:[a.txt, b.txt]:null", mv.getModel().get("result"));
+        assertThrows(MultipartException.class, () -> handlerAdapter.handle(request, response, handler("upload")));
+        resolver.cleanupMultipart(multipartRequest);
+    }
+
+    private HandlerMethod handler(String name) {
+        for (Method method : UploadController.class.getDeclaredMethods()) {
+            if (method.getName().equals(name)) {
+                return new HandlerMethod(new UploadController(), method);
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    static class UploadController {
+
+        public String upload(@RequestParam("avatar") MultipartFile avatar,
+                @RequestParam("docs") List<MultipartFile> docs,
+                @RequestParam(value = "missing", required = false) MultipartFile[] missing) {
+            StringBuilder names = new StringBuilder();
+            for (MultipartFile doc : docs) {
+                names.append(names.length() > 0 ? ", " : "").append(doc.getOriginalFilename());
+            }
+            return avatar.getOriginalFilename() + ":" + avatar.getSize() + ":[" + names + "]:"
+                    + (missing.length == 0 ? null : missing.length);
+        }
+    }
+
+    /**
+     * 每次最多返回chunkSize个字节的输入流, 模拟分批到达的请求体
+     */
+    static class TrickleServletInputStream extends ServletInputStream {
+
+        private final byte[] bytes;
+
+        private final int chunkSize;
+
+        private int position;
+
+        TrickleServletInputStream(byte[] bytes, int chunkSize) {
+            this.bytes = bytes;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public int read() {
+            return position < bytes.length ? bytes[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= bytes.length) {
+                return -1;
+            }
+            int count = Math.min(Math.min(len, chunkSize), bytes.length - position);
+            System.arraycopy(bytes, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return position >= bytes.length;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+        }
+    }
+}
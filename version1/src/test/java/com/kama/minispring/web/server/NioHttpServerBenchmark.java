@@ -0,0 +1,135 @@
+package com.kama.minispring.web.server;
+
+import com.kama.minispring.metrics.LatencyHistogram;
+import com.kama.minispring.web.servlet.DispatcherServlet;
+import com.kama.minispring.web.servlet.annotation.PathVariable;
+import com.kama.minispring.web.servlet.annotation.RequestMapping;
+import com.kama.minispring.web.servlet.annotation.RequestMethod;
+import com.kama.minispring.web.servlet.annotation.ResponseBody;
+import com.kama.minispring.web.servlet.handler.RequestMappingHandlerAdapter;
+import com.kama.minispring.web.servlet.handler.RequestMappingHandlerMapping;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内嵌NIO服务器的本机压测
+ * 非单元测试, test-compile 后以测试类路径手动运行 main 方法。
+ * 参数依次为: 连接数(默认64)、每轮流水线深度(默认1, 即普通keep-alive)、持续秒数(默认10)、
+ * 执行方式(SELECTOR或VIRTUAL_THREAD_PER_REQUEST, 默认后者)。
+ * 每个连接一个客户端线程, 输出吞吐量和每轮请求的延迟分位数
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class NioHttpServerBenchmark {
+
+    private static final int WARMUP_SECONDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int pipeline = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        NioHttpServer.ExecutionMode mode = args.length > 3
+                ? NioHttpServer.ExecutionMode.valueOf(args[3]) : NioHttpServer.ExecutionMode.VIRTUAL_THREAD_PER_REQUEST;
+
+        DispatcherServlet dispatcherServlet = new DispatcherServlet();
+        dispatcherServlet.setHandlerMappings(Collections.singletonList(new BenchmarkHandlerMapping()));
+        dispatcherServlet.setHandlerAdapters(Collections.singletonList(new RequestMappingHandlerAdapter()));
+        dispatcherServlet.init();
+        NioHttpServer server = new NioHttpServer(dispatcherServlet);
+        server.setHost("127.0.0.1");
+        server.setPort(0);
+        server.setExecutionMode(mode);
+        server.start();
+        try {
+            System.out.printf("connections: %d, pipeline: %d, mode: %s%n", connections, pipeline, mode);
+            run(server.getPort(), connections, pipeline, WARMUP_SECONDS, null);
+            run(server.getPort(), connections, pipeline, seconds, new LatencyHistogram());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void run(int port, int connections, int pipeline, int seconds, LatencyHistogram histogram)
+            throws Exception {
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < pipeline; i++) {
+            batch.append(RawHttpClient.get(i % 2 == 0 ? "/plaintext" : "/json/" + i));
+        }
+        byte[] request = batch.toString().getBytes(StandardCharsets.ISO_8859_1);
+        AtomicLong completed = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch done = new CountDownLatch(connections);
+        for (int c = 0; c < connections; c++) {
+            Thread client = new Thread(() -> {
+                try (RawHttpClient http = new RawHttpClient(port)) {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        http.send(request);
+                        for (int i = 0; i < pipeline; i++) {
+                            if (http.read().getStatus() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                        if (histogram != null) {
+                            histogram.record(System.nanoTime() - start);
+                        }
+                        completed.addAndGet(pipeline);
+                    }
+                } catch (Exception ex) {
+                    errors.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            }, "bench-client-" + c);
+            client.start();
+        }
+        done.await();
+        if (histogram == null) {
+            return;
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        System.out.printf("requests: %d, errors: %d, throughput: %.0f req/s%n",
+                completed.get(), errors.get(), (double) completed.get() / seconds);
+        System.out.printf("round trip (%d request(s)) p50: %.1f us, p99: %.1f us, p99.9: %.1f us, max: %.1f us%n",
+                pipeline, snapshot.getPercentile(0.5) / 1000.0, snapshot.getPercentile(0.99) / 1000.0,
+                snapshot.getPercentile(0.999) / 1000.0, snapshot.getMax() / 1000.0);
+    }
+
+    /**
+     * 直接注册处理器方法, 不依赖容器
+     */
+    private static class BenchmarkHandlerMapping extends RequestMappingHandlerMapping {
+
+        BenchmarkHandlerMapping() throws NoSuchMethodException {
+            BenchmarkController controller = new BenchmarkController();
+            RequestMethod[] get = {RequestMethod.GET};
+            registerHandlerMethod("/plaintext", controller, BenchmarkController.class.getMethod("plaintext"), get);
+            registerHandlerMethod("/json/{id}", controller,
+                    BenchmarkController.class.getMethod("json", int.class), get);
+        }
+    }
+
+    @ResponseBody
+    public static class BenchmarkController {
+
+        @RequestMapping("/plaintext")
+        public String plaintext() {
+            return "Hello, World!";
+        }
+
+        @RequestMapping("/json/{id}")
+        public Map<String, Object> json(@PathVariable("id") int id) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("id", id);
+            result.put("message", "Hello, World!");
+            return result;
+        }
+    }
+}
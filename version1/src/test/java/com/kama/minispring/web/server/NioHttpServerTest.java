@@ -0,0 +1,303 @@
+package com.kama.minispring.web.server;
+
+import com.kama.minispring.context.ApplicationContext;
+import com.kama.minispring.core.io.FileSystemResource;
+import com.kama.minispring.core.io.Resource;
+import com.kama.minispring.web.servlet.DispatcherServlet;
+import com.kama.minispring.web.servlet.annotation.PathVariable;
+import com.kama.minispring.web.servlet.annotation.RequestBody;
+import com.kama.minispring.web.servlet.annotation.RequestMapping;
+import com.kama.minispring.web.servlet.annotation.RequestMethod;
+import com.kama.minispring.web.servlet.annotation.RequestParam;
+import com.kama.minispring.web.servlet.annotation.ResponseBody;
+import com.kama.minispring.web.servlet.handler.HttpRequestHandlerAdapter;
+import com.kama.minispring.web.servlet.handler.RequestMappingHandlerAdapter;
+import com.kama.minispring.web.servlet.handler.RequestMappingHandlerMapping;
+import com.kama.minispring.web.servlet.resource.ResourceHandlerMapping;
+import com.kama.minispring.web.servlet.resource.ResourceHttpRequestHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * NioHttpServer测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class NioHttpServerTest {
+
+    private NioHttpServer server;
+
+    private DispatcherServlet dispatcherServlet;
+
+    private ResourceHttpRequestHandler resourceHandler;
+
+    @TempDir
+    Path staticDir;
+
+    @Mock
+    private ApplicationContext applicationContext;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(applicationContext.getBeanDefinitionNames()).thenReturn(new String[]{"testController"});
+        when(applicationContext.getBean("testController")).thenReturn(new TestController());
+        RequestMappingHandlerMapping handlerMapping = new RequestMappingHandlerMapping();
+        handlerMapping.setApplicationContext(applicationContext);
+        handlerMapping.afterPropertiesSet();
+
+        resourceHandler = new ResourceHttpRequestHandler();
+        resourceHandler.setLocations(Collections.<Resource>singletonList(new FileSystemResource(staticDir.toFile())));
+        resourceHandler.setWatchResources(false);
+        resourceHandler.afterPropertiesSet();
+        ResourceHandlerMapping resourceMapping = new ResourceHandlerMapping();
+        resourceMapping.registerHandler("/static/**", resourceHandler);
+
+        dispatcherServlet = new DispatcherServlet();
+        dispatcherServlet.setHandlerMappings(Arrays.asList(resourceMapping, handlerMapping));
+        dispatcherServlet.setHandlerAdapters(Arrays.asList(new RequestMappingHandlerAdapter(),
+                new HttpRequestHandlerAdapter()));
+        dispatcherServlet.init();
+        server = startServer(NioHttpServer.ExecutionMode.VIRTUAL_THREAD_PER_REQUEST);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+        resourceHandler.destroy();
+    }
+
+    private NioHttpServer startServer(NioHttpServer.ExecutionMode mode) throws Exception {
+        NioHttpServer nioServer = new NioHttpServer(dispatcherServlet);
+        nioServer.setPort(0);
+        nioServer.setHost("127.0.0.1");
+        nioServer.setSelectorThreads(2);
+        nioServer.setExecutionMode(mode);
+        nioServer.start();
+        return nioServer;
+    }
+
+    @Test
+    void shouldServeSeveralRequestsOnKeepAliveConnection() throws Exception {
+        try (RawHttpClient client = new RawHttpClient(server.getPort())) {
+            for (int i = 0; i < 3; i++) {
+                RawHttpClient.Response response = client.exchange(RawHttpClient.get("/hello?name=n" + i));
+                assertEquals(200, response.getStatus());
+                assertEquals("hello n" + i, response.getBody());
+                assertEquals(String.valueOf(("hello n" + i).length()), response.getHeader("Content-Length"));
+                assertFalse(response.isClose());
+            }
+        }
+    }
+
+    @Test
+    void shouldAnswerPipelinedRequestsInOrder() throws Exception {
+        try (RawHttpClient client = new RawHttpClient(server.getPort())) {
+            client.send(RawHttpClient.get("/hello?name=a") + RawHttpClient.get("/users/42")
+                    + RawHttpClient.get("/hello?name=c"));
+
+            assertEquals("hello a", client.read().getBody());
+            RawHttpClient.Response json = client.read();
+            assertEquals("{\"id\":42,\"name\":\"user-42\"}", json.getBody());
+            assertTrue(json.getHeader("Content-Type").startsWith("application/json"));
+            assertEquals("hello c", client.read().getBody());
+        }
+    }
+
+    @Test
+    void shouldReadContentLengthAndChunkedRequestBodies() throws Exception {
+        try (RawHttpClient client = new RawHttpClient(server.getPort())) {
+            RawHttpClient.Response fixed = client.exchange("POST /echo HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Content-Type: text/plain;charset=UTF-8\r\nContent-Length: 5\r\n\r\nhello");
+            assertEquals("hello", fixed.getBody());
+
+            RawHttpClient.Response chunked = client.exchange("POST /echo HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Transfer-Encoding: chunked\r\n\r\n3\r\nabc\r\n4;ext=1\r\ndefg\r\n0\r\n\r\n");
+            assertEquals("abcdefg", chunked.getBody());
+        }
+    }
+
+    @Test
+    void shouldStreamLargeResponseWithChunkedEncoding() throws Exception {
+        try (RawHttpClient client = new RawHttpClient(server.getPort())) {
+            RawHttpClient.Response response = client.exchange(RawHttpClient.get("/large?size=200000"));
+
+            assertEquals(200, response.getStatus());
+            assertEquals("chunked", response.getHeader("Transfer-Encoding"));
+            assertEquals(200000, response.getBodyLength());
+            // 大响应之后连接仍可继续使用
+            assertEquals("hello x", client.exchange(RawHttpClient.get("/hello?name=x")).getBody());
+        }
+    }
+
+    @Test
+    void shouldCompleteAsyncResultOnSameConnection() throws Exception {
+        try (RawHttpClient client = new RawHttpClient(server.getPort())) {
+            RawHttpClient.Response response = client.exchange(RawHttpClient.get("/async"));
+            assertEquals(200, response.getStatus());
+            assertEquals("async done", response.getBody());
+            assertEquals("hello y", client.exchange(RawHttpClient.get("/hello?name=y")).getBody());
+        }
+    }
+
+    @Test
+    void shouldReturnNotFoundAndKeepConnection() throws Exception {
+        try (RawHttpClient client = new RawHttpClient(server.getPort())) {
+            assertEquals(404, client.exchange(RawHttpClient.get("/missing")).getStatus());
+            assertEquals(200, client.exchange(RawHttpClient.get("/hello?name=z")).getStatus());
+        }
+    }
+
+    @Test
+    void shouldRejectMalformedRequestAndCloseConnection() throws Exception {
+        try (RawHttpClient client = new RawHttpClient(server.getPort())) {
+            RawHttpClient.Response response = client.exchange("BROKEN\r\n\r\n");
+            assertEquals(400, response.getStatus());
+            assertTrue(response.isClose());
+            assertTrue(client.isClosedByServer());
+        }
+    }
+
+    @Test
+    void shouldRejectOversizedChunkWithoutOverflow() throws Exception {
+        try (RawHttpClient client = new RawHttpClient(server.getPort())) {
+            RawHttpClient.Response response = client.exchange("POST /echo HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Transfer-Encoding: chunked\r\n\r\n3\r\nabc\r\n7fffffffffffffff\r\nabc");
+            assertEquals(413, response.getStatus());
+            assertTrue(client.isClosedByServer());
+        }
+    }
+
+    @Test
+    void shouldReadLargeContentLengthBodyArrivingInPieces() throws Exception {
+        char[] chars = new char[100_000];
+        Arrays.fill(chars, 'x');
+        String body = new String(chars);
+        try (RawHttpClient client = new RawHttpClient(server.getPort())) {
+            client.send("POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Type: text/plain;charset=UTF-8\r\n"
+                    + "Content-Length: " + body.length() + "\r\n\r\n" + body.substring(0, 1000));
+            Thread.sleep(50);
+            client.send(body.substring(1000, 50_000));
+            Thread.sleep(50);
+            client.send(body.substring(50_000));
+
+            RawHttpClient.Response response = client.read();
+            assertEquals(200, response.getStatus());
+            assertEquals(body, response.getBody());
+        }
+    }
+
+    @Test
+    void shouldRejectConflictingContentLength() throws Exception {
+        String[] headers = {
+                "Content-Length: 3\r\nContent-Length: 5\r\n",
+                "Content-Length: 3\r\nContent-Length: 3\r\n",
+                "Content-Length: 3, 5\r\n",
+                "Content-Length: +3\r\n"
+        };
+        for (String header : headers) {
+            try (RawHttpClient client = new RawHttpClient(server.getPort())) {
+                RawHttpClient.Response response = client.exchange("POST /echo HTTP/1.1\r\nHost: localhost\r\n"
+                        + header + "\r\nhello");
+                assertEquals(400, response.getStatus(), header);
+                assertTrue(client.isClosedByServer());
+            }
+        }
+    }
+
+    @Test
+    void shouldCloseHttp10ConnectionWithoutKeepAlive() throws Exception {
+        try (RawHttpClient client = new RawHttpClient(server.getPort())) {
+            RawHttpClient.Response response = client.exchange("GET /hello?name=old HTTP/1.0\r\n\r\n");
+            assertEquals("hello old", response.getBody());
+            assertTrue(response.isClose());
+            assertTrue(client.isClosedByServer());
+        }
+    }
+
+    @Test
+    void shouldTransferStaticFilesAndRangesWithoutBuffering() throws Exception {
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        Files.write(staticDir.resolve("bundle.bin"), content);
+        try (RawHttpClient client = new RawHttpClient(server.getPort())) {
+            RawHttpClient.Response full = client.exchange(RawHttpClient.get("/static/bundle.bin"));
+            assertEquals(200, full.getStatus());
+            assertEquals(String.valueOf(content.length), full.getHeader("Content-Length"));
+            assertArrayEquals(content, full.getBodyBytes());
+
+            RawHttpClient.Response range = client.exchange("GET /static/bundle.bin HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Range: bytes=1048576-1048591\r\n\r\n");
+            assertEquals(206, range.getStatus());
+            assertArrayEquals(Arrays.copyOfRange(content, 1048576, 1048592), range.getBodyBytes());
+            // 文件发送完成后连接仍可继续使用
+            assertEquals("hello f", client.exchange(RawHttpClient.get("/hello?name=f")).getBody());
+        }
+    }
+
+    @Test
+    void shouldRunHandlersOnSelectorThreadInSelectorMode() throws Exception {
+        server.stop();
+        server = startServer(NioHttpServer.ExecutionMode.SELECTOR);
+        try (RawHttpClient client = new RawHttpClient(server.getPort())) {
+            client.send(RawHttpClient.get("/thread") + RawHttpClient.get("/hello?name=s"));
+            assertTrue(client.read().getBody().startsWith("nio-http-selector-"));
+            assertEquals("hello s", client.read().getBody());
+        }
+    }
+
+    @ResponseBody
+    static class TestController {
+
+        @RequestMapping(value = "/hello", method = RequestMethod.GET)
+        public String hello(@RequestParam("name") String name) {
+            return "hello " + name;
+        }
+
+        @RequestMapping(value = "/users/{id}", method = RequestMethod.GET)
+        public Map<String, Object> user(@PathVariable("id") long id) {
+            Map<String, Object> user = new LinkedHashMap<>();
+            user.put("id", id);
+            user.put("name", "user-" + id);
+            return user;
+        }
+
+        @RequestMapping(value = "/echo", method = RequestMethod.POST)
+        public String echo(@RequestBody String body) {
+            return body;
+        }
+
+        @RequestMapping(value = "/large", method = RequestMethod.GET)
+        public byte[] large(@RequestParam("size") int size) {
+            return new byte[size];
+        }
+
+        @RequestMapping(value = "/async", method = RequestMethod.GET)
+        public CompletableFuture<String> async() {
+            return CompletableFuture.supplyAsync(() -> "async done");
+        }
+
+        @RequestMapping(value = "/thread", method = RequestMethod.GET)
+        public String thread() {
+            return Thread.currentThread().getName();
+        }
+    }
+}
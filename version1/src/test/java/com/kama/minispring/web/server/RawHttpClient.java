@@ -0,0 +1,158 @@
+package com.kama.minispring.web.server;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 基于Socket的最小HTTP/1.1客户端, 供内嵌服务器的测试和压测使用
+ * 直接发送原始请求字节, 以便测试流水线和分块请求; 按Content-Length或chunked读取响应
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class RawHttpClient implements AutoCloseable {
+
+    private final Socket socket;
+
+    private final InputStream in;
+
+    private final OutputStream out;
+
+    RawHttpClient(int port) throws IOException {
+        this.socket = new Socket();
+        this.socket.setTcpNoDelay(true);
+        this.socket.setSoTimeout(10000);
+        this.socket.connect(new InetSocketAddress("127.0.0.1", port), 5000);
+        this.in = new BufferedInputStream(this.socket.getInputStream(), 16 * 1024);
+        this.out = this.socket.getOutputStream();
+    }
+
+    static String get(String path) {
+        return "GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+    }
+
+    void send(String raw) throws IOException {
+        send(raw.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    void send(byte[] raw) throws IOException {
+        this.out.write(raw);
+        this.out.flush();
+    }
+
+    Response exchange(String raw) throws IOException {
+        send(raw);
+        return read();
+    }
+
+    /**
+     * 读取一个完整的响应
+     */
+    Response read() throws IOException {
+        String statusLine = readLine();
+        Response response = new Response(Integer.parseInt(statusLine.split(" ")[1]));
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            int colon = line.indexOf(':');
+            response.headers.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        String contentLength = response.getHeader("Content-Length");
+        if ("chunked".equalsIgnoreCase(response.getHeader("Transfer-Encoding"))) {
+            int size;
+            while ((size = Integer.parseInt(readLine().trim(), 16)) > 0) {
+                body.write(readFully(size));
+                readLine();
+            }
+            readLine();
+        } else if (contentLength != null) {
+            body.write(readFully(Integer.parseInt(contentLength)));
+        } else if ("close".equalsIgnoreCase(response.getHeader("Connection"))) {
+            body.write(this.in.readAllBytes());
+        }
+        response.body = body.toByteArray();
+        return response;
+    }
+
+    /**
+     * 服务器是否已经关闭连接
+     */
+    boolean isClosedByServer() throws IOException {
+        return this.in.read() < 0;
+    }
+
+    private byte[] readFully(int length) throws IOException {
+        byte[] data = this.in.readNBytes(length);
+        if (data.length < length) {
+            throw new EOFException("Expected " + length + " bytes but got " + data.length);
+        }
+        return data;
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = this.in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException("Connection closed while reading response");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.socket.close();
+    }
+
+    static final class Response {
+
+        private final int status;
+
+        private final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        private byte[] body;
+
+        Response(int status) {
+            this.status = status;
+        }
+
+        int getStatus() {
+            return this.status;
+        }
+
+        String getHeader(String name) {
+            return this.headers.get(name);
+        }
+
+        String getBody() {
+            return new String(this.body, StandardCharsets.UTF_8);
+        }
+
+        byte[] getBodyBytes() {
+            return this.body;
+        }
+
+        int getBodyLength() {
+            return this.body.length;
+        }
+
+        boolean isClose() {
+            String connection = getHeader("Connection");
+            return connection != null && connection.toLowerCase(Locale.ROOT).contains("close");
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.kama.minispring.web.servlet;
 
+import com.kama.minispring.web.servlet.annotation.RequestMethod;
+import com.kama.minispring.web.servlet.handler.HttpRequestMethodNotSupportedException;
+import com.kama.minispring.web.servlet.handler.SimpleMappingExceptionResolver;
+import com.kama.minispring.web.servlet.method.HttpMediaTypeNotAcceptableException;
+import com.kama.minispring.web.servlet.method.ServletRequestBindingException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -13,9 +18,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -97,7 +104,7 @@ class DispatcherServletTest {
             when(handlerMapping.getHandler(request)).thenReturn(chain);
             when(handlerAdapter.supports(handler)).thenReturn(true);
             when(handlerAdapter.handle(request, response, handler)).thenReturn(mv);
-            when(viewResolver.resolveViewName("test")).thenReturn(view);
+            when(viewResolver.resolveViewName(eq("test"), any())).thenReturn(view);
             
             // 执行测试
             dispatcherServlet.processRequest(request, response);
@@ -119,7 +126,7 @@ class DispatcherServletTest {
             when(handlerMapping.getHandler(request)).thenReturn(chain);
             when(handlerAdapter.supports(handler)).thenReturn(true);
             when(handlerAdapter.handle(request, response, handler)).thenReturn(mv);
-            when(viewResolver.resolveViewName("test")).thenReturn(view);
+            when(viewResolver.resolveViewName(eq("test"), any())).thenReturn(view);
             doThrow(new RuntimeException("Render Error"))
                 .when(view).render(any(), eq(request), eq(response));
             
@@ -143,6 +150,17 @@ class DispatcherServletTest {
             verify(response).sendError(HttpServletResponse.SC_NOT_FOUND);
         }
         
+        @Test
+        void shouldAnswerMethodNotAllowedWithAllowHeader() throws Exception {
+            when(handlerMapping.getHandler(request)).thenThrow(new HttpRequestMethodNotSupportedException(
+                    "POST", EnumSet.of(RequestMethod.GET, RequestMethod.HEAD)));
+            
+            dispatcherServlet.processRequest(request, response);
+            
+            verify(response).setHeader("Allow", "GET, HEAD");
+            verify(response).sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+        }
+        
         @Test
         void shouldHandleNoAdapterFound() throws Exception {
             Object handler = new Object();
@@ -169,6 +187,64 @@ class DispatcherServletTest {
             
             verify(response).sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
         }
+        
+        @Test
+        void shouldMapStandardExceptionsToStatusCodes() throws Exception {
+            Object handler = new Object();
+            when(handlerMapping.getHandler(request)).thenAnswer(inv -> new HandlerExecutionChain(handler));
+            when(handlerAdapter.supports(handler)).thenReturn(true);
+            when(handlerAdapter.handle(request, response, handler))
+                .thenThrow(new ServletRequestBindingException("Missing parameter 'id'"))
+                .thenThrow(new HttpMediaTypeNotAcceptableException("No acceptable representation"));
+            
+            dispatcherServlet.processRequest(request, response);
+            dispatcherServlet.processRequest(request, response);
+            
+            verify(response).sendError(HttpServletResponse.SC_BAD_REQUEST);
+            verify(response).sendError(HttpServletResponse.SC_NOT_ACCEPTABLE);
+        }
+        
+        @Test
+        void shouldRenderErrorViewFromResolverChain() throws Exception {
+            Object handler = new Object();
+            HandlerInterceptor interceptor = mock(HandlerInterceptor.class);
+            HandlerExecutionChain chain = new HandlerExecutionChain(handler);
+            chain.addInterceptor(interceptor);
+            RuntimeException failure = new IllegalStateException("Handler Error");
+            
+            Properties mappings = new Properties();
+            mappings.setProperty("java.lang.IllegalStateException", "error");
+            SimpleMappingExceptionResolver resolver = new SimpleMappingExceptionResolver();
+            resolver.setExceptionMappings(mappings);
+            dispatcherServlet.setHandlerExceptionResolvers(List.of(resolver));
+            
+            when(handlerMapping.getHandler(request)).thenReturn(chain);
+            when(handlerAdapter.supports(handler)).thenReturn(true);
+            when(interceptor.preHandle(request, response, handler)).thenReturn(true);
+            when(handlerAdapter.handle(request, response, handler)).thenThrow(failure);
+            when(viewResolver.resolveViewName(eq("error"), any())).thenReturn(view);
+            
+            dispatcherServlet.processRequest(request, response);
+            
+            verify(view).render(eq(Map.of("exception", failure)), eq(request), eq(response));
+            verify(response, never()).sendError(anyInt());
+            verify(interceptor).afterCompletion(request, response, handler, failure);
+        }
+        
+        @Test
+        void shouldRethrowUnresolvedServletException() throws Exception {
+            Object handler = new Object();
+            HandlerExecutionChain chain = new HandlerExecutionChain(handler);
+            ServletException failure = new ServletException("Handler Error");
+            
+            when(handlerMapping.getHandler(request)).thenReturn(chain);
+            when(handlerAdapter.supports(handler)).thenReturn(true);
+            when(handlerAdapter.handle(request, response, handler)).thenThrow(failure);
+            
+            assertSame(failure, assertThrows(ServletException.class, () ->
+                dispatcherServlet.processRequest(request, response)));
+            verify(response, never()).sendError(anyInt());
+        }
     }
     
     @Nested
@@ -189,7 +265,7 @@ class DispatcherServletTest {
             when(handlerMapping.getHandler(request)).thenReturn(chain);
             when(handlerAdapter.supports(handler)).thenReturn(true);
             when(handlerAdapter.handle(request, response, handler)).thenReturn(mv);
-            when(viewResolver.resolveViewName("test")).thenReturn(view);
+            when(viewResolver.resolveViewName(eq("test"), any())).thenReturn(view);
             when(interceptor1.preHandle(request, response, handler)).thenReturn(true);
             when(interceptor2.preHandle(request, response, handler)).thenReturn(true);
             
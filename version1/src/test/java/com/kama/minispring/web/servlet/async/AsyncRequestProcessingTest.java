@@ -0,0 +1,349 @@
+package com.kama.minispring.web.servlet.async;
+
+import com.kama.minispring.web.servlet.AsyncHandlerInterceptor;
+import com.kama.minispring.web.servlet.DispatcherServlet;
+import com.kama.minispring.web.servlet.HandlerExecutionChain;
+import com.kama.minispring.web.servlet.HandlerMapping;
+import com.kama.minispring.web.servlet.ModelAndView;
+import com.kama.minispring.web.servlet.View;
+import com.kama.minispring.web.servlet.ViewResolver;
+import com.kama.minispring.web.servlet.handler.RequestMappingHandlerAdapter;
+import com.kama.minispring.web.servlet.method.HandlerMethod;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 异步请求处理测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class AsyncRequestProcessingTest {
+
+    private DispatcherServlet dispatcherServlet;
+
+    private RequestMappingHandlerAdapter handlerAdapter;
+
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch completed = new CountDownLatch(1);
+
+    private final List<HttpServletRequest> interceptedRequests = new CopyOnWriteArrayList<>();
+
+    private AsyncListener asyncListener;
+
+    private TestController controller;
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @Mock
+    private AsyncContext asyncContext;
+
+    @Mock
+    private HandlerMapping handlerMapping;
+
+    @Mock
+    private ViewResolver viewResolver;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        Map<String, Object> attributes = new HashMap<>();
+        doAnswer(inv -> attributes.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(request).setAttribute(anyString(), any());
+        when(request.getAttribute(anyString())).thenAnswer(inv -> attributes.get(inv.<String>getArgument(0)));
+        when(request.isAsyncSupported()).thenReturn(true);
+        when(request.startAsync(request, response)).thenReturn(asyncContext);
+        doAnswer(inv -> asyncListener = inv.getArgument(0)).when(asyncContext).addListener(any(AsyncListener.class));
+        doAnswer(inv -> {
+            events.add("complete");
+            completed.countDown();
+            return null;
+        }).when(asyncContext).complete();
+        doAnswer(inv -> {
+            events.add("error:" + inv.getArgument(0));
+            return null;
+        }).when(response).sendError(anyInt());
+        View view = mock(View.class);
+        doAnswer(inv -> events.add("render:" + inv.<Map<String, ?>>getArgument(0).get("result")))
+                .when(view).render(any(), any(), any());
+        when(viewResolver.resolveViewName(anyString(), any())).thenReturn(view);
+
+        handlerAdapter = new RequestMappingHandlerAdapter();
+        dispatcherServlet = configure(new DispatcherServlet());
+        controller = new TestController();
+    }
+
+    private DispatcherServlet configure(DispatcherServlet servlet) {
+        ReflectionTestUtils.setField(servlet, "handlerMappings", Collections.singletonList(handlerMapping));
+        ReflectionTestUtils.setField(servlet, "handlerAdapters", Collections.singletonList(handlerAdapter));
+        ReflectionTestUtils.setField(servlet, "viewResolvers", Collections.singletonList(viewResolver));
+        return servlet;
+    }
+
+    @Test
+    void shouldRenderCompletableFutureResultAfterContainerThreadReturns() throws Exception {
+        mapTo("future");
+
+        dispatch();
+        assertEquals(List.of("preHandle", "afterConcurrentHandlingStarted"), events);
+
+        controller.future.complete("done");
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("preHandle", "afterConcurrentHandlingStarted", "postHandle", "render:done",
+                "afterCompletion:null", "complete"), events);
+    }
+
+    @Test
+    void shouldSendServiceUnavailableWhenDeferredResultTimesOut() throws Exception {
+        mapTo("deferred");
+        dispatch();
+        verify(asyncContext).setTimeout(50L);
+
+        asyncListener.onTimeout(new AsyncEvent(asyncContext));
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertTrue(events.contains("error:503"));
+        assertTrue(events.contains("afterCompletion:AsyncRequestTimeoutException"));
+        assertFalse(controller.deferred.setResult("late"));
+        assertTrue(controller.deferredCompleted);
+    }
+
+    @Test
+    void shouldUseDeferredResultTimeoutResult() throws Exception {
+        mapTo("deferredWithFallback");
+        dispatch();
+
+        asyncListener.onTimeout(new AsyncEvent(asyncContext));
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertTrue(events.contains("render:fallback"));
+    }
+
+    @Test
+    void shouldCancelCallableOnTimeout() throws Exception {
+        handlerAdapter.setAsyncRequestTimeout(1_000L);
+        mapTo("callable");
+        dispatch();
+        verify(asyncContext).setTimeout(1_000L);
+        assertTrue(controller.callableStarted.await(5, TimeUnit.SECONDS));
+
+        asyncListener.onTimeout(new AsyncEvent(asyncContext));
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertTrue(controller.callableInterrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(events.contains("error:503"));
+    }
+
+    @Test
+    void shouldSendServiceUnavailableWhenCompletableFutureTimesOut() throws Exception {
+        handlerAdapter.setAsyncRequestTimeout(1_000L);
+        mapTo("future");
+        dispatch();
+
+        asyncListener.onTimeout(new AsyncEvent(asyncContext));
+
+        // 超时结果先于取消引发的CancellationException生效
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertTrue(controller.future.isCancelled());
+        assertTrue(events.contains("error:503"));
+        assertFalse(events.contains("error:500"));
+        assertTrue(events.contains("afterCompletion:AsyncRequestTimeoutException"));
+    }
+
+    @Test
+    void shouldKeepCallableResultWhenTimeoutArrivesAfterCompletion() throws Exception {
+        handlerAdapter.setAsyncRequestTimeout(1_000L);
+        mapTo("quickCallable");
+        dispatch();
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+
+        asyncListener.onTimeout(new AsyncEvent(asyncContext));
+
+        assertTrue(events.contains("render:quick"));
+        assertFalse(events.contains("error:503"));
+        assertEquals(1, events.stream().filter("complete"::equals).count());
+    }
+
+    @Test
+    void shouldCancelCompletableFutureWhenClientDisconnects() throws Exception {
+        mapTo("future");
+        dispatch();
+
+        asyncListener.onError(new AsyncEvent(asyncContext, new java.io.IOException("Broken pipe")));
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertTrue(controller.future.isCancelled());
+        assertTrue(events.contains("error:500"));
+    }
+
+    @Test
+    void shouldExecuteBlockingHandlerOnTaskExecutorWhenEnabled() throws Exception {
+        handlerAdapter.setExecuteHandlersAsync(true);
+        mapTo("blocking");
+
+        dispatch();
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), controller.handlerThread);
+        assertEquals(List.of("preHandle", "afterConcurrentHandlingStarted", "postHandle", "render:blocking",
+                "afterCompletion:null", "complete"), events);
+    }
+
+    @Test
+    void shouldRejectAsyncResultWhenAsyncNotSupported() throws Exception {
+        when(request.isAsyncSupported()).thenReturn(false);
+        mapTo("future");
+
+        dispatch();
+
+        assertTrue(events.contains("error:500"));
+        assertNull(WebAsyncManager.getStartedAsyncManager(request));
+    }
+
+    @Test
+    void shouldCompleteAsyncRequestWithProcessedRequest() throws Exception {
+        HttpServletRequest wrapped = new HttpServletRequestWrapper(request);
+        dispatcherServlet = configure(new DispatcherServlet() {
+            @Override
+            protected HttpServletRequest checkMultipart(HttpServletRequest request) {
+                return wrapped;
+            }
+        });
+        when(request.startAsync(any(), any())).thenReturn(asyncContext);
+        mapTo("future");
+        HandlerExecutionChain chain = handlerMapping.getHandler(request);
+        when(handlerMapping.getHandler(wrapped)).thenReturn(chain);
+
+        dispatch();
+        controller.future.complete("done");
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        // 后置拦截器和完成回调看到的是与preHandle相同的包装请求
+        assertEquals(List.of(wrapped, wrapped, wrapped), interceptedRequests);
+    }
+
+    private void mapTo(String methodName) throws Exception {
+        Method method = null;
+        for (Method candidate : TestController.class.getDeclaredMethods()) {
+            if (candidate.getName().equals(methodName)) {
+                method = candidate;
+            }
+        }
+        HandlerExecutionChain chain = new HandlerExecutionChain(new HandlerMethod(controller, method));
+        chain.addInterceptor(new RecordingInterceptor());
+        when(handlerMapping.getHandler(request)).thenReturn(chain);
+    }
+
+    private void dispatch() throws Exception {
+        ReflectionTestUtils.invokeMethod(dispatcherServlet, "doDispatch", request, response);
+    }
+
+    class RecordingInterceptor implements AsyncHandlerInterceptor {
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            interceptedRequests.add(request);
+            events.add("preHandle");
+            return true;
+        }
+
+        @Override
+        public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                ModelAndView modelAndView) {
+            interceptedRequests.add(request);
+            events.add("postHandle");
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                Exception ex) {
+            interceptedRequests.add(request);
+            events.add("afterCompletion:" + (ex != null ? ex.getClass().getSimpleName() : null));
+        }
+
+        @Override
+        public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                Object handler) {
+            events.add("afterConcurrentHandlingStarted");
+        }
+    }
+
+    static class TestController {
+
+        final CompletableFuture<String> future = new CompletableFuture<>();
+
+        final DeferredResult<String> deferred = new DeferredResult<>(50L);
+
+        final CountDownLatch callableStarted = new CountDownLatch(1);
+
+        final CountDownLatch callableInterrupted = new CountDownLatch(1);
+
+        volatile boolean deferredCompleted;
+
+        volatile Thread handlerThread;
+
+        public CompletableFuture<String> future() {
+            return future;
+        }
+
+        public DeferredResult<String> deferred() {
+            deferred.onCompletion(() -> deferredCompleted = true);
+            return deferred;
+        }
+
+        public DeferredResult<String> deferredWithFallback() {
+            return new DeferredResult<>(null, "fallback");
+        }
+
+        public Callable<String> callable() {
+            return () -> {
+                callableStarted.countDown();
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException ex) {
+                    callableInterrupted.countDown();
+                }
+                return "never";
+            };
+        }
+
+        public Callable<String> quickCallable() {
+            return () -> "quick";
+        }
+
+        public String blocking() {
+            handlerThread = Thread.currentThread();
+            return "blocking";
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.kama.minispring.web.servlet.cache;
+
+import com.kama.minispring.web.servlet.annotation.CacheControl;
+import com.kama.minispring.web.servlet.annotation.ResponseBody;
+import com.kama.minispring.web.servlet.annotation.ResponseCache;
+import com.kama.minispring.web.servlet.handler.RequestMappingHandlerAdapter;
+import com.kama.minispring.web.servlet.method.HandlerMethod;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * CachingHandlerAdapter测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class CachingHandlerAdapterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(1_000 * SECOND);
+
+    private CatalogController controller;
+
+    private CachingHandlerAdapter adapter;
+
+    @BeforeEach
+    void setUp() {
+        controller = new CatalogController();
+        adapter = new CachingHandlerAdapter(new RequestMappingHandlerAdapter());
+        adapter.setTicker(clock::get);
+    }
+
+    private Exchange call(String methodName, Exchange exchange) throws Exception {
+        HandlerMethod handler = new HandlerMethod(controller,
+                CatalogController.class.getMethod(methodName, getParameterTypes(methodName)));
+        assertNull(adapter.handle(exchange.request, exchange.response, handler));
+        return exchange;
+    }
+
+    private static Class<?>[] getParameterTypes(String methodName) {
+        return methodName.equals("missing") ? new Class<?>[] {HttpServletResponse.class} : new Class<?>[0];
+    }
+
+    @Test
+    void shouldGenerateETagAndAnswerNotModified() throws Exception {
+        Exchange first = call("profile", new Exchange("/profile"));
+        assertEquals(200, first.status);
+        assertEquals("profile", first.body());
+        String eTag = first.headers.get("ETag");
+        assertEquals(CachingHandlerAdapter.generateETag("profile".getBytes(StandardCharsets.UTF_8)), eTag);
+        assertEquals("max-age=60, private", first.headers.get("Cache-Control"));
+        assertEquals("7", first.headers.get("Content-Length"));
+
+        // 压缩后的响应带的是弱ETag, 客户端带回时同样匹配
+        Exchange second = call("profile", new Exchange("/profile").header("If-None-Match", "W/" + eTag));
+        assertEquals(304, second.status);
+        assertEquals("", second.body());
+        assertEquals(eTag, second.headers.get("ETag"));
+
+        Exchange changed = call("profile", new Exchange("/profile").header("If-None-Match", "\"other\""));
+        assertEquals(200, changed.status);
+        assertEquals("profile", changed.body());
+        assertEquals(3, controller.calls.get());
+        assertEquals(0, adapter.getCacheSize());
+    }
+
+    @Test
+    void shouldServeCachedResponseUntilTtlExpires() throws Exception {
+        Exchange first = call("items", new Exchange("/items").param("page", "1"));
+        assertEquals("items-1", first.body());
+
+        Exchange cached = call("items", new Exchange("/items").param("page", "1").param("debug", "true"));
+        assertEquals("items-1", cached.body());
+        assertTrue(cached.contentType.startsWith("text/plain"));
+        assertEquals("Accept-Language", cached.headers.get("Vary"));
+        assertEquals(first.headers.get("ETag"), cached.headers.get("ETag"));
+        assertEquals(1, adapter.getHitCount());
+
+        // 参与缓存键的参数和请求头不同, 分别缓存
+        assertEquals("items-2", call("items", new Exchange("/items").param("page", "2")).body());
+        assertEquals("items-3", call("items", new Exchange("/items").param("page", "1")
+                .header("Accept-Language", "de")).body());
+        assertEquals(3, adapter.getCacheSize());
+
+        Exchange notModified = call("items", new Exchange("/items").param("page", "1")
+                .header("If-None-Match", first.headers.get("ETag")));
+        assertEquals(304, notModified.status);
+        assertEquals(3, controller.calls.get());
+
+        clock.addAndGet(11 * SECOND);
+        assertEquals("items-4", call("items", new Exchange("/items").param("page", "1")).body());
+        assertEquals("items-4", call("items", new Exchange("/items").param("page", "1")).body());
+        assertEquals(4, controller.calls.get());
+    }
+
+    @Test
+    void shouldServeStaleResponseWhileOneRequestRecomputes() throws Exception {
+        call("items", new Exchange("/items"));
+        clock.addAndGet(11 * SECOND);
+        controller.block();
+
+        AtomicReference<Exchange> leader = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                leader.set(call("items", new Exchange("/items")));
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        thread.start();
+        assertTrue(controller.entered.await(5, TimeUnit.SECONDS));
+
+        // 重新计算期间的请求直接使用过期的响应, 不再执行处理器
+        assertEquals("items-1", call("items", new Exchange("/items")).body());
+        assertEquals("items-1", call("items", new Exchange("/items")).body());
+
+        controller.release();
+        thread.join(5_000);
+        assertEquals("items-2", leader.get().body());
+        assertEquals("items-2", call("items", new Exchange("/items")).body());
+        assertEquals(2, controller.calls.get());
+    }
+
+    @Test
+    void shouldWaitForLeaderWhenNothingIsCached() throws Exception {
+        controller.block();
+        AtomicReference<Exchange> leader = new AtomicReference<>();
+        AtomicReference<Exchange> follower = new AtomicReference<>();
+        Thread leaderThread = new Thread(() -> {
+            try {
+                leader.set(call("items", new Exchange("/items")));
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        leaderThread.start();
+        assertTrue(controller.entered.await(5, TimeUnit.SECONDS));
+
+        Thread followerThread = new Thread(() -> {
+            try {
+                follower.set(call("items", new Exchange("/items")));
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        followerThread.start();
+        long deadline = System.nanoTime() + 5 * SECOND;
+        while (followerThread.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        controller.release();
+        leaderThread.join(5_000);
+        followerThread.join(5_000);
+        assertEquals("items-1", leader.get().body());
+        assertEquals("items-1", follower.get().body());
+        assertEquals(1, controller.calls.get());
+        assertEquals(1, adapter.getMissCount());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntries() throws Exception {
+        adapter.setMaxEntries(10);
+        for (int page = 0; page < 10; page++) {
+            clock.incrementAndGet();
+            call("items", new Exchange("/items").param("page", String.valueOf(page)));
+        }
+        clock.incrementAndGet();
+        call("items", new Exchange("/items").param("page", "0"));
+        assertEquals(10, controller.calls.get());
+
+        clock.incrementAndGet();
+        call("items", new Exchange("/items").param("page", "10"));
+        // 一次淘汰到上限的90%, 最近访问过的page=0保留
+        assertEquals(9, adapter.getCacheSize());
+        assertTrue(adapter.getCacheBytes() > 0);
+        call("items", new Exchange("/items").param("page", "0"));
+        assertEquals(11, controller.calls.get());
+        call("items", new Exchange("/items").param("page", "1"));
+        assertEquals(12, controller.calls.get());
+
+        adapter.clearCache();
+        assertEquals(0, adapter.getCacheSize());
+        assertEquals(0, adapter.getCacheBytes());
+    }
+
+    @Test
+    void shouldNotCacheErrorsOrTouchUnannotatedHandlers() throws Exception {
+        Exchange error = call("missing", new Exchange("/missing"));
+        assertEquals(404, error.status);
+        call("missing", new Exchange("/missing"));
+        assertEquals(2, controller.calls.get());
+        assertEquals(0, adapter.getCacheSize());
+
+        Exchange plain = call("plain", new Exchange("/plain"));
+        assertEquals("plain", plain.body());
+        assertNull(plain.headers.get("ETag"));
+        verify(plain.response, never()).setContentLength(anyInt());
+
+        Exchange post = new Exchange("/items");
+        when(post.request.getMethod()).thenReturn("POST");
+        call("items", post);
+        assertNull(post.headers.get("ETag"));
+        assertEquals(0, adapter.getCacheSize());
+    }
+
+    @ResponseBody
+    public static class CatalogController {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        private volatile boolean blockNext;
+
+        void block() {
+            this.blockNext = true;
+        }
+
+        void release() {
+            this.released.countDown();
+        }
+
+        @CacheControl(maxAge = 60, cachePrivate = true)
+        public String profile() {
+            calls.incrementAndGet();
+            return "profile";
+        }
+
+        @CacheControl(maxAge = 10)
+        @ResponseCache(ttl = 10, keyHeaders = "Accept-Language", keyParams = "page")
+        public String items() throws InterruptedException {
+            int call = calls.incrementAndGet();
+            if (this.blockNext) {
+                this.blockNext = false;
+                entered.countDown();
+                assertTrue(released.await(5, TimeUnit.SECONDS));
+            }
+            return "items-" + call;
+        }
+
+        @ResponseCache(ttl = 10)
+        public void missing(HttpServletResponse response) throws IOException {
+            calls.incrementAndGet();
+            response.sendError(404);
+        }
+
+        public String plain() {
+            return "plain";
+        }
+    }
+
+    /**
+     * 一次请求使用的模拟请求和响应
+     */
+    private static final class Exchange {
+
+        private final HttpServletRequest request = mock(HttpServletRequest.class);
+
+        private final HttpServletResponse response = mock(HttpServletResponse.class);
+
+        private final Map<String, String> headers = new LinkedHashMap<>();
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private volatile int status = 200;
+
+        private volatile String contentType;
+
+        Exchange(String uri) throws IOException {
+            when(request.getMethod()).thenReturn("GET");
+            when(request.getRequestURI()).thenReturn(uri);
+            doAnswer(inv -> status = inv.getArgument(0)).when(response).setStatus(anyInt());
+            doAnswer(inv -> status = inv.getArgument(0)).when(response).sendError(anyInt());
+            doAnswer(inv -> headers.put(inv.getArgument(0), inv.getArgument(1)))
+                    .when(response).setHeader(anyString(), anyString());
+            doAnswer(inv -> headers.merge(inv.getArgument(0), inv.getArgument(1), (a, b) -> a + ", " + b))
+                    .when(response).addHeader(anyString(), anyString());
+            doAnswer(inv -> headers.put("Content-Length", String.valueOf((int) inv.getArgument(0))))
+                    .when(response).setContentLength(anyInt());
+            doAnswer(inv -> contentType = inv.getArgument(0)).when(response).setContentType(anyString());
+            when(response.getContentType()).thenAnswer(inv -> contentType);
+            when(response.getHeader(anyString())).thenAnswer(inv -> headers.get(inv.<String>getArgument(0)));
+            when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                }
+            });
+        }
+
+        Exchange param(String name, String value) {
+            when(request.getParameterValues(name)).thenReturn(new String[] {value});
+            return this;
+        }
+
+        Exchange header(String name, String value) {
+            when(request.getHeader(name)).thenReturn(value);
+            return this;
+        }
+
+        String body() {
+            return body.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
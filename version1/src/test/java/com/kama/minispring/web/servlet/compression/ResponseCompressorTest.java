@@ -0,0 +1,284 @@
+package com.kama.minispring.web.servlet.compression;
+
+import com.kama.minispring.web.servlet.DispatcherServlet;
+import com.kama.minispring.web.servlet.HandlerExecutionChain;
+import com.kama.minispring.web.servlet.HandlerMapping;
+import com.kama.minispring.web.servlet.HttpRequestHandler;
+import com.kama.minispring.web.servlet.handler.HttpRequestHandlerAdapter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ResponseCompressor测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class ResponseCompressorTest {
+
+    private ResponseCompressor compressor;
+
+    private final Map<String, List<String>> headers = new LinkedHashMap<>();
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    private long contentLength = -1;
+
+    private int status = 200;
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        compressor = new ResponseCompressor();
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate, br");
+
+        doAnswer(inv -> headers.put(inv.getArgument(0), new ArrayList<>(List.of(inv.<String>getArgument(1)))))
+                .when(response).setHeader(anyString(), anyString());
+        doAnswer(inv -> headers.computeIfAbsent(inv.getArgument(0), key -> new ArrayList<>())
+                .add(inv.getArgument(1))).when(response).addHeader(anyString(), anyString());
+        when(response.getHeader(anyString())).thenAnswer(inv -> {
+            List<String> values = headers.get(inv.<String>getArgument(0));
+            return values != null ? values.get(0) : null;
+        });
+        when(response.getHeaders(anyString())).thenAnswer(inv -> headers.getOrDefault(inv.getArgument(0), List.of()));
+        doAnswer(inv -> contentLength = inv.<Long>getArgument(0)).when(response).setContentLengthLong(anyLong());
+        doAnswer(inv -> status = inv.<Integer>getArgument(0)).when(response).setStatus(anyInt());
+        when(response.getStatus()).thenAnswer(inv -> status);
+        doAnswer(inv -> headers.put("Content-Type", List.of(inv.<String>getArgument(0))))
+                .when(response).setContentType(anyString());
+        when(response.getContentType()).thenAnswer(inv -> {
+            List<String> values = headers.get("Content-Type");
+            return values != null ? values.get(0) : null;
+        });
+        when(response.getCharacterEncoding()).thenReturn("UTF-8");
+        when(response.getOutputStream()).thenReturn(new CapturingOutputStream(body));
+    }
+
+    private static String json(int items) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < items; i++) {
+            builder.append(i > 0 ? "," : "").append("{\"id\":").append(i).append(",\"name\":\"item-").append(i)
+                    .append("\",\"tags\":[\"alpha\",\"beta\"]}");
+        }
+        return builder.append(']').toString();
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private String header(String name) {
+        List<String> values = headers.get(name);
+        return values != null ? values.get(0) : null;
+    }
+
+    @Test
+    void shouldNegotiateEncodingFromAcceptEncoding() {
+        assertEquals("gzip", ResponseCompressor.negotiateEncoding("deflate, gzip"));
+        assertEquals("deflate", ResponseCompressor.negotiateEncoding("gzip;q=0, deflate"));
+        assertEquals("deflate", ResponseCompressor.negotiateEncoding("gzip;q=0.4, deflate;q=0.8"));
+        assertEquals("gzip", ResponseCompressor.negotiateEncoding("*;q=0.5"));
+        assertNull(ResponseCompressor.negotiateEncoding("identity, br"));
+        assertNull(ResponseCompressor.negotiateEncoding(null));
+
+        when(request.getHeader("Accept-Encoding")).thenReturn("identity");
+        assertSame(response, compressor.wrap(request, response));
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+        when(request.getMethod()).thenReturn("HEAD");
+        assertSame(response, compressor.wrap(request, response));
+    }
+
+    @Test
+    void shouldStreamGzipAndReuseDeflaters() throws Exception {
+        String payload = json(2_000);
+        for (int i = 0; i < 2; i++) {
+            body.reset();
+            headers.clear();
+            HttpServletResponse wrapped = compressor.wrap(request, response);
+            wrapped.setContentType("application/json;charset=UTF-8");
+            wrapped.setContentLength(payload.getBytes(StandardCharsets.UTF_8).length);
+            PrintWriter writer = wrapped.getWriter();
+            writer.write(payload);
+            compressor.finish(wrapped);
+
+            assertEquals("gzip", header("Content-Encoding"));
+            assertEquals("Accept-Encoding", header("Vary"));
+            assertEquals(-1, contentLength);
+            assertTrue(body.size() < payload.length() / 5, "compressed to " + body.size());
+            assertEquals(payload, gunzip(body.toByteArray()));
+        }
+        assertEquals(1, compressor.getDeflaterCreatedCount());
+    }
+
+    @Test
+    void shouldSkipSmallBodiesAndPassDeclaredLengthThrough() throws Exception {
+        HttpServletResponse wrapped = compressor.wrap(request, response);
+        wrapped.setContentType("application/json");
+        wrapped.setContentLength(11);
+        wrapped.getOutputStream().write("{\"ok\":true}".getBytes(StandardCharsets.UTF_8));
+        compressor.finish(wrapped);
+
+        assertNull(header("Content-Encoding"));
+        assertEquals("Accept-Encoding", header("Vary"));
+        assertEquals(11, contentLength);
+        assertEquals("{\"ok\":true}", body.toString(StandardCharsets.UTF_8));
+
+        // 长度未知时按实际写出的字节数判断
+        body.reset();
+        headers.clear();
+        wrapped = compressor.wrap(request, response);
+        wrapped.setContentType("text/plain");
+        wrapped.getWriter().write("short");
+        compressor.finish(wrapped);
+        assertNull(header("Content-Encoding"));
+        assertEquals("short", body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldSkipCompressedMediaTypesAndPartialResponses() throws Exception {
+        byte[] large = json(500).getBytes(StandardCharsets.UTF_8);
+
+        HttpServletResponse wrapped = compressor.wrap(request, response);
+        wrapped.setContentType("image/png");
+        wrapped.getOutputStream().write(large);
+        compressor.finish(wrapped);
+        assertNull(header("Content-Encoding"));
+        assertNull(header("Vary"));
+        assertArrayEquals(large, body.toByteArray());
+
+        body.reset();
+        wrapped = compressor.wrap(request, response);
+        wrapped.setContentType("text/plain");
+        wrapped.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        wrapped.getOutputStream().write(large);
+        compressor.finish(wrapped);
+        assertNull(header("Content-Encoding"));
+        assertArrayEquals(large, body.toByteArray());
+    }
+
+    @Test
+    void shouldApplyMostSpecificCompressionLevel() {
+        compressor.setDefaultLevel(5);
+        compressor.setCompressionLevel("text/*", 1);
+        compressor.setCompressionLevel("application/json", 9);
+        compressor.setCompressionLevel("application/*+json", 7);
+        compressor.setCompressionLevel("text/csv", 0);
+
+        assertEquals(9, compressor.getCompressionLevel("application/json;charset=UTF-8"));
+        assertEquals(7, compressor.getCompressionLevel("application/problem+json"));
+        assertEquals(1, compressor.getCompressionLevel("text/html"));
+        assertEquals(0, compressor.getCompressionLevel("text/csv"));
+        assertEquals(5, compressor.getCompressionLevel("application/xml"));
+        assertEquals(0, compressor.getCompressionLevel("video/mp4"));
+        assertEquals(0, compressor.getCompressionLevel(null));
+    }
+
+    @Test
+    void shouldFlushDeflateOutputBeforeResponseEnds() throws Exception {
+        when(request.getHeader("Accept-Encoding")).thenReturn("deflate");
+        HttpServletResponse wrapped = compressor.wrap(request, response);
+        wrapped.setContentType("text/plain");
+        ServletOutputStream out = wrapped.getOutputStream();
+        out.write("first chunk".getBytes(StandardCharsets.UTF_8));
+        wrapped.flushBuffer();
+
+        // 同步刷新后已写出的数据可以独立解压
+        Inflater inflater = new Inflater();
+        inflater.setInput(body.toByteArray());
+        byte[] partial = new byte[64];
+        int count = inflater.inflate(partial);
+        inflater.end();
+        assertEquals("first chunk", new String(partial, 0, count, StandardCharsets.UTF_8));
+
+        out.write(", second chunk".getBytes(StandardCharsets.UTF_8));
+        compressor.finish(wrapped);
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(body.toByteArray()))) {
+            assertEquals("first chunk, second chunk", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals("deflate", header("Content-Encoding"));
+    }
+
+    @Test
+    void shouldCompressDispatcherResponses() throws Exception {
+        String payload = json(300);
+        HttpRequestHandler handler = (req, res) -> {
+            res.setContentType("application/json");
+            res.setHeader("ETag", "\"v1\"");
+            res.getOutputStream().write(payload.getBytes(StandardCharsets.UTF_8));
+        };
+        HandlerMapping mapping = req -> new HandlerExecutionChain(handler);
+        DispatcherServlet servlet = new DispatcherServlet();
+        servlet.setHandlerMappings(List.of(mapping));
+        servlet.setHandlerAdapters(List.of(new HttpRequestHandlerAdapter()));
+        servlet.setViewResolvers(List.of());
+        servlet.setResponseCompressor(compressor);
+        servlet.init();
+
+        servlet.service(request, response);
+
+        assertEquals("gzip", header("Content-Encoding"));
+        assertEquals("W/\"v1\"", header("ETag"));
+        assertEquals(payload, gunzip(body.toByteArray()));
+    }
+
+    static class CapturingOutputStream extends ServletOutputStream {
+
+        private final ByteArrayOutputStream target;
+
+        CapturingOutputStream(ByteArrayOutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) {
+            target.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            target.write(b, off, len);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+    }
+}
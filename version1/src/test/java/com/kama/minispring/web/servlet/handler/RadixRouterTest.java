@@ -0,0 +1,185 @@
+package com.kama.minispring.web.servlet.handler;
+
+import com.kama.minispring.web.servlet.annotation.RequestMethod;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RadixRouter测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class RadixRouterTest {
+
+    private static final RequestMethod[] ANY = new RequestMethod[0];
+
+    @Test
+    void shouldMatchLiteralsSharingPrefixes() {
+        RadixRouter<String> router = new RadixRouter<>();
+        router.register("/users", ANY, "users");
+        router.register("/user/profile", ANY, "profile");
+        router.register("/us", ANY, "us");
+        router.register("/", ANY, "root");
+
+        assertEquals("users", router.lookup("/users", RequestMethod.GET).getHandler());
+        assertEquals("profile", router.lookup("/user/profile", RequestMethod.GET).getHandler());
+        assertEquals("us", router.lookup("/us", RequestMethod.GET).getHandler());
+        assertEquals("root", router.lookup("/", RequestMethod.GET).getHandler());
+        assertNull(router.lookup("/user", RequestMethod.GET));
+        assertNull(router.lookup("/users/", RequestMethod.GET));
+        assertNull(router.lookup("", RequestMethod.GET));
+    }
+
+    @Test
+    void shouldCaptureVariablesAndPreferLiterals() {
+        RadixRouter<String> router = new RadixRouter<>();
+        router.register("/users/{id}", ANY, "byId");
+        router.register("/users/me", ANY, "me");
+        router.register("/users/{userId}/orders/{orderId}", ANY, "order");
+        router.register("/users/*/avatar", ANY, "avatar");
+
+        RadixRouter.Match<String> match = router.lookup("/users/42", RequestMethod.GET);
+        assertEquals("byId", match.getHandler());
+        assertEquals("/users/{id}", match.getPattern());
+        assertEquals(Map.of("id", "42"), match.getUriVariables());
+
+        assertEquals("me", router.lookup("/users/me", RequestMethod.GET).getHandler());
+
+        match = router.lookup("/users/7/orders/99", RequestMethod.GET);
+        assertEquals("order", match.getHandler());
+        assertEquals(Map.of("userId", "7", "orderId", "99"), match.getUriVariables());
+
+        // 字面量分支"me"失败后回溯到变量分支
+        match = router.lookup("/users/me/orders/1", RequestMethod.GET);
+        assertEquals(Map.of("userId", "me", "orderId", "1"), match.getUriVariables());
+
+        match = router.lookup("/users/5/avatar", RequestMethod.GET);
+        assertEquals("avatar", match.getHandler());
+        assertTrue(match.getUriVariables().isEmpty());
+
+        assertNull(router.lookup("/users/", RequestMethod.GET));
+        assertNull(router.lookup("/users/7/orders", RequestMethod.GET));
+    }
+
+    @Test
+    void shouldMatchCatchAllAsLowestPriority() {
+        RadixRouter<String> router = new RadixRouter<>();
+        router.register("/static/**", ANY, "static");
+        router.register("/static/{file}", ANY, "file");
+        router.register("/**", ANY, "fallback");
+
+        assertEquals("file", router.lookup("/static/app.js", RequestMethod.GET).getHandler());
+        assertEquals("static", router.lookup("/static/js/app.js", RequestMethod.GET).getHandler());
+        assertEquals("static", router.lookup("/static/", RequestMethod.GET).getHandler());
+        assertEquals("fallback", router.lookup("/other/page", RequestMethod.GET).getHandler());
+        // /static/**同样匹配不带末尾斜杠的/static
+        assertEquals("static", router.lookup("/static", RequestMethod.GET).getHandler());
+        assertEquals("fallback", router.lookup("/statics", RequestMethod.GET).getHandler());
+    }
+
+    @Test
+    void shouldMatchCatchAllPrefixWithoutTrailingSlash() {
+        RadixRouter<String> router = new RadixRouter<>();
+        router.register("/files/{bucket}/**", new RequestMethod[]{RequestMethod.GET}, "files");
+        router.register("/docs", ANY, "docs");
+        router.register("/docs/**", ANY, "docTree");
+
+        RadixRouter.Match<String> match = router.lookup("/files/images", RequestMethod.GET);
+        assertEquals("files", match.getHandler());
+        assertEquals(Map.of("bucket", "images"), match.getUriVariables());
+        assertNull(router.lookup("/files/images", RequestMethod.POST));
+        // 显式注册的路由优先
+        assertEquals("docs", router.lookup("/docs", RequestMethod.GET).getHandler());
+        assertEquals("docTree", router.lookup("/docs/a", RequestMethod.GET).getHandler());
+    }
+
+    @Test
+    void shouldReportAllowedMethodsForPath() {
+        RadixRouter<String> router = new RadixRouter<>();
+        router.register("/items/{id}", new RequestMethod[]{RequestMethod.GET, RequestMethod.HEAD}, "read");
+        router.register("/items/{itemId}", new RequestMethod[]{RequestMethod.DELETE}, "delete");
+
+        assertNull(router.lookup("/items/1", RequestMethod.POST));
+        RadixRouter.Match<String> mismatch = router.resolve("/items/1", 0, RequestMethod.POST);
+        assertTrue(mismatch.isMethodMismatch());
+        assertNull(mismatch.getHandler());
+        assertEquals(Set.of(RequestMethod.GET, RequestMethod.HEAD, RequestMethod.DELETE),
+                mismatch.getAllowedMethods());
+        assertNull(router.resolve("/orders/1", 0, RequestMethod.POST));
+        assertFalse(router.resolve("/items/1", 0, RequestMethod.DELETE).isMethodMismatch());
+    }
+
+    @Test
+    void shouldCollectAllowedMethodsAcrossBacktrackedBranches() {
+        RadixRouter<String> router = new RadixRouter<>();
+        router.register("/files/readme", new RequestMethod[]{RequestMethod.GET}, "readme");
+        router.register("/files/{name}", new RequestMethod[]{RequestMethod.PUT}, "upload");
+        router.register("/files/**", new RequestMethod[]{RequestMethod.DELETE}, "purge");
+
+        RadixRouter.Match<String> mismatch = router.resolve("/files/readme", 0, RequestMethod.POST);
+        assertTrue(mismatch.isMethodMismatch());
+        assertEquals(Set.of(RequestMethod.GET, RequestMethod.PUT, RequestMethod.DELETE),
+                mismatch.getAllowedMethods());
+        assertEquals(Set.of(RequestMethod.DELETE), router.resolve("/files", 0, null).getAllowedMethods());
+        assertEquals("upload", router.resolve("/files/readme", 0, RequestMethod.PUT).getHandler());
+    }
+
+    @Test
+    void shouldDispatchByRequestMethod() {
+        RadixRouter<String> router = new RadixRouter<>();
+        router.register("/items/{id}", new RequestMethod[]{RequestMethod.GET, RequestMethod.HEAD}, "read");
+        router.register("/items/{itemId}", new RequestMethod[]{RequestMethod.DELETE}, "delete");
+        router.register("/items/{id}/tags", new RequestMethod[]{RequestMethod.POST}, "tag");
+        router.register("/items/**", ANY, "any");
+
+        assertEquals("read", router.lookup("/items/1", RequestMethod.HEAD).getHandler());
+        RadixRouter.Match<String> match = router.lookup("/items/1", RequestMethod.DELETE);
+        assertEquals("delete", match.getHandler());
+        assertEquals(Map.of("itemId", "1"), match.getUriVariables());
+        // 变量分支上没有PUT路由时回溯到**
+        assertEquals("any", router.lookup("/items/1", RequestMethod.PUT).getHandler());
+        assertEquals("any", router.lookup("/items/1/tags", null).getHandler());
+        assertEquals("tag", router.lookup("/items/1/tags", RequestMethod.POST).getHandler());
+    }
+
+    @Test
+    void shouldDecodeCapturedVariables() {
+        RadixRouter<String> router = new RadixRouter<>();
+        router.register("/users/{name}", ANY, "user");
+        router.register("/files/{name}", ANY, "file");
+
+        assertEquals(Map.of("name", "Jörg"), router.lookup("/users/J%C3%B6rg", RequestMethod.GET).getUriVariables());
+        assertEquals(Map.of("name", "a b"), router.lookup("/files/a%20b", RequestMethod.GET).getUriVariables());
+        // 编码的斜杠不拆分路径段, '+'在路径中不表示空格
+        assertEquals(Map.of("name", "a/b"), router.lookup("/files/a%2Fb", RequestMethod.GET).getUriVariables());
+        assertEquals(Map.of("name", "a+b%"), router.lookup("/files/a+b%", RequestMethod.GET).getUriVariables());
+        assertEquals(Map.of("name", "a+b c"), router.lookup("/files/a+b%20c", RequestMethod.GET).getUriVariables());
+    }
+
+    @Test
+    void shouldLookupFromOffset() {
+        RadixRouter<String> router = new RadixRouter<>();
+        router.register("/orders/{id}", ANY, "order");
+
+        RadixRouter.Match<String> match = router.lookup("/app/orders/3", 4, RequestMethod.GET);
+        assertEquals(Map.of("id", "3"), match.getUriVariables());
+    }
+
+    @Test
+    void shouldRejectInvalidOrDuplicatePatterns() {
+        RadixRouter<String> router = new RadixRouter<>();
+        assertThrows(IllegalArgumentException.class, () -> router.register("/a/**/b", ANY, "x"));
+        assertThrows(IllegalArgumentException.class, () -> router.register("/files/{name}.txt", ANY, "x"));
+        assertThrows(IllegalArgumentException.class, () -> router.register("/files/*.txt", ANY, "x"));
+
+        router.register("/a/{id}", new RequestMethod[]{RequestMethod.GET}, "x");
+        router.register("/a/{id}", new RequestMethod[]{RequestMethod.POST}, "y");
+        assertThrows(IllegalStateException.class,
+                () -> router.register("/a/{other}", new RequestMethod[]{RequestMethod.GET}, "z"));
+    }
+}
@@ -0,0 +1,95 @@
+package com.kama.minispring.web.servlet.handler;
+
+import com.kama.minispring.web.servlet.annotation.RequestMethod;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基数树路由在5000条路由下的查找开销
+ * 非单元测试, test-compile 后以测试类路径手动运行 main 方法;
+ * JVM支持线程分配统计时同时输出每次查找分配的字节数
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+public class RequestMappingBenchmark {
+
+    private static final int ROUTE_COUNT = 5_000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+    private static final int LOOKUPS_PER_ROUND = 1_000_000;
+
+    private static final RequestMethod[] READ = {RequestMethod.GET};
+    private static final RequestMethod[] WRITE = {RequestMethod.POST, RequestMethod.PUT};
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        RadixRouter<String> router = new RadixRouter<>();
+        List<String> hits = new ArrayList<>();
+        List<String> misses = new ArrayList<>();
+        // 每个资源5条路由: 列表、详情、子资源、写操作和静态文件
+        for (int i = 0; i < ROUTE_COUNT / 5; i++) {
+            String base = "/api/v" + (i % 3 + 1) + "/resource" + i;
+            router.register(base, READ, base);
+            router.register(base + "/{id}", READ, base + "/{id}");
+            router.register(base + "/{id}/items/{itemId}", READ, base + "/items");
+            router.register(base + "/{id}", WRITE, base + "/write");
+            router.register("/static/bundle" + i + "/**", READ, "static" + i);
+            hits.add(base + "/" + i + "/items/" + (i * 7));
+            hits.add(base + "/" + i);
+            hits.add("/static/bundle" + i + "/js/app.js");
+            misses.add(base + "/" + i + "/unknown");
+            misses.add("/api/v9/resource" + i);
+        }
+        System.out.printf("routes: %d%n", router.getRouteCount());
+        String[] hitPaths = hits.toArray(new String[0]);
+        String[] missPaths = misses.toArray(new String[0]);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(router, hitPaths);
+            run(router, missPaths);
+        }
+        report("hit", router, hitPaths);
+        report("miss", router, missPaths);
+    }
+
+    private static void report(String label, RadixRouter<String> router, String[] paths) {
+        long allocatedBefore = allocatedBytes();
+        long nanos = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            nanos += run(router, paths);
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+        long lookups = (long) MEASURE_ROUNDS * LOOKUPS_PER_ROUND;
+        System.out.printf("%-4s : %.1f ns/lookup", label, (double) nanos / lookups);
+        if (allocatedBefore >= 0) {
+            System.out.printf(", %.1f bytes/lookup", (double) allocated / lookups);
+        }
+        System.out.println();
+    }
+
+    private static long run(RadixRouter<String> router, String[] paths) {
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < LOOKUPS_PER_ROUND; i++) {
+            RadixRouter.Match<String> match = router.lookup(paths[i % paths.length], RequestMethod.GET);
+            if (match != null) {
+                found++;
+            }
+        }
+        sink = found;
+        return System.nanoTime() - start;
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1L;
+    }
+}
@@ -1,6 +1,7 @@
 package com.kama.minispring.web.servlet.handler;
 
 import com.kama.minispring.web.servlet.ModelAndView;
+import com.kama.minispring.web.servlet.method.HandlerMethod;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -37,8 +38,7 @@ class RequestMappingHandlerAdapterTest {
         // given
         TestController controller = new TestController();
         Method method = TestController.class.getDeclaredMethods()[0];
-        RequestMappingHandlerAdapter.HandlerMethod handlerMethod = 
-            new RequestMappingHandlerAdapter.HandlerMethod(controller, method);
+        HandlerMethod handlerMethod = new HandlerMethod(controller, method);
 
         // when
         boolean supports = handlerAdapter.supports(handlerMethod);
@@ -64,8 +64,7 @@ class RequestMappingHandlerAdapterTest {
         // given
         TestController controller = new TestController();
         Method method = TestController.class.getDeclaredMethod("stringReturnValue");
-        RequestMappingHandlerAdapter.HandlerMethod handlerMethod = 
-            new RequestMappingHandlerAdapter.HandlerMethod(controller, method);
+        HandlerMethod handlerMethod = new HandlerMethod(controller, method);
 
         // when
         ModelAndView mv = handlerAdapter.handle(request, response, handlerMethod);
@@ -80,8 +79,7 @@ class RequestMappingHandlerAdapterTest {
         // given
         TestController controller = new TestController();
         Method method = TestController.class.getDeclaredMethod("modelAndViewReturnValue");
-        RequestMappingHandlerAdapter.HandlerMethod handlerMethod = 
-            new RequestMappingHandlerAdapter.HandlerMethod(controller, method);
+        HandlerMethod handlerMethod = new HandlerMethod(controller, method);
 
         // when
         ModelAndView mv = handlerAdapter.handle(request, response, handlerMethod);
@@ -97,8 +95,7 @@ class RequestMappingHandlerAdapterTest {
         // given
         TestController controller = new TestController();
         Method method = TestController.class.getDeclaredMethod("objectReturnValue");
-        RequestMappingHandlerAdapter.HandlerMethod handlerMethod = 
-            new RequestMappingHandlerAdapter.HandlerMethod(controller, method);
+        HandlerMethod handlerMethod = new HandlerMethod(controller, method);
 
         // when
         ModelAndView mv = handlerAdapter.handle(request, response, handlerMethod);
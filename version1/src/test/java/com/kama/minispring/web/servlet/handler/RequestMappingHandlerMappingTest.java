@@ -2,16 +2,25 @@ package com.kama.minispring.web.servlet.handler;
 
 import com.kama.minispring.context.ApplicationContext;
 import com.kama.minispring.web.servlet.HandlerExecutionChain;
+import com.kama.minispring.web.servlet.HandlerInterceptor;
+import com.kama.minispring.web.servlet.HandlerMapping;
 import com.kama.minispring.web.servlet.annotation.RequestMapping;
 import com.kama.minispring.web.servlet.annotation.RequestMethod;
+import com.kama.minispring.web.servlet.method.HandlerMethod;
+import com.kama.minispring.web.servlet.method.HandlerMethodArgumentResolver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 /**
@@ -56,9 +65,8 @@ class RequestMappingHandlerMappingTest {
 
         // 验证结果
         assertNotNull(chain);
-        assertTrue(chain.getHandler() instanceof RequestMappingHandlerMapping.HandlerMethod);
-        RequestMappingHandlerMapping.HandlerMethod handlerMethod = 
-            (RequestMappingHandlerMapping.HandlerMethod) chain.getHandler();
+        assertTrue(chain.getHandler() instanceof HandlerMethod);
+        HandlerMethod handlerMethod = (HandlerMethod) chain.getHandler();
         assertEquals("handleRequest", handlerMethod.getMethod().getName());
         assertSame(controller, handlerMethod.getBean());
     }
@@ -96,11 +104,12 @@ class RequestMappingHandlerMappingTest {
         when(request.getRequestURI()).thenReturn("/test");
         when(request.getMethod()).thenReturn("POST");
 
-        // 执行测试
-        HandlerExecutionChain chain = handlerMapping.getHandler(request);
-
-        // 验证结果：应该找不到处理器，因为/test只支持GET方法
-        assertNull(chain);
+        // 执行测试并验证结果：/test只支持GET方法, 路径存在但方法不匹配时报告支持的方法
+        HttpRequestMethodNotSupportedException ex = assertThrows(HttpRequestMethodNotSupportedException.class,
+                () -> handlerMapping.getHandler(request));
+        assertEquals("POST", ex.getMethod());
+        assertEquals(Set.of(RequestMethod.GET), ex.getSupportedMethods());
+        assertEquals("GET", ex.getAllowHeader());
     }
 
     @Test
@@ -123,13 +132,197 @@ class RequestMappingHandlerMappingTest {
 
         // 验证结果
         assertNotNull(chain);
-        assertTrue(chain.getHandler() instanceof RequestMappingHandlerMapping.HandlerMethod);
-        RequestMappingHandlerMapping.HandlerMethod handlerMethod = 
-            (RequestMappingHandlerMapping.HandlerMethod) chain.getHandler();
+        assertTrue(chain.getHandler() instanceof HandlerMethod);
+        HandlerMethod handlerMethod = (HandlerMethod) chain.getHandler();
         assertEquals("handleRequest", handlerMethod.getMethod().getName());
         assertSame(controller, handlerMethod.getBean());
     }
 
+    @Test
+    void shouldExposePathVariablesAsRequestAttributes() throws Exception {
+        // 准备测试数据
+        TestControllerWithPathVariables controller = new TestControllerWithPathVariables();
+        when(applicationContext.getBeanDefinitionNames()).thenReturn(new String[]{"orderController"});
+        when(applicationContext.getBean("orderController")).thenReturn(controller);
+
+        // 初始化处理器映射器
+        handlerMapping.afterPropertiesSet();
+
+        // 模拟带上下文路径的请求
+        when(request.getRequestURI()).thenReturn("/shop/orders/42");
+        when(request.getContextPath()).thenReturn("/shop");
+        when(request.getMethod()).thenReturn("DELETE");
+
+        // 执行测试
+        HandlerExecutionChain chain = handlerMapping.getHandler(request);
+
+        // 验证结果
+        assertNotNull(chain);
+        HandlerMethod handlerMethod = (HandlerMethod) chain.getHandler();
+        assertEquals("deleteOrder", handlerMethod.getMethod().getName());
+        verify(request).setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/orders/{id}");
+        verify(request).setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("id", "42"));
+    }
+
+    @Test
+    void shouldDecodeEncodedPathVariables() throws Exception {
+        when(applicationContext.getBeanDefinitionNames()).thenReturn(new String[]{"orderController"});
+        when(applicationContext.getBean("orderController")).thenReturn(new TestControllerWithPathVariables());
+        handlerMapping.afterPropertiesSet();
+
+        // 编码的斜杠仍属于同一个路径段
+        when(request.getRequestURI()).thenReturn("/orders/A%2F7%20%C3%A4");
+        when(request.getMethod()).thenReturn("GET");
+
+        assertNotNull(handlerMapping.getHandler(request));
+        verify(request).setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("id", "A/7 ä"));
+    }
+
+    @Test
+    void shouldAttachInterceptorsScopedByPathPatterns() throws Exception {
+        when(applicationContext.getBeanDefinitionNames())
+            .thenReturn(new String[]{"typeLevel", "orderController"});
+        when(applicationContext.getBean("typeLevel")).thenReturn(new TestControllerWithTypeLevelMapping());
+        when(applicationContext.getBean("orderController")).thenReturn(new TestControllerWithPathVariables());
+        HandlerInterceptor global = mock(HandlerInterceptor.class);
+        HandlerInterceptor api = mock(HandlerInterceptor.class);
+        HandlerInterceptor orders = mock(HandlerInterceptor.class);
+        InterceptorRegistry registry = new InterceptorRegistry();
+        registry.addInterceptor(global);
+        registry.addInterceptor(api).addPathPatterns("/api/**");
+        registry.addInterceptor(orders).addPathPatterns("/orders/*").excludePathPatterns("/api/**");
+        handlerMapping.setInterceptors(registry.getInterceptors());
+        handlerMapping.afterPropertiesSet();
+
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getRequestURI()).thenReturn("/api/test");
+        assertArrayEquals(new HandlerInterceptor[]{global, api},
+            handlerMapping.getHandler(request).getInterceptors());
+
+        when(request.getRequestURI()).thenReturn("/orders/7");
+        assertArrayEquals(new HandlerInterceptor[]{global, orders},
+            handlerMapping.getHandler(request).getInterceptors());
+    }
+
+    @Test
+    void shouldReuseResolvedInterceptorsAcrossRequestsAndRefreshOnChange() throws Exception {
+        when(applicationContext.getBeanDefinitionNames()).thenReturn(new String[]{"orderController"});
+        when(applicationContext.getBean("orderController")).thenReturn(new TestControllerWithPathVariables());
+        handlerMapping.afterPropertiesSet();
+        when(request.getRequestURI()).thenReturn("/orders/1");
+        when(request.getMethod()).thenReturn("GET");
+        assertEquals(0, handlerMapping.getHandler(request).getInterceptors().length);
+
+        HandlerInterceptor interceptor = mock(HandlerInterceptor.class);
+        handlerMapping.setInterceptors(Collections.singletonList(
+            new MappedInterceptor(new String[]{"/orders/{orderId}"}, null, interceptor)));
+
+        HandlerExecutionChain first = handlerMapping.getHandler(request);
+        HandlerExecutionChain second = handlerMapping.getHandler(request);
+        assertNotSame(first, second);
+        assertSame(first.getHandler(), second.getHandler());
+        assertArrayEquals(new HandlerInterceptor[]{interceptor}, first.getInterceptors());
+    }
+
+    @Test
+    void shouldMatchInterceptorPatternsNarrowerThanRouteAtRequestTime() throws Exception {
+        when(applicationContext.getBeanDefinitionNames())
+            .thenReturn(new String[]{"typeLevel", "orderController"});
+        when(applicationContext.getBean("typeLevel")).thenReturn(new TestControllerWithTypeLevelMapping());
+        when(applicationContext.getBean("orderController")).thenReturn(new TestControllerWithPathVariables());
+        HandlerInterceptor auth = mock(HandlerInterceptor.class);
+        HandlerInterceptor audit = mock(HandlerInterceptor.class);
+        InterceptorRegistry registry = new InterceptorRegistry();
+        registry.addInterceptor(auth).excludePathPatterns("/orders/42");
+        registry.addInterceptor(audit).addPathPatterns("/orders/7");
+        handlerMapping.setInterceptors(registry.getInterceptors());
+        handlerMapping.afterPropertiesSet();
+        when(request.getMethod()).thenReturn("GET");
+
+        when(request.getRequestURI()).thenReturn("/orders/42");
+        assertArrayEquals(new HandlerInterceptor[0], handlerMapping.getHandler(request).getInterceptors());
+
+        when(request.getRequestURI()).thenReturn("/orders/7");
+        assertArrayEquals(new HandlerInterceptor[]{auth, audit},
+            handlerMapping.getHandler(request).getInterceptors());
+
+        when(request.getRequestURI()).thenReturn("/shop/orders/42");
+        when(request.getContextPath()).thenReturn("/shop");
+        assertArrayEquals(new HandlerInterceptor[0], handlerMapping.getHandler(request).getInterceptors());
+
+        // 路由与模式无关时仍在启动时确定
+        when(request.getRequestURI()).thenReturn("/api/test");
+        when(request.getContextPath()).thenReturn("");
+        assertArrayEquals(new HandlerInterceptor[]{auth}, handlerMapping.getHandler(request).getInterceptors());
+    }
+
+    @Test
+    void shouldClassifyInterceptorScopeForRoutePatterns() {
+        HandlerInterceptor target = mock(HandlerInterceptor.class);
+        MappedInterceptor login = new MappedInterceptor(new String[]{"/api/**"}, new String[]{"/api/login"}, target);
+        assertEquals(MappedInterceptor.RouteMatch.SOME, login.matchRoute("/api/{action}"));
+        assertEquals(MappedInterceptor.RouteMatch.NONE, login.matchRoute("/api/login"));
+        assertEquals(MappedInterceptor.RouteMatch.ALL, login.matchRoute("/api/users/{id}"));
+        assertEquals(MappedInterceptor.RouteMatch.NONE, login.matchRoute("/shop/{id}"));
+        assertTrue(login.matches("/api/logout"));
+        assertFalse(login.matches("/api/login"));
+
+        MappedInterceptor scripts = new MappedInterceptor(new String[]{"/static/*.js"}, null, target);
+        assertEquals(MappedInterceptor.RouteMatch.SOME, scripts.matchRoute("/static/**"));
+        assertEquals(MappedInterceptor.RouteMatch.SOME, scripts.matchRoute("/static/{file}"));
+        assertEquals(MappedInterceptor.RouteMatch.NONE, scripts.matchRoute("/static/css/{file}"));
+        assertFalse(MappedInterceptor.matchPattern("/static/*", "/static/**"));
+    }
+
+    @Test
+    void shouldMatchInterceptorPatternsAgainstRoutePatterns() {
+        assertTrue(MappedInterceptor.matchPattern("/**", "/"));
+        assertTrue(MappedInterceptor.matchPattern("/api/**", "/api"));
+        assertTrue(MappedInterceptor.matchPattern("/api/**/items", "/api/users/{id}/items"));
+        assertTrue(MappedInterceptor.matchPattern("/users/*", "/users/{id}"));
+        assertTrue(MappedInterceptor.matchPattern("/files/*.js", "/files/app.js"));
+        assertFalse(MappedInterceptor.matchPattern("/users/*", "/users/{id}/orders"));
+        assertFalse(MappedInterceptor.matchPattern("/users/42", "/users/{id}"));
+        assertFalse(MappedInterceptor.matchPattern("/files/*.js", "/files/app.css"));
+    }
+
+    @Test
+    void shouldRejectHandlerMethodWithoutArgumentResolverAtStartup() {
+        when(applicationContext.getBeanDefinitionNames()).thenReturn(new String[]{"unresolvableController"});
+        when(applicationContext.getBean("unresolvableController")).thenReturn(new UnresolvableController());
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> handlerMapping.afterPropertiesSet());
+        assertTrue(ex.getMessage().contains("No suitable resolver"));
+    }
+
+    @Test
+    void shouldReuseResolversSelectedAtRegistration() throws Exception {
+        HandlerMethodArgumentResolver resolver = mock(HandlerMethodArgumentResolver.class);
+        when(resolver.supportsParameter(any())).thenReturn(true);
+        List<HandlerMethodArgumentResolver> resolvers = List.of(resolver);
+        handlerMapping.setArgumentResolvers(resolvers);
+        when(applicationContext.getBeanDefinitionNames()).thenReturn(new String[]{"unresolvableController"});
+        when(applicationContext.getBean("unresolvableController")).thenReturn(new UnresolvableController());
+        handlerMapping.afterPropertiesSet();
+        verify(resolver).supportsParameter(any());
+
+        when(request.getRequestURI()).thenReturn("/broken/builder");
+        when(request.getMethod()).thenReturn("GET");
+        HandlerMethod handlerMethod = (HandlerMethod) handlerMapping.getHandler(request).getHandler();
+
+        // 适配器使用同一组解析器时不再重新选定
+        assertSame(resolver, handlerMethod.getArgumentResolvers(resolvers)[0]);
+        verify(resolver).supportsParameter(any());
+    }
+
+    @RequestMapping("/broken")
+    static class UnresolvableController {
+        @RequestMapping("/builder")
+        public String build(StringBuilder builder) {
+            return builder.toString();
+        }
+    }
+
     // 测试用的Controller类
     @RequestMapping(value = "/test", method = RequestMethod.GET)
     static class TestController {
@@ -146,4 +339,18 @@ class RequestMappingHandlerMappingTest {
             return "test";
         }
     }
+
+    // 测试用的带路径变量的Controller类
+    @RequestMapping("/orders")
+    static class TestControllerWithPathVariables {
+        @RequestMapping(value = "/{id}", method = RequestMethod.GET)
+        public String getOrder() {
+            return "order";
+        }
+
+        @RequestMapping(value = "/{id}", method = RequestMethod.DELETE)
+        public String deleteOrder() {
+            return "deleted";
+        }
+    }
 } 
\ No newline at end of file
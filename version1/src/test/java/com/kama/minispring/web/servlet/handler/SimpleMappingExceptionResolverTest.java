@@ -8,6 +8,8 @@ import org.mockito.MockitoAnnotations;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.Properties;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -110,4 +112,52 @@ class SimpleMappingExceptionResolverTest {
         assertEquals("error", mv.getViewName());
         assertEquals(ex, mv.getModel().get("customException"));
     }
-} 
\ No newline at end of file
+
+    @Test
+    void shouldCacheResolvedViewPerExceptionClass() {
+        Properties mappings = new Properties();
+        mappings.setProperty("java.io.IOException", "io-error");
+        mappings.setProperty("java.lang.IllegalArgumentException", "bad-argument");
+        mappings.setProperty("com.example.MissingException", "never");
+        resolver.setExceptionMappings(mappings);
+
+        assertEquals("io-error", resolver.resolveException(request, response, null,
+                new FileNotFoundException("a")).getViewName());
+        assertEquals("io-error", resolver.resolveException(request, response, null,
+                new FileNotFoundException("b")).getViewName());
+        // 未匹配的结果同样缓存, 未知类名的映射被忽略
+        assertNull(resolver.resolveException(request, response, null, new IllegalStateException()));
+        assertNull(resolver.resolveException(request, response, null, new IllegalStateException()));
+        assertEquals("bad-argument", resolver.resolveException(request, response, null,
+                new NumberFormatException()).getViewName());
+    }
+
+    @Test
+    void shouldDropCachedViewsWhenMappingsChange() {
+        Properties mappings = new Properties();
+        mappings.setProperty("java.lang.Exception", "error");
+        resolver.setExceptionMappings(mappings);
+        assertEquals("error", resolver.resolveException(request, response, null,
+                new IOException()).getViewName());
+
+        mappings = new Properties();
+        mappings.setProperty("java.io.IOException", "io-error");
+        resolver.setExceptionMappings(mappings);
+        assertEquals("io-error", resolver.resolveException(request, response, null,
+                new IOException()).getViewName());
+    }
+
+    @Test
+    void shouldKeepPropertiesBasedLookupHooks() {
+        Properties mappings = new Properties();
+        mappings.setProperty("java.lang.Exception", "error");
+        mappings.setProperty("java.io.IOException", "io-error");
+        mappings.setProperty("com.example.MissingException", "never");
+
+        assertEquals("io-error", resolver.findMatchingViewName(mappings, new FileNotFoundException()));
+        assertNull(resolver.findMatchingViewName(new Properties(), new IOException()));
+        assertEquals(1, resolver.getDepth("java.io.IOException", new FileNotFoundException()));
+        assertEquals(-1, resolver.getDepth("java.io.IOException", new IllegalStateException()));
+        assertEquals(-1, resolver.getDepth("com.example.MissingException", new IOException()));
+    }
+}
@@ -0,0 +1,199 @@
+package com.kama.minispring.web.servlet.method;
+
+import com.kama.minispring.web.servlet.HandlerMapping;
+import com.kama.minispring.web.servlet.ModelAndView;
+import com.kama.minispring.web.servlet.annotation.PathVariable;
+import com.kama.minispring.web.servlet.annotation.RequestBody;
+import com.kama.minispring.web.servlet.annotation.RequestHeader;
+import com.kama.minispring.web.servlet.annotation.RequestParam;
+import com.kama.minispring.web.servlet.handler.RequestMappingHandlerAdapter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 处理器方法参数解析测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class HandlerMethodArgumentResolverTest {
+
+    private RequestMappingHandlerAdapter handlerAdapter;
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        handlerAdapter = new RequestMappingHandlerAdapter();
+    }
+
+    @Test
+    void shouldResolveAnnotatedArguments() throws Exception {
+        when(request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE)).thenReturn(Map.of("id", "42"));
+        when(request.getParameter("page")).thenReturn("3");
+        when(request.getParameterValues("tag")).thenReturn(new String[]{"1", "2"});
+        when(request.getHeader("X-Trace")).thenReturn("abc");
+
+        ModelAndView mv = handlerAdapter.handle(request, response, handler("find"));
+
+        assertEquals("42:3:[1, 2]:abc:20", mv.getModel().get("result"));
+    }
+
+    @Test
+    void shouldResolveRequestBodyAndServletObjects() throws Exception {
+        byte[] body = "你好".getBytes(StandardCharsets.UTF_8);
+        when(request.getInputStream()).thenReturn(new ByteArrayServletInputStream(body));
+
+        ModelAndView mv = handlerAdapter.handle(request, response, handler("create"));
+
+        assertEquals("你好", mv.getModel().get("result"));
+        verify(response).setStatus(201);
+    }
+
+    @Test
+    void shouldRejectMissingOrInvalidValues() throws Exception {
+        when(request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE)).thenReturn(Map.of("id", "42"));
+        assertThrows(ServletRequestBindingException.class,
+                () -> handlerAdapter.handle(request, response, handler("find")));
+
+        when(request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE)).thenReturn(Map.of("id", "x"));
+        when(request.getParameter("page")).thenReturn("1");
+        ServletRequestBindingException ex = assertThrows(ServletRequestBindingException.class,
+                () -> handlerAdapter.handle(request, response, handler("find")));
+        assertTrue(ex.getMessage().contains("'id'"));
+    }
+
+    @Test
+    void shouldPropagateHandlerExceptionUnwrapped() throws Exception {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> handlerAdapter.handle(request, response, handler("fail")));
+        assertEquals("bad", ex.getMessage());
+    }
+
+    @Test
+    void shouldFailWhenParameterHasNoResolver() throws Exception {
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> handlerAdapter.handle(request, response, handler("unsupported")));
+        assertTrue(ex.getMessage().contains("No suitable resolver"));
+    }
+
+    @Test
+    void shouldSelectResolversOnlyOnce() throws Exception {
+        CountingResolver counting = new CountingResolver();
+        handlerAdapter.setCustomArgumentResolvers(List.of(counting));
+        HandlerMethod handlerMethod = handler("unsupported");
+
+        handlerAdapter.handle(request, response, handlerMethod);
+        handlerAdapter.handle(request, response, handlerMethod);
+
+        assertEquals(1, counting.supportsCalls);
+        assertEquals(2, counting.resolveCalls);
+    }
+
+    private HandlerMethod handler(String name) {
+        for (Method method : TestController.class.getDeclaredMethods()) {
+            if (method.getName().equals(name)) {
+                return new HandlerMethod(new TestController(), method);
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    static class TestController {
+
+        public String find(@PathVariable long id, @RequestParam("page") int page,
+                @RequestParam(value = "tag", required = false) int[] tags,
+                @RequestHeader(value = "X-Trace", required = false) String trace,
+                @RequestParam(value = "size", defaultValue = "20") Integer size) {
+            return id + ":" + page + ":" + Arrays.toString(tags) + ":" + trace + ":" + size;
+        }
+
+        public String create(@RequestBody String body, HttpServletRequest request, HttpServletResponse response) {
+            response.setStatus(201);
+            return body;
+        }
+
+        public void fail() {
+            throw new IllegalArgumentException("bad");
+        }
+
+        public String unsupported(StringBuilder builder) {
+            return builder.toString();
+        }
+    }
+
+    static class CountingResolver implements HandlerMethodArgumentResolver {
+
+        int supportsCalls;
+
+        int resolveCalls;
+
+        @Override
+        public boolean supportsParameter(MethodParameter parameter) {
+            supportsCalls++;
+            return parameter.getParameterType() == StringBuilder.class;
+        }
+
+        @Override
+        public Object resolveArgument(MethodParameter parameter, HttpServletRequest request,
+                HttpServletResponse response) {
+            resolveCalls++;
+            return new StringBuilder("custom");
+        }
+    }
+
+    static class ByteArrayServletInputStream extends ServletInputStream {
+
+        private final ByteArrayInputStream delegate;
+
+        ByteArrayServletInputStream(byte[] bytes) {
+            this.delegate = new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return delegate.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return delegate.read(b, off, len);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+        }
+    }
+}
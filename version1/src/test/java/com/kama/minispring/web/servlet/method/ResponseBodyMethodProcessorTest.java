@@ -0,0 +1,247 @@
+package com.kama.minispring.web.servlet.method;
+
+import com.kama.minispring.http.MediaType;
+import com.kama.minispring.http.converter.AbstractHttpMessageConverter;
+import com.kama.minispring.http.converter.HttpMessageConverter;
+import com.kama.minispring.http.converter.JsonHttpMessageConverter;
+import com.kama.minispring.http.converter.PooledBodyOutputStream;
+import com.kama.minispring.http.converter.StringHttpMessageConverter;
+import com.kama.minispring.util.BufferPool;
+import com.kama.minispring.web.servlet.ModelAndView;
+import com.kama.minispring.web.servlet.annotation.ResponseBody;
+import com.kama.minispring.web.servlet.handler.RequestMappingHandlerAdapter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * ResponseBodyMethodProcessor测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class ResponseBodyMethodProcessorTest {
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    private CapturingOutputStream body;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        body = new CapturingOutputStream();
+        when(response.getOutputStream()).thenReturn(body);
+    }
+
+    @Test
+    void shouldWriteStringWithContentLengthWhenBodyFitsInOneBuffer() throws Exception {
+        ResponseBodyMethodProcessor processor = new ResponseBodyMethodProcessor(
+                List.of(new StringHttpMessageConverter()));
+
+        processor.handleReturnValue("你好", null, response);
+
+        verify(response).setContentType("text/plain;charset=UTF-8");
+        verify(response).setContentLengthLong(6);
+        assertEquals("你好", body.content());
+    }
+
+    @Test
+    void shouldNegotiateJsonFromAcceptHeader() throws Exception {
+        ResponseBodyMethodProcessor processor = new ResponseBodyMethodProcessor(
+                List.of(new StringHttpMessageConverter(), new JsonHttpMessageConverter()));
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("name", "a\"b\n");
+        value.put("items", List.of(1, 2.5, true));
+        value.put("user", new User("kama", 3));
+        value.put("none", null);
+
+        processor.handleReturnValue(value, "text/html;q=0.5, application/json", response);
+
+        verify(response).setContentType("application/json;charset=UTF-8");
+        assertEquals("{\"name\":\"a\\\"b\\n\",\"items\":[1,2.5,true],\"user\":{\"active\":true,\"age\":3,"
+                + "\"name\":\"kama\"},\"none\":null}", body.content());
+    }
+
+    @Test
+    void shouldRejectUnacceptableMediaType() {
+        ResponseBodyMethodProcessor processor = new ResponseBodyMethodProcessor(
+                List.of(new StringHttpMessageConverter(), new JsonHttpMessageConverter()));
+
+        assertThrows(HttpMediaTypeNotAcceptableException.class,
+                () -> processor.handleReturnValue(Map.of("a", 1), "text/plain", response));
+        assertThrows(HttpMediaTypeNotAcceptableException.class,
+                () -> processor.handleReturnValue(Map.of("a", 1), "text/plain", response));
+        verifyNoInteractions(response);
+    }
+
+    @Test
+    void shouldStreamLargeBodiesThroughPooledBuffers() throws Exception {
+        BufferPool pool = new BufferPool(64, 4);
+        StringHttpMessageConverter converter = new StringHttpMessageConverter();
+        converter.setBufferPool(pool);
+        ResponseBodyMethodProcessor processor = new ResponseBodyMethodProcessor(List.of(converter));
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            large.append("行").append(i);
+        }
+
+        processor.handleReturnValue(large, null, response);
+        processor.handleReturnValue(large, null, response);
+
+        verify(response, never()).setContentLengthLong(anyLong());
+        assertEquals(large.toString() + large, body.content());
+        assertTrue(body.writes > 10);
+        assertEquals(1, pool.getAllocationCount());
+    }
+
+    @Test
+    void shouldSelectConverterOncePerTypeAndAcceptHeader() throws Exception {
+        CountingConverter counting = new CountingConverter();
+        ResponseBodyMethodProcessor processor = new ResponseBodyMethodProcessor(
+                List.of(counting, new StringHttpMessageConverter()));
+
+        processor.handleReturnValue("a", "text/plain", response);
+        processor.handleReturnValue("b", "text/plain", response);
+        processor.handleReturnValue("c", "*/*", response);
+
+        assertEquals(2, counting.canWriteCalls);
+        assertEquals("abc", body.content());
+    }
+
+    @Test
+    void shouldWriteResponseBodyFromHandlerAdapter() throws Exception {
+        when(request.getHeader("Accept")).thenReturn("application/json");
+        RequestMappingHandlerAdapter adapter = new RequestMappingHandlerAdapter();
+        HandlerMethod handlerMethod = new HandlerMethod(new JsonController(),
+                JsonController.class.getMethod("users"));
+
+        ModelAndView mv = adapter.handle(request, response, handlerMethod);
+
+        assertNull(mv);
+        assertTrue(handlerMethod.isResponseBody());
+        assertEquals("[{\"active\":true,\"age\":1,\"name\":\"a\"}]", body.content());
+    }
+
+    @Test
+    void shouldParseAndSortAcceptHeader() {
+        List<MediaType> types = MediaType.parseAcceptHeader("text/*;q=0.8, */*;q=0.1, text/html, application/json");
+
+        assertEquals(List.of(MediaType.TEXT_HTML, MediaType.APPLICATION_JSON, new MediaType("text", "*"),
+                MediaType.ALL), types);
+        assertTrue(new MediaType("application", "*+json").includes(new MediaType("application", "vnd.api+json")));
+        assertThrows(IllegalArgumentException.class, () -> MediaType.parseMediaType("json"));
+    }
+
+    public static class User {
+
+        private final String name;
+
+        private final int age;
+
+        User(String name, int age) {
+            this.name = name;
+            this.age = age;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public boolean isActive() {
+            return true;
+        }
+    }
+
+    @ResponseBody
+    public static class JsonController {
+
+        public List<User> users() {
+            List<User> users = new ArrayList<>();
+            users.add(new User("a", 1));
+            return users;
+        }
+    }
+
+    static class CountingConverter extends AbstractHttpMessageConverter<CharSequence> {
+
+        int canWriteCalls;
+
+        CountingConverter() {
+            super(MediaType.TEXT_HTML);
+        }
+
+        @Override
+        public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+            canWriteCalls++;
+            return super.canWrite(clazz, mediaType) && !mediaType.isWildcardType();
+        }
+
+        @Override
+        protected boolean supports(Class<?> clazz) {
+            return CharSequence.class.isAssignableFrom(clazz);
+        }
+
+        @Override
+        protected void writeInternal(CharSequence value, MediaType contentType, PooledBodyOutputStream body)
+                throws IOException {
+            body.writeChars(value, StandardCharsets.UTF_8);
+        }
+    }
+
+    static class CapturingOutputStream extends ServletOutputStream {
+
+        private final ByteArrayOutputStream delegate = new ByteArrayOutputStream();
+
+        int writes;
+
+        @Override
+        public void write(int b) {
+            writes++;
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            writes++;
+            delegate.write(b, off, len);
+        }
+
+        String content() {
+            return delegate.toString(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+    }
+}
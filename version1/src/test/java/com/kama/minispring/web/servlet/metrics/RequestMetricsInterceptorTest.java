@@ -0,0 +1,159 @@
+package com.kama.minispring.web.servlet.metrics;
+
+import com.kama.minispring.web.servlet.HandlerExecutionChain;
+import com.kama.minispring.web.servlet.HandlerInterceptor;
+import com.kama.minispring.web.servlet.HandlerMapping;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * RequestMetricsInterceptor测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class RequestMetricsInterceptorTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    private RequestMetricsInterceptor interceptor;
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        interceptor = new RequestMetricsInterceptor();
+        interceptor.setTicker(clock::get);
+        doAnswer(inv -> attributes.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(request).setAttribute(anyString(), any());
+        when(request.getAttribute(anyString())).thenAnswer(inv -> attributes.get(inv.<String>getArgument(0)));
+    }
+
+    private void execute(String pattern, int status, long nanos, Exception ex) throws Exception {
+        attributes.clear();
+        if (pattern != null) {
+            attributes.put(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        }
+        when(response.getStatus()).thenReturn(status);
+        HandlerExecutionChain chain = new HandlerExecutionChain(new Object());
+        chain.addInterceptor(interceptor);
+        assertTrue(chain.applyPreHandle(request, response));
+        clock.addAndGet(nanos);
+        chain.triggerAfterCompletion(request, response, ex);
+    }
+
+    @Test
+    void shouldRecordCountsStatusClassesAndLatencyPerPattern() throws Exception {
+        execute("/users/{id}", 200, 2_000_000, null);
+        execute("/users/{id}", 404, 4_000_000, null);
+        execute("/users/{id}", 200, 30_000_000, new IllegalStateException("boom"));
+        execute("/orders", 201, 1_000_000, null);
+
+        RouteMetrics users = interceptor.getRouteMetrics("/users/{id}");
+        assertEquals(3, users.getRequestCount());
+        assertEquals(1, users.getStatusCount(2));
+        assertEquals(1, users.getStatusCount(4));
+        assertEquals(1, users.getStatusCount(5));
+        assertEquals(1, users.getExceptionCount());
+        assertEquals(30_000_000, users.getLatency().getMax());
+        assertEquals(36_000_000, users.getLatency().getSum());
+        assertEquals(1, interceptor.getRouteMetrics("/orders").getRequestCount());
+        assertEquals(2, interceptor.getRouteMetrics().size());
+    }
+
+    @Test
+    void shouldTimeRequestsRejectedByLaterInterceptors() throws Exception {
+        when(response.getStatus()).thenReturn(429);
+        attributes.put(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/limited");
+        HandlerExecutionChain chain = new HandlerExecutionChain(new Object());
+        chain.addInterceptor(interceptor);
+        chain.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                clock.addAndGet(500);
+                return false;
+            }
+        });
+
+        assertFalse(chain.applyPreHandle(request, response));
+
+        RouteMetrics limited = interceptor.getRouteMetrics("/limited");
+        assertEquals(1, limited.getStatusCount(4));
+        assertEquals(500, limited.getLatency().getMax());
+    }
+
+    @Test
+    void shouldBoundRouteCardinality() throws Exception {
+        interceptor.setMaxRoutes(2);
+        execute("/a", 200, 1, null);
+        execute(null, 200, 1, null);
+        execute("/c", 200, 1, null);
+        execute("/d", 200, 1, null);
+
+        assertEquals(3, interceptor.getRouteMetrics().size());
+        assertEquals(1, interceptor.getRouteMetrics(RequestMetricsInterceptor.UNKNOWN_ROUTE).getRequestCount());
+        assertEquals(2, interceptor.getRouteMetrics(RequestMetricsInterceptor.OVERFLOW_ROUTE).getRequestCount());
+    }
+
+    @Test
+    void shouldExposeMetricsInPrometheusTextFormat() throws Exception {
+        interceptor.setLatencyBuckets(0.1, 0.005);
+        execute("/users/{id}", 200, 3_000_000, null);
+        execute("/users/{id}", 500, 200_000_000, null);
+        execute("/say\"hi\"", 200, 1_000, null);
+        StringWriter output = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(output));
+
+        PrometheusMetricsHandler handler = new PrometheusMetricsHandler(interceptor);
+        handler.handleRequest(request, response);
+
+        String text = output.toString();
+        verify(response).setContentType(PrometheusMetricsHandler.CONTENT_TYPE);
+        assertTrue(text.contains("# TYPE http_server_request_duration_seconds histogram\n"));
+        assertTrue(text.contains("http_server_requests_total{route=\"/users/{id}\"} 2\n"));
+        assertTrue(text.contains("http_server_responses_total{route=\"/users/{id}\",status=\"5xx\"} 1\n"));
+        assertTrue(text.contains("http_server_request_duration_seconds_bucket{route=\"/users/{id}\",le=\"0.005\"} 1\n"));
+        assertTrue(text.contains("http_server_request_duration_seconds_bucket{route=\"/users/{id}\",le=\"0.1\"} 1\n"));
+        assertTrue(text.contains("http_server_request_duration_seconds_bucket{route=\"/users/{id}\",le=\"+Inf\"} 2\n"));
+        assertTrue(text.contains("http_server_request_duration_seconds_count{route=\"/users/{id}\"} 2\n"));
+        assertTrue(text.contains("http_server_requests_total{route=\"/say\\\"hi\\\"\"} 1\n"));
+    }
+
+    @Test
+    void shouldCountLatencyBucketsExactlyAtBoundaries() throws Exception {
+        interceptor.setLatencyBuckets(0.005, 0.01);
+        // 与0.005秒落在LatencyHistogram同一个内部桶中, 但大于边界
+        execute("/orders", 200, 5_100_000, null);
+        execute("/orders", 200, 5_000_000, null);
+        execute("/orders", 200, 20_000_000, null);
+
+        RouteMetrics orders = interceptor.getRouteMetrics("/orders");
+        assertArrayEquals(new long[]{1, 2, 3}, orders.getCumulativeLatencyBucketCounts());
+        String text = new PrometheusMetricsHandler(interceptor).scrape();
+        assertTrue(text.contains("http_server_request_duration_seconds_bucket{route=\"/orders\",le=\"0.005\"} 1\n"));
+        assertTrue(text.contains("http_server_request_duration_seconds_bucket{route=\"/orders\",le=\"0.01\"} 2\n"));
+        assertTrue(text.contains("http_server_request_duration_seconds_bucket{route=\"/orders\",le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("http_server_request_duration_seconds_count{route=\"/orders\"} 3\n"));
+    }
+}
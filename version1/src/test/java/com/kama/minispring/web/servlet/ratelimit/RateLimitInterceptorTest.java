@@ -0,0 +1,176 @@
+package com.kama.minispring.web.servlet.ratelimit;
+
+import com.kama.minispring.core.env.StandardEnvironment;
+import com.kama.minispring.web.servlet.HandlerExecutionChain;
+import com.kama.minispring.web.servlet.HandlerMapping;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * RateLimitInterceptor测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class RateLimitInterceptorTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(1_000 * SECOND);
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    private StandardEnvironment environment;
+
+    private RateLimitInterceptor interceptor;
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        environment = new StandardEnvironment();
+        doAnswer(inv -> attributes.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(request).setAttribute(anyString(), any());
+        doAnswer(inv -> attributes.remove(inv.<String>getArgument(0)))
+                .when(request).removeAttribute(anyString());
+        when(request.getAttribute(anyString())).thenAnswer(inv -> attributes.get(inv.<String>getArgument(0)));
+        when(request.getRemoteAddr()).thenReturn("10.0.0.1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (interceptor != null) {
+            interceptor.destroy();
+        }
+    }
+
+    private RateLimitInterceptor createInterceptor() {
+        RateLimitInterceptor created = new RateLimitInterceptor(environment);
+        created.setTicker(clock::get);
+        return created;
+    }
+
+    private boolean call(String route) throws Exception {
+        attributes.put(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, route);
+        return interceptor.preHandle(request, response, new Object());
+    }
+
+    @Test
+    void shouldAllowBurstThenRejectWithRetryAfter() throws Exception {
+        environment.setProperty("ratelimit.route[/orders].permits-per-second", "2");
+        environment.setProperty("ratelimit.route[/orders].burst", "3");
+        interceptor = createInterceptor();
+
+        assertTrue(call("/orders"));
+        assertTrue(call("/orders"));
+        assertTrue(call("/orders"));
+        assertFalse(call("/orders"));
+        verify(response).setHeader("Retry-After", "1");
+        verify(response).sendError(429, "Too Many Requests");
+        assertEquals(1, interceptor.getRejectedCount("/orders"));
+
+        // 其他路由不受影响
+        assertTrue(call("/health"));
+
+        clock.addAndGet(SECOND / 2);
+        assertTrue(call("/orders"));
+        assertFalse(call("/orders"));
+    }
+
+    @Test
+    void shouldLimitEachClientSeparatelyAndEvictIdleClients() throws Exception {
+        environment.setProperty("ratelimit.default.permits-per-second", "1");
+        environment.setProperty("ratelimit.default.per-client", "true");
+        environment.setProperty("ratelimit.client-key-header", "X-Api-Key");
+        interceptor = createInterceptor();
+        interceptor.setClientIdleTimeout(Duration.ofSeconds(10));
+
+        when(request.getHeader("X-Api-Key")).thenReturn("alice");
+        assertTrue(call("/search"));
+        assertFalse(call("/search"));
+        when(request.getHeader("X-Api-Key")).thenReturn("bob");
+        assertTrue(call("/search"));
+        assertEquals(2, interceptor.getClientCount("/search"));
+
+        clock.addAndGet(5 * SECOND);
+        assertEquals(0, interceptor.evictIdleClients());
+        clock.addAndGet(10 * SECOND);
+        assertEquals(2, interceptor.evictIdleClients());
+        assertEquals(0, interceptor.getClientCount("/search"));
+    }
+
+    @Test
+    void shouldLimitConcurrencyAndReleaseOnCompletion() throws Exception {
+        environment.setProperty("ratelimit.route[/reports].max-concurrent", "1");
+        interceptor = createInterceptor();
+
+        HandlerExecutionChain first = new HandlerExecutionChain(new Object());
+        first.addInterceptor(interceptor);
+        attributes.put(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/reports");
+        assertTrue(first.applyPreHandle(request, response));
+        Map<String, Object> firstAttributes = new HashMap<>(attributes);
+        assertEquals(1, interceptor.getInFlight("/reports"));
+
+        attributes.clear();
+        HandlerExecutionChain second = new HandlerExecutionChain(new Object());
+        second.addInterceptor(interceptor);
+        attributes.put(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/reports");
+        assertFalse(second.applyPreHandle(request, response));
+        // 被拒绝的请求也会触发afterCompletion, 但不能释放别人的名额
+        assertEquals(1, interceptor.getInFlight("/reports"));
+
+        attributes.clear();
+        attributes.putAll(firstAttributes);
+        first.triggerAfterCompletion(request, response, null);
+        assertEquals(0, interceptor.getInFlight("/reports"));
+        assertTrue(call("/reports"));
+    }
+
+    @Test
+    void shouldApplyChangedLimitsOnReload() throws Exception {
+        interceptor = createInterceptor();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(call("/items"));
+        }
+
+        environment.setProperty("ratelimit.route[/items].permits-per-second", "1");
+        environment.setProperty("ratelimit.route[/items].burst", "1");
+        interceptor.reload();
+        assertTrue(call("/items"));
+        assertFalse(call("/items"));
+
+        environment.setProperty("ratelimit.route[/items].permits-per-second", null);
+        environment.setProperty("ratelimit.route[/items].burst", null);
+        interceptor.reload();
+        assertTrue(call("/items"));
+    }
+
+    @Test
+    void shouldIgnoreInvalidProperties() throws Exception {
+        environment.setProperty("ratelimit.default.permits-per-second", "fast");
+        interceptor = createInterceptor();
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(call("/any"));
+        }
+    }
+}
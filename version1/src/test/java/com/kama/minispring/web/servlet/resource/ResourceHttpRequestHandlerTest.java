@@ -0,0 +1,242 @@
+package com.kama.minispring.web.servlet.resource;
+
+import com.kama.minispring.core.io.FileSystemResource;
+import com.kama.minispring.core.io.Resource;
+import com.kama.minispring.web.servlet.HandlerExecutionChain;
+import com.kama.minispring.web.servlet.HandlerMapping;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ResourceHttpRequestHandler测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class ResourceHttpRequestHandlerTest {
+
+    private static final String CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+    @TempDir
+    Path root;
+
+    private ResourceHttpRequestHandler handler;
+
+    private final Map<String, String> requestHeaders = new HashMap<>();
+
+    private final Map<String, String> responseHeaders = new HashMap<>();
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        Files.createDirectories(root.resolve("js"));
+        Files.writeString(root.resolve("js/app.js"), CONTENT);
+        Files.writeString(root.resolve("secret.txt"), "secret");
+
+        handler = new ResourceHttpRequestHandler();
+        handler.setLocations(Collections.<Resource>singletonList(new FileSystemResource(root.resolve("js").toFile())));
+        handler.afterPropertiesSet();
+
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getHeader(anyString())).thenAnswer(inv -> requestHeaders.get(inv.<String>getArgument(0)));
+        when(request.getDateHeader(anyString())).thenAnswer(inv -> {
+            String value = requestHeaders.get(inv.<String>getArgument(0));
+            return value != null ? Long.parseLong(value) : -1L;
+        });
+        doAnswer(inv -> responseHeaders.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(response).setHeader(anyString(), anyString());
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        handler.destroy();
+    }
+
+    private void get(String path) throws Exception {
+        when(request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE)).thenReturn(path);
+        handler.handleRequest(request, response);
+    }
+
+    @Test
+    void shouldServeFileWithMetadataHeaders() throws Exception {
+        get("app.js");
+
+        assertEquals(CONTENT, body.toString(StandardCharsets.UTF_8));
+        verify(response).setContentType("text/javascript;charset=UTF-8");
+        verify(response).setContentLengthLong(CONTENT.length());
+        verify(response).setDateHeader(eq("Last-Modified"), anyLong());
+        assertEquals("bytes", responseHeaders.get("Accept-Ranges"));
+        assertNotNull(responseHeaders.get("ETag"));
+    }
+
+    @Test
+    void shouldPreferPrecompressedSiblingsAcceptedByClient() throws Exception {
+        Files.write(root.resolve("js/app.js.gz"), new byte[]{1, 2, 3});
+        Files.write(root.resolve("js/app.js.br"), new byte[]{4, 5});
+        handler.resourceChanged(root.resolve("js/app.js.br"));
+
+        requestHeaders.put("Accept-Encoding", "gzip, deflate, br");
+        get("app.js");
+        assertEquals("br", responseHeaders.get("Content-Encoding"));
+        assertEquals("Accept-Encoding", responseHeaders.get("Vary"));
+        assertArrayEquals(new byte[]{4, 5}, body.toByteArray());
+
+        body.reset();
+        requestHeaders.put("Accept-Encoding", "gzip, br;q=0");
+        get("app.js");
+        assertEquals("gzip", responseHeaders.get("Content-Encoding"));
+        assertArrayEquals(new byte[]{1, 2, 3}, body.toByteArray());
+    }
+
+    @Test
+    void shouldIgnoreStalePrecompressedSibling() throws Exception {
+        Path gzip = root.resolve("js/app.js.gz");
+        Files.write(gzip, new byte[]{1, 2, 3});
+        Files.setLastModifiedTime(gzip, FileTime.fromMillis(0));
+        handler.resourceChanged(gzip);
+
+        requestHeaders.put("Accept-Encoding", "gzip");
+        get("app.js");
+
+        assertNull(responseHeaders.get("Content-Encoding"));
+        assertEquals(CONTENT, body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldServeByteRanges() throws Exception {
+        requestHeaders.put("Range", "bytes=10-19");
+        get("app.js");
+        verify(response).setStatus(206);
+        assertEquals("bytes 10-19/36", responseHeaders.get("Content-Range"));
+        assertEquals("abcdefghij", body.toString(StandardCharsets.UTF_8));
+
+        body.reset();
+        requestHeaders.put("Range", "bytes=-6");
+        get("app.js");
+        assertEquals("bytes 30-35/36", responseHeaders.get("Content-Range"));
+        assertEquals("uvwxyz", body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldRejectUnsatisfiableRangeAndIgnoreStaleIfRange() throws Exception {
+        requestHeaders.put("Range", "bytes=100-");
+        get("app.js");
+        verify(response).sendError(416);
+        assertEquals("bytes */36", responseHeaders.get("Content-Range"));
+
+        requestHeaders.put("Range", "bytes=0-4");
+        requestHeaders.put("If-Range", "\"outdated\"");
+        get("app.js");
+        verify(response, never()).setStatus(206);
+        assertEquals(CONTENT, body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldAnswerConditionalRequestsWithNotModified() throws Exception {
+        get("app.js");
+        String etag = responseHeaders.get("ETag");
+
+        body.reset();
+        requestHeaders.put("If-None-Match", "\"other\", " + etag);
+        get("app.js");
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(0, body.size());
+
+        requestHeaders.remove("If-None-Match");
+        requestHeaders.put("If-Modified-Since", String.valueOf(System.currentTimeMillis() + 60_000));
+        get("app.js");
+        verify(response, times(2)).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(0, body.size());
+    }
+
+    @Test
+    void shouldRejectTraversalAndUnknownMethods() throws Exception {
+        get("../secret.txt");
+        get("%2e%2e/secret.txt");
+        get("missing.js");
+        verify(response, times(3)).sendError(HttpServletResponse.SC_NOT_FOUND);
+
+        when(request.getMethod()).thenReturn("POST");
+        get("app.js");
+        verify(response).sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+        assertEquals(0, body.size());
+    }
+
+    @Test
+    void shouldRefreshCachedMetadataWhenFileChanges() throws Exception {
+        get("app.js");
+        String etag = responseHeaders.get("ETag");
+
+        Files.writeString(root.resolve("js/app.js"), "changed");
+        Files.setLastModifiedTime(root.resolve("js/app.js"), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        long deadline = System.currentTimeMillis() + 10_000;
+        do {
+            Thread.sleep(50);
+            body.reset();
+            get("app.js");
+        } while (etag.equals(responseHeaders.get("ETag")) && System.currentTimeMillis() < deadline);
+
+        assertNotEquals(etag, responseHeaders.get("ETag"));
+        assertEquals("changed", body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldMapLongestPrefixAndExposeRemainingPath() throws Exception {
+        ResourceHandlerMapping mapping = new ResourceHandlerMapping();
+        ResourceHttpRequestHandler assets = new ResourceHttpRequestHandler();
+        mapping.registerHandler("/static/**", handler);
+        mapping.registerHandler("/static/assets/**", assets);
+        when(request.getRequestURI()).thenReturn("/static/assets/css/site.css");
+        when(request.getContextPath()).thenReturn("");
+
+        HandlerExecutionChain chain = mapping.getHandler(request);
+
+        assertSame(assets, chain.getHandler());
+        verify(request).setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, "css/site.css");
+        verify(request).setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/static/assets/**");
+    }
+}
@@ -0,0 +1,104 @@
+package com.kama.minispring.web.servlet.view;
+
+import com.kama.minispring.web.servlet.View;
+import com.kama.minispring.web.servlet.ViewResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * CachingViewResolver测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class CachingViewResolverTest {
+
+    @Mock
+    private ViewResolver delegate;
+
+    @Mock
+    private View homeView;
+
+    @Mock
+    private View homeViewChinese;
+
+    private CachingViewResolver resolver;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(delegate.resolveViewName("home", Locale.ENGLISH)).thenReturn(homeView);
+        when(delegate.resolveViewName("home", Locale.CHINESE)).thenReturn(homeViewChinese);
+        resolver = new CachingViewResolver(delegate);
+    }
+
+    @Test
+    void shouldCacheResolvedViewsPerNameAndLocale() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertSame(homeView, resolver.resolveViewName("home", Locale.ENGLISH));
+            assertSame(homeViewChinese, resolver.resolveViewName("home", Locale.CHINESE));
+        }
+
+        verify(delegate, times(1)).resolveViewName("home", Locale.ENGLISH);
+        verify(delegate, times(1)).resolveViewName("home", Locale.CHINESE);
+        assertEquals(2, resolver.getCacheSize());
+    }
+
+    @Test
+    void shouldCacheUnresolvedNamesUntilRemoved() throws Exception {
+        assertNull(resolver.resolveViewName("missing", Locale.ENGLISH));
+        assertNull(resolver.resolveViewName("missing", Locale.ENGLISH));
+        verify(delegate, times(1)).resolveViewName("missing", Locale.ENGLISH);
+
+        when(delegate.resolveViewName("missing", Locale.ENGLISH)).thenReturn(homeView);
+        resolver.removeFromCache("missing", Locale.ENGLISH);
+        assertSame(homeView, resolver.resolveViewName("missing", Locale.ENGLISH));
+    }
+
+    @Test
+    void shouldNotCacheUnresolvedNamesWhenDisabled() throws Exception {
+        resolver.setCacheUnresolved(false);
+
+        resolver.resolveViewName("missing", null);
+        resolver.resolveViewName("missing", null);
+
+        verify(delegate, times(2)).resolveViewName("missing", null);
+        assertEquals(0, resolver.getCacheSize());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntriesWhenFull() throws Exception {
+        resolver.setCacheLimit(10);
+        for (int i = 0; i < 10; i++) {
+            when(delegate.resolveViewName("view" + i, null)).thenReturn(mock(View.class));
+            resolver.resolveViewName("view" + i, null);
+        }
+        // 访问view0使其成为最近使用的条目
+        resolver.resolveViewName("view0", null);
+
+        resolver.resolveViewName("view10", null);
+
+        assertTrue(resolver.getCacheSize() <= 10);
+        resolver.resolveViewName("view0", null);
+        verify(delegate, times(1)).resolveViewName("view0", null);
+        resolver.resolveViewName("view1", null);
+        verify(delegate, times(2)).resolveViewName("view1", null);
+    }
+
+    @Test
+    void shouldBypassCacheWhenLimitIsZero() throws Exception {
+        resolver.setCacheLimit(0);
+
+        resolver.resolveViewName("home", Locale.ENGLISH);
+        resolver.resolveViewName("home", Locale.ENGLISH);
+
+        verify(delegate, times(2)).resolveViewName("home", Locale.ENGLISH);
+    }
+}
@@ -0,0 +1,154 @@
+package com.kama.minispring.web.servlet.view.template;
+
+import com.kama.minispring.web.servlet.View;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * TemplateViewResolver测试类
+ *
+ * @author kama
+ * @version 1.0.0
+ */
+class TemplateViewResolverTest {
+
+    @TempDir
+    Path templates;
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    private final StringWriter output = new StringWriter();
+
+    private TemplateViewResolver resolver;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(response.getWriter()).thenReturn(new PrintWriter(output));
+        resolver = new TemplateViewResolver();
+        resolver.setPrefix(templates.toString() + "/");
+    }
+
+    private static String render(String source, Map<String, ?> model) throws Exception {
+        StringWriter writer = new StringWriter();
+        Template.compile("test", source).render(model, writer);
+        return writer.toString();
+    }
+
+    @Test
+    void shouldRenderResolvedTemplateToResponseWriter() throws Exception {
+        Files.writeString(templates.resolve("greeting.html"), "<p>Hello, {{user.name}}!</p>");
+        Map<String, Object> model = new HashMap<>();
+        model.put("user", new User("kama", true));
+
+        View view = resolver.resolveViewName("greeting", null);
+        view.render(model, request, response);
+
+        verify(response).setContentType("text/html;charset=UTF-8");
+        assertEquals("<p>Hello, kama!</p>", output.toString());
+    }
+
+    @Test
+    void shouldPreferMostSpecificLocalizedTemplate() throws Exception {
+        Files.writeString(templates.resolve("greeting.html"), "hello");
+        Files.writeString(templates.resolve("greeting_zh.html"), "你好");
+
+        assertEquals("你好", renderView(resolver.resolveViewName("greeting", Locale.SIMPLIFIED_CHINESE)));
+        assertEquals("hello", renderView(resolver.resolveViewName("greeting", Locale.ENGLISH)));
+        assertNull(resolver.resolveViewName("missing", Locale.ENGLISH));
+    }
+
+    private String renderView(View view) throws Exception {
+        output.getBuffer().setLength(0);
+        view.render(Collections.emptyMap(), request, response);
+        return output.toString();
+    }
+
+    @Test
+    void shouldEscapeVariablesUnlessTripleBraced() throws Exception {
+        Map<String, Object> model = Collections.singletonMap("html", "<b>\"Tom\" & 'Jerry'</b>");
+
+        assertEquals("&lt;b&gt;&quot;Tom&quot; &amp; &#39;Jerry&#39;&lt;/b&gt;", render("{{html}}", model));
+        assertEquals("<b>\"Tom\" & 'Jerry'</b>", render("{{{html}}}", model));
+        assertEquals("<b>\"Tom\" & 'Jerry'</b>", render("{{& html}}", model));
+    }
+
+    @Test
+    void shouldIterateSectionsAndRenderInvertedSections() throws Exception {
+        Map<String, Object> model = new HashMap<>();
+        model.put("users", Arrays.asList(new User("a", true), new User("b", false)));
+        model.put("tags", new String[]{"x", "y"});
+        model.put("empty", Collections.emptyList());
+        String source = "<ul>\n"
+                + "  {{#users}}\n"
+                + "  <li>{{name}}{{#active}}*{{/active}}</li>\n"
+                + "  {{/users}}\n"
+                + "</ul>\n"
+                + "{{! ignored }}\n"
+                + "{{#tags}}[{{.}}]{{/tags}}{{^empty}} none{{/empty}}";
+
+        assertEquals("<ul>\n  <li>a*</li>\n  <li>b</li>\n</ul>\n[x][y] none", render(source, model));
+    }
+
+    @Test
+    void shouldResolveNamesFromOuterScopesAndIgnoreMissingValues() throws Exception {
+        Map<String, Object> model = new HashMap<>();
+        model.put("title", "T");
+        model.put("items", List.of(Collections.singletonMap("label", "one")));
+
+        assertEquals("T:one;", render("{{#items}}{{title}}:{{label}};{{missing.value}}{{/items}}", model));
+    }
+
+    @Test
+    void shouldReportUnbalancedSections() {
+        IllegalArgumentException unclosed = assertThrows(IllegalArgumentException.class,
+                () -> Template.compile("broken", "line\n{{#items}}"));
+        assertTrue(unclosed.getMessage().contains("[broken]"));
+
+        assertThrows(IllegalArgumentException.class, () -> Template.compile("broken", "{{#a}}{{/b}}"));
+        assertThrows(IllegalArgumentException.class, () -> Template.compile("broken", "{{name"));
+    }
+
+    public static class User {
+
+        private final String name;
+
+        private final boolean active;
+
+        User(String name, boolean active) {
+            this.name = name;
+            this.active = active;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public boolean isActive() {
+            return this.active;
+        }
+    }
+}